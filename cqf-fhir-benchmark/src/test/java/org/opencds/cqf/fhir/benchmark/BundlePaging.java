@@ -0,0 +1,130 @@
+package org.opencds.cqf.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.util.bundle.BundleEntryParts;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
+import org.opencds.cqf.fhir.utility.iterable.BundleMappingIterable;
+import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Iterates a multi-page search whose pages each take a fixed round trip to fetch, as a remote
+ * repository's would, with and without page read-ahead.
+ */
+@State(Scope.Benchmark)
+public class BundlePaging {
+    private static final int PAGES = 20;
+    private static final int PAGE_SIZE = 50;
+    private static final long PAGE_LATENCY_MILLIS = 5;
+
+    @Param({"0", "1", "2"})
+    public int readAheadDepth;
+
+    private PagedRepository repository;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        this.repository = new PagedRepository(FhirContext.forR4Cached());
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    @Fork(warmups = 1, value = 1)
+    @Measurement(iterations = 5, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void testIteratePages(Blackhole bh) {
+        Bundle first = repository.search(Bundle.class, Patient.class, ArrayListMultimap.create(), Map.of());
+        var iterable = new BundleMappingIterable<>(
+                repository, first, readAheadDepth, readAheadDepth > 0 ? executor : null, BundleEntryParts::getResource);
+        for (var resource : iterable) {
+            // Stands in for the per-resource work a retrieve does while a page is consumed
+            Blackhole.consumeCPU(20_000);
+            bh.consume(resource);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt =
+                new OptionsBuilder().include(BundlePaging.class.getSimpleName()).build();
+        new Runner(opt).run();
+    }
+
+    /**
+     * Serves {@link #PAGES} pages of {@link #PAGE_SIZE} Patients, waiting
+     * {@link #PAGE_LATENCY_MILLIS} before returning each page.
+     */
+    static class PagedRepository extends InMemoryFhirRepository {
+        private final List<Bundle> pages = new ArrayList<>();
+
+        PagedRepository(FhirContext context) {
+            super(context);
+            for (int i = 0; i < PAGES; i++) {
+                var page = new Bundle().setType(Bundle.BundleType.SEARCHSET);
+                for (int j = 0; j < PAGE_SIZE; j++) {
+                    page.addEntry().setResource(new Patient().setId("patient-" + i + "-" + j));
+                }
+                if (i + 1 < PAGES) {
+                    page.addLink().setRelation(IBaseBundle.LINK_NEXT).setUrl("page-" + (i + 1));
+                }
+                pages.add(page);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <B extends IBaseBundle, T extends IBaseResource> B search(
+                Class<B> bundleType,
+                Class<T> resourceType,
+                Multimap<String, List<IQueryParameterType>> searchParameters,
+                Map<String, String> headers) {
+            return (B) page(0);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <B extends IBaseBundle> B link(Class<B> bundleType, String url, Map<String, String> headers) {
+            return (B) page(Integer.parseInt(url.substring("page-".length())));
+        }
+
+        private Bundle page(int index) {
+            try {
+                Thread.sleep(PAGE_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pages.get(index);
+        }
+    }
+}
@@ -16,10 +16,13 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -31,7 +34,47 @@ public class Measures {
 
     @Setup(Level.Trial)
     public void setupTrial() throws Exception {
-        var evaluationOptions = MeasureEvaluationOptions.defaultOptions();
+        this.when = Measure.given()
+                .repositoryFor("CaseRepresentation101")
+                .evaluationOptions(evaluationOptions(false))
+                .when()
+                .measureId("GlycemicControlHypoglycemicInitialPopulation")
+                .subject("Patient/eNeMVHWfNoTsMTbrwWQQ30A3")
+                .periodStart(LocalDate.of(2022, Month.JANUARY, 1).atStartOfDay(ZoneId.systemDefault()))
+                .periodEnd(LocalDate.of(2022, Month.JUNE, 29).atStartOfDay(ZoneId.systemDefault()))
+                .reportType("subject")
+                .evaluate();
+    }
+
+    /**
+     * Population report over every subject in the repository. Compare gc.alloc.rate.norm between
+     * the two parameter values to see the heap retained for evaluated resources that a summary
+     * report never emits.
+     */
+    @State(Scope.Benchmark)
+    public static class PopulationState {
+        @Param({"false", "true"})
+        public boolean retainEvaluatedResourcesForAllReportTypes;
+
+        private When when;
+
+        @Setup(Level.Trial)
+        public void setupTrial() throws Exception {
+            this.when = Measure.given()
+                    .repositoryFor("CaseRepresentation101")
+                    .evaluationOptions(evaluationOptions(retainEvaluatedResourcesForAllReportTypes))
+                    .when()
+                    .measureId("GlycemicControlHypoglycemicInitialPopulation")
+                    .periodStart(LocalDate.of(2022, Month.JANUARY, 1).atStartOfDay(ZoneId.systemDefault()))
+                    .periodEnd(LocalDate.of(2022, Month.JUNE, 29).atStartOfDay(ZoneId.systemDefault()))
+                    .reportType("population")
+                    .evaluate();
+        }
+    }
+
+    private static MeasureEvaluationOptions evaluationOptions(boolean retainEvaluatedResourcesForAllReportTypes) {
+        var evaluationOptions = MeasureEvaluationOptions.defaultOptions()
+                .setRetainEvaluatedResourcesForAllReportTypes(retainEvaluatedResourcesForAllReportTypes);
         evaluationOptions.getEvaluationSettings().setLibraryCache(new HashMap<>());
         evaluationOptions
                 .getEvaluationSettings()
@@ -42,17 +85,7 @@ public class Measures {
                 .getEvaluationSettings()
                 .getTerminologySettings()
                 .setValuesetExpansionMode(VALUESET_EXPANSION_MODE.PERFORM_NAIVE_EXPANSION);
-
-        this.when = Measure.given()
-                .repositoryFor("CaseRepresentation101")
-                .evaluationOptions(evaluationOptions)
-                .when()
-                .measureId("GlycemicControlHypoglycemicInitialPopulation")
-                .subject("Patient/eNeMVHWfNoTsMTbrwWQQ30A3")
-                .periodStart(LocalDate.of(2022, Month.JANUARY, 1).atStartOfDay(ZoneId.systemDefault()))
-                .periodEnd(LocalDate.of(2022, Month.JUNE, 29).atStartOfDay(ZoneId.systemDefault()))
-                .reportType("subject")
-                .evaluate();
+        return evaluationOptions;
     }
 
     @Benchmark
@@ -65,9 +98,30 @@ public class Measures {
         bh.consume(this.when.then().report());
     }
 
+    @Benchmark
+    @Fork(warmups = 1, value = 1)
+    @Measurement(iterations = 2, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void testEvaluatePopulation(PopulationState state, Blackhole bh) throws Exception {
+        bh.consume(state.when.then().report());
+    }
+
     public static void main(String[] args) throws RunnerException {
-        Options opt =
-                new OptionsBuilder().include(Measures.class.getSimpleName()).build();
-        new Runner(opt).run();
+        Options opt = new OptionsBuilder()
+                .include(Measures.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        // Bytes allocated per report, side by side for the two settings of the population benchmark
+        for (RunResult result : new Runner(opt).run()) {
+            var retain = result.getParams().getParam("retainEvaluatedResourcesForAllReportTypes");
+            result.getSecondaryResults().entrySet().stream()
+                    .filter(entry -> entry.getKey().endsWith("gc.alloc.rate.norm"))
+                    .forEach(entry -> System.out.printf(
+                            "%s%s: %.0f %s%n",
+                            result.getPrimaryResult().getLabel(),
+                            retain == null ? "" : " (retainEvaluatedResourcesForAllReportTypes=" + retain + ")",
+                            entry.getValue().getScore(),
+                            entry.getValue().getScoreUnit()));
+        }
     }
 }
@@ -0,0 +1,103 @@
+package org.opencds.cqf.fhir.benchmark;
+
+import static org.opencds.cqf.fhir.benchmark.plandefinition.TestPlanDefinition.given;
+import static org.opencds.cqf.fhir.utility.r4.Parameters.parameters;
+import static org.opencds.cqf.fhir.utility.r4.Parameters.part;
+
+import ca.uhn.fhir.context.FhirContext;
+import java.util.concurrent.TimeUnit;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Reference;
+import org.opencds.cqf.fhir.benchmark.plandefinition.TestPlanDefinition.When;
+import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.SEARCH_FILTER_MODE;
+import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.TERMINOLOGY_FILTER_MODE;
+import org.opencds.cqf.fhir.cql.engine.terminology.TerminologySettings.VALUESET_EXPANSION_MODE;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * $apply with a large amount of prefetched data for the subject and for other patients, as a
+ * CDS Hooks request passes it, so that retrieves search a large in-memory repository.
+ */
+@State(Scope.Benchmark)
+public class PlanDefinitionsPrefetch {
+    private static final FhirContext FHIR_CONTEXT = FhirContext.forR4Cached();
+    private static final String SUBJECT = "Patient/5946f880-b197-400b-9caa-a3c661d23041";
+
+    @Param({"1000", "10000"})
+    private int prefetchSize;
+
+    private When apply;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        // Context and codes are passed to the repository as search parameters, as they would be
+        // for a CDS Hooks request, rather than filtered after retrieving every resource
+        var evaluationSettings = EvaluationSettings.getDefault();
+        evaluationSettings
+                .getRetrieveSettings()
+                .setSearchParameterMode(SEARCH_FILTER_MODE.USE_SEARCH_PARAMETERS)
+                .setTerminologyParameterMode(TERMINOLOGY_FILTER_MODE.USE_INLINE_CODES);
+        evaluationSettings
+                .getTerminologySettings()
+                .setValuesetExpansionMode(VALUESET_EXPANSION_MODE.PERFORM_NAIVE_EXPANSION);
+
+        this.apply = given()
+                .repositoryFor(FHIR_CONTEXT, "r4/anc-dak")
+                .evaluationSettings(evaluationSettings)
+                .when()
+                .planDefinitionId("ANCDT17")
+                .subjectId(SUBJECT)
+                .encounterId("Encounter/helloworld-patient-1-encounter-1")
+                .parameters(parameters(part("encounter", "helloworld-patient-1-encounter-1")))
+                .additionalData(prefetch(prefetchSize));
+    }
+
+    private static Bundle prefetch(int size) {
+        var bundle = new Bundle().setType(Bundle.BundleType.COLLECTION);
+        for (int i = 0; i < size; i++) {
+            // Most of the data is for other patients, as with a shared prefetch
+            var subject = i % 10 == 0 ? SUBJECT : "Patient/prefetch-" + (i % 100);
+            bundle.addEntry()
+                    .setResource(new Observation()
+                            .setStatus(Observation.ObservationStatus.FINAL)
+                            .setSubject(new Reference(subject))
+                            .setCode(new CodeableConcept(new Coding("http://loinc.org", "prefetch-" + (i % 50), null)))
+                            .setId("prefetch-" + i));
+        }
+        return bundle;
+    }
+
+    @Benchmark
+    @Fork(warmups = 1, value = 1)
+    @Measurement(iterations = 2, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void testApplyWithPrefetch(Blackhole bh) throws Exception {
+        // The Blackhole ensures that the compiler doesn't optimize
+        // away this call, which does nothing with the result of the evaluation
+        bh.consume(this.apply.applyR5());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PlanDefinitionsPrefetch.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -237,6 +237,11 @@ public class TestPlanDefinition {
             return this;
         }
 
+        public When additionalData(IBaseBundle bundle) {
+            additionalData = bundle;
+            return this;
+        }
+
         public When additionalDataId(IIdType id) {
             additionalDataId = id;
             return this;
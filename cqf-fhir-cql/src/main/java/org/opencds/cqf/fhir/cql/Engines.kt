@@ -34,6 +34,7 @@ import org.opencds.cqf.fhir.utility.BundleHelper
 import org.opencds.cqf.fhir.utility.Constants
 import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory
 import org.opencds.cqf.fhir.utility.model.FhirModelResolverCache
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation
 import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
@@ -55,12 +56,14 @@ object Engines {
                 settings.valueSetCache,
                 settings.terminologySettings,
             )
+        terminologyProvider.instrumentation = settings.instrumentation
         val dataProviders =
             buildDataProviders(
                 repository,
                 additionalData,
                 terminologyProvider,
                 settings.retrieveSettings,
+                settings.instrumentation,
             )
         val environment = buildEnvironment(repository, settings, terminologyProvider, dataProviders)
         return createEngine(environment, settings)
@@ -125,7 +128,7 @@ object Engines {
             loader.registerProvider(FhirLibrarySourceProvider())
         }
 
-        loader.registerProvider(buildLibrarySource(repository))
+        loader.registerProvider(buildLibrarySource(repository, settings.instrumentation))
     }
 
     private fun registerNpmSupport(
@@ -171,13 +174,19 @@ object Engines {
         )
     }
 
-    private fun buildLibrarySource(repository: IRepository): LibrarySourceProvider {
+    private fun buildLibrarySource(
+        repository: IRepository,
+        instrumentation: Instrumentation,
+    ): LibrarySourceProvider {
         val adapterFactory = IAdapterFactory.forFhirContext(repository.fhirContext())
-        return RepositoryFhirLibrarySourceProvider(
-            repository,
-            adapterFactory,
-            LibraryVersionSelector(adapterFactory),
-        )
+        val provider =
+            RepositoryFhirLibrarySourceProvider(
+                repository,
+                adapterFactory,
+                LibraryVersionSelector(adapterFactory),
+            )
+        provider.instrumentation = instrumentation
+        return provider
     }
 
     private fun buildDataProviders(
@@ -185,6 +194,7 @@ object Engines {
         additionalData: IBaseBundle?,
         terminologyProvider: TerminologyProvider,
         retrieveSettings: RetrieveSettings,
+        instrumentation: Instrumentation,
     ): MutableMap<String?, DataProvider?> {
         val dataProviders = mutableMapOf<String?, DataProvider?>()
 
@@ -194,6 +204,7 @@ object Engines {
 
         val retrieveProvider =
             RepositoryRetrieveProvider(repository, terminologyProvider, retrieveSettings)
+        retrieveProvider.instrumentation = instrumentation
         providers.add(retrieveProvider)
         if (
             additionalData != null &&
@@ -202,6 +213,7 @@ object Engines {
             val bundleRepo = InMemoryFhirRepository(repository.fhirContext(), additionalData)
             val provider =
                 RepositoryRetrieveProvider(bundleRepo, terminologyProvider, retrieveSettings)
+            provider.instrumentation = instrumentation
             providers.add(provider)
         }
 
@@ -10,6 +10,7 @@ import org.hl7.elm.r1.VersionedIdentifier
 import org.opencds.cqf.cql.engine.runtime.Code
 import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings
 import org.opencds.cqf.fhir.cql.engine.terminology.TerminologySettings
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation
 
 class EvaluationSettings {
     var modelCache: MutableMap<ModelIdentifier, Model>?
@@ -30,6 +31,9 @@ class EvaluationSettings {
     var terminologySettings: TerminologySettings
     var npmProcessor: NpmProcessor?
 
+    /** Records the time spent retrieving data, expanding ValueSets and resolving libraries */
+    var instrumentation: Instrumentation
+
     internal constructor() {
         this.modelCache = ConcurrentHashMap<ModelIdentifier, Model>()
         this.libraryCache = ConcurrentHashMap<VersionedIdentifier, CompiledLibrary>()
@@ -40,6 +44,7 @@ class EvaluationSettings {
         this.terminologySettings = TerminologySettings()
         this.npmProcessor = null
         this.registeredNamespaces = ConcurrentHashMap<String, String>()
+        this.instrumentation = Instrumentation.noop()
     }
 
     /**
@@ -60,6 +65,7 @@ class EvaluationSettings {
             if (settings.npmProcessor != null) NpmProcessor(settings.npmProcessor!!.igContext)
             else null
         this.registeredNamespaces = ConcurrentHashMap<String, String>(settings.registeredNamespaces)
+        this.instrumentation = settings.instrumentation
     }
 
     fun withModelCache(modelCache: MutableMap<ModelIdentifier, Model>?): EvaluationSettings {
@@ -108,6 +114,11 @@ class EvaluationSettings {
         return this
     }
 
+    fun withInstrumentation(instrumentation: Instrumentation): EvaluationSettings {
+        this.instrumentation = instrumentation
+        return this
+    }
+
     fun setRegisteredNamespaces(namespaces: MutableMap<String, String>?) {
         this.registeredNamespaces = ConcurrentHashMap<String, String>(namespaces)
     }
@@ -11,6 +11,8 @@ import org.hl7.elm.r1.VersionedIdentifier
 import org.hl7.fhir.instance.model.api.IBaseResource
 import org.hl7.fhir.instance.model.api.ICompositeType
 import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames
 
 /**
  * This class implements logic for extracting content from a FHIR Library resource and provides an
@@ -18,11 +20,33 @@ import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory
  */
 abstract class BaseFhirLibrarySourceProvider
 protected constructor(protected val adapterFactory: IAdapterFactory) : LibrarySourceProvider {
+
+    /** Records the time spent looking up libraries */
+    var instrumentation: Instrumentation = Instrumentation.noop()
+
     override fun getLibraryContent(
         libraryIdentifier: VersionedIdentifier,
         libraryContentType: LibraryContentType,
     ): Source? {
-        val library = this.getLibrary(libraryIdentifier) ?: return null
+        val span = instrumentation.startSpan(InstrumentationNames.LIBRARY_RESOLUTION)
+        val library =
+            try {
+                if (instrumentation.isEnabled) {
+                    span.setAttribute(
+                        InstrumentationNames.LIBRARY,
+                        "${libraryIdentifier.id}|${libraryIdentifier.version}",
+                    )
+                }
+                this.getLibrary(libraryIdentifier)
+            } catch (e: RuntimeException) {
+                span.setError(e)
+                throw e
+            } finally {
+                span.close()
+            }
+        if (library == null) {
+            return null
+        }
 
         val inputStream = this.getContentStream(library, libraryContentType.mimeType())
         return inputStream?.asSource()?.buffered()
@@ -4,6 +4,8 @@ import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition
 import ca.uhn.fhir.context.FhirContext
 import ca.uhn.fhir.fhirpath.IFhirPath
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException
+import java.io.Writer
+import java.lang.reflect.Constructor
 import org.hl7.fhir.instance.model.api.*
 import org.opencds.cqf.cql.engine.execution.EvaluationResult
 import org.opencds.cqf.cql.engine.fhir.converter.FhirTypeConverter
@@ -41,19 +43,7 @@ class CqlFhirParametersConverter(
     protected val fhirPath: IFhirPath = FhirPathCache.cachedForContext(fhirContext)
 
     fun toFhirParameters(evaluationResult: EvaluationResult): IBaseParameters {
-        var params: IBaseParameters?
-        try {
-            params =
-                this.fhirContext
-                    .getResourceDefinition("Parameters")
-                    .implementingClass
-                    .getConstructor()
-                    .newInstance() as IBaseParameters
-        } catch (e: Exception) {
-            logger.error("Error trying to create Parameters resource", e)
-            throw RuntimeException(e)
-        }
-
+        val params = newParameters()
         val pa = this.adapterFactory.createParameters(params)
 
         for (entry in evaluationResult.expressionResults.entries) {
@@ -62,14 +52,7 @@ class CqlFhirParametersConverter(
 
             if (value is List) {
                 if (!value.iterator().hasNext()) {
-                    // Empty list
-                    val emptyListValue: IBaseBooleanDatatype =
-                        emptyBooleanWithExtension(
-                            fhirContext,
-                            EMPTY_LIST_EXT_URL,
-                            booleanType(fhirContext, true),
-                        )
-                    addPart(pa, name, emptyListValue)
+                    addEmptyListPart(pa, name)
                 }
                 for (o in value) {
                     this.addPart(pa, name, o)
@@ -82,6 +65,67 @@ class CqlFhirParametersConverter(
         return params
     }
 
+    /**
+     * Writes the evaluation result to the writer as a JSON Parameters resource, one parameter at a time, so that
+     * only the parameter being written is held as a FHIR structure. The output is the same as encoding the result
+     * of [toFhirParameters] with a JSON parser, without pretty printing.
+     */
+    fun writeFhirParameters(evaluationResult: EvaluationResult, writer: Writer) {
+        val parser = this.fhirContext.newJsonParser().setPrettyPrint(false)
+        var hasParameters = false
+        val writeParameter = { name: kotlin.String, value: Any?, isEmptyList: kotlin.Boolean ->
+            val pa = this.adapterFactory.createParameters(newParameters())
+            if (isEmptyList) addEmptyListPart(pa, name) else this.addPart(pa, name, value)
+            val json = parser.encodeResourceToString(pa.get())
+            if (!json.startsWith(PARAMETERS_JSON_PREFIX) || !json.endsWith(PARAMETERS_JSON_SUFFIX)) {
+                throw InternalErrorException("Unexpected encoding of parameter $name")
+            }
+            writer.write(if (hasParameters) "," else ",\"parameter\":[")
+            val partLength = json.length - PARAMETERS_JSON_PREFIX.length - PARAMETERS_JSON_SUFFIX.length
+            writer.write(json, PARAMETERS_JSON_PREFIX.length, partLength)
+            hasParameters = true
+        }
+
+        writer.write("{\"resourceType\":\"Parameters\"")
+        for (entry in evaluationResult.expressionResults.entries) {
+            val name = entry.key
+            val value = entry.value.value
+
+            if (value is List) {
+                if (!value.iterator().hasNext()) {
+                    writeParameter(name, null, true)
+                }
+                for (o in value) {
+                    writeParameter(name, o, false)
+                }
+            } else {
+                writeParameter(name, value, false)
+            }
+        }
+        writer.write(if (hasParameters) "]}" else "}")
+        writer.flush()
+    }
+
+    private fun newParameters(): IBaseParameters {
+        try {
+            return newInstance(this.fhirContext.getResourceDefinition("Parameters").implementingClass)
+                as IBaseParameters
+        } catch (e: Exception) {
+            logger.error("Error trying to create Parameters resource", e)
+            throw RuntimeException(e)
+        }
+    }
+
+    private fun addEmptyListPart(pa: IParametersAdapter, name: kotlin.String) {
+        val emptyListValue: IBaseBooleanDatatype =
+            emptyBooleanWithExtension(
+                fhirContext,
+                EMPTY_LIST_EXT_URL,
+                booleanType(fhirContext, true),
+            )
+        addPart(pa, name, emptyListValue)
+    }
+
     protected fun addPart(
         pa: IParametersAdapter,
         name: kotlin.String,
@@ -415,7 +459,7 @@ class CqlFhirParametersConverter(
             if (clazz.isEnum) {
                 instance = modelResolver.createHapiInstance(typeName) as IBase
             } else {
-                instance = clazz.getDeclaredConstructor().newInstance() as IBase
+                instance = newInstance(clazz) as IBase
             }
         } catch (e: Exception) {
             throw IllegalArgumentException("Could not create instance of $typeName", e)
@@ -495,6 +539,18 @@ class CqlFhirParametersConverter(
             "http://hl7.org/fhir/StructureDefinition/data-absent-reason"
         const val DATA_ABSENT_REASON_UNKNOWN_CODE: kotlin.String = "unknown"
 
+        private const val PARAMETERS_JSON_PREFIX: kotlin.String =
+            "{\"resourceType\":\"Parameters\",\"parameter\":["
+        private const val PARAMETERS_JSON_SUFFIX: kotlin.String = "]}"
+
+        // The no-arg constructors of the FHIR classes created during conversion, looked up once per class
+        private val constructors =
+            object : ClassValue<Constructor<*>>() {
+                override fun computeValue(type: Class<*>): Constructor<*> = type.getDeclaredConstructor()
+            }
+
+        private fun newInstance(clazz: Class<*>): Any = constructors.get(clazz).newInstance()
+
         private fun booleanType(
             context: FhirContext,
             value: kotlin.Boolean?,
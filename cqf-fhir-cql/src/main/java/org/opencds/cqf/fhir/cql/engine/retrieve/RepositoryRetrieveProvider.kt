@@ -16,6 +16,8 @@ import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.SEARCH_FILTER_M
 import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.TERMINOLOGY_FILTER_MODE
 import org.opencds.cqf.fhir.utility.iterable.BundleMappingIterable
 import org.opencds.cqf.fhir.utility.model.FhirModelResolverCache
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames
 import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository
 import org.opencds.cqf.fhir.utility.repository.ig.IgRepository
 
@@ -34,6 +36,9 @@ class RepositoryRetrieveProvider(
 
     private val fhirContext: FhirContext = repository.fhirContext()
 
+    /** Records the time spent in each retrieve and the number of resources returned */
+    var instrumentation: Instrumentation = Instrumentation.noop()
+
     override fun retrieve(
         context: String?,
         contextPath: String?,
@@ -48,6 +53,48 @@ class RepositoryRetrieveProvider(
         dateHighPath: String?,
         dateRange: Interval?,
     ): Iterable<Value?>? {
+        val span = instrumentation.startSpan(InstrumentationNames.RETRIEVE)
+        try {
+            span.setAttribute(InstrumentationNames.DATA_TYPE, dataType)
+            val values =
+                search(
+                    context,
+                    contextPath,
+                    contextValue,
+                    dataType,
+                    templateId,
+                    codePath,
+                    codes,
+                    valueSet,
+                    datePath,
+                    dateLowPath,
+                    dateHighPath,
+                    dateRange,
+                )
+            instrumentation.increment(InstrumentationNames.RETRIEVE_RESOURCES, values.size.toLong())
+            return values
+        } catch (e: RuntimeException) {
+            span.setError(e)
+            throw e
+        } finally {
+            span.close()
+        }
+    }
+
+    private fun search(
+        context: String?,
+        contextPath: String?,
+        contextValue: String?,
+        dataType: String,
+        templateId: String?,
+        codePath: String?,
+        codes: Iterable<Code>?,
+        valueSet: String?,
+        datePath: String?,
+        dateLowPath: String?,
+        dateHighPath: String?,
+        dateRange: Interval?,
+    ): List<Value?> {
         val resourceType = fhirContext.getResourceDefinition(dataType).implementingClass
 
         @Suppress("UNCHECKED_CAST")
@@ -66,7 +113,15 @@ class RepositoryRetrieveProvider(
         val resources = this.repository.search(bt, resourceType, config.searchParams, headers)
 
         val modelResolver = FhirModelResolverCache.resolverForVersion(fhirContext.version.version)
-        val iter = BundleMappingIterable(repository, resources) { obj -> obj!!.resource }
+        val iter =
+            BundleMappingIterable(
+                repository,
+                resources,
+                retrieveSettings.pageReadAheadDepth,
+                retrieveSettings.pageReadAheadExecutor,
+            ) { obj ->
+                obj!!.resource
+            }
         return iter
             .toStream()
             .filter(config.filter)
@@ -1,5 +1,7 @@
 package org.opencds.cqf.fhir.cql.engine.retrieve
 
+import java.util.concurrent.Executor
+
 class RetrieveSettings {
     var searchParameterMode: SEARCH_FILTER_MODE = SEARCH_FILTER_MODE.AUTO
         private set
@@ -10,6 +12,13 @@ class RetrieveSettings {
     var terminologyParameterMode: TERMINOLOGY_FILTER_MODE = TERMINOLOGY_FILTER_MODE.AUTO
         private set
 
+    /** Number of search result pages fetched ahead of the page being read, 0 to fetch on demand */
+    var pageReadAheadDepth: Int = 0
+        private set
+
+    var pageReadAheadExecutor: Executor? = null
+        private set
+
     /** Default constructor for RetrieveSettings */
     constructor()
 
@@ -22,6 +31,8 @@ class RetrieveSettings {
         this.searchParameterMode = retrieveSettings.searchParameterMode
         this.profileMode = retrieveSettings.profileMode
         this.terminologyParameterMode = retrieveSettings.terminologyParameterMode
+        this.pageReadAheadDepth = retrieveSettings.pageReadAheadDepth
+        this.pageReadAheadExecutor = retrieveSettings.pageReadAheadExecutor
     }
 
     /**
@@ -127,4 +138,22 @@ class RetrieveSettings {
         this.profileMode = profileMode
         return this
     }
+
+    /**
+     * Fetch the following pages of a multi-page search in the background while the current page is
+     * read, rather than when it is exhausted.
+     *
+     * @param depth number of pages to fetch ahead, 0 to disable read-ahead
+     * @param executor executor the pages are fetched on
+     * @return this
+     */
+    fun setPageReadAhead(depth: Int, executor: Executor?): RetrieveSettings {
+        require(depth >= 0) { "depth can not be negative, but was: $depth" }
+        require(depth == 0 || executor != null) {
+            "executor is required when depth is greater than 0"
+        }
+        this.pageReadAheadDepth = depth
+        this.pageReadAheadExecutor = executor
+        return this
+    }
 }
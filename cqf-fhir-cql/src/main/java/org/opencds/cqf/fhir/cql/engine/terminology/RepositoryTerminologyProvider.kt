@@ -13,6 +13,8 @@ import org.opencds.cqf.fhir.cql.engine.terminology.TerminologySettings.VALUESET_
 import org.opencds.cqf.fhir.cql.engine.terminology.TerminologySettings.VALUESET_PRE_EXPANSION_MODE
 import org.opencds.cqf.fhir.utility.FhirPathCache
 import org.opencds.cqf.fhir.utility.ValueSets
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames
 import org.opencds.cqf.fhir.utility.search.Searches
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
@@ -34,6 +36,9 @@ constructor(
     private val fhirContext: FhirContext = repository.fhirContext()
     private val fhirPath: IFhirPath = FhirPathCache.cachedForContext(fhirContext)
 
+    /** Records the time spent expanding ValueSets and how often expansions are found cached */
+    var instrumentation: Instrumentation = Instrumentation.noop()
+
     // The cached expansions are sorted by code order
     // This is used determine the range of codes to check
     private class Range(val start: Int, val end: Int) {
@@ -97,9 +102,14 @@ constructor(
         // create a url|version canonical url from the info
         val url = valueSet.id + (if (valueSet.version != null) ("|" + valueSet.version) else "")
 
-        val expansion = this.valueSetIndex.computeIfAbsent(url) { tryExpand(valueSet) }
+        val cached = this.valueSetIndex[url]
+        if (cached != null) {
+            instrumentation.increment(InstrumentationNames.VALUE_SET_CACHE_HIT)
+            return cached
+        }
 
-        return expansion
+        instrumentation.increment(InstrumentationNames.VALUE_SET_CACHE_MISS)
+        return this.valueSetIndex.computeIfAbsent(url) { tryExpand(url, valueSet) }
     }
 
     private fun classFor(resourceType: String?): Class<out IBaseResource?>? {
@@ -113,6 +123,19 @@ constructor(
      * only codes directly referenced in the ValueSet. It's not possible to run expansion filters
      * without the support of a terminology server.
      */
+    private fun tryExpand(url: String, valueSet: ValueSetInfo): MutableList<Code> {
+        val span = instrumentation.startSpan(InstrumentationNames.VALUE_SET_EXPANSION)
+        try {
+            span.setAttribute(InstrumentationNames.VALUE_SET, url)
+            return tryExpand(valueSet)
+        } catch (e: RuntimeException) {
+            span.setError(e)
+            throw e
+        } finally {
+            span.close()
+        }
+    }
+
     private fun tryExpand(valueSet: ValueSetInfo): MutableList<Code> {
         var codes = performExpansion(valueSet)
         // Filter out invalid codes that are missing a code or system
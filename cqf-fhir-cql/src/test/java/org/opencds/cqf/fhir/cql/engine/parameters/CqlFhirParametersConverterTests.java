@@ -10,6 +10,7 @@ import static org.opencds.cqf.cql.engine.fhir.ConstantsKt.fhirModelNamespaceUri;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -140,6 +141,37 @@ class CqlFhirParametersConverterTests {
         assertTrue(expected.equalsDeep(actual));
     }
 
+    @Test
+    void evaluationResultWrittenAsJson() {
+        var testList = new ArrayList<Value>();
+        testList.add(new org.opencds.cqf.cql.engine.runtime.Integer(5));
+        testList.add(null);
+
+        var testData = new EvaluationResult();
+        testData.set(
+                new EvaluationExpressionRef("Patient"),
+                new ExpressionResult(new ClassInstance(new QName(fhirModelNamespaceUri, "Patient"), Map.of()), null));
+        testData.set(
+                new EvaluationExpressionRef("Numbers"),
+                new ExpressionResult(new org.opencds.cqf.cql.engine.runtime.List(testList), null));
+        testData.set(
+                new EvaluationExpressionRef("Encounters"),
+                new ExpressionResult(new org.opencds.cqf.cql.engine.runtime.List(emptyList()), null));
+        testData.set(new EvaluationExpressionRef("Null"), new ExpressionResult(null, null));
+
+        var writer = new StringWriter();
+        cqlFhirParametersConverter.writeFhirParameters(testData, writer);
+
+        var parser = FhirContext.forR4Cached().newJsonParser();
+        var expected = (Parameters) cqlFhirParametersConverter.toFhirParameters(testData);
+        assertEquals(parser.encodeResourceToString(expected), writer.toString());
+        assertTrue(expected.equalsDeep(parser.parseResource(Parameters.class, writer.toString())));
+
+        var empty = new StringWriter();
+        cqlFhirParametersConverter.writeFhirParameters(new EvaluationResult(), empty);
+        assertEquals("{\"resourceType\":\"Parameters\"}", empty.toString());
+    }
+
     @Test
     void fhirParametersToCqlParameters() {
         var expected = new HashMap<String, Value>();
@@ -29,4 +29,17 @@ public class CqlCommandArgument {
             names = {"-op", "--output-path"},
             description = "Specifies the path where the CQL output files will be written.")
     public String outputPath;
+
+    @Option(
+            names = {"--output-format"},
+            defaultValue = "files",
+            description =
+                    "The layout of the files written to --output-path and --report-path: files for one file per subject, ndjson for one NDJSON file per resource type and a results.csv summary of the expression results of every subject, or parameters for one FHIR Parameters JSON file per subject. Output without a path is written to the console as before.")
+    public String outputFormat;
+
+    @Option(
+            names = {"--output-compression"},
+            defaultValue = "none",
+            description = "Compresses ndjson output files: none or gzip.")
+    public String outputCompression;
 }
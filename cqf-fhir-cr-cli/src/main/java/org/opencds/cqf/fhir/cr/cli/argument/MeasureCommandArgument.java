@@ -34,4 +34,18 @@ public class MeasureCommandArgument {
             defaultValue = "true",
             description = "Tells evaluation to apply scoring algorithm to returned results.")
     public String applyScoring;
+
+    @Option(
+            names = {"--report-type"},
+            defaultValue = "subject",
+            description =
+                    "The type of report to produce: subject for one individual report per subject, or population or subject-list for one report covering all subjects. If no subjects are given with --context, population and subject-list reports cover every Patient in --data-url.")
+    public String reportType;
+
+    @Option(
+            names = {"--threads"},
+            defaultValue = "1",
+            description =
+                    "The number of subjects to evaluate concurrently for population and subject-list reports. Each thread has its own CQL engine, sharing compiled libraries and value sets.")
+    public int threads;
 }
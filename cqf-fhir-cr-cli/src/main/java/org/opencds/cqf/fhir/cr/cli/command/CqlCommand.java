@@ -1,20 +1,23 @@
 package org.opencds.cqf.fhir.cr.cli.command;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 import kotlin.Unit;
 import org.hl7.elm.r1.VersionedIdentifier;
+import org.opencds.cqf.cql.engine.execution.CqlEngine;
 import org.opencds.cqf.cql.engine.execution.EvaluationParams;
 import org.opencds.cqf.cql.engine.execution.EvaluationParams.LibraryParams;
 import org.opencds.cqf.cql.engine.execution.EvaluationResult;
 import org.opencds.cqf.fhir.cr.cli.argument.CqlCommandArgument;
 import org.opencds.cqf.fhir.cr.cli.command.EngineFactory.EngineBundle;
+import org.opencds.cqf.fhir.cr.cli.output.AsyncWriter;
+import org.opencds.cqf.fhir.cr.cli.output.OutputSinks;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 
@@ -35,9 +38,12 @@ public class CqlCommand implements Callable<Integer> {
         var evalStart = System.nanoTime();
 
         AtomicLong counter = new AtomicLong();
-        result.subjectResults().forEach(x -> {
-            counter.incrementAndGet();
-        });
+        // Closing the stream waits for the output to be written
+        try (var subjectResults = result.subjectResults()) {
+            subjectResults.forEach(x -> {
+                counter.incrementAndGet();
+            });
+        }
 
         var evalEnd = System.nanoTime();
         var evalTime = (evalEnd - evalStart) / 1_000_000;
@@ -67,63 +73,91 @@ public class CqlCommand implements Callable<Integer> {
     public record CqlCommandResult(Stream<SubjectAndResult> subjectResults, EngineBundle engineBundle) {}
 
     /**
-     * Evaluates CQL and returns a stream of SubjectAndResult.
+     * Evaluates CQL and returns a stream of SubjectAndResult. Results are written on a writer
+     * thread of their own as the stream is consumed, and closing the stream waits for them to be
+     * written.
      */
     public static CqlCommandResult createCqlCommandResult(CqlCommandArgument arguments) throws IOException {
-        Path baseOutput = arguments.outputPath != null ? Path.of(arguments.outputPath) : null;
-        if (baseOutput != null) {
-            Files.createDirectories(baseOutput);
+        var writer = new AsyncWriter();
+        try {
+            var result = createCqlCommandResult(arguments, writer);
+            return new CqlCommandResult(
+                    result.subjectResults().onClose(() -> close(writer)), result.engineBundle());
+        } catch (IOException | RuntimeException e) {
+            writer.close();
+            throw e;
         }
+    }
+
+    /**
+     * Evaluates CQL and returns a stream of SubjectAndResult. Results are written on the given
+     * writer as the stream is consumed. Closing the stream queues the closing of the output, the
+     * caller closes the writer.
+     */
+    static CqlCommandResult createCqlCommandResult(CqlCommandArgument arguments, AsyncWriter writer)
+            throws IOException {
+        Path baseOutput = arguments.outputPath != null ? Path.of(arguments.outputPath) : null;
 
         VersionedIdentifier identifier = new VersionedIdentifier().withId(arguments.content.name);
         Set<String> expressions = arguments.content.expression != null ? Set.of(arguments.content.expression) : null;
         var bundle = EngineFactory.createEngineBundle(arguments);
+        var sink = OutputSinks.create(
+                arguments.outputFormat,
+                arguments.outputCompression,
+                baseOutput,
+                bundle.fhirContext(),
+                bundle.parser(),
+                writer);
 
         var contexts =
                 arguments.parameters.context.stream().map(c -> new SubjectContext(c.contextName, c.contextValue));
 
-        var resultStream = contexts.map(sc -> {
-                    var contextParameter = new kotlin.Pair<>(sc.name(), sc.value());
-                    var paramBuilder = new EvaluationParams.Builder();
-                    paramBuilder.setContextParameter(contextParameter);
-                    if (expressions != null && !expressions.isEmpty()) {
-                        paramBuilder.library(identifier, builder -> {
-                            builder.expressions(expressions);
-                            return Unit.INSTANCE;
-                        });
-                    } else {
-                        paramBuilder.library(identifier, new LibraryParams.Builder().build());
-                    }
-
-                    var cqlResult = bundle.engine().evaluate(paramBuilder.build());
-                    return new SubjectAndResult(sc, cqlResult.getOnlyResultOrThrow());
-                })
+        var resultStream = contexts.map(sc -> evaluateSubject(bundle.engine(), identifier, expressions, sc))
                 .map(cqlResult -> {
+                    sink.writeResult(
+                            cqlResult.subject().name(), cqlResult.subject().value(), cqlResult.result());
                     if (baseOutput != null) {
-                        Path outputPath = baseOutput.resolve(cqlResult.subject().value() + ".txt");
-                        try {
-                            writeResultToFile(cqlResult.result(), cqlResult.subjectId(), outputPath);
-                            log.info("✅ Completed {}", cqlResult.subjectId());
-                        } catch (IOException e) {
-                            throw new RuntimeException("Failed to write CQL results for " + cqlResult.subjectId(), e);
-                        }
-                    } else {
-                        Utilities.writeResult(cqlResult.result(), System.out);
+                        log.info("✅ Completed {}", cqlResult.subjectId());
                     }
                     return cqlResult;
-                });
+                })
+                .onClose(() -> close(sink));
 
         return new CqlCommandResult(resultStream, bundle);
     }
 
-    private static void writeResultToFile(EvaluationResult result, String subjectId, Path outputPath)
-            throws IOException {
-        try (var writer = Files.newBufferedWriter(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-            for (var entry : result.getExpressionResults().entrySet()) {
-                writer.write(entry.getKey() + "="
-                        + Utilities.tempConvert(entry.getValue().getValue()));
-                writer.newLine();
-            }
+    static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write output", e);
         }
     }
+
+    /**
+     * Evaluates a library for a single subject.
+     *
+     * @param engine the engine to evaluate with
+     * @param identifier the library to evaluate
+     * @param expressions the expressions to evaluate, or null for all of them
+     * @param subject the subject to evaluate for
+     * @return the subject and its result
+     */
+    static SubjectAndResult evaluateSubject(
+            CqlEngine engine, VersionedIdentifier identifier, Set<String> expressions, SubjectContext subject) {
+        var contextParameter = new kotlin.Pair<>(subject.name(), subject.value());
+        var paramBuilder = new EvaluationParams.Builder();
+        paramBuilder.setContextParameter(contextParameter);
+        if (expressions != null && !expressions.isEmpty()) {
+            paramBuilder.library(identifier, builder -> {
+                builder.expressions(expressions);
+                return Unit.INSTANCE;
+            });
+        } else {
+            paramBuilder.library(identifier, new LibraryParams.Builder().build());
+        }
+
+        var cqlResult = engine.evaluate(paramBuilder.build());
+        return new SubjectAndResult(subject, cqlResult.getOnlyResultOrThrow());
+    }
 }
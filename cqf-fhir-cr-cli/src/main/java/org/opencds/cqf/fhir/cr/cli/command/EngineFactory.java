@@ -50,6 +50,23 @@ public class EngineFactory {
 
         var repository = Utilities.createRepository(fhirContext, arguments.fhir.terminologyUrl, arguments.fhir.dataUrl);
 
+        var engine = createEngine(arguments, repository, evaluationSettings);
+
+        return new EngineBundle(fhirContext, evaluationSettings, repository, engine, fhirContext.newJsonParser());
+    }
+
+    /**
+     * Creates an engine for the given repository and settings. Engines created with the same
+     * settings share its library and value set caches, so additional engines for concurrent
+     * evaluation don't compile the same libraries again.
+     *
+     * @param arguments the command arguments
+     * @param repository the repository to evaluate against
+     * @param evaluationSettings the evaluation settings
+     * @return the engine
+     */
+    public static CqlEngine createEngine(
+            CqlCommandArgument arguments, IRepository repository, EvaluationSettings evaluationSettings) {
         var engine = Engines.forRepository(repository, evaluationSettings);
 
         if (arguments.content.cqlPath != null) {
@@ -58,6 +75,6 @@ public class EngineFactory {
             engine.getEnvironment().getLibraryManager().getLibrarySourceLoader().registerProvider(provider);
         }
 
-        return new EngineBundle(fhirContext, evaluationSettings, repository, engine, fhirContext.newJsonParser());
+        return engine;
     }
 }
@@ -5,31 +5,47 @@ import ca.uhn.fhir.repository.IRepository;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
+import org.hl7.elm.r1.VersionedIdentifier;
+import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Measure;
 import org.hl7.fhir.r4.model.MeasureReport;
+import org.hl7.fhir.r4.model.Patient;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cr.cli.argument.CqlCommandArgument;
 import org.opencds.cqf.fhir.cr.cli.argument.MeasureCommandArgument;
 import org.opencds.cqf.fhir.cr.cli.command.CqlCommand.SubjectAndResult;
+import org.opencds.cqf.fhir.cr.cli.command.CqlCommand.SubjectContext;
 import org.opencds.cqf.fhir.cr.cli.command.EngineFactory.EngineBundle;
+import org.opencds.cqf.fhir.cr.cli.output.AsyncWriter;
+import org.opencds.cqf.fhir.cr.cli.output.OutputSink;
+import org.opencds.cqf.fhir.cr.cli.output.OutputSinks;
 import org.opencds.cqf.fhir.cr.measure.MeasureEvaluationOptions;
 import org.opencds.cqf.fhir.cr.measure.common.CqlEvaluationResult;
+import org.opencds.cqf.fhir.cr.measure.common.MeasureEvalType;
 import org.opencds.cqf.fhir.cr.measure.r4.R4MeasureProcessor;
+import org.opencds.cqf.fhir.utility.iterable.BundleMappingIterable;
+import org.opencds.cqf.fhir.utility.search.Searches;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 
@@ -53,9 +69,12 @@ public class MeasureCommand implements Callable<Integer> {
         var evalStart = System.nanoTime();
 
         AtomicLong counter = new AtomicLong();
-        result.measureReports().forEach(x -> {
-            counter.incrementAndGet();
-        });
+        // Closing the stream waits for the output to be written
+        try (var measureReports = result.measureReports()) {
+            measureReports.forEach(x -> {
+                counter.incrementAndGet();
+            });
+        }
 
         var evalEnd = System.nanoTime();
         var evalTime = (evalEnd - evalStart) / 1_000_000;
@@ -69,7 +88,23 @@ public class MeasureCommand implements Callable<Integer> {
     public record MeasureCommandResult(Stream<MeasureReport> measureReports, EngineBundle engineBundle) {}
 
     public static MeasureCommandResult createMeasureCommandResult(MeasureCommandArgument args) throws IOException {
-        var cqlResult = CqlCommand.createCqlCommandResult(args.cql);
+        // CQL results and measure reports share one writer thread, which closing the stream waits for
+        var writer = new AsyncWriter();
+        try {
+            var result = isAggregateReportType(args.reportType)
+                    ? createAggregateMeasureCommandResult(args, writer)
+                    : createIndividualMeasureCommandResult(args, writer);
+            return new MeasureCommandResult(
+                    result.measureReports().onClose(() -> CqlCommand.close(writer)), result.engineBundle());
+        } catch (IOException | RuntimeException e) {
+            writer.close();
+            throw e;
+        }
+    }
+
+    private static MeasureCommandResult createIndividualMeasureCommandResult(
+            MeasureCommandArgument args, AsyncWriter writer) throws IOException {
+        var cqlResult = CqlCommand.createCqlCommandResult(args.cql, writer);
         var bundle = cqlResult.engineBundle();
 
         var measure = bundle.repository().read(Measure.class, new IdType(args.measureName));
@@ -79,45 +114,175 @@ public class MeasureCommand implements Callable<Integer> {
                 bundle.evaluationSettings(), bundle.repository(), Boolean.parseBoolean(args.applyScoring));
 
         // Parse period dates once
-        var start = args.periodStart != null
-                ? LocalDate.parse(args.periodStart, DateTimeFormatter.ISO_LOCAL_DATE)
-                        .atStartOfDay(ZoneId.systemDefault())
-                : null;
-
-        var end = args.periodEnd != null
-                ? LocalDate.parse(args.periodEnd, DateTimeFormatter.ISO_LOCAL_DATE)
-                        .atTime(LocalTime.MAX)
-                        .atZone(ZoneId.systemDefault())
-                : null;
+        var start = getPeriodStart(args);
+        var end = getPeriodEnd(args);
 
         Path reportOutput = args.reportPath != null ? Path.of(args.reportPath) : null;
-        if (reportOutput != null) {
-            Files.createDirectories(reportOutput);
-        }
+        var reportSink = createReportSink(args, reportOutput, bundle, writer);
 
         var measureResults = cqlResult
                 .subjectResults()
                 .map(sr -> evaluateMeasureForSubject(processor, measure, start, end, sr))
                 .map(sr -> {
+                    reportSink.writeResource(sr.subjectId(), sr.report());
                     if (reportOutput != null) {
-                        var json = bundle.parser().encodeResourceToString(sr.report());
-                        try {
-                            writeMeasureReportToFile(json, sr.subjectId(), reportOutput);
-                            log.info("Measure report for {} written to: {}", sr.subjectId(), reportOutput);
-                        } catch (IOException e) {
-                            throw new RuntimeException("Failed to write measure report for " + sr.subjectId(), e);
-                        }
-                    } else {
-                        System.out.println(bundle.parser().encodeResourceToString(sr.report()));
+                        log.info("Measure report for {} queued for: {}", sr.subjectId(), reportOutput);
                     }
 
                     log.info("✅ Completed {}", sr.subjectId());
                     return sr.report();
-                });
+                })
+                .onClose(() -> CqlCommand.close(reportSink));
 
         return new MeasureCommandResult(measureResults, bundle);
     }
 
+    private static boolean isAggregateReportType(String reportType) {
+        var evalType = MeasureEvalType.fromCode(reportType).orElse(MeasureEvalType.SUBJECT);
+        return evalType == MeasureEvalType.POPULATION
+                || evalType == MeasureEvalType.SUBJECTLIST
+                || evalType == MeasureEvalType.PATIENTLIST;
+    }
+
+    /**
+     * Evaluates all subjects and produces a single population or subject-list report for the
+     * measure. Subjects are evaluated on {@code --threads} workers, each with its own engine.
+     */
+    private static MeasureCommandResult createAggregateMeasureCommandResult(
+            MeasureCommandArgument args, AsyncWriter writer) throws IOException {
+        if (args.threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, but was: " + args.threads);
+        }
+
+        var bundle = EngineFactory.createEngineBundle(args.cql);
+        var measure = bundle.repository().read(Measure.class, new IdType(args.measureName));
+        R4MeasureProcessor processor = getR4MeasureProcessor(
+                bundle.evaluationSettings(), bundle.repository(), Boolean.parseBoolean(args.applyScoring));
+        var start = getPeriodStart(args);
+        var end = getPeriodEnd(args);
+
+        Path reportOutput = args.reportPath != null ? Path.of(args.reportPath) : null;
+        var reportSink = createReportSink(args, reportOutput, bundle, writer);
+
+        // Evaluated lazily, like the individual reports, when the stream is consumed
+        var measureResults = Stream.of(measure).map(m -> {
+            var subjects = getSubjects(args.cql, bundle.repository());
+            var results = evaluateSubjects(args, bundle, subjects);
+            var subjectIds = subjects.stream().map(SubjectContext::subjectId).toList();
+            var report = processor.evaluateMeasureResults(m, start, end, args.reportType, subjectIds, results);
+
+            reportSink.writeResource(args.measureName, report);
+            if (reportOutput != null) {
+                log.info("Measure report for {} subjects queued for: {}", subjects.size(), reportOutput);
+            }
+            return report;
+        });
+
+        return new MeasureCommandResult(measureResults.onClose(() -> CqlCommand.close(reportSink)), bundle);
+    }
+
+    /**
+     * @return the sink measure reports are written to, in the output format of the CQL results
+     */
+    private static OutputSink createReportSink(
+            MeasureCommandArgument args, @Nullable Path reportOutput, EngineBundle bundle, AsyncWriter writer)
+            throws IOException {
+        return OutputSinks.create(
+                args.cql.outputFormat,
+                args.cql.outputCompression,
+                reportOutput,
+                bundle.fhirContext(),
+                bundle.parser(),
+                writer);
+    }
+
+    /**
+     * @return the subjects given with --context, or every Patient in the data repository if there are none
+     */
+    private static List<SubjectContext> getSubjects(CqlCommandArgument arguments, IRepository repository) {
+        if (arguments.parameters != null
+                && arguments.parameters.context != null
+                && !arguments.parameters.context.isEmpty()) {
+            return arguments.parameters.context.stream()
+                    .map(c -> new SubjectContext(c.contextName, c.contextValue))
+                    .toList();
+        }
+
+        var firstPage = repository.search(Bundle.class, Patient.class, Searches.ALL);
+        var ids = new BundleMappingIterable<>(
+                repository, firstPage, p -> p.getResource().getIdElement().getIdPart());
+        var subjects = new ArrayList<SubjectContext>();
+        for (var id : ids) {
+            subjects.add(new SubjectContext("Patient", id));
+        }
+        log.info("Found {} Patients to evaluate", subjects.size());
+        return subjects;
+    }
+
+    private static Map<String, CqlEvaluationResult> evaluateSubjects(
+            MeasureCommandArgument args, EngineBundle bundle, List<SubjectContext> subjects) {
+        var identifier = new VersionedIdentifier().withId(args.cql.content.name);
+        Set<String> expressions = args.cql.content.expression != null ? Set.of(args.cql.content.expression) : null;
+
+        // Keyed in subject order, whichever order the subjects complete in
+        Map<String, CqlEvaluationResult> results = new LinkedHashMap<>();
+        if (args.threads == 1 || subjects.size() < 2) {
+            for (var subject : subjects) {
+                var result = CqlCommand.evaluateSubject(bundle.engine(), identifier, expressions, subject);
+                results.put(subject.subjectId(), new CqlEvaluationResult(result.result()));
+                log.info("✅ Completed {}", subject.subjectId());
+            }
+            return results;
+        }
+
+        // One engine per worker thread. Engines are not thread-safe, but engines created from the
+        // same settings share compiled libraries and value sets.
+        var engines = ThreadLocal.withInitial(
+                () -> EngineFactory.createEngine(args.cql, bundle.repository(), bundle.evaluationSettings()));
+        var executor = Executors.newFixedThreadPool(Math.min(args.threads, subjects.size()));
+        try {
+            var futures = subjects.stream()
+                    .map(subject -> CompletableFuture.supplyAsync(
+                            () -> {
+                                var result =
+                                        CqlCommand.evaluateSubject(engines.get(), identifier, expressions, subject);
+                                log.info("✅ Completed {}", subject.subjectId());
+                                return result;
+                            },
+                            executor))
+                    .toList();
+            for (int i = 0; i < subjects.size(); i++) {
+                var result = futures.get(i).join();
+                results.put(subjects.get(i).subjectId(), new CqlEvaluationResult(result.result()));
+            }
+            return results;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Nullable
+    private static ZonedDateTime getPeriodStart(MeasureCommandArgument args) {
+        return args.periodStart != null
+                ? LocalDate.parse(args.periodStart, DateTimeFormatter.ISO_LOCAL_DATE)
+                        .atStartOfDay(ZoneId.systemDefault())
+                : null;
+    }
+
+    @Nullable
+    private static ZonedDateTime getPeriodEnd(MeasureCommandArgument args) {
+        return args.periodEnd != null
+                ? LocalDate.parse(args.periodEnd, DateTimeFormatter.ISO_LOCAL_DATE)
+                        .atTime(LocalTime.MAX)
+                        .atZone(ZoneId.systemDefault())
+                : null;
+    }
+
     @Nullable
     private static Measure getMeasure(IParser parser, String measurePath, String measureName) {
         if (measureName == null || measurePath == null) {
@@ -160,19 +325,4 @@ public class MeasureCommand implements Callable<Integer> {
 
         return new R4MeasureProcessor(repository, evaluationOptions);
     }
-
-    private static void writeMeasureReportToFile(String json, String contextValue, Path path) throws IOException {
-        Path outputPath = path.resolve(contextValue + ".json");
-        // Ensure parent directories exist
-        Files.createDirectories(outputPath.getParent());
-
-        // Write JSON to file
-        try (OutputStream out = Files.newOutputStream(
-                outputPath,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE)) {
-            out.write(json.getBytes());
-        }
-    }
 }
@@ -0,0 +1,151 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs writes on a single background thread, in the order they are submitted, so that output I/O
+ * overlaps evaluation instead of blocking it. The queue is bounded, so a producer that outpaces the
+ * disk waits rather than holding the whole run in memory.
+ * <p/>
+ * The first write that fails stops all further writes, other than cleanups queued with
+ * {@link #submitCleanup}. The failure is rethrown to the next caller of {@link #submit} and from
+ * {@link #close}.
+ */
+public class AsyncWriter implements Closeable {
+
+    /**
+     * A write to run on the writer thread.
+     */
+    @FunctionalInterface
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final Write END = () -> {};
+
+    private final BlockingQueue<Write> queue;
+    private final Thread thread;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile IOException failure;
+
+    public AsyncWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of writes that may be queued before {@link #submit} blocks
+     */
+    public AsyncWriter(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::drain, "cli-output-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a write, waiting for space if the queue is full.
+     *
+     * @param write the write to run on the writer thread
+     * @throws UncheckedIOException if an earlier write failed
+     */
+    public void submit(Write write) {
+        requireNonNull(write, "write can not be null");
+        throwIfFailed();
+        if (closed.get()) {
+            throw new IllegalStateException("The writer is closed");
+        }
+        put(write);
+    }
+
+    /**
+     * Queues a write that runs even if an earlier write failed, such as closing the files the earlier
+     * writes opened. If it fails too, only the first failure is reported.
+     *
+     * @param cleanup the write to run on the writer thread
+     */
+    public void submitCleanup(Write cleanup) {
+        requireNonNull(cleanup, "cleanup can not be null");
+        if (closed.get()) {
+            throw new IllegalStateException("The writer is closed");
+        }
+        put(new Cleanup(cleanup));
+    }
+
+    /**
+     * Waits for all queued writes to finish and stops the writer thread.
+     *
+     * @throws IOException the first write that failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            put(END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for output to be written", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void put(Write write) {
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing output", e);
+        }
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Failed to write output", failure);
+        }
+    }
+
+    private void drain() {
+        try {
+            Write write;
+            while ((write = queue.take()) != END) {
+                // Once a write has failed the rest are discarded, so producers are never left blocked
+                if (failure != null && !(write instanceof Cleanup)) {
+                    continue;
+                }
+                try {
+                    write.run();
+                } catch (IOException e) {
+                    fail(e);
+                } catch (RuntimeException e) {
+                    fail(new IOException(e));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private record Cleanup(Write write) implements Write {
+        @Override
+        public void run() throws IOException {
+            write.run();
+        }
+    }
+}
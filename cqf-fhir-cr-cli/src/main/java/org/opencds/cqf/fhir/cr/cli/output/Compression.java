@@ -0,0 +1,51 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression applied to NDJSON and CSV output files.
+ */
+public enum Compression {
+    NONE("none", ""),
+    GZIP("gzip", ".gz");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String code;
+    private final String extension;
+
+    Compression(String code, String extension) {
+        this.code = code;
+        this.extension = extension;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return the suffix appended to the names of compressed files
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param out the stream to write the compressed output to
+     * @return a stream that compresses what is written to it into out
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        return this == GZIP ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    public static Compression fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(compression -> compression.code.equalsIgnoreCase(code))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unknown output compression: %s, expected one of: none, gzip".formatted(code)));
+    }
+}
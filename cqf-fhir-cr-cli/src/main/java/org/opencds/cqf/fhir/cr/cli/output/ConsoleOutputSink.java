@@ -0,0 +1,46 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.parser.IParser;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.opencds.cqf.cql.engine.execution.EvaluationResult;
+
+/**
+ * Writes CQL results as key=value lines and resources as JSON lines to a console stream, buffered
+ * rather than flushed after every subject. The stream itself is left open.
+ */
+class ConsoleOutputSink implements OutputSink {
+
+    private final IParser parser;
+    private final AsyncWriter writer;
+    private final Writer out;
+
+    ConsoleOutputSink(IParser parser, AsyncWriter writer, OutputStream out) {
+        this.parser = requireNonNull(parser);
+        this.writer = requireNonNull(writer);
+        this.out = new BufferedWriter(new OutputStreamWriter(requireNonNull(out), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeResult(String contextName, String contextValue, EvaluationResult result) {
+        var text = OutputSinks.formatResult(result);
+        writer.submit(() -> out.write(text));
+    }
+
+    @Override
+    public void writeResource(String name, IBaseResource resource) {
+        var json = parser.encodeResourceToString(resource) + System.lineSeparator();
+        writer.submit(() -> out.write(json));
+    }
+
+    @Override
+    public void close() {
+        writer.submit(out::flush);
+    }
+}
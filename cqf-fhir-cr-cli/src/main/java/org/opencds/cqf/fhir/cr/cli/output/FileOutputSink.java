@@ -0,0 +1,46 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.parser.IParser;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.opencds.cqf.cql.engine.execution.EvaluationResult;
+
+/**
+ * Writes a {@code <subject>.txt} file of key=value lines for each CQL result and a
+ * {@code <name>.json} file for each resource.
+ */
+class FileOutputSink implements OutputSink {
+
+    private final Path directory;
+    private final IParser parser;
+    private final AsyncWriter writer;
+
+    FileOutputSink(Path directory, IParser parser, AsyncWriter writer) {
+        this.directory = requireNonNull(directory);
+        this.parser = requireNonNull(parser);
+        this.writer = requireNonNull(writer);
+    }
+
+    @Override
+    public void writeResult(String contextName, String contextValue, EvaluationResult result) {
+        var text = OutputSinks.formatResult(result);
+        var path = directory.resolve(contextValue + ".txt");
+        writer.submit(() -> Files.writeString(path, text, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeResource(String name, IBaseResource resource) {
+        var json = parser.encodeResourceToString(resource);
+        var path = directory.resolve(name + ".json");
+        writer.submit(() -> Files.writeString(path, json, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        // Every file is closed as soon as it is written
+    }
+}
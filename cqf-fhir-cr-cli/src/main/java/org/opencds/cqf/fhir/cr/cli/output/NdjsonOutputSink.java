@@ -0,0 +1,112 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.parser.IParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.opencds.cqf.cql.engine.execution.EvaluationResult;
+import org.opencds.cqf.fhir.cr.cli.command.Utilities;
+
+/**
+ * Writes resources to one {@code <ResourceType>.ndjson} file per resource type, in the style of a
+ * FHIR Bulk Data export, and CQL results to a {@code results.csv} file with one row per subject and
+ * expression. Files are opened on first use and may be compressed.
+ */
+class NdjsonOutputSink implements OutputSink {
+
+    static final String RESULTS_FILE = "results.csv";
+    static final String RESULTS_HEADER = "subject,expression,value";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final Compression compression;
+    private final IParser parser;
+    private final AsyncWriter writer;
+
+    // Only used on the writer thread
+    private final Map<String, Writer> files = new LinkedHashMap<>();
+
+    NdjsonOutputSink(Path directory, Compression compression, IParser parser, AsyncWriter writer) {
+        this.directory = requireNonNull(directory);
+        this.compression = requireNonNull(compression);
+        this.parser = requireNonNull(parser);
+        this.writer = requireNonNull(writer);
+    }
+
+    @Override
+    public void writeResult(String contextName, String contextValue, EvaluationResult result) {
+        var subject = contextName + "/" + contextValue;
+        var rows = new StringBuilder();
+        for (var entry : result.getExpressionResults().entrySet()) {
+            rows.append(csv(subject))
+                    .append(',')
+                    .append(csv(entry.getKey()))
+                    .append(',')
+                    .append(csv(Utilities.tempConvert(entry.getValue().getValue())))
+                    .append('\n');
+        }
+        var text = rows.toString();
+        writer.submit(() -> file(RESULTS_FILE, RESULTS_HEADER + "\n").write(text));
+    }
+
+    @Override
+    public void writeResource(String name, IBaseResource resource) {
+        var line = parser.encodeResourceToString(resource) + "\n";
+        var fileName = resource.fhirType() + ".ndjson";
+        writer.submit(() -> file(fileName, null).write(line));
+    }
+
+    @Override
+    public void close() {
+        // Closed even after a failed write, so that no file is left open or unfinished
+        writer.submitCleanup(() -> {
+            IOException failure = null;
+            for (var file : files.values()) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            files.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        });
+    }
+
+    private Writer file(String fileName, String header) throws IOException {
+        var file = files.get(fileName);
+        if (file == null) {
+            var out = compression.wrap(Files.newOutputStream(directory.resolve(fileName + compression.getExtension())));
+            file = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            if (header != null) {
+                file.write(header);
+            }
+            files.put(fileName, file);
+        }
+        return file;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
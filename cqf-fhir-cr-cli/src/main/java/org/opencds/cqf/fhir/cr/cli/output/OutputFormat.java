@@ -0,0 +1,40 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import java.util.Arrays;
+
+/**
+ * The layout of the files written to an output path.
+ */
+public enum OutputFormat {
+    /**
+     * One file per subject: key=value lines for CQL results and a JSON file for each resource.
+     */
+    FILES("files"),
+    /**
+     * One NDJSON file per resource type, in the style of FHIR Bulk Data exports, and a summary CSV
+     * of the expression results of every subject.
+     */
+    NDJSON("ndjson"),
+    /**
+     * One FHIR Parameters JSON file per subject for CQL results and a JSON file for each resource.
+     */
+    PARAMETERS("parameters");
+
+    private final String code;
+
+    OutputFormat(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static OutputFormat fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(format -> format.code.equalsIgnoreCase(code))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unknown output format: %s, expected one of: files, ndjson, parameters".formatted(code)));
+    }
+}
@@ -0,0 +1,34 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.opencds.cqf.cql.engine.execution.EvaluationResult;
+
+/**
+ * Where the CLI writes CQL results and the resources it produces. Results and resources are
+ * formatted on the calling thread and written on the {@link AsyncWriter} of the sink, so that
+ * writes are ordered and do not block evaluation.
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * @param contextName  the context the result was evaluated in, e.g. Patient
+     * @param contextValue the id of the subject the result was evaluated for
+     * @param result       the result to write
+     */
+    void writeResult(String contextName, String contextValue, EvaluationResult result);
+
+    /**
+     * @param name     identifies the resource in the output, e.g. the subject it was produced for
+     * @param resource the resource to write
+     */
+    void writeResource(String name, IBaseResource resource);
+
+    /**
+     * Queues the flushing and closing of anything the sink opened. Close the {@link AsyncWriter}
+     * of the sink to wait for it.
+     */
+    @Override
+    void close() throws IOException;
+}
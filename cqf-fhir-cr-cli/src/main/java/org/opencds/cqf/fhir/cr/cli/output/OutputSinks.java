@@ -0,0 +1,70 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.opencds.cqf.cql.engine.execution.EvaluationResult;
+import org.opencds.cqf.fhir.cql.Engines;
+import org.opencds.cqf.fhir.cr.cli.command.Utilities;
+
+/**
+ * Creates the {@link OutputSink} for the output options of a command.
+ */
+public class OutputSinks {
+
+    private OutputSinks() {}
+
+    /**
+     * @param format      the output format code, files, ndjson or parameters
+     * @param compression the output compression code, none or gzip
+     * @param directory   the directory to write to, or null to write to standard out in any format
+     * @param fhirContext the FHIR context CQL results are converted to Parameters with
+     * @param parser      the parser resources are encoded with
+     * @param writer      the writer the sink writes on
+     * @return the sink
+     */
+    public static OutputSink create(
+            String format,
+            String compression,
+            @Nullable Path directory,
+            FhirContext fhirContext,
+            IParser parser,
+            AsyncWriter writer)
+            throws IOException {
+        var outputFormat = OutputFormat.fromCode(format);
+        var outputCompression = Compression.fromCode(compression);
+        if (outputFormat != OutputFormat.NDJSON && outputCompression != Compression.NONE) {
+            throw new IllegalArgumentException("Output compression is only supported for the ndjson output format");
+        }
+
+        // The output format is a layout of files, so it does not apply to the console
+        if (directory == null) {
+            return new ConsoleOutputSink(parser, writer, System.out);
+        }
+
+        Files.createDirectories(directory);
+        return switch (outputFormat) {
+            case NDJSON -> new NdjsonOutputSink(directory, outputCompression, parser, writer);
+            case PARAMETERS -> new ParametersOutputSink(
+                    directory, Engines.getCqlFhirParametersConverter(fhirContext), parser, writer);
+            case FILES -> new FileOutputSink(directory, parser, writer);
+        };
+    }
+
+    /**
+     * @return the expression results as key=value lines
+     */
+    static String formatResult(EvaluationResult result) {
+        var builder = new StringBuilder();
+        for (var entry : result.getExpressionResults().entrySet()) {
+            builder.append(entry.getKey())
+                    .append('=')
+                    .append(Utilities.tempConvert(entry.getValue().getValue()))
+                    .append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
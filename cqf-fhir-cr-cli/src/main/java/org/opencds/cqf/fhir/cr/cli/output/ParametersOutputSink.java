@@ -0,0 +1,53 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.parser.IParser;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.opencds.cqf.cql.engine.execution.EvaluationResult;
+import org.opencds.cqf.fhir.cql.engine.parameters.CqlFhirParametersConverter;
+
+/**
+ * Writes a {@code <subject>.json} FHIR Parameters file for each CQL result and a
+ * {@code <name>.json} file for each resource. The Parameters are streamed to the file one
+ * parameter at a time, so a large result is never held as a whole Parameters resource.
+ */
+class ParametersOutputSink implements OutputSink {
+
+    private final Path directory;
+    private final CqlFhirParametersConverter converter;
+    private final IParser parser;
+    private final AsyncWriter writer;
+
+    ParametersOutputSink(Path directory, CqlFhirParametersConverter converter, IParser parser, AsyncWriter writer) {
+        this.directory = requireNonNull(directory);
+        this.converter = requireNonNull(converter);
+        this.parser = requireNonNull(parser);
+        this.writer = requireNonNull(writer);
+    }
+
+    @Override
+    public void writeResult(String contextName, String contextValue, EvaluationResult result) {
+        var path = directory.resolve(contextValue + ".json");
+        writer.submit(() -> {
+            try (var file = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                converter.writeFhirParameters(result, file);
+            }
+        });
+    }
+
+    @Override
+    public void writeResource(String name, IBaseResource resource) {
+        var json = parser.encodeResourceToString(resource);
+        var path = directory.resolve(name + ".json");
+        writer.submit(() -> Files.writeString(path, json, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        // Every file is closed as soon as it is written
+    }
+}
@@ -18,13 +18,18 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import org.apache.commons.lang3.tuple.Pair;
 import org.hl7.fhir.r4.model.MeasureReport;
+import org.hl7.fhir.r4.model.MeasureReport.MeasureReportGroupPopulationComponent;
 import org.hl7.fhir.r4.model.MeasureReport.MeasureReportStatus;
 import org.hl7.fhir.r4.model.MeasureReport.MeasureReportType;
+import org.hl7.fhir.r4.model.Parameters;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -641,6 +646,151 @@ class CliTest {
         assertTrue(output.contains("\"subject\":{\"reference\":\"Patient/456\""));
     }
 
+    @ParameterizedTest
+    @CsvSource({"population,SUMMARY", "subject-list,SUBJECTLIST"})
+    void measureAggregateEvaluationTest(String reportType, MeasureReportType expectedType) throws IOException {
+        var measureReport = evaluateAggregateReport(reportType, 2);
+        assertEquals("http://example.com/Measure/ABCPOP", measureReport.getMeasure());
+        assertEquals(MeasureReportStatus.COMPLETE, measureReport.getStatus());
+        assertEquals(expectedType, measureReport.getType());
+        assertFalse(measureReport.hasSubject());
+
+        // One Encounter for each of the two Patients, whichever worker evaluated them
+        assertEquals(Map.of("initial-population", 2), populationCounts(measureReport));
+        assertEquals(populationCounts(evaluateAggregateReport(reportType, 1)), populationCounts(measureReport));
+    }
+
+    private MeasureReport evaluateAggregateReport(String reportType, int threads) throws IOException {
+        var reportPath = Path.of(testResultsPath, "aggregate", reportType, "threads-" + threads, MEASUREREPORTS_FOLDER);
+
+        // No subjects given, so every Patient in the data directory is evaluated
+        String[] args = new String[] {
+            "measure",
+            "-source=" + testResourcePath + "/compartment/input/cql",
+            "-name=ABCLIB",
+            "-data=" + testResourcePath + "/compartment",
+            "--measure=ABCPOP",
+            "--report-type=%s".formatted(reportType),
+            "--threads=%d".formatted(threads),
+            "--report-path=" + reportPath,
+        };
+
+        Main.run(args);
+
+        try (Stream<Path> reports = Files.list(reportPath)) {
+            assertEquals(List.of(reportPath.resolve("ABCPOP.json")), reports.toList());
+        }
+        return JSON_PARSER.parseResource(
+                MeasureReport.class, Files.readString(reportPath.resolve("ABCPOP.json"), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Integer> populationCounts(MeasureReport measureReport) {
+        return measureReport.getGroup().stream()
+                .flatMap(group -> group.getPopulation().stream())
+                .collect(Collectors.toMap(
+                        population -> population.getCode().getCodingFirstRep().getCode(),
+                        MeasureReportGroupPopulationComponent::getCount));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"none,''", "gzip,.gz"})
+    void measureNdjsonOutputTest(String compression, String extension) throws IOException {
+        var outputPath = Path.of(testResultsPath, "ndjson", compression, TXTRESULTS_FOLDER);
+        var reportPath = Path.of(testResultsPath, "ndjson", compression, MEASUREREPORTS_FOLDER);
+
+        String[] args = new String[] {
+            "measure",
+            "-source=" + testResourcePath + "/compartment/input/cql",
+            "-name=ABCLIB",
+            "-data=" + testResourcePath + "/compartment",
+            "-c=Patient",
+            "-cv=123",
+            "-c=Patient",
+            "-cv=456",
+            "--measure=ABC",
+            "--output-format=ndjson",
+            "--output-compression=%s".formatted(compression),
+            "--output-path=" + outputPath,
+            "--report-path=" + reportPath,
+        };
+
+        Main.run(args);
+
+        try (Stream<Path> reports = Files.list(reportPath)) {
+            assertEquals(List.of(reportPath.resolve("MeasureReport.ndjson" + extension)), reports.toList());
+        }
+        var reportLines = readLines(reportPath.resolve("MeasureReport.ndjson" + extension));
+        assertEquals(2, reportLines.size());
+        assertMeasureReport(
+                JSON_PARSER.parseResource(MeasureReport.class, reportLines.get(0)),
+                "http://example.com/Measure/ABC",
+                "Patient/123");
+        assertMeasureReport(
+                JSON_PARSER.parseResource(MeasureReport.class, reportLines.get(1)),
+                "http://example.com/Measure/ABC",
+                "Patient/456");
+
+        try (Stream<Path> results = Files.list(outputPath)) {
+            assertEquals(List.of(outputPath.resolve("results.csv" + extension)), results.toList());
+        }
+        assertEquals(
+                List.of(
+                        "subject,expression,value",
+                        "Patient/123,Encounters,[Encounter(id=ABC)]",
+                        "Patient/123,Patient,Patient(id=123)",
+                        "Patient/456,Encounters,[Encounter(id=DEF)]",
+                        "Patient/456,Patient,Patient(id=456)"),
+                readLines(outputPath.resolve("results.csv" + extension)));
+    }
+
+    @Test
+    void cqlParametersOutputTest() throws IOException {
+        var outputPath = Path.of(testResultsPath, "parameters", TXTRESULTS_FOLDER);
+
+        String[] args = new String[] {
+            "cql",
+            "-source=" + testResourcePath + "/compartment/input/cql",
+            "-name=Example",
+            "-data=" + testResourcePath + "/compartment",
+            "-c=Patient",
+            "-cv=123",
+            "-c=Patient",
+            "-cv=456",
+            "--output-format=parameters",
+            "--output-path=" + outputPath,
+        };
+
+        Main.run(args);
+
+        try (Stream<Path> results = Files.list(outputPath)) {
+            assertEquals(
+                    Set.of(outputPath.resolve("123.json"), outputPath.resolve("456.json")),
+                    results.collect(Collectors.toSet()));
+        }
+        var parameters = JSON_PARSER.parseResource(
+                Parameters.class, Files.readString(outputPath.resolve("456.json"), StandardCharsets.UTF_8));
+        assertEquals("Patient/456", parameterResourceId(parameters, "Patient"));
+        assertEquals("Encounter/DEF", parameterResourceId(parameters, "Encounters"));
+    }
+
+    private static String parameterResourceId(Parameters parameters, String name) {
+        return parameters.getParameter().stream()
+                .filter(parameter -> name.equals(parameter.getName()))
+                .findFirst()
+                .orElseThrow()
+                .getResource()
+                .getIdElement()
+                .toUnqualifiedVersionless()
+                .getValue();
+    }
+
+    private static List<String> readLines(Path path) throws IOException {
+        try (var in = Files.newInputStream(path)) {
+            var stream = path.toString().endsWith(".gz") ? new GZIPInputStream(in) : in;
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
     @Test
     @Disabled("This test is failing on the CI Server for reasons unknown. Need to debug that.")
     void sampleContentIG() {
@@ -0,0 +1,40 @@
+package org.opencds.cqf.fhir.cr.cli.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ca.uhn.fhir.context.FhirContext;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NdjsonOutputSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void filesAreFinishedAfterAFailedWrite() throws IOException {
+        var writer = new AsyncWriter();
+        var sink = new NdjsonOutputSink(directory, Compression.GZIP, FhirContext.forR4Cached().newJsonParser(), writer);
+
+        sink.writeResource("a", new Patient().setId("a"));
+        writer.submit(() -> {
+            throw new IOException("disk full");
+        });
+        sink.close();
+
+        var failure = assertThrows(IOException.class, writer::close);
+        assertEquals("disk full", failure.getMessage());
+        // A gzip stream that was never finished can not be read to the end
+        try (var in = new GZIPInputStream(Files.newInputStream(directory.resolve("Patient.ndjson.gz")))) {
+            var lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+            assertEquals(1, lines.size());
+        }
+    }
+}
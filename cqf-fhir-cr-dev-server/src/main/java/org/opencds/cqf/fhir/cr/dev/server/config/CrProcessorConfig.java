@@ -64,7 +64,8 @@ public class CrProcessorConfig {
     @Bean
     IQuestionnaireResponseProcessorFactory questionnaireResponseProcessorFactory(
             IRepositoryFactory repositoryFactory, CrSettings crSettings) {
-        return rd -> new QuestionnaireResponseProcessor(repositoryFactory.create(rd), crSettings);
+        return rd -> new QuestionnaireResponseProcessor(repositoryFactory.create(rd), crSettings)
+                .withPartitionId(rd.getTenantId());
     }
 
     @Bean
@@ -9,8 +9,9 @@ import org.hl7.fhir.instance.model.api.IBaseParameters;
 
 /**
  * This class mainly define encoding capabilities relevant to clinical decision support.
- * It is expected that a new instance of this service will be created to handle each hook invocation
- * by a Bean implementing ICdsCrServiceFactory. See {@code CrCdsHookConfig}.
+ * An instance of this service is created by a Bean implementing ICdsCrServiceFactory. See {@code CrCdsHookConfig}.
+ * It is reusable, so the {@link CdsServiceInterceptor} creates and warms up one instance when a hook is registered
+ * and shares it across invocations of that hook, until the PlanDefinition changes.
  */
 @SuppressWarnings("UnstableApiUsage")
 public class CdsCrService implements ICdsCrService {
@@ -48,6 +49,26 @@ public class CdsCrService implements ICdsCrService {
         return repository.fhirContext().getVersion().getVersion();
     }
 
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
+    /**
+     * Resolves the PlanDefinition of the service, so that responses are encoded without searching for it.
+     */
+    @Override
+    public void warmUp() {
+        if (requestDetails == null || requestDetails.getId() == null) {
+            return;
+        }
+        var planDefinitionClass = repository
+                .fhirContext()
+                .getResourceDefinition(requestDetails.getId().getResourceType())
+                .getImplementingClass();
+        cdsResponseEncoderService.warmUp(repository.read(planDefinitionClass, requestDetails.getId()));
+    }
+
     public IBaseParameters encodeParams(CdsServiceRequestJson json) {
         return cdsParametersEncoderService.encodeParams(json);
     }
@@ -15,6 +15,8 @@ import ca.uhn.hapi.fhir.cdshooks.api.json.CdsServiceResponseSuggestionActionJson
 import ca.uhn.hapi.fhir.cdshooks.api.json.CdsServiceResponseSuggestionJson;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBase;
@@ -37,15 +39,45 @@ public class CdsResponseEncoderService {
     private final IAdapterFactory adapterFactory;
     private final IRepository repository;
 
-    protected IResourceAdapter responseAdapter;
+    // The response being encoded, per thread so that one encoder can serve concurrent invocations
+    private final ThreadLocal<IResourceAdapter> responseAdapter = new ThreadLocal<>();
+
+    // Links of PlanDefinitions resolved ahead of time, by canonical
+    private final Map<String, List<CdsServiceResponseLinkJson>> planLinks = new ConcurrentHashMap<>();
 
     public CdsResponseEncoderService(IRepository repository) {
         this.adapterFactory = IAdapterFactory.forFhirContext(repository.fhirContext());
         this.repository = repository;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Resolves the links of a PlanDefinition ahead of time, so that encoding a response for it does
+     * not search the repository for it again. The encoder must be discarded when the PlanDefinition
+     * changes.
+     *
+     * @param planDefinition the PlanDefinition responses will be encoded for
+     */
+    public void warmUp(IBaseResource planDefinition) {
+        var planDef = (IPlanDefinitionAdapter) adapterFactory.createResource(planDefinition);
+        var links = List.copyOf(resolvePlanLinks(planDef));
+        if (planDef.hasUrl()) {
+            planLinks.put(planDef.getUrl(), links);
+            if (planDef.hasVersion()) {
+                planLinks.put(planDef.getUrl() + "|" + planDef.getVersion(), links);
+            }
+        }
+    }
+
     public CdsServiceResponseJson encodeResponse(Object response) {
+        try {
+            return encode(response);
+        } finally {
+            responseAdapter.remove();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CdsServiceResponseJson encode(Object response) {
         validateResponseObject(response);
 
         CdsServiceResponseJson serviceResponse = new CdsServiceResponseJson();
@@ -62,18 +94,19 @@ public class CdsResponseEncoderService {
                 throw new InternalErrorException("response does not contain a Bundle");
             }
 
-            responseAdapter = adapterFactory.createResource(bundle);
+            responseAdapter.set(adapterFactory.createResource(bundle));
 
             if (!BundleHelper.getEntry(bundle).isEmpty()) {
                 mainRequest = adapterFactory.createResource(BundleHelper.getEntryResourceFirstRep(bundle));
                 canonical = (IPrimitiveType<String>) mainRequest.getProperty("instantiatesCanonical")[0];
             }
         } else {
-            responseAdapter = adapterFactory.createResource((IBaseResource) response);
-            var activity = responseAdapter.getProperty("activity");
+            var carePlan = adapterFactory.createResource((IBaseResource) response);
+            responseAdapter.set(carePlan);
+            var activity = carePlan.getProperty("activity");
             if (activity != null && activity.length > 0) {
 
-                var requestGroupRef = responseAdapter.resolvePath(activity[0], "reference", IBaseReference.class);
+                var requestGroupRef = carePlan.resolvePath(activity[0], "reference", IBaseReference.class);
                 mainRequest = adapterFactory.createResource(resolveResource(requestGroupRef));
 
                 var definition = mainRequest.getProperty("definition");
@@ -88,17 +121,25 @@ public class CdsResponseEncoderService {
             throw new InternalErrorException("unable to resolve response");
         }
 
-        var planDef = (IPlanDefinitionAdapter)
-                adapterFactory.createResource(SearchHelper.searchRepositoryByCanonical(repository, canonical));
-        var links = resolvePlanLinks(planDef);
+        var links = getPlanLinks(canonical);
 
         Stream.of(mainRequest.getProperty("action"))
                 .map(adapterFactory::createRequestAction)
-                .forEach(action -> serviceResponse.addCard(resolveAction(action, links)));
+                .forEach(action -> serviceResponse.addCard(resolveAction(action, new ArrayList<>(links))));
 
         return serviceResponse;
     }
 
+    protected List<CdsServiceResponseLinkJson> getPlanLinks(IPrimitiveType<String> canonical) {
+        var links = planLinks.get(canonical.getValueAsString());
+        if (links != null) {
+            return links;
+        }
+        var planDef = (IPlanDefinitionAdapter)
+                adapterFactory.createResource(SearchHelper.searchRepositoryByCanonical(repository, canonical));
+        return resolvePlanLinks(planDef);
+    }
+
     @SuppressWarnings("unchecked")
     protected List<CdsServiceResponseLinkJson> resolvePlanLinks(IPlanDefinitionAdapter planDefinition) {
         List<CdsServiceResponseLinkJson> links = new ArrayList<>();
@@ -238,7 +279,7 @@ public class CdsResponseEncoderService {
     }
 
     protected IResourceAdapter getResponseAdapter() {
-        return responseAdapter;
+        return responseAdapter.get();
     }
 
     private void validateResponseObject(Object response) {
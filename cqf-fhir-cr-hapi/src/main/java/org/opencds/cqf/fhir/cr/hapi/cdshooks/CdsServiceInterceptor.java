@@ -8,10 +8,17 @@ import ca.uhn.fhir.jpa.cache.ResourceChangeEvent;
 import ca.uhn.hapi.fhir.cdshooks.api.json.CdsServiceJson;
 import ca.uhn.hapi.fhir.cdshooks.api.json.CdsServiceResponseJson;
 import ca.uhn.hapi.fhir.cdshooks.svc.CdsServiceRegistryImpl;
+import jakarta.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang3.ObjectUtils;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery.ICrDiscoveryServiceFactory;
@@ -21,19 +28,57 @@ import org.slf4j.LoggerFactory;
 public class CdsServiceInterceptor implements IResourceChangeListener {
     static final Logger ourLog = LoggerFactory.getLogger(CdsServiceInterceptor.class);
 
+    private static final int DEFAULT_DISCOVERY_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors());
+
     private final CdsServiceRegistryImpl cdsServiceRegistry;
 
     private final ICrDiscoveryServiceFactory discoveryServiceFactory;
 
     private final ICdsCrServiceFactory crServiceFactory;
 
+    private final Executor discoveryExecutor;
+
+    private record DiscoveredService(
+            String serviceId, CdsServiceJson cdsServiceJson, ICdsCrServiceFactory serviceFactory) {}
+
     public CdsServiceInterceptor(
             CdsServiceRegistryImpl cdsServiceRegistry,
             ICrDiscoveryServiceFactory discoveryServiceFactory,
             ICdsCrServiceFactory crServiceFactory) {
+        this(cdsServiceRegistry, discoveryServiceFactory, crServiceFactory, newDiscoveryExecutor());
+    }
+
+    /**
+     * @param discoveryExecutor discovers the services of changed PlanDefinitions concurrently, or null
+     *                          to discover them one at a time on the calling thread
+     */
+    public CdsServiceInterceptor(
+            CdsServiceRegistryImpl cdsServiceRegistry,
+            ICrDiscoveryServiceFactory discoveryServiceFactory,
+            ICdsCrServiceFactory crServiceFactory,
+            @Nullable Executor discoveryExecutor) {
         this.cdsServiceRegistry = cdsServiceRegistry;
         this.discoveryServiceFactory = discoveryServiceFactory;
         this.crServiceFactory = crServiceFactory;
+        this.discoveryExecutor = discoveryExecutor == null ? Runnable::run : discoveryExecutor;
+    }
+
+    private static Executor newDiscoveryExecutor() {
+        var threadCount = new AtomicInteger();
+        var executor = new ThreadPoolExecutor(
+                DEFAULT_DISCOVERY_THREADS,
+                DEFAULT_DISCOVERY_THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "cds-discovery-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Discovery mostly runs at startup, so the threads are not kept once it is done
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Override
@@ -57,29 +102,66 @@ public class CdsServiceInterceptor implements IResourceChangeListener {
     }
 
     private void insert(List<IIdType> createdIds) {
-        for (IIdType id : createdIds) {
-            var serviceId = id.getIdPart();
+        // Discovery reads the PlanDefinition, its Library and ValueSets for each service, so the
+        // services are discovered concurrently and then registered in order
+        var discovered = createdIds.stream()
+                .map(id -> CompletableFuture.supplyAsync(() -> discover(id.getIdPart()), discoveryExecutor))
+                .toList();
+        for (var future : discovered) {
+            var service = future.join();
+            if (service == null) {
+                continue;
+            }
             try {
-                CdsServiceJson cdsServiceJson =
-                        discoveryServiceFactory.create(serviceId).resolveService();
-                if (cdsServiceJson != null) {
-                    final CdsCrServiceMethod cdsCrServiceMethod =
-                            new CdsCrServiceMethod(cdsServiceJson, crServiceFactory);
-
-                    cdsServiceRegistry.registerService(
-                            serviceId,
-                            x -> (CdsServiceResponseJson) cdsCrServiceMethod.invoke(x, serviceId),
-                            cdsServiceJson,
-                            true,
-                            CDS_CR_MODULE_ID);
-                }
-
+                final CdsCrServiceMethod cdsCrServiceMethod =
+                        new CdsCrServiceMethod(service.cdsServiceJson(), service.serviceFactory());
+
+                cdsServiceRegistry.registerService(
+                        service.serviceId(),
+                        x -> (CdsServiceResponseJson) cdsCrServiceMethod.invoke(x, service.serviceId()),
+                        service.cdsServiceJson(),
+                        true,
+                        CDS_CR_MODULE_ID);
             } catch (Exception e) {
-                ourLog.info("Failed to create service for %s".formatted(serviceId));
+                ourLog.info("Failed to create service for %s".formatted(service.serviceId()));
             }
         }
     }
 
+    private DiscoveredService discover(String serviceId) {
+        try {
+            CdsServiceJson cdsServiceJson =
+                    discoveryServiceFactory.create(serviceId).resolveService();
+            if (cdsServiceJson == null) {
+                return null;
+            }
+            return new DiscoveredService(serviceId, cdsServiceJson, warmServiceFactory(serviceId));
+        } catch (Exception e) {
+            ourLog.info("Failed to create service for %s".formatted(serviceId));
+            return null;
+        }
+    }
+
+    /**
+     * Creates and warms up the service of a hook once, if it can be shared by concurrent
+     * invocations. Updating or deleting the PlanDefinition re-registers or unregisters the hook,
+     * which discards the service.
+     */
+    private ICdsCrServiceFactory warmServiceFactory(String serviceId) {
+        ICdsCrService service;
+        try {
+            service = crServiceFactory.create(serviceId);
+            if (service == null || !service.isReusable()) {
+                return crServiceFactory;
+            }
+            service.warmUp();
+        } catch (Exception e) {
+            ourLog.warn("Failed to warm up service for {}, it will be created per invocation", serviceId, e);
+            return crServiceFactory;
+        }
+        return id -> service;
+    }
+
     private void update(List<IIdType> updatedIds) {
         try {
             delete(updatedIds);
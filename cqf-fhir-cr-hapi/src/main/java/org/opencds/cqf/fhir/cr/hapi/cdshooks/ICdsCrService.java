@@ -20,6 +20,19 @@ public interface ICdsCrService {
 
     IRepository getRepository();
 
+    /**
+     * @return whether one instance may serve concurrent invocations of its hook. A reusable service
+     * is created and warmed up once, when its hook is registered, instead of for every invocation.
+     */
+    default boolean isReusable() {
+        return false;
+    }
+
+    /**
+     * Prepares a reusable service for its first invocation, e.g. by resolving its PlanDefinition.
+     */
+    default void warmUp() {}
+
     default Object invoke(IModelJson json) {
         IBaseParameters params = encodeParams((CdsServiceRequestJson) json);
         IBaseResource response = invokeApply(params);
@@ -9,7 +9,9 @@ import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import ca.uhn.hapi.fhir.cdshooks.api.json.CdsServiceJson;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
@@ -19,6 +21,8 @@ import org.opencds.cqf.fhir.utility.VersionUtilities;
 import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
 import org.opencds.cqf.fhir.utility.adapter.ICodingAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IDataRequirementAdapter;
+import org.opencds.cqf.fhir.utility.adapter.IDataRequirementCodeFilterAdapter;
+import org.opencds.cqf.fhir.utility.adapter.IKnowledgeArtifactAdapter;
 import org.opencds.cqf.fhir.utility.adapter.ILibraryAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IPlanDefinitionAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IValueSetAdapter;
@@ -42,6 +46,10 @@ public class CrDiscoveryService implements ICrDiscoveryService {
     protected final IRepository repository;
     protected final IIdType planDefinitionId;
     protected final IAdapterFactory adapterFactory;
+    protected PrefetchTemplateCache prefetchTemplateCache;
+
+    // ValueSets read while discovering the service, by canonical
+    private final Map<String, IValueSetAdapter> valueSets = new HashMap<>();
 
     public CrDiscoveryService(IIdType planDefinitionId, IRepository repository) {
         this.planDefinitionId = planDefinitionId;
@@ -50,6 +58,14 @@ public class CrDiscoveryService implements ICrDiscoveryService {
         this.maxUriLength = DEFAULT_MAX_URI_LENGTH;
     }
 
+    /**
+     * @param prefetchTemplateCache caches the prefetch templates generated from a Library, or null to
+     *                              generate them every time
+     */
+    public void setPrefetchTemplateCache(PrefetchTemplateCache prefetchTemplateCache) {
+        this.prefetchTemplateCache = prefetchTemplateCache;
+    }
+
     protected FhirVersionEnum fhirVersion() {
         return repository.fhirContext().getVersion().getVersion();
     }
@@ -115,9 +131,13 @@ public class CrDiscoveryService implements ICrDiscoveryService {
         return result;
     }
 
+    protected IValueSetAdapter resolveValueSet(IPrimitiveType<String> valueSetId) {
+        return valueSets.computeIfAbsent(valueSetId.getValueAsString(), k -> (IValueSetAdapter)
+                adapterFactory.createResource(SearchHelper.searchRepositoryByCanonical(repository, valueSetId)));
+    }
+
     public List<String> resolveValueSetCodes(IPrimitiveType<String> valueSetId) {
-        var valueSet = (IValueSetAdapter)
-                adapterFactory.createResource(SearchHelper.searchRepositoryByCanonical(repository, valueSetId));
+        var valueSet = resolveValueSet(valueSetId);
         List<String> result = new ArrayList<>();
         var codes = new StringBuilder();
         if (valueSet.hasExpansion() && valueSet.hasExpansionContains()) {
@@ -161,10 +181,7 @@ public class CrDiscoveryService implements ICrDiscoveryService {
         }
 
         // if we have a fhirQueryPattern extensions, use them
-        var fhirQueryExtList = dataRequirement.getExtension().stream()
-                .filter(e -> e.getUrl().equals(CQF_FHIR_QUERY_PATTERN) && e.getValue() != null)
-                .map(e -> ((IPrimitiveType<?>) e.getValue()).getValueAsString())
-                .toList();
+        var fhirQueryExtList = getFhirQueryPatterns(dataRequirement);
         if (!fhirQueryExtList.isEmpty()) {
             return fhirQueryExtList;
         }
@@ -187,6 +204,30 @@ public class CrDiscoveryService implements ICrDiscoveryService {
         }
     }
 
+    private static List<String> getFhirQueryPatterns(IDataRequirementAdapter dataRequirement) {
+        return dataRequirement.getExtension().stream()
+                .filter(e -> e.getUrl().equals(CQF_FHIR_QUERY_PATTERN) && e.getValue() != null)
+                .map(e -> ((IPrimitiveType<?>) e.getValue()).getValueAsString())
+                .toList();
+    }
+
+    /**
+     * @return the ValueSets {@link #createRequestUrl} expands into codes for the data requirement
+     */
+    protected List<IPrimitiveType<String>> getValueSetsUsed(IDataRequirementAdapter dataRequirement) {
+        if (dataRequirement == null
+                || !getFhirQueryPatterns(dataRequirement).isEmpty()
+                || !dataRequirement.hasType()
+                || !isPatientCompartment(dataRequirement.getType())
+                || !dataRequirement.hasCodeFilter()) {
+            return List.of();
+        }
+        return dataRequirement.getCodeFilter().stream()
+                .filter(f -> f.hasPath() && f.hasValueSet())
+                .map(IDataRequirementCodeFilterAdapter::getValueSet)
+                .toList();
+    }
+
     private List<String> createRequestUrlHasFilters(
             IDataRequirementAdapter dataRequirement, String patientRelatedResource) {
         List<String> ret = new ArrayList<>();
@@ -227,15 +268,59 @@ public class CrDiscoveryService implements ICrDiscoveryService {
         if (library == null || !library.hasDataRequirement()) {
             return prefetchList;
         }
+        var cacheKey = prefetchTemplateCache == null ? null : getPrefetchCacheKey(library);
+        var cached = cacheKey == null ? null : prefetchTemplateCache.get(cacheKey);
+        if (cached != null) {
+            prefetchList.addAll(cached);
+            return prefetchList;
+        }
         for (var dataRequirement : library.getDataRequirement()) {
             List<String> requestUrls = createRequestUrl(dataRequirement);
             if (requestUrls != null) {
                 prefetchList.addAll(requestUrls);
             }
         }
+        if (cacheKey != null) {
+            prefetchTemplateCache.put(cacheKey, prefetchList);
+        }
         return prefetchList;
     }
 
+    /**
+     * @return a key identifying the versions of the Library and of the ValueSets the prefetch
+     * templates are generated from, or null if any of them has no resource version, in which case
+     * the templates are not cached
+     */
+    protected String getPrefetchCacheKey(ILibraryAdapter library) {
+        var key = new StringBuilder().append(fhirVersion()).append(' ').append(maxUriLength);
+        if (!appendVersion(key, library)) {
+            return null;
+        }
+        for (var dataRequirement : library.getDataRequirement()) {
+            for (var valueSet : getValueSetsUsed(dataRequirement)) {
+                if (!appendVersion(key, resolveValueSet(valueSet))) {
+                    return null;
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean appendVersion(StringBuilder key, IKnowledgeArtifactAdapter artifact) {
+        // Contained and file based resources have no resource version to tell a change by
+        var versionId = artifact.getIdElement() == null ? null : artifact.getIdElement().getVersionIdPart();
+        if (!artifact.hasUrl() || versionId == null) {
+            return false;
+        }
+        key.append(' ')
+                .append(artifact.getUrl())
+                .append('|')
+                .append(artifact.getVersion())
+                .append('|')
+                .append(versionId);
+        return true;
+    }
+
     protected String mapCodePathToSearchParam(String dataType, String path) {
         switch (dataType) {
             case MEDICATION_ADMINISTRATION, MEDICATION_DISPENSE, MEDICATION_REQUEST, MEDICATION_STATEMENT:
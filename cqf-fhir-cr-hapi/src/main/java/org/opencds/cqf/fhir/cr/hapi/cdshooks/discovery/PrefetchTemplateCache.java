@@ -0,0 +1,50 @@
+package org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+
+/**
+ * Caches the prefetch templates generated from the data requirements of a Library, so that services
+ * sharing a Library, or discovered again without their inputs having changed, do not resolve its
+ * ValueSets and generate the templates again. The templates are keyed by the versions of the Library
+ * and of the ValueSets they are generated from, so a new version of any of them is a cache miss.
+ * <p/>
+ * An instance is shared by the discovery services of a server.
+ */
+public class PrefetchTemplateCache {
+    private static final long DEFAULT_MAXIMUM_SIZE = 1_000;
+
+    private final Cache<String, List<String>> templates;
+
+    public PrefetchTemplateCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize the number of template lists kept, the least recently used are evicted first
+     */
+    public PrefetchTemplateCache(long maximumSize) {
+        this.templates = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * @param key the versions of the inputs the templates are generated from
+     * @return the templates, or null if they are not cached
+     */
+    public List<String> get(String key) {
+        return templates.getIfPresent(key);
+    }
+
+    public void put(String key, List<String> prefetchTemplates) {
+        templates.put(key, List.copyOf(prefetchTemplates));
+    }
+
+    public long size() {
+        return templates.size();
+    }
+
+    public void clear() {
+        templates.invalidateAll();
+    }
+}
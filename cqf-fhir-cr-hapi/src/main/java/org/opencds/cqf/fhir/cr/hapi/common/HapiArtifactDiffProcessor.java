@@ -9,11 +9,18 @@ import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
@@ -58,6 +65,7 @@ import org.springframework.beans.BeanWrapperImpl;
 public class HapiArtifactDiffProcessor extends ArtifactDiffProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(HapiArtifactDiffProcessor.class);
+    private static final String EXPANSION_CONTAINS_FIRST = "ValueSet.expansion.contains[0]";
 
     protected final IRepository repository;
 
@@ -492,17 +500,16 @@ public class HapiArtifactDiffProcessor extends ArtifactDiffProcessor {
             updateSource.getCompose().setInclude(new ArrayList<>());
             updateTarget.getCompose().setInclude(new ArrayList<>());
         }
-        if (compareExecutable) {
-            // only generate changes for compose.inlude elements if compareExecutable is true
-            updateSource.getExpansion().setContains(expansionContainsProcessed.getSourceMatches());
-            updateTarget.getExpansion().setContains(expansionContainsProcessed.getTargetMatches());
-        } else {
-            // don't generate any Parameters
-            updateSource.getExpansion().setContains(new ArrayList<>());
-            updateTarget.getExpansion().setContains(new ArrayList<>());
-        }
+        // Expansions can be large and most matching codes are unchanged, so the matching codes are
+        // diffed pair by pair below rather than as part of the ValueSet
+        updateSource.getExpansion().setContains(new ArrayList<>());
+        updateTarget.getExpansion().setContains(new ArrayList<>());
         // first check for ancillary differences between the otherwise matching array elements
         var vsDiff = (Parameters) patch.diff(updateSource, updateTarget);
+        if (compareExecutable) {
+            // only generate changes for expansion.contains elements if compareExecutable is true
+            appendExpansionContainsMatchDiffs(vsDiff, patch, expansionContainsProcessed);
+        }
 
         // then append the insert / delete entries
         if (compareComputable) {
@@ -513,20 +520,135 @@ public class HapiArtifactDiffProcessor extends ArtifactDiffProcessor {
             composeIncludeProcessed.reorderArrayElements(sourceValueSet, targetValueSet);
         }
         if (compareExecutable) {
-            expansionContainsProcessed.appendInsertOperations(
-                    vsDiff, patch, updateTarget.getExpansion().getContains().size());
-            expansionContainsProcessed.appendDeleteOperations(
-                    vsDiff, patch, updateTarget.getExpansion().getContains().size());
+            var matches = expansionContainsProcessed.getTargetMatches().size();
+            expansionContainsProcessed.appendInsertOperations(vsDiff, patch, matches);
+            expansionContainsProcessed.appendDeleteOperations(vsDiff, patch, matches);
             expansionContainsProcessed.reorderArrayElements(sourceValueSet, targetValueSet);
         }
         return vsDiff;
     }
 
+    /**
+     * Diffs the matching expansion.contains elements pair by pair, skipping the pairs that are
+     * identical. The contains elements come last in a ValueSet, so the operations are in the same
+     * order as they would be in a diff of the whole ValueSet.
+     */
+    private static void appendExpansionContainsMatchDiffs(
+            Parameters vsDiff,
+            FhirPatch patch,
+            AdditionsAndDeletions<ValueSetExpansionContainsComponent> expansionContainsProcessed) {
+        var sourceMatches = expansionContainsProcessed.getSourceMatches();
+        var targetMatches = expansionContainsProcessed.getTargetMatches();
+        for (int i = 0; i < targetMatches.size(); i++) {
+            var sourceContains = sourceMatches.get(i);
+            var targetContains = targetMatches.get(i);
+            if (sourceContains.equalsDeep(targetContains)) {
+                continue;
+            }
+            var source = new ValueSet();
+            source.getExpansion().addContains(sourceContains);
+            var target = new ValueSet();
+            target.getExpansion().addContains(targetContains);
+            var pairDiff = (Parameters) patch.diff(source, target);
+            var index = "ValueSet.expansion.contains[" + i + "]";
+            for (var parameter : pairDiff.getParameter()) {
+                parameter.getPart().stream()
+                        .filter(part -> "path".equals(part.getName()) && part.getValue() instanceof StringType)
+                        .forEach(part -> part.setValue(new StringType(((StringType) part.getValue())
+                                .getValue()
+                                .replace(EXPANSION_CONTAINS_FIRST, index))));
+            }
+            vsDiff.getParameter().addAll(pairDiff.getParameter());
+        }
+    }
+
+    /**
+     * Splits the elements into the source and target elements that match, the target elements
+     * that were inserted and the source elements that were deleted. Elements with a matching key
+     * are matched through an index, others are compared with every element.
+     */
     private static <T> AdditionsAndDeletions<T> extractAdditionsAndDeletions(
             List<T> source, List<T> target, Class<T> t) {
+        if (!RelatedArtifact.class.equals(t)
+                && !ConceptSetComponent.class.equals(t)
+                && !ValueSetExpansionContainsComponent.class.equals(t)) {
+            return extractAdditionsAndDeletionsByComparison(source, target, t);
+        }
+
+        // the unmatched source elements by key, in source order
+        Map<List<Object>, Deque<Integer>> unmatched = new HashMap<>();
+        for (int i = 0; i < source.size(); i++) {
+            for (var key : matchKeys(source.get(i))) {
+                unmatched.computeIfAbsent(key, k -> new ArrayDeque<>()).add(i);
+            }
+        }
+
+        var matched = new boolean[source.size()];
+        Set<List<Object>> targetKeys = new HashSet<>();
+        List<T> insertions = new ArrayList<>();
+        List<T> deletions = new ArrayList<>();
+        List<T> sourceMatches = new ArrayList<>();
+        List<T> targetMatches = new ArrayList<>();
+        for (var targetObj : target) {
+            // match the first unmatched source element sharing a key
+            int first = -1;
+            for (var key : matchKeys(targetObj)) {
+                targetKeys.add(key);
+                var candidates = unmatched.get(key);
+                if (candidates == null) {
+                    continue;
+                }
+                while (!candidates.isEmpty() && matched[candidates.peekFirst()]) {
+                    candidates.pollFirst();
+                }
+                if (!candidates.isEmpty() && (first < 0 || candidates.peekFirst() < first)) {
+                    first = candidates.peekFirst();
+                }
+            }
+            if (first >= 0) {
+                matched[first] = true;
+                sourceMatches.add(source.get(first));
+                targetMatches.add(targetObj);
+            } else {
+                insertions.add(targetObj);
+            }
+        }
+        // check for deletions
+        for (int i = 0; i < source.size(); i++) {
+            if (!matched[i] && matchKeys(source.get(i)).stream().noneMatch(targetKeys::contains)) {
+                deletions.add(source.get(i));
+            }
+        }
+        return new AdditionsAndDeletions<>(sourceMatches, targetMatches, insertions, deletions, t);
+    }
+
+    /**
+     * The keys an element is matched by, two elements match when they share a key. Equivalent to
+     * {@link #compareSourceAndTarget(Object, Object)} for the keyed element types.
+     */
+    private static List<List<Object>> matchKeys(Object element) {
+        if (element instanceof RelatedArtifact relatedArtifact) {
+            var url = Canonicals.getUrl(relatedArtifact.getResource());
+            return List.of(Arrays.<Object>asList(relatedArtifact.getType(), url));
+        } else if (element instanceof ConceptSetComponent conceptSet) {
+            // includes which share at least 1 ValueSet URL match
+            if (conceptSet.hasValueSet()) {
+                return conceptSet.getValueSet().stream()
+                        .map(vs -> Arrays.<Object>asList("valueSet", Canonicals.getUrl(vs.getValue())))
+                        .toList();
+            }
+            return List.of(Arrays.<Object>asList("system", conceptSet.getSystem()));
+        } else if (element instanceof ValueSetExpansionContainsComponent contains) {
+            return List.of(Arrays.<Object>asList(contains.getSystem(), contains.getCode()));
+        }
+        return List.of();
+    }
+
+    private static <T> AdditionsAndDeletions<T> extractAdditionsAndDeletionsByComparison(
+            List<T> source, List<T> target, Class<T> t) {
         List<T> sourceCopy = new ArrayList<>(source);
         List<T> targetCopy = new ArrayList<>(target);
-        // this is n^2 with Lists but can be nlog(n) if we use TreeSets
+        // this is n^2 with Lists, only used for elements without a matching key
         // check for matches and additions
         List<T> insertions = new ArrayList<>();
         List<T> deletions = new ArrayList<>();
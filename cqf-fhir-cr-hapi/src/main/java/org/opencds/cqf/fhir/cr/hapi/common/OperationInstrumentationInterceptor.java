@@ -0,0 +1,55 @@
+package org.opencds.cqf.fhir.cr.hapi.common;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation;
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames;
+import org.opencds.cqf.fhir.utility.monitoring.Span;
+
+/**
+ * Records a span for every extended operation ($evaluate-measure, $apply, ...) handled by the
+ * server, from the moment the request is routed until processing completes.
+ */
+@Interceptor
+public class OperationInstrumentationInterceptor {
+    private static final String SPAN_KEY = OperationInstrumentationInterceptor.class.getName() + ".span";
+
+    private final Instrumentation instrumentation;
+
+    public OperationInstrumentationInterceptor(Instrumentation instrumentation) {
+        this.instrumentation = requireNonNull(instrumentation);
+    }
+
+    @Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+    public void startOperation(RequestDetails requestDetails) {
+        var operation = requestDetails.getOperation();
+        if (!instrumentation.isEnabled() || operation == null || !operation.startsWith("$")) {
+            return;
+        }
+        var span = instrumentation.startSpan(InstrumentationNames.OPERATION_REQUEST);
+        span.setAttribute(InstrumentationNames.OPERATION, operation);
+        span.setAttribute(InstrumentationNames.DATA_TYPE, requestDetails.getResourceName());
+        requestDetails.getUserData().put(SPAN_KEY, span);
+    }
+
+    @Hook(Pointcut.SERVER_HANDLE_EXCEPTION)
+    public boolean operationFailed(RequestDetails requestDetails, BaseServerResponseException exception) {
+        if (requestDetails.getUserData().remove(SPAN_KEY) instanceof Span span) {
+            span.setError(exception);
+            span.close();
+        }
+        return true;
+    }
+
+    @Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+    public void operationCompleted(RequestDetails requestDetails) {
+        if (requestDetails.getUserData().remove(SPAN_KEY) instanceof Span span) {
+            span.close();
+        }
+    }
+}
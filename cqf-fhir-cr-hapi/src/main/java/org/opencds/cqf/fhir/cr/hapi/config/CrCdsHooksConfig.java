@@ -22,8 +22,10 @@ import org.opencds.cqf.fhir.cr.hapi.cdshooks.CdsServiceInterceptor;
 import org.opencds.cqf.fhir.cr.hapi.cdshooks.ICdsCrServiceFactory;
 import org.opencds.cqf.fhir.cr.hapi.cdshooks.ICdsCrServiceRegistry;
 import org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery.CdsCrDiscoveryServiceRegistry;
+import org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery.CrDiscoveryService;
 import org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery.ICdsCrDiscoveryServiceRegistry;
 import org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery.ICrDiscoveryServiceFactory;
+import org.opencds.cqf.fhir.cr.hapi.cdshooks.discovery.PrefetchTemplateCache;
 import org.opencds.cqf.fhir.utility.Ids;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,11 +93,17 @@ public class CrCdsHooksConfig {
         return new CdsCrDiscoveryServiceRegistry();
     }
 
+    @Bean
+    public PrefetchTemplateCache cdsPrefetchTemplateCache() {
+        return new PrefetchTemplateCache();
+    }
+
     @Bean
     public ICrDiscoveryServiceFactory crDiscoveryServiceFactory(
             FhirContext fhirContext,
             ICdsConfigService cdsConfigService,
-            ICdsCrDiscoveryServiceRegistry cdsCrDiscoveryServiceRegistry) {
+            ICdsCrDiscoveryServiceRegistry cdsCrDiscoveryServiceRegistry,
+            PrefetchTemplateCache cdsPrefetchTemplateCache) {
         return id -> {
             if (repositoryFactory == null) {
                 return null;
@@ -109,7 +117,11 @@ public class CrCdsHooksConfig {
             }
             try {
                 var constructor = clazz.get().getConstructor(IIdType.class, IRepository.class);
-                return constructor.newInstance(rd.getId(), repository);
+                var discoveryService = constructor.newInstance(rd.getId(), repository);
+                if (discoveryService instanceof CrDiscoveryService crDiscoveryService) {
+                    crDiscoveryService.setPrefetchTemplateCache(cdsPrefetchTemplateCache);
+                }
+                return discoveryService;
             } catch (NoSuchMethodException
                     | InvocationTargetException
                     | InstantiationException
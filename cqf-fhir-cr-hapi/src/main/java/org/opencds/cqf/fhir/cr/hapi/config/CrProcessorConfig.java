@@ -1,6 +1,7 @@
 package org.opencds.cqf.fhir.cr.hapi.config;
 
 import ca.uhn.fhir.rest.api.server.IRepositoryFactory;
+import ca.uhn.fhir.rest.server.RestfulServer;
 import java.util.List;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
 import org.opencds.cqf.fhir.cr.CrSettings;
@@ -68,7 +69,8 @@ public class CrProcessorConfig {
     @Bean
     IQuestionnaireResponseProcessorFactory questionnaireResponseProcessorFactory(
             IRepositoryFactory repositoryFactory, CrSettings crSettings) {
-        return rd -> new QuestionnaireResponseProcessor(repositoryFactory.create(rd), crSettings);
+        return rd -> new QuestionnaireResponseProcessor(repositoryFactory.create(rd), crSettings)
+                .withPartitionId(rd.getTenantId());
     }
 
     @Bean
@@ -110,4 +112,10 @@ public class CrProcessorConfig {
 
         return rd -> new ApplyRequestBuilder(repositoryFactory.create(rd), evaluationSettings);
     }
+
+    @Bean
+    OperationInstrumentationLoader operationInstrumentationLoader(
+            RestfulServer restfulServer, EvaluationSettings evaluationSettings) {
+        return new OperationInstrumentationLoader(restfulServer, evaluationSettings);
+    }
 }
@@ -0,0 +1,35 @@
+package org.opencds.cqf.fhir.cr.hapi.config;
+
+import ca.uhn.fhir.rest.server.RestfulServer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cr.hapi.common.OperationInstrumentationInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Registers a single {@link OperationInstrumentationInterceptor} with the server if the
+ * Instrumentation of the EvaluationSettings is enabled, however many operation providers are loaded.
+ */
+public class OperationInstrumentationLoader {
+    private static final Logger logger = LoggerFactory.getLogger(OperationInstrumentationLoader.class);
+    private final RestfulServer restfulServer;
+    private final EvaluationSettings evaluationSettings;
+    private final AtomicBoolean registered = new AtomicBoolean();
+
+    public OperationInstrumentationLoader(RestfulServer restfulServer, EvaluationSettings evaluationSettings) {
+        this.restfulServer = restfulServer;
+        this.evaluationSettings = evaluationSettings;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void registerInterceptor() {
+        var instrumentation = evaluationSettings.getInstrumentation();
+        if (instrumentation.isEnabled() && registered.compareAndSet(false, true)) {
+            logger.info("instrumenting operations");
+            restfulServer.registerInterceptor(new OperationInstrumentationInterceptor(instrumentation));
+        }
+    }
+}
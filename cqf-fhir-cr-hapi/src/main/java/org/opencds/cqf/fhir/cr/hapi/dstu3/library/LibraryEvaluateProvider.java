@@ -20,8 +20,11 @@ import org.hl7.fhir.dstu3.model.Parameters;
 import org.hl7.fhir.dstu3.model.Parameters.ParametersParameterComponent;
 import org.hl7.fhir.dstu3.model.PrimitiveType;
 import org.hl7.fhir.dstu3.model.StringType;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.opencds.cqf.fhir.cr.hapi.common.ILibraryProcessorFactory;
+import org.opencds.cqf.fhir.utility.monad.Either3;
 import org.opencds.cqf.fhir.utility.monad.Eithers;
 
 @SuppressWarnings("java:S107")
@@ -38,12 +41,16 @@ public class LibraryEvaluateProvider {
      * Evaluates a CQL library and returns the results as a Parameters resource.
      *
      * @param id				  The library resource's ID
-     * @param subject             Subject for which the library will be evaluated.
+     * @param subject             Subject(s) for which the library will be evaluated.
      *                            This corresponds to the context in which the
      *                            library
      *                            will be evaluated and is represented as a relative
      *                            FHIR id (e.g. Patient/123), which establishes both
-     *                            the context and context value for the evaluation
+     *                            the context and context value for the evaluation.
+     *                            The parameter may be repeated; when more than one
+     *                            subject or a Group is given, the result has one
+     *                            part per subject, named for the subject, holding
+     *                            that subject's results
      * @param expression          Expression(s) to be evaluated. If no expression
      *                            names
      *                            are provided, the operation evaluates all public
@@ -112,7 +119,7 @@ public class LibraryEvaluateProvider {
     @Operation(name = ProviderConstants.CR_OPERATION_EVALUATE, idempotent = true, type = Library.class)
     public Parameters evaluate(
             @IdParam IdType id,
-            @OperationParam(name = "subject") StringType subject,
+            @OperationParam(name = "subject") List<StringType> subject,
             @OperationParam(name = "expression") List<StringType> expression,
             @OperationParam(name = "parameters") Parameters parameters,
             @OperationParam(name = "useServerData") BooleanType useServerData,
@@ -122,26 +129,18 @@ public class LibraryEvaluateProvider {
             @OperationParam(name = "contentEndpoint") ParametersParameterComponent contentEndpoint,
             @OperationParam(name = "terminologyEndpoint") ParametersParameterComponent terminologyEndpoint,
             RequestDetails requestDetails) {
-        var dataEndpointParam = getEndpoint(fhirVersion, dataEndpoint);
-        var contentEndpointParam = getEndpoint(fhirVersion, contentEndpoint);
-        var terminologyEndpointParam = getEndpoint(fhirVersion, terminologyEndpoint);
-        return (Parameters) libraryProcessorFactory
-                .create(requestDetails)
-                .evaluate(
-                        Eithers.forMiddle3(id),
-                        getStringValue(subject),
-                        expression == null
-                                ? null
-                                : expression.stream()
-                                        .map(PrimitiveType::getValue)
-                                        .toList(),
-                        parameters,
-                        useServerData == null ? Boolean.TRUE : useServerData.booleanValue(),
-                        data,
-                        prefetchData,
-                        dataEndpointParam,
-                        contentEndpointParam,
-                        terminologyEndpointParam);
+        return evaluate(
+                Eithers.forMiddle3(id),
+                subject,
+                expression,
+                parameters,
+                useServerData,
+                data,
+                prefetchData,
+                dataEndpoint,
+                contentEndpoint,
+                terminologyEndpoint,
+                requestDetails);
     }
 
     /**
@@ -155,12 +154,16 @@ public class LibraryEvaluateProvider {
      *                            library to be evaluated. This parameter is only used
      *                            when the operation is invoked at the type level, and
      *                            is exclusive with the library parameter.
-     * @param subject             Subject for which the library will be evaluated.
+     * @param subject             Subject(s) for which the library will be evaluated.
      *                            This corresponds to the context in which the
      *                            library
      *                            will be evaluated and is represented as a relative
      *                            FHIR id (e.g. Patient/123), which establishes both
-     *                            the context and context value for the evaluation
+     *                            the context and context value for the evaluation.
+     *                            The parameter may be repeated; when more than one
+     *                            subject or a Group is given, the result has one
+     *                            part per subject, named for the subject, holding
+     *                            that subject's results
      * @param expression          Expression(s) to be evaluated. If no expression
      *                            names
      *                            are provided, the operation evaluates all public
@@ -227,7 +230,7 @@ public class LibraryEvaluateProvider {
     public Parameters evaluate(
             @OperationParam(name = "library") Library library,
             @OperationParam(name = "url", typeName = "uri") IPrimitiveType<String> url,
-            @OperationParam(name = "subject") StringType subject,
+            @OperationParam(name = "subject") List<StringType> subject,
             @OperationParam(name = "expression") List<StringType> expression,
             @OperationParam(name = "parameters") Parameters parameters,
             @OperationParam(name = "useServerData") BooleanType useServerData,
@@ -237,22 +240,62 @@ public class LibraryEvaluateProvider {
             @OperationParam(name = "contentEndpoint") ParametersParameterComponent contentEndpoint,
             @OperationParam(name = "terminologyEndpoint") ParametersParameterComponent terminologyEndpoint,
             RequestDetails requestDetails) {
-        return (Parameters) libraryProcessorFactory
-                .create(requestDetails)
-                .evaluate(
-                        Eithers.for3(newCanonicalType(fhirVersion, getStringValue(url)), null, library),
-                        getStringValue(subject),
-                        expression == null
-                                ? null
-                                : expression.stream()
-                                        .map(PrimitiveType::getValue)
-                                        .toList(),
-                        parameters,
-                        useServerData == null ? Boolean.TRUE : useServerData.booleanValue(),
-                        data,
-                        prefetchData,
-                        getEndpoint(fhirVersion, dataEndpoint),
-                        getEndpoint(fhirVersion, contentEndpoint),
-                        getEndpoint(fhirVersion, terminologyEndpoint));
+        return evaluate(
+                Eithers.for3(newCanonicalType(fhirVersion, getStringValue(url)), null, library),
+                subject,
+                expression,
+                parameters,
+                useServerData,
+                data,
+                prefetchData,
+                dataEndpoint,
+                contentEndpoint,
+                terminologyEndpoint,
+                requestDetails);
+    }
+
+    private <C extends IPrimitiveType<String>, R extends IBaseResource> Parameters evaluate(
+            Either3<C, IIdType, R> library,
+            List<StringType> subject,
+            List<StringType> expression,
+            Parameters parameters,
+            BooleanType useServerData,
+            Bundle data,
+            List<ParametersParameterComponent> prefetchData,
+            ParametersParameterComponent dataEndpoint,
+            ParametersParameterComponent contentEndpoint,
+            ParametersParameterComponent terminologyEndpoint,
+            RequestDetails requestDetails) {
+        var processor = libraryProcessorFactory.create(requestDetails);
+        var subjects = subject == null ? List.<String>of() : subject.stream().map(PrimitiveType::getValue).toList();
+        var expressions = expression == null ? null : expression.stream().map(PrimitiveType::getValue).toList();
+        var serverData = useServerData == null ? Boolean.TRUE : useServerData.booleanValue();
+        var dataEndpointParam = getEndpoint(fhirVersion, dataEndpoint);
+        var contentEndpointParam = getEndpoint(fhirVersion, contentEndpoint);
+        var terminologyEndpointParam = getEndpoint(fhirVersion, terminologyEndpoint);
+        if (subjects.size() > 1) {
+            return (Parameters) processor.evaluateSubjects(
+                    library,
+                    subjects,
+                    expressions,
+                    parameters,
+                    serverData,
+                    data,
+                    prefetchData,
+                    dataEndpointParam,
+                    contentEndpointParam,
+                    terminologyEndpointParam);
+        }
+        return (Parameters) processor.evaluate(
+                library,
+                subjects.isEmpty() ? null : subjects.get(0),
+                expressions,
+                parameters,
+                serverData,
+                data,
+                prefetchData,
+                dataEndpointParam,
+                contentEndpointParam,
+                terminologyEndpointParam);
     }
 }
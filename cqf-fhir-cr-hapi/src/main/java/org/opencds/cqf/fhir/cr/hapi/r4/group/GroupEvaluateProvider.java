@@ -95,6 +95,15 @@ public class GroupEvaluateProvider {
      *                            evaluation will attempt to use the server on which
      *                            the operation is being performed as the
      *                            terminology server
+     * @param previousResult      A Group returned by an earlier evaluation of the same
+     *                            Group definition and parameters. If provided, only
+     *                            the subjects whose data was updated since that
+     *                            result was generated are evaluated, and the other
+     *                            members are kept from it. Deleted data, criteria
+     *                            that depend on the time of evaluation, and changes
+     *                            to the definition, parameters or provided data are
+     *                            not detected, so a full evaluation is still needed
+     *                            from time to time. Ignored if a subject is given.
      * @param requestDetails      the {@link RequestDetails RequestDetails}
      * @return The results of the library evaluation, returned as a
      *         {@link Parameters} resource
@@ -119,6 +128,7 @@ public class GroupEvaluateProvider {
             @OperationParam(name = "dataEndpoint") ParametersParameterComponent dataEndpoint,
             @OperationParam(name = "contentEndpoint") ParametersParameterComponent contentEndpoint,
             @OperationParam(name = "terminologyEndpoint") ParametersParameterComponent terminologyEndpoint,
+            @OperationParam(name = "previousResult") Group previousResult,
             RequestDetails requestDetails) {
         return (Group) groupProcessorFactory
                 .create(requestDetails)
@@ -131,7 +141,8 @@ public class GroupEvaluateProvider {
                         prefetchData,
                         getEndpoint(fhirVersion, dataEndpoint),
                         getEndpoint(fhirVersion, contentEndpoint),
-                        getEndpoint(fhirVersion, terminologyEndpoint));
+                        getEndpoint(fhirVersion, terminologyEndpoint),
+                        previousResult);
     }
 
     /**
@@ -207,6 +218,15 @@ public class GroupEvaluateProvider {
      *                            evaluation will attempt to use the server on which
      *                            the operation is being performed as the
      *                            terminology server
+     * @param previousResult      A Group returned by an earlier evaluation of the same
+     *                            Group definition and parameters. If provided, only
+     *                            the subjects whose data was updated since that
+     *                            result was generated are evaluated, and the other
+     *                            members are kept from it. Deleted data, criteria
+     *                            that depend on the time of evaluation, and changes
+     *                            to the definition, parameters or provided data are
+     *                            not detected, so a full evaluation is still needed
+     *                            from time to time. Ignored if a subject is given.
      * @param requestDetails      the {@link RequestDetails RequestDetails}
      * @return The results of the library evaluation, returned as a
      *         {@link Parameters} resource
@@ -232,6 +252,7 @@ public class GroupEvaluateProvider {
             @OperationParam(name = "dataEndpoint") ParametersParameterComponent dataEndpoint,
             @OperationParam(name = "contentEndpoint") ParametersParameterComponent contentEndpoint,
             @OperationParam(name = "terminologyEndpoint") ParametersParameterComponent terminologyEndpoint,
+            @OperationParam(name = "previousResult") Group previousResult,
             RequestDetails requestDetails) {
         return (Group) groupProcessorFactory
                 .create(requestDetails)
@@ -244,6 +265,7 @@ public class GroupEvaluateProvider {
                         prefetchData,
                         getEndpoint(fhirVersion, dataEndpoint),
                         getEndpoint(fhirVersion, contentEndpoint),
-                        getEndpoint(fhirVersion, terminologyEndpoint));
+                        getEndpoint(fhirVersion, terminologyEndpoint),
+                        previousResult);
     }
 }
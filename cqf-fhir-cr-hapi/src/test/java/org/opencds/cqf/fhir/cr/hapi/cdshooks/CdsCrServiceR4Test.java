@@ -35,6 +35,7 @@ import org.hl7.fhir.r4.model.ParameterDefinition;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Parameters.ParametersParameterComponent;
 import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.PlanDefinition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.opencds.cqf.fhir.utility.BundleHelper;
@@ -173,6 +174,34 @@ class CdsCrServiceR4Test extends BaseCdsCrServiceTest {
         assertFalse(cdsServiceResponseJson.getCards().get(0).getDetail().isEmpty());
     }
 
+    @Test
+    void testR4ResponseWarm() {
+        final Bundle bundle = ClasspathUtil.loadResource(
+                fhirContext, Bundle.class, "org/opencds/cqf/fhir/cr/hapi/cdshooks/Bundle-ASLPCrd-Content.json");
+        final IRepository repository = new InMemoryFhirRepository(fhirContext, bundle);
+        final Bundle responseBundle = ClasspathUtil.loadResource(
+                fhirContext, Bundle.class, "org/opencds/cqf/fhir/cr/hapi/cdshooks/Bundle-ASLPCrd-Response.json");
+        final Parameters response = new Parameters()
+                .addParameter(
+                        new ParametersParameterComponent().setName("return").setResource(responseBundle));
+
+        final RequestDetails requestDetails = new SystemRequestDetails();
+        final IdType planDefinitionId = new IdType(PLAN_DEFINITION_RESOURCE_NAME, "ASLPCrd");
+        requestDetails.setId(planDefinitionId);
+
+        CdsCrService cdsCrService = new CdsCrService(requestDetails, repository);
+        assertTrue(cdsCrService.isReusable());
+        cdsCrService.warmUp();
+
+        // The PlanDefinition was resolved when warming up, so it is not searched for again
+        repository.delete(PlanDefinition.class, planDefinitionId);
+        for (int i = 0; i < 2; i++) {
+            final CdsServiceResponseJson cdsServiceResponseJson = cdsCrService.encodeResponse(response);
+            assertEquals(1, cdsServiceResponseJson.getCards().size());
+            assertFalse(cdsServiceResponseJson.getCards().get(0).getSummary().isEmpty());
+        }
+    }
+
     @Test
     void testGetResourcesFromBundle() {
         // Arrange
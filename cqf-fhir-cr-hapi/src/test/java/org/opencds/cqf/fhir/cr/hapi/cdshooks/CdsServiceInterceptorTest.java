@@ -14,6 +14,8 @@ import ca.uhn.fhir.jpa.cache.ResourceChangeEvent;
 import ca.uhn.hapi.fhir.cdshooks.api.json.CdsServiceJson;
 import ca.uhn.hapi.fhir.cdshooks.svc.CdsServiceRegistryImpl;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.IdType;
 import org.junit.jupiter.api.BeforeEach;
@@ -73,6 +75,40 @@ class CdsServiceInterceptorTest {
         assertInsertInteractions();
     }
 
+    @Test
+    void testHandleServiceCreation_willWarmUpReusableService() {
+        initializeCrDiscoveryServiceFactoryMock();
+        var service = Mockito.mock(ICdsCrService.class);
+        when(service.isReusable()).thenReturn(true);
+        when(crServiceFactory.create(eq(ID))).thenReturn(service);
+
+        testSubject.handleChange(fromCreatedUpdatedDeletedResourceIds(ID_TYPE_LIST, emptyList(), emptyList()));
+
+        assertInsertInteractions();
+        verify(crServiceFactory, times(1)).create(eq(ID));
+        verify(service, times(1)).warmUp();
+    }
+
+    @Test
+    void testHandleInit_willDiscoverServicesConcurrently() {
+        var ids = IntStream.range(0, 10).mapToObj(i -> (IIdType) new IdType("id" + i)).toList();
+        when(discoveryServiceFactory.create(any()))
+                .thenAnswer(theInvocationOnMock -> (ICrDiscoveryService) CdsServiceJson::new);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            new CdsServiceInterceptor(cdsServiceRegistry, discoveryServiceFactory, crServiceFactory, executor)
+                    .handleInit(ids);
+        } finally {
+            executor.shutdown();
+        }
+
+        for (var id : ids) {
+            verify(discoveryServiceFactory, times(1)).create(eq(id.getIdPart()));
+            verify(cdsServiceRegistry, times(1))
+                    .registerService(eq(id.getIdPart()), any(), any(), eq(true), eq(CDS_CR_MODULE_ID));
+        }
+    }
+
     @Test
     void testHandleServiceUpdate_willUpdateRegisteredServices() {
         initializeCrDiscoveryServiceFactoryMock();
@@ -299,6 +299,52 @@ class CrDiscoveryServiceR4Test extends BaseCdsCrDiscoveryServiceTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void testPrefetchTemplatesAreCachedByLibraryAndValueSetVersion() {
+        var valueSetUrl = "http://example.org/ValueSet/observation-codes";
+        var library = new Library()
+                .setUrl("http://example.org/Library/cached")
+                .setVersion("1.0.0")
+                .setDataRequirement(List.of(new DataRequirement()
+                        .setType(ResourceType.Observation.toString())
+                        .setCodeFilter(List.of(new DataRequirement.DataRequirementCodeFilterComponent()
+                                .setPath("code")
+                                .setValueSet(valueSetUrl)))));
+        library.setId("Library/cached/_history/1");
+        repository.update(library);
+        repository.update(buildValueSet(valueSetUrl, "1", "code-1"));
+        var planDefinition = new PlanDefinition()
+                .setLibrary(List.of(new CanonicalType("http://example.org/Library/cached|1.0.0")));
+        var planDefAdapter = adapterFactory.createPlanDefinition(planDefinition);
+        var cache = new PrefetchTemplateCache();
+
+        var expected =
+                getPrefetchUrlList("Observation?subject=Patient/{{context.patientId}}&code=http://loinc.org|code-1");
+        assertEquals(expected, discoveryService(cache).getPrefetchUrlList(planDefAdapter));
+        assertEquals(1, cache.size());
+        assertEquals(expected, discoveryService(cache).getPrefetchUrlList(planDefAdapter));
+        assertEquals(1, cache.size());
+
+        // A new version of the ValueSet generates the templates again
+        repository.update(buildValueSet(valueSetUrl, "2", "code-2"));
+        expected = getPrefetchUrlList("Observation?subject=Patient/{{context.patientId}}&code=http://loinc.org|code-2");
+        assertEquals(expected, discoveryService(cache).getPrefetchUrlList(planDefAdapter));
+        assertEquals(2, cache.size());
+    }
+
+    private CrDiscoveryService discoveryService(PrefetchTemplateCache cache) {
+        var discoveryService = new CrDiscoveryService(PLAN_DEF_ID_TYPE, repository);
+        discoveryService.setPrefetchTemplateCache(cache);
+        return discoveryService;
+    }
+
+    private static ValueSet buildValueSet(String url, String versionId, String code) {
+        var valueSet = new ValueSet().setUrl(url);
+        valueSet.getCompose().addInclude().setSystem("http://loinc.org").addConcept().setCode(code);
+        valueSet.setId("ValueSet/observation-codes/_history/" + versionId);
+        return valueSet;
+    }
+
     @Test
     void testResolveValueSetCodesWithComposeInclude() {
         var activeCondition = ClasspathUtil.loadResource(
@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.util.ClasspathUtil;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -15,6 +16,7 @@ import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.Library;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.ValueSet;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
@@ -316,6 +318,64 @@ class HapiArtifactDiffProcessorTest {
                 "the version change should still be reported as a relatedArtifact operation");
     }
 
+    /**
+     * Expansion codes are matched by system and code, regardless of their order. Only the matching
+     * codes that changed produce an operation, at the index of the code among the matches.
+     */
+    @Test
+    void artifactDiff_expansionContains_matchedBySystemAndCode() {
+        var repository = new InMemoryFhirRepository(FhirContext.forR4());
+        repository.update(valueSetWithExpansion("1.0.0", "A", "B", "C", "D", "E"));
+        var target = valueSetWithExpansion("2.0.0", "C", "B", "D", "F");
+        target.getExpansion().getContains().get(1).setDisplay("B changed");
+        repository.update(target);
+        var processor = new HapiArtifactDiffProcessor(repository);
+
+        var diff = (Parameters) processor.getArtifactDiff(
+                manifestWithComposedOf("1.0.0", "http://example.org/ValueSet/codes|1.0.0"),
+                manifestWithComposedOf("2.0.0", "http://example.org/ValueSet/codes|2.0.0"),
+                false,
+                true,
+                null,
+                null);
+
+        var valueSetDiff = diff.getParameter().stream()
+                .filter(p -> "http://example.org/ValueSet/codes".equals(p.getName()))
+                .map(p -> (Parameters) p.getResource())
+                .findFirst()
+                .orElseThrow();
+        var containsOperations = operationsWithPathContaining(valueSetDiff, "expansion.contains");
+        var replaceOperations = getOperationsByType(containsOperations, "replace");
+        assertEquals(1, replaceOperations.size());
+        assertEquals(
+                "ValueSet.expansion.contains[1].display",
+                ((StringType) replaceOperations.get(0).getPart().stream()
+                                .filter(p -> "path".equals(p.getName()))
+                                .findFirst()
+                                .orElseThrow()
+                                .getValue())
+                        .getValue());
+        assertEquals(1, getOperationsByType(containsOperations, "insert").size());
+        assertEquals(2, getOperationsByType(containsOperations, "delete").size());
+    }
+
+    private static ValueSet valueSetWithExpansion(String version, String... codes) {
+        var valueSet = new ValueSet();
+        valueSet.setId("ValueSet/codes-" + version);
+        valueSet.setUrl("http://example.org/ValueSet/codes");
+        valueSet.setVersion(version);
+        valueSet.getMeta().setLastUpdated(new Date(0));
+        valueSet.getExpansion().setTimestamp(new Date());
+        for (var code : codes) {
+            valueSet.getExpansion()
+                    .addContains()
+                    .setSystem("http://example.org/CodeSystem/codes")
+                    .setCode(code)
+                    .setDisplay(code);
+        }
+        return valueSet;
+    }
+
     private static boolean hasRetrievalFailureEntry(Parameters diff) {
         return diff.getParameter().stream()
                 .anyMatch(p -> p.getValue() instanceof StringType st
@@ -0,0 +1,61 @@
+package org.opencds.cqf.fhir.cr.hapi.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cr.hapi.common.OperationInstrumentationInterceptor;
+import org.opencds.cqf.fhir.utility.monitoring.InMemoryInstrumentation;
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames;
+
+class OperationInstrumentationLoaderTest {
+
+    @Test
+    void registersOneInterceptorThatRecordsOneSpanPerOperation() {
+        var instrumentation = new InMemoryInstrumentation();
+        var evaluationSettings = EvaluationSettings.getDefault().withInstrumentation(instrumentation);
+        var restfulServer = mock(RestfulServer.class);
+        var loader = new OperationInstrumentationLoader(restfulServer, evaluationSettings);
+
+        // The context is refreshed once per loaded context, e.g. for child contexts
+        loader.registerInterceptor();
+        loader.registerInterceptor();
+
+        var registered = ArgumentCaptor.forClass(Object.class);
+        verify(restfulServer, times(1)).registerInterceptor(registered.capture());
+        var interceptor = (OperationInstrumentationInterceptor) registered.getValue();
+
+        var requestDetails = new ServletRequestDetails();
+        requestDetails.setOperation("$evaluate-measure");
+        requestDetails.setResourceName("Measure");
+        interceptor.startOperation(requestDetails);
+        interceptor.operationCompleted(requestDetails);
+
+        var spans = instrumentation.getSpans(InstrumentationNames.OPERATION_REQUEST);
+        assertEquals(1, spans.size());
+        assertEquals("$evaluate-measure", spans.get(0).attributes().get(InstrumentationNames.OPERATION));
+
+        // No span of the request is left open on the thread
+        instrumentation.startSpan("next").close();
+        assertNull(instrumentation.getSpans("next").get(0).parentName());
+    }
+
+    @Test
+    void registersNothingWhenInstrumentationIsDisabled() {
+        var restfulServer = mock(RestfulServer.class);
+        var loader = new OperationInstrumentationLoader(restfulServer, EvaluationSettings.getDefault());
+
+        loader.registerInterceptor();
+
+        verify(restfulServer, never()).registerInterceptor(any());
+    }
+}
@@ -1,13 +1,16 @@
 package org.opencds.cqf.fhir.cr.hapi.dstu3;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.opencds.cqf.fhir.utility.Parameters.newParameters;
 import static org.opencds.cqf.fhir.utility.Parameters.newStringPart;
 import static org.opencds.cqf.fhir.utility.Parameters.newUriPart;
 
 import ca.uhn.fhir.rest.server.provider.ProviderConstants;
+import java.util.List;
 import org.hl7.fhir.dstu3.model.Parameters;
+import org.hl7.fhir.dstu3.model.Patient;
 import org.junit.jupiter.api.Test;
 
 class LibraryOperationsProviderIT extends BaseCrDstu3TestServer {
@@ -57,4 +60,38 @@ class LibraryOperationsProviderIT extends BaseCrDstu3TestServer {
         assertNotNull(result);
         assertEquals(8, result.getParameter().size());
     }
+
+    @Test
+    void testEvaluateLibraryForRepeatedSubjects() {
+        loadBundle("org/opencds/cqf/fhir/cr/hapi/dstu3/hello-world/hello-world-patient-view-bundle.json");
+        loadBundle("org/opencds/cqf/fhir/cr/hapi/dstu3/hello-world/hello-world-patient-data.json");
+        var patient = new Patient();
+        patient.setId("helloworld-patient-2");
+        ourClient.update().resource(patient).execute();
+
+        var url = "http://fhir.org/guides/cdc/opioid-cds/Library/HelloWorld";
+        var parameters = newParameters(
+                getFhirContext(),
+                newUriPart(getFhirContext(), "url", url),
+                newStringPart(getFhirContext(), "subject", "Patient/helloworld-patient-1"),
+                newStringPart(getFhirContext(), "subject", "Patient/helloworld-patient-2"));
+        var result = ourClient
+                .operation()
+                .onType("Library")
+                .named(ProviderConstants.CR_OPERATION_EVALUATE)
+                .withParameters(parameters)
+                .returnResourceType(Parameters.class)
+                .execute();
+
+        // One part per subject, in the order given, holding the results for that subject
+        assertEquals(
+                List.of("Patient/helloworld-patient-1", "Patient/helloworld-patient-2"),
+                result.getParameter().stream()
+                        .map(Parameters.ParametersParameterComponent::getName)
+                        .toList());
+        for (var part : result.getParameter()) {
+            var subjectResult = assertInstanceOf(Parameters.class, part.getResource());
+            assertEquals(8, subjectResult.getParameter().size());
+        }
+    }
 }
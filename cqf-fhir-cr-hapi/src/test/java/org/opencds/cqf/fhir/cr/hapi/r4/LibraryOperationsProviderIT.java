@@ -82,6 +82,40 @@ class LibraryOperationsProviderIT extends BaseCrR4TestServer {
         assertEquals(8, result.getParameter().size());
     }
 
+    @Test
+    void testEvaluateLibraryForRepeatedSubjects() {
+        loadBundle("org/opencds/cqf/fhir/cr/hapi/r4/hello-world/hello-world-patient-view-bundle.json");
+        loadBundle("org/opencds/cqf/fhir/cr/hapi/r4/hello-world/hello-world-patient-data.json");
+        var patient = new Patient();
+        patient.setId("helloworld-patient-2");
+        ourClient.update().resource(patient).execute();
+
+        var url = "http://fhir.org/guides/cdc/opioid-cds/Library/HelloWorld";
+        var parameters = newParameters(
+                getFhirContext(),
+                newUriPart(getFhirContext(), "url", url),
+                newStringPart(getFhirContext(), "subject", "Patient/helloworld-patient-1"),
+                newStringPart(getFhirContext(), "subject", "Patient/helloworld-patient-2"));
+        var result = ourClient
+                .operation()
+                .onType("Library")
+                .named(ProviderConstants.CR_OPERATION_EVALUATE)
+                .withParameters(parameters)
+                .returnResourceType(Parameters.class)
+                .execute();
+
+        // One part per subject, in the order given, holding the results for that subject
+        assertEquals(
+                List.of("Patient/helloworld-patient-1", "Patient/helloworld-patient-2"),
+                result.getParameter().stream()
+                        .map(Parameters.ParametersParameterComponent::getName)
+                        .toList());
+        for (var part : result.getParameter()) {
+            var subjectResult = assertInstanceOf(Parameters.class, part.getResource());
+            assertEquals(8, subjectResult.getParameter().size());
+        }
+    }
+
     @Test
     void testEvaluateLibraryWithParameters() {
         loadBundle("org/opencds/cqf/fhir/cr/hapi/r4/Bundle-GenerateQuestionnaireContent.json");
@@ -1,11 +1,15 @@
 package org.opencds.cqf.fhir.cr;
 
+import java.util.concurrent.Executor;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cr.questionnaireresponse.extract.ExtractionPlanCache;
 import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings;
 
 public class CrSettings {
     private EvaluationSettings evaluationSettings;
     private TerminologyServerClientSettings terminologyServerClientSettings;
+    private Executor evaluationExecutor;
+    private ExtractionPlanCache extractionPlanCache;
 
     public static CrSettings getDefault() {
         return new CrSettings();
@@ -14,6 +18,7 @@ public class CrSettings {
     public CrSettings() {
         evaluationSettings = EvaluationSettings.getDefault();
         terminologyServerClientSettings = TerminologyServerClientSettings.getDefault();
+        extractionPlanCache = new ExtractionPlanCache();
     }
 
     public EvaluationSettings getEvaluationSettings() {
@@ -42,4 +47,42 @@ public class CrSettings {
     public void setTerminologyServerClientSettings(TerminologyServerClientSettings terminologyServerClientSettings) {
         this.terminologyServerClientSettings = terminologyServerClientSettings;
     }
+
+    public Executor getEvaluationExecutor() {
+        return evaluationExecutor;
+    }
+
+    /**
+     * Executor shared by the operations that can fan out their work: Group $evaluate evaluates the
+     * candidate subjects on it, Library $evaluate runs the worker engines of a multi-subject evaluation
+     * on it and GraphDefinition $apply runs its section searches on it. This should only be set when the
+     * repository supports concurrent reads. When null (the default), that work runs sequentially on the
+     * calling thread.
+     */
+    public CrSettings withEvaluationExecutor(Executor evaluationExecutor) {
+        this.evaluationExecutor = evaluationExecutor;
+        return this;
+    }
+
+    public void setEvaluationExecutor(Executor evaluationExecutor) {
+        this.evaluationExecutor = evaluationExecutor;
+    }
+
+    public ExtractionPlanCache getExtractionPlanCache() {
+        return extractionPlanCache;
+    }
+
+    /**
+     * Cache of the extraction plans of QuestionnaireResponse $extract, shared by every processor created
+     * with these settings. Plans are kept apart per partition (see
+     * {@link org.opencds.cqf.fhir.cr.questionnaireresponse.QuestionnaireResponseProcessor#withPartitionId}).
+     */
+    public CrSettings withExtractionPlanCache(ExtractionPlanCache extractionPlanCache) {
+        this.extractionPlanCache = extractionPlanCache;
+        return this;
+    }
+
+    public void setExtractionPlanCache(ExtractionPlanCache extractionPlanCache) {
+        this.extractionPlanCache = extractionPlanCache;
+    }
 }
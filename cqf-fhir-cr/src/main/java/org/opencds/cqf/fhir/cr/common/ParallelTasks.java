@@ -0,0 +1,78 @@
+package org.opencds.cqf.fhir.cr.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs a task for each of a list of inputs on an executor, collecting the results in the order of the
+ * inputs.
+ */
+public class ParallelTasks {
+    private ParallelTasks() {}
+
+    /**
+     * Runs the task for every input concurrently on the executor. Whichever task fails first cancels
+     * the tasks that have not started yet, without waiting for the tasks before it, and its failure is
+     * rethrown. Tasks that are already running are left to finish in the background.
+     *
+     * @param inputs   the inputs to run the task for
+     * @param task     the task
+     * @param executor the executor the tasks run on
+     * @return the results, in the order of the inputs
+     * @throws CompletionException wrapping the first failure if it is neither a RuntimeException nor
+     *                             an Error
+     */
+    public static <T, R> List<R> map(List<T> inputs, Function<T, R> task, Executor executor) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+        inputs.forEach(input -> futures.add(new CompletableFuture<>()));
+
+        // Every task can cancel the others before any of them runs
+        var failure = new AtomicReference<Throwable>();
+        futures.forEach(future -> future.exceptionally(e -> {
+            if (failure.compareAndSet(null, e)) {
+                futures.forEach(f -> f.cancel(true));
+            }
+            return null;
+        }));
+
+        for (int i = 0; i < inputs.size(); i++) {
+            var input = inputs.get(i);
+            var future = futures.get(i);
+            try {
+                executor.execute(() -> {
+                    // Cancelled by an earlier failure
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        future.complete(task.apply(input));
+                    } catch (RuntimeException | Error e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (RuntimeException e) {
+            var cause = failure.get();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+}
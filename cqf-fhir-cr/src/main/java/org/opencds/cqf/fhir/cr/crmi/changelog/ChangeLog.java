@@ -16,6 +16,8 @@ import org.opencds.cqf.fhir.utility.Canonicals;
 public class ChangeLog {
 
     private List<Page> pages;
+    // Pages keyed by URL; the first page added for a URL wins, matching a scan of the pages list
+    private final Map<String, Page> pagesByUrl = new HashMap<>();
     private String manifestUrl;
     public static final String URLS_DONT_MATCH = "URLs don't match";
     public static final String WRONG_TYPE = "wrong type";
@@ -34,6 +36,20 @@ public class ChangeLog {
 
     public void setPages(List<Page> pages) {
         this.pages = pages;
+        this.pagesByUrl.clear();
+        pages.forEach(this::indexPage);
+    }
+
+    private <T extends Page> T addAndIndexPage(T page) {
+        this.pages.add(page);
+        indexPage(page);
+        return page;
+    }
+
+    private void indexPage(Page page) {
+        if (page.getUrl() != null) {
+            this.pagesByUrl.putIfAbsent(page.getUrl(), page);
+        }
     }
 
     public String getManifestUrl() {
@@ -85,9 +101,7 @@ public class ChangeLog {
                         leafMetadataMap,
                         getPriority(targetResource).orElse(null));
         var url = getPageUrl(sourceResource, targetResource);
-        var page = new Page<>(url, oldData, newData);
-        this.pages.add(page);
-        return page;
+        return addAndIndexPage(new Page<>(url, oldData, newData));
     }
 
     public String getPageUrl(MetadataResource source, MetadataResource target) {
@@ -282,9 +296,7 @@ public class ChangeLog {
         var oldData = getLibraryChild(sourceResource);
         var newData = getLibraryChild(targetResource);
         var url = getPageUrl(sourceResource, targetResource);
-        var page = new Page<>(url, oldData, newData);
-        this.pages.add(page);
-        return page;
+        return addAndIndexPage(new Page<>(url, oldData, newData));
     }
 
     private static LibraryChild getLibraryChild(Library library) {
@@ -317,9 +329,7 @@ public class ChangeLog {
         var oldData = getPlanDefinitionChild(sourceResource);
         var newData = getPlanDefinitionChild(targetResource);
         var url = getPageUrl(sourceResource, targetResource);
-        var page = new Page<>(url, oldData, newData);
-        this.pages.add(page);
-        return page;
+        return addAndIndexPage(new Page<>(url, oldData, newData));
     }
 
     private static PlanDefinitionChild getPlanDefinitionChild(PlanDefinition resource) {
@@ -343,15 +353,11 @@ public class ChangeLog {
                 ? null
                 : new OtherChild(
                         null, targetResource.getIdElement().getIdPart(), null, null, url, targetResource.fhirType());
-        var page = new Page<>(url, oldData, newData);
-        this.pages.add(page);
-        return page;
+        return addAndIndexPage(new Page<>(url, oldData, newData));
     }
 
     public Optional<Page> getPage(String url) {
-        return this.pages.stream()
-                .filter(p -> p.getUrl() != null && p.getUrl().equals(url))
-                .findAny();
+        return url == null ? Optional.empty() : Optional.ofNullable(this.pagesByUrl.get(url));
     }
 
     public void handleRelatedArtifacts() {
@@ -361,27 +367,44 @@ public class ChangeLog {
             var manifestOldData = (LibraryChild) specLibrary.getOldData();
             var manifestNewData = (LibraryChild) specLibrary.getNewData();
             if (manifestNewData != null) {
+                var oldArtifactsByOid = relatedArtifactsByOid(manifestOldData);
+                var newArtifactsByOid = relatedArtifactsByOid(manifestNewData);
                 for (final var page : this.pages) {
                     if (page.getOldData() instanceof ValueSetChild oldValueSet) {
-                        updateConditionsAndPriorities(manifestOldData, oldValueSet);
+                        updateConditionsAndPriorities(oldArtifactsByOid, oldValueSet);
                     }
                     if (page.getNewData() instanceof ValueSetChild newValueSet) {
-                        updateConditionsAndPriorities(manifestNewData, newValueSet);
+                        updateConditionsAndPriorities(newArtifactsByOid, newValueSet);
                     }
                 }
             }
         }
     }
 
-    private void updateConditionsAndPriorities(LibraryChild manifestData, ValueSetChild pageData) {
-        for (final var ra : manifestData.getRelatedArtifacts()) {
-            pageData.getLeafValueSets().stream()
-                    .filter(leafValueSet -> leafValueSet.getMemberOid() != null
-                            && leafValueSet.getMemberOid().equals(Canonicals.getIdPart(ra.getValue())))
-                    .forEach(leafValueSet -> {
-                        updateConditions(ra, leafValueSet);
-                        updatePriorities(ra, leafValueSet);
-                    });
+    // Groups the manifest's related artifacts by the id part (OID) of their canonical, in manifest order
+    private static Map<String, List<RelatedArtifactUrlWithOperation>> relatedArtifactsByOid(
+            LibraryChild manifestData) {
+        Map<String, List<RelatedArtifactUrlWithOperation>> artifactsByOid = new HashMap<>();
+        if (manifestData != null) {
+            for (final var ra : manifestData.getRelatedArtifacts()) {
+                var oid = ra.getValue() == null ? null : Canonicals.getIdPart(ra.getValue());
+                if (oid != null) {
+                    artifactsByOid.computeIfAbsent(oid, k -> new ArrayList<>()).add(ra);
+                }
+            }
+        }
+        return artifactsByOid;
+    }
+
+    private void updateConditionsAndPriorities(
+            Map<String, List<RelatedArtifactUrlWithOperation>> artifactsByOid, ValueSetChild pageData) {
+        for (final var leafValueSet : pageData.getLeafValueSets()) {
+            if (leafValueSet.getMemberOid() != null) {
+                for (final var ra : artifactsByOid.getOrDefault(leafValueSet.getMemberOid(), List.of())) {
+                    updateConditions(ra, leafValueSet);
+                    updatePriorities(ra, leafValueSet);
+                }
+            }
         }
     }
 
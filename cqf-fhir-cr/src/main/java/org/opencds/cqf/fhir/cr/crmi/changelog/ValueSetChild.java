@@ -2,6 +2,7 @@ package org.opencds.cqf.fhir.cr.crmi.changelog;
 
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -192,6 +193,8 @@ public class ValueSetChild extends PageBase {
         private List<Leaf.NameAndOid> codeSystems = new ArrayList<>();
         private String status;
         private List<Code> conditions = new ArrayList<>();
+        // Conditions keyed by system|code
+        private final Map<String, Code> conditionsByKey = new HashMap<>();
         private ValueAndOperation priority = new ValueAndOperation();
         private Operation operation;
 
@@ -270,6 +273,7 @@ public class ValueSetChild extends PageBase {
             copy.codeSystems =
                     this.codeSystems.stream().map(Leaf.NameAndOid::copy).collect(Collectors.toList());
             copy.conditions = this.conditions.stream().map(Code::copy).collect(Collectors.toList());
+            copy.conditions.forEach(c -> copy.conditionsByKey.putIfAbsent(conditionKey(c.system, c.codeValue), c));
             copy.priority = new ValueAndOperation();
             copy.priority.setValue(this.priority.getValue());
             copy.priority.setOperation(this.priority.getOperation());
@@ -283,10 +287,7 @@ public class ValueSetChild extends PageBase {
                     (coding.getDisplay() == null || coding.getDisplay().isBlank())
                             ? condition.getText()
                             : coding.getDisplay();
-            final var maybeExisting = this.conditions.stream()
-                    .filter(code -> code.system.equals(coding.getSystem()) && code.codeValue.equals(coding.getCode()))
-                    .findAny();
-            if (maybeExisting.isEmpty()) {
+            return this.conditionsByKey.computeIfAbsent(conditionKey(coding.getSystem(), coding.getCode()), k -> {
                 final var newCondition = new Code(
                         coding.getId(),
                         coding.getSystem(),
@@ -300,9 +301,11 @@ public class ValueSetChild extends PageBase {
                         null);
                 this.conditions.add(newCondition);
                 return newCondition;
-            } else {
-                return maybeExisting.get();
-            }
+            });
+        }
+
+        private static String conditionKey(String system, String code) {
+            return system + "|" + code;
         }
     }
 
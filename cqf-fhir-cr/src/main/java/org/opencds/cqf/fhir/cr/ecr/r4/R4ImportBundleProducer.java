@@ -2,20 +2,25 @@ package org.opencds.cqf.fhir.cr.ecr.r4;
 
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.repository.IRepository;
+import ca.uhn.fhir.rest.param.UriOrListParam;
+import ca.uhn.fhir.rest.param.UriParam;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import ca.uhn.fhir.util.bundle.BundleEntryParts;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.*;
 import org.opencds.cqf.fhir.cr.crmi.TransformProperties;
 import org.opencds.cqf.fhir.cr.ecr.FhirResourceExistsException;
 import org.opencds.cqf.fhir.utility.Uris;
 import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
 import org.opencds.cqf.fhir.utility.adapter.IKnowledgeArtifactAdapter;
+import org.opencds.cqf.fhir.utility.iterable.BundleIterable;
 import org.opencds.cqf.fhir.utility.search.Searches;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +29,13 @@ public class R4ImportBundleProducer {
 
     private static final Logger myLogger = LoggerFactory.getLogger(R4ImportBundleProducer.class);
     private static final IAdapterFactory adapterFactory = IAdapterFactory.forFhirVersion(FhirVersionEnum.R4);
+    // Number of artifact URLs checked for existence per search
+    static final int EXISTENCE_CHECK_BATCH_SIZE = 100;
+    // Encoded length of the URLs checked per search, so that the GET stays well below the ~8 KB request
+    // line that many servers and proxies accept
+    static final int EXISTENCE_CHECK_MAX_QUERY_LENGTH = 4_000;
+    // Length of an encoded comma between the URLs of one search
+    private static final int ENCODED_SEPARATOR_LENGTH = 3;
 
     private R4ImportBundleProducer() {}
 
@@ -104,70 +116,65 @@ public class R4ImportBundleProducer {
         Library rootLibrary = null;
         Library rctcLibrary = null;
 
+        var resources = parameterBundle.getEntry().stream()
+                .map(Bundle.BundleEntryComponent::getResource)
+                .filter(MetadataResource.class::isInstance)
+                .map(MetadataResource.class::cast)
+                .toList();
+        // Look up which artifacts are already loaded in batches, rather than one search per artifact
+        var existingValueSets = findExistingCanonicals(resources, ValueSet.class, repository);
+        var existingLibraries = findExistingCanonicals(resources, Library.class, repository);
+
+        // ValueSets are prepared independently of each other, so a large import prepares them in parallel
+        var preparedValueSets = resources.parallelStream()
+                .filter(ValueSet.class::isInstance)
+                .map(resource -> prepareValueSet((ValueSet) resource, appAuthoritativeUrl))
+                .toList();
+
         List<Bundle.BundleEntryComponent> bundleEntries = new ArrayList<>();
-        var entries = parameterBundle.getEntry();
-        for (final var entry : entries) {
-            if (entry.getResource() instanceof MetadataResource) {
-                var resource = (MetadataResource) entry.getResource();
-                switch (resource.getResourceType()) {
-                    case ValueSet:
-                        var valueSet = (ValueSet) resource;
-                        List<UsageContext> genericContextList = new ArrayList<>();
-                        List<UsageContext> priorityList = new ArrayList<>();
-                        valueSet.setIdentifier(fixIdentifiers(valueSet.getIdentifier()));
-                        var valueSetCanonicalUrl = adapterFactory
-                                .createKnowledgeArtifactAdapter(valueSet)
-                                .getCanonical();
-                        extractUsageContexts(
-                                valueSet.getUseContext(), priorityList, genericContextList, valueSetCanonicalUrl);
-                        if (hasGrouperCompose(valueSet)) {
-                            prepareGrouperValueSet(valueSet, appAuthoritativeUrl);
-                            groupers.add(relatedArtifactFromGrouperUrl(
-                                    valueSetCanonicalUrl, genericContextList, priorityList));
+        for (final var prepared : preparedValueSets) {
+            var valueSet = prepared.valueSet();
+            if (prepared.isGrouper()) {
+                groupers.add(prepared.relatedArtifact());
+            } else {
+                leafs.add(prepared.relatedArtifact());
+            }
+            // Check if ValueSet already exists
+            if (!isExisting(existingValueSets, valueSet.getUrl(), valueSet.getVersion())) {
+                // Save the resource into entry bundle
+                bundleEntries.add(getPutResourceRequest(valueSet, "/ValueSet", valueSet.getIdPart()));
+            }
+        }
+
+        for (final var resource : resources) {
+            switch (resource.getResourceType()) {
+                case ValueSet:
+                    // already prepared above
+                    break;
+                case Library:
+                    var library = (Library) resource;
+                    library.setIdentifier(fixIdentifiers(library.getIdentifier()));
+                    if (isExisting(existingLibraries, library.getUrl(), library.getVersion())) {
+                        throw new FhirResourceExistsException("Library", library.getUrl(), library.getVersion());
+                    } else {
+                        if (isRootSpecificationLibrary(resource)) {
+                            rootLibrary = library;
                         } else {
-                            prepareLeafValueSet(valueSet);
-                            leafs.add(
-                                    relatedArtifactFromLeafUrl(valueSetCanonicalUrl, genericContextList, priorityList));
-                        }
-                        // Remove conditions and priority from useContext of leaf valuesets and groupers
-                        var cleanedContext = valueSet.getUseContext().stream()
-                                .filter(ctx -> ctx.hasCode()
-                                        && !(ctx.getCode().getCode().equals("focus")
-                                                || ctx.getCode().getCode().equals("priority")
-                                                || ctx.getCode().getCode().equals("reporting")))
-                                .collect(Collectors.toList());
-                        valueSet.setUseContext(cleanedContext);
-                        // Check if ValueSet already exists
-                        if (!doesResourceExist(valueSet.getUrl(), valueSet.getVersion(), ValueSet.class, repository)) {
-                            // Save the resource into entry bundle
-                            bundleEntries.add(getPutResourceRequest(valueSet, "/ValueSet", valueSet.getIdPart()));
+                            library.getMeta()
+                                    .setProfile(removeProfileFromList(
+                                            library.getMeta().getProfile(), TransformProperties.ersdVSLibProfile));
+                            rctcLibrary = library;
                         }
-                        break;
-                    case Library:
-                        var library = (Library) resource;
-                        library.setIdentifier(fixIdentifiers(library.getIdentifier()));
-                        if (doesResourceExist(library.getUrl(), library.getVersion(), Library.class, repository)) {
-                            throw new FhirResourceExistsException("Library", library.getUrl(), library.getVersion());
-                        } else {
-                            if (isRootSpecificationLibrary(resource)) {
-                                rootLibrary = library;
-                            } else {
-                                library.getMeta()
-                                        .setProfile(removeProfileFromList(
-                                                library.getMeta().getProfile(), TransformProperties.ersdVSLibProfile));
-                                rctcLibrary = library;
-                            }
-                        }
-                        break;
-                    case PlanDefinition:
-                        planDefinition = (PlanDefinition) resource;
-                        planDefinition.setIdentifier(fixIdentifiers(planDefinition.getIdentifier()));
-                        break;
-                    default:
-                        myLogger.info("resourceType:  " + resource.getResourceType()
-                                + " is not supported by $import operation");
-                        break;
-                }
+                    }
+                    break;
+                case PlanDefinition:
+                    planDefinition = (PlanDefinition) resource;
+                    planDefinition.setIdentifier(fixIdentifiers(planDefinition.getIdentifier()));
+                    break;
+                default:
+                    myLogger.info(
+                            "resourceType:  " + resource.getResourceType() + " is not supported by $import operation");
+                    break;
             }
         }
 
@@ -185,6 +192,40 @@ public class R4ImportBundleProducer {
         return bundleEntries;
     }
 
+    private record PreparedValueSet(ValueSet valueSet, RelatedArtifact relatedArtifact, boolean isGrouper) {}
+
+    private static PreparedValueSet prepareValueSet(ValueSet valueSet, String appAuthoritativeUrl) {
+        List<UsageContext> genericContextList = new ArrayList<>();
+        List<UsageContext> priorityList = new ArrayList<>();
+        valueSet.setIdentifier(fixIdentifiers(valueSet.getIdentifier()));
+        var valueSetCanonicalUrl =
+                adapterFactory.createKnowledgeArtifactAdapter(valueSet).getCanonical();
+        extractUsageContexts(valueSet.getUseContext(), priorityList, genericContextList, valueSetCanonicalUrl);
+        PreparedValueSet prepared;
+        if (hasGrouperCompose(valueSet)) {
+            prepareGrouperValueSet(valueSet, appAuthoritativeUrl);
+            prepared = new PreparedValueSet(
+                    valueSet,
+                    relatedArtifactFromGrouperUrl(valueSetCanonicalUrl, genericContextList, priorityList),
+                    true);
+        } else {
+            prepareLeafValueSet(valueSet);
+            prepared = new PreparedValueSet(
+                    valueSet,
+                    relatedArtifactFromLeafUrl(valueSetCanonicalUrl, genericContextList, priorityList),
+                    false);
+        }
+        // Remove conditions and priority from useContext of leaf valuesets and groupers
+        var cleanedContext = valueSet.getUseContext().stream()
+                .filter(ctx -> ctx.hasCode()
+                        && !(ctx.getCode().getCode().equals("focus")
+                                || ctx.getCode().getCode().equals("priority")
+                                || ctx.getCode().getCode().equals("reporting")))
+                .collect(Collectors.toList());
+        valueSet.setUseContext(cleanedContext);
+        return prepared;
+    }
+
     private static void prepareGrouperValueSet(ValueSet valueSet, String appAuthoritativeUrl) {
         addModelGrouperUseContextIfMissing(valueSet);
         valueSet.setExpansion(null);
@@ -312,15 +353,75 @@ public class R4ImportBundleProducer {
         return concept.getCodingFirstRep().getCode();
     }
 
-    private static boolean doesResourceExist(
-            String url, String version, Class<? extends IBaseResource> resourceType, IRepository repository) {
-        try {
-            var searchParams = version == null ? Searches.byUrl(url) : Searches.byUrlAndVersion(url, version);
-            var searchResult = repository.search(Bundle.class, resourceType, searchParams);
-            return searchResult.hasEntry();
-        } catch (Exception e) {
-            return false;
+    /**
+     * Splits the URLs, in order, into batches of at most {@link #EXISTENCE_CHECK_BATCH_SIZE} URLs whose
+     * encoded, comma-separated length stays within {@link #EXISTENCE_CHECK_MAX_QUERY_LENGTH}. A URL that is
+     * longer than that on its own is checked alone.
+     */
+    static List<List<String>> existenceCheckBatches(List<String> urls) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        var length = 0;
+        for (var url : urls) {
+            var urlLength = URLEncoder.encode(url, StandardCharsets.UTF_8).length();
+            if (!batch.isEmpty()
+                    && (batch.size() == EXISTENCE_CHECK_BATCH_SIZE
+                            || length + ENCODED_SEPARATOR_LENGTH + urlLength > EXISTENCE_CHECK_MAX_QUERY_LENGTH)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                length = 0;
+            }
+            length += (batch.isEmpty() ? 0 : ENCODED_SEPARATOR_LENGTH) + urlLength;
+            batch.add(url);
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Finds which of the given resources of a type are already in the repository, searching by batches
+     * of URLs. The result holds the URL of each existing artifact, and its URL|version when versioned.
+     */
+    private static Set<String> findExistingCanonicals(
+            List<MetadataResource> resources, Class<? extends MetadataResource> resourceType, IRepository repository) {
+        var urls = resources.stream()
+                .filter(resourceType::isInstance)
+                .filter(MetadataResource::hasUrl)
+                .map(MetadataResource::getUrl)
+                .distinct()
+                .toList();
+        Set<String> existing = new HashSet<>();
+        for (var batch : existenceCheckBatches(urls)) {
+            var urlParams = new UriOrListParam();
+            batch.forEach(url -> urlParams.addOr(new UriParam(url)));
+            try {
+                var searchResult = repository.search(
+                        Bundle.class,
+                        resourceType,
+                        Searches.builder().withOrListParam("url", urlParams).build());
+                new BundleIterable<>(repository, searchResult)
+                        .toStream()
+                        .map(BundleEntryParts::getResource)
+                        .filter(MetadataResource.class::isInstance)
+                        .map(MetadataResource.class::cast)
+                        .forEach(resource -> {
+                            existing.add(resource.getUrl());
+                            if (resource.hasVersion()) {
+                                existing.add(resource.getUrl() + "|" + resource.getVersion());
+                            }
+                        });
+            } catch (Exception e) {
+                // treat the batch as not yet loaded, as a failed search for a single artifact did before
+                myLogger.warn("Unable to check for existing {} resources", resourceType.getSimpleName(), e);
+            }
         }
+        return existing;
+    }
+
+    private static boolean isExisting(Set<String> existingCanonicals, String url, String version) {
+        return existingCanonicals.contains(version == null ? url : url + "|" + version);
     }
 
     private static Bundle.BundleEntryComponent getPutResourceRequest(
@@ -73,7 +73,7 @@ public class GraphDefinitionProcessor {
 
     public IApplyProcessor getApplyProcessor() {
         if (isNull(this.applyProcessor)) {
-            applyProcessor = new ApplyProcessor(repository, modelResolver);
+            applyProcessor = new ApplyProcessor(repository, modelResolver, crSettings.getEvaluationExecutor());
         }
         return applyProcessor;
     }
@@ -7,6 +7,7 @@ import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import com.google.common.collect.Multimap;
@@ -16,6 +17,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import org.hl7.fhir.instance.model.api.IBaseBackboneElement;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
@@ -36,6 +39,8 @@ import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.StringType;
 import org.opencds.cqf.cql.engine.model.ModelResolver;
 import org.opencds.cqf.fhir.cr.common.ExtensionProcessor;
+import org.opencds.cqf.fhir.cr.common.ParallelTasks;
+import org.opencds.cqf.fhir.cr.graphdefinition.apply.SectionSearchPlan.SectionSearch;
 import org.opencds.cqf.fhir.utility.BundleHelper;
 import org.opencds.cqf.fhir.utility.Constants;
 import org.opencds.cqf.fhir.utility.SearchHelper;
@@ -55,10 +60,20 @@ public class ApplyProcessor implements IApplyProcessor {
     protected final ModelResolver modelResolver;
     protected final ExtensionProcessor extensionProcessor;
     protected final FhirVersionEnum fhirVersionEnum;
+    protected final Executor executor;
 
     public ApplyProcessor(IRepository repository, ModelResolver modelResolver) {
+        this(repository, modelResolver, null);
+    }
+
+    /**
+     * @param executor the executor to run the section searches on concurrently, or null to run them
+     *                 sequentially on the calling thread
+     */
+    public ApplyProcessor(IRepository repository, ModelResolver modelResolver, Executor executor) {
         this.repository = repository;
         this.modelResolver = modelResolver;
+        this.executor = executor;
         this.fhirVersionEnum = this.repository.fhirContext().getVersion().getVersion();
         extensionProcessor = new ExtensionProcessor();
     }
@@ -71,6 +86,7 @@ public class ApplyProcessor implements IApplyProcessor {
         var bundle = createResponseBundle();
         var responseComposite = createAndInitializeCompositeEntry(request);
 
+        searchSections(request, SectionSearchPlan.forGraphDefinition(graphDefinition));
         var sections = transformBackBoneElementsToSections(request, graphDefinition.getLink());
         sections.forEach(responseComposite::addSection);
 
@@ -121,14 +137,10 @@ public class ApplyProcessor implements IApplyProcessor {
         }
 
         if (profile != null) {
-            var resourceType = SearchHelper.getResourceClass(repository, type);
-            var searchParams = getSearchParams(request, type, profile);
-            var searchBundle = SearchHelper.searchRepositoryWithPaging(repository, resourceType, searchParams, null);
-            var referencedResources = BundleHelper.getEntryResources(searchBundle);
+            var referencedResources = getSectionResources(request, new SectionSearch(type, profile));
             referencedResources.forEach(r -> {
                 var reference = new Reference().setReference(r.getIdElement().getValue());
                 sectionComponent.addEntry(reference);
-                request.getReferencedResources().add(r);
             });
         }
 
@@ -144,6 +156,55 @@ public class ApplyProcessor implements IApplyProcessor {
         return sectionComponent;
     }
 
+    /**
+     * Runs the planned section searches, concurrently if there is an executor, and records the resources
+     * found on the request so that every section with the same type and profile shares them.
+     */
+    protected void searchSections(ApplyRequest request, SectionSearchPlan plan) {
+        var searches = plan.getSearches().stream()
+                .filter(s -> !request.getSectionResources().containsKey(s))
+                .toList();
+        List<List<IBaseResource>> results;
+        if (executor == null || searches.size() < 2) {
+            results = searches.stream().map(s -> search(request, s)).toList();
+        } else {
+            try {
+                results = ParallelTasks.map(searches, s -> search(request, s), executor);
+            } catch (CompletionException e) {
+                throw new InternalErrorException("Section search failed: " + e.getMessage(), e);
+            }
+        }
+        // Recorded in plan order so that the referenced resources do not depend on thread timing
+        for (int i = 0; i < searches.size(); i++) {
+            addSectionResources(request, searches.get(i), results.get(i));
+        }
+    }
+
+    /**
+     * Returns the resources for a section, searching for them only if no section with the same type and
+     * profile has been populated yet.
+     */
+    protected List<IBaseResource> getSectionResources(ApplyRequest request, SectionSearch search) {
+        var resources = request.getSectionResources().get(search);
+        if (resources == null) {
+            resources = search(request, search);
+            addSectionResources(request, search, resources);
+        }
+        return resources;
+    }
+
+    protected List<IBaseResource> search(ApplyRequest request, SectionSearch search) {
+        var resourceType = SearchHelper.getResourceClass(repository, search.type());
+        var searchParams = getSearchParams(request, search.type(), search.profile());
+        var searchBundle = SearchHelper.searchRepositoryWithPaging(repository, resourceType, searchParams, null);
+        return BundleHelper.getEntryResources(searchBundle);
+    }
+
+    private void addSectionResources(ApplyRequest request, SectionSearch search, List<IBaseResource> resources) {
+        request.getSectionResources().put(search, resources);
+        resources.forEach(request::addReferencedResource);
+    }
+
     protected Multimap<String, List<IQueryParameterType>> getSearchParams(
             ApplyRequest request, String type, String profile) {
         var searchParams = Searches.byProfile(profile);
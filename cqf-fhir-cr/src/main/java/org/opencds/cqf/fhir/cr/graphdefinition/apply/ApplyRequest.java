@@ -9,8 +9,11 @@ import ca.uhn.fhir.repository.IRepository;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBackboneElement;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
@@ -23,6 +26,7 @@ import org.opencds.cqf.cql.engine.model.ModelResolver;
 import org.opencds.cqf.fhir.cql.LibraryEngine;
 import org.opencds.cqf.fhir.cr.common.ICpgRequest;
 import org.opencds.cqf.fhir.cr.common.IInputParameterResolver;
+import org.opencds.cqf.fhir.cr.graphdefinition.apply.SectionSearchPlan.SectionSearch;
 import org.opencds.cqf.fhir.utility.adapter.IGraphDefinitionAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IQuestionnaireAdapter;
 
@@ -46,6 +50,8 @@ public class ApplyRequest implements ICpgRequest {
     private final Map<String, String> referencedLibraries;
     private final IInputParameterResolver inputParameterResolver;
     private final Collection<IBaseResource> referencedResources;
+    private final Set<String> referencedResourceIds;
+    private final Map<SectionSearch, List<IBaseResource>> sectionResources;
     private IBaseOperationOutcome operationOutcome;
 
     public ApplyRequest(
@@ -103,6 +109,8 @@ public class ApplyRequest implements ICpgRequest {
                         this.data);
         referencedLibraries = graphDefinitionAdapter.getReferencedLibraries();
         referencedResources = new ArrayList<>();
+        referencedResourceIds = new HashSet<>();
+        sectionResources = new ConcurrentHashMap<>();
 
         this.startDateTime = startDateTime;
         this.endDateTime = endDateTime;
@@ -245,4 +253,22 @@ public class ApplyRequest implements ICpgRequest {
     public Collection<IBaseResource> getReferencedResources() {
         return referencedResources;
     }
+
+    /**
+     * Adds a resource to the referenced resources, unless a resource with the same id was already added.
+     */
+    public void addReferencedResource(IBaseResource resource) {
+        if (referencedResourceIds.add(
+                resource.getIdElement().toUnqualifiedVersionless().getValue())) {
+            referencedResources.add(resource);
+        }
+    }
+
+    /**
+     * @return the resources found for each section search of this request, shared by every target with the
+     * same type and profile
+     */
+    public Map<SectionSearch, List<IBaseResource>> getSectionResources() {
+        return sectionResources;
+    }
 }
@@ -0,0 +1,71 @@
+package org.opencds.cqf.fhir.cr.graphdefinition.apply;
+
+import static org.opencds.cqf.fhir.utility.Constants.CPG_RELATED_SUMMARY_DEFINITION;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.hl7.fhir.r4.model.GraphDefinition;
+
+/**
+ * The searches needed to populate the sections of a GraphDefinition: one for each distinct target type and
+ * profile, however many links and targets share it. Plans are cached per GraphDefinition (url|version,
+ * including the resource's versionId and lastUpdated) so that $apply only has to run the searches.
+ */
+public class SectionSearchPlan {
+    private static final Cache<PlanKey, SectionSearchPlan> PLANS =
+            CacheBuilder.newBuilder().maximumSize(500).build();
+
+    private record PlanKey(String url, String version, String versionId, Long lastUpdated) {}
+
+    /**
+     * A search for the subject's resources of a type that conform to a profile.
+     */
+    public record SectionSearch(String type, String profile) {}
+
+    private final List<SectionSearch> searches;
+
+    SectionSearchPlan(GraphDefinition graphDefinition) {
+        var distinct = new LinkedHashSet<SectionSearch>();
+        for (var link : graphDefinition.getLink()) {
+            for (var target : link.getTarget()) {
+                // Targets with a related summary definition are rejected when their section is built
+                if (target.hasProfile() && target.getExtensionsByUrl(CPG_RELATED_SUMMARY_DEFINITION).isEmpty()) {
+                    distinct.add(new SectionSearch(target.getType(), target.getProfile()));
+                }
+            }
+        }
+        searches = List.copyOf(distinct);
+    }
+
+    /**
+     * Returns the cached plan for the GraphDefinition, or a new plan if the GraphDefinition has no url.
+     */
+    public static SectionSearchPlan forGraphDefinition(GraphDefinition graphDefinition) {
+        if (!graphDefinition.hasUrl()) {
+            return new SectionSearchPlan(graphDefinition);
+        }
+        var meta = graphDefinition.getMeta();
+        var key = new PlanKey(
+                graphDefinition.getUrl(),
+                graphDefinition.getVersion(),
+                meta.getVersionId(),
+                meta.getLastUpdated() == null ? null : meta.getLastUpdated().getTime());
+        return PLANS.asMap().computeIfAbsent(key, k -> new SectionSearchPlan(graphDefinition));
+    }
+
+    /**
+     * Drops all cached plans.
+     */
+    public static void invalidateAll() {
+        PLANS.invalidateAll();
+    }
+
+    /**
+     * @return the distinct searches, in the order their targets appear in the GraphDefinition
+     */
+    public List<SectionSearch> getSearches() {
+        return searches;
+    }
+}
@@ -198,6 +198,35 @@ public class GroupProcessor {
             IBaseResource dataEndpoint,
             IBaseResource contentEndpoint,
             IBaseResource terminologyEndpoint) {
+        return evaluate(
+                group,
+                subject,
+                parameters,
+                useServerData,
+                data,
+                prefetchData,
+                dataEndpoint,
+                contentEndpoint,
+                terminologyEndpoint,
+                null);
+    }
+
+    /**
+     * Evaluates the Group definition, incrementally if a previous result is given. See
+     * {@link #evaluate(Either3, String, IBaseParameters, IBaseBundle, List, LibraryEngine, IBaseResource)}
+     * for what an incremental evaluation does and does not detect.
+     */
+    public <C extends IPrimitiveType<String>, R extends IBaseResource> R evaluate(
+            Either3<C, IIdType, R> group,
+            String subject,
+            IBaseParameters parameters,
+            boolean useServerData,
+            IBaseBundle data,
+            List<? extends IBaseBackboneElement> prefetchData,
+            IBaseResource dataEndpoint,
+            IBaseResource contentEndpoint,
+            IBaseResource terminologyEndpoint,
+            IBaseResource previousResult) {
         return evaluate(
                 group,
                 subject,
@@ -207,7 +236,8 @@ public class GroupProcessor {
                 prefetchData,
                 createRestRepository(repository.fhirContext(), dataEndpoint),
                 createRestRepository(repository.fhirContext(), contentEndpoint),
-                createRestRepository(repository.fhirContext(), terminologyEndpoint));
+                createRestRepository(repository.fhirContext(), terminologyEndpoint),
+                previousResult);
     }
 
     public <C extends IPrimitiveType<String>, R extends IBaseResource> R evaluate(
@@ -220,6 +250,35 @@ public class GroupProcessor {
             IRepository dataRepository,
             IRepository contentRepository,
             IRepository terminologyRepository) {
+        return evaluate(
+                group,
+                subject,
+                parameters,
+                useServerData,
+                data,
+                prefetchData,
+                dataRepository,
+                contentRepository,
+                terminologyRepository,
+                null);
+    }
+
+    /**
+     * Evaluates the Group definition, incrementally if a previous result is given. See
+     * {@link #evaluate(Either3, String, IBaseParameters, IBaseBundle, List, LibraryEngine, IBaseResource)}
+     * for what an incremental evaluation does and does not detect.
+     */
+    public <C extends IPrimitiveType<String>, R extends IBaseResource> R evaluate(
+            Either3<C, IIdType, R> group,
+            String subject,
+            IBaseParameters parameters,
+            boolean useServerData,
+            IBaseBundle data,
+            List<? extends IBaseBackboneElement> prefetchData,
+            IRepository dataRepository,
+            IRepository contentRepository,
+            IRepository terminologyRepository,
+            IBaseResource previousResult) {
         repository = proxy(repository, useServerData, dataRepository, contentRepository, terminologyRepository);
         return evaluate(
                 group,
@@ -227,7 +286,8 @@ public class GroupProcessor {
                 parameters,
                 data,
                 prefetchData,
-                new LibraryEngine(repository, crSettings.getEvaluationSettings()));
+                new LibraryEngine(repository, crSettings.getEvaluationSettings()),
+                previousResult);
     }
 
     public <C extends IPrimitiveType<String>, R extends IBaseResource> R evaluate(
@@ -237,10 +297,45 @@ public class GroupProcessor {
             IBaseBundle data,
             List<? extends IBaseBackboneElement> prefetchData,
             LibraryEngine libraryEngine) {
+        return evaluate(group, subject, parameters, data, prefetchData, libraryEngine, null);
+    }
+
+    /**
+     * Evaluates the Group definition incrementally: only the subjects whose data changed since the
+     * previous result was generated are evaluated, and the membership of all other subjects is kept from
+     * it. A subject has changed if its Patient, or a resource of a type the membership expression
+     * retrieves that references it, has a meta.lastUpdated at or after the workflow-generatedOn of the
+     * previous result.
+     * <p/>
+     * Anything else that changes membership is not detected, and leaves stale members or misses new ones:
+     * <ul>
+     *     <li>deleted Patients and deleted resources, which no longer match a _lastUpdated search</li>
+     *     <li>criteria that depend on the time of evaluation, such as an age or a lookback period</li>
+     *     <li>changes to the Group definition, its library, the parameters, the terminology, or data
+     *     that is not searched on the repository, such as the data bundle</li>
+     * </ul>
+     * Use it only for a previous result of the same definition and parameters, and evaluate every
+     * subject from time to time, or whenever one of the above may have changed. The previous result is
+     * ignored if a subject is given or if it has no workflow-generatedOn.
+     *
+     * @param previousResult the Group returned by an earlier evaluation of the same definition and parameters,
+     *                       or null to evaluate every subject
+     */
+    public <C extends IPrimitiveType<String>, R extends IBaseResource> R evaluate(
+            Either3<C, IIdType, R> group,
+            String subject,
+            IBaseParameters parameters,
+            IBaseBundle data,
+            List<? extends IBaseBackboneElement> prefetchData,
+            LibraryEngine libraryEngine,
+            IBaseResource previousResult) {
         var processor = evaluateProcessor != null
                 ? evaluateProcessor
-                : new EvaluateProcessor(repository, crSettings.getEvaluationSettings());
-        return processor.evaluate(buildEvaluateRequest(group, subject, parameters, data, prefetchData, libraryEngine));
+                : new EvaluateProcessor(
+                        repository, crSettings.getEvaluationSettings(), crSettings.getEvaluationExecutor());
+        var request = buildEvaluateRequest(group, subject, parameters, data, prefetchData, libraryEngine);
+        request.setPreviousResult(previousResult);
+        return processor.evaluate(request);
     }
 
     public <C extends IPrimitiveType<String>, R extends IBaseResource> IBaseBundle deleteGroup(
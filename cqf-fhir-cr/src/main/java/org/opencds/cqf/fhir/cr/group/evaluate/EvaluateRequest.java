@@ -28,6 +28,7 @@ public class EvaluateRequest implements ICqlOperationRequest {
     private final ModelResolver modelResolver;
     private final FhirVersionEnum fhirVersion;
     private IBaseOperationOutcome operationOutcome;
+    private IBaseResource previousResult;
 
     public EvaluateRequest(
             IBaseResource group,
@@ -119,4 +120,20 @@ public class EvaluateRequest implements ICqlOperationRequest {
     public void setOperationOutcome(IBaseOperationOutcome operationOutcome) {
         this.operationOutcome = operationOutcome;
     }
+
+    public IBaseResource getPreviousResult() {
+        return previousResult;
+    }
+
+    /**
+     * Sets the Group returned by an earlier $evaluate of the same Group definition and parameters. When
+     * set, only subjects whose data was updated since that result was generated are evaluated again, and
+     * the membership of every other subject is taken from the previous result. Deletions, criteria that
+     * depend on the time of evaluation and changes to the definition, parameters or non-repository data
+     * are not detected; see {@link org.opencds.cqf.fhir.cr.group.GroupProcessor GroupProcessor}.
+     */
+    public EvaluateRequest setPreviousResult(IBaseResource previousResult) {
+        this.previousResult = previousResult;
+        return this;
+    }
 }
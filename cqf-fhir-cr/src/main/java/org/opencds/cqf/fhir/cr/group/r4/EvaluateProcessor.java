@@ -12,11 +12,16 @@ import com.google.common.collect.Multimap;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.cqframework.cql.cql2elm.CqlCompilerOptions;
 import org.cqframework.cql.cql2elm.LibraryManager;
 import org.cqframework.cql.cql2elm.model.CompiledLibrary;
@@ -49,10 +54,11 @@ import org.opencds.cqf.cql.engine.terminology.ValueSetInfo;
 import org.opencds.cqf.fhir.cql.Engines;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
 import org.opencds.cqf.fhir.cql.VersionedIdentifiers;
+import org.opencds.cqf.fhir.cr.common.ParallelTasks;
 import org.opencds.cqf.fhir.cr.group.evaluate.EvaluateRequest;
 import org.opencds.cqf.fhir.cr.group.evaluate.IEvaluateProcessor;
-import org.opencds.cqf.fhir.utility.iterable.BundleMappingIterable;
-import org.opencds.cqf.fhir.utility.search.Searches;
+import org.opencds.cqf.fhir.utility.iterable.BundleIterable;
+import org.opencds.cqf.fhir.utility.repository.IProjectingRepository;
 
 @SuppressWarnings("UnstableApiUsage")
 public class EvaluateProcessor implements IEvaluateProcessor {
@@ -60,10 +66,20 @@ public class EvaluateProcessor implements IEvaluateProcessor {
 
     protected IRepository repository;
     protected EvaluationSettings evaluationSettings;
+    protected Executor executor;
 
     public EvaluateProcessor(IRepository repository, EvaluationSettings evaluationSettings) {
+        this(repository, evaluationSettings, null);
+    }
+
+    /**
+     * @param executor the executor to evaluate the membership criteria of the subjects on concurrently, or null
+     *                 to evaluate them sequentially on the calling thread
+     */
+    public EvaluateProcessor(IRepository repository, EvaluationSettings evaluationSettings, Executor executor) {
         this.repository = repository;
         this.evaluationSettings = evaluationSettings;
+        this.executor = executor;
     }
 
     public Group evaluate(EvaluateRequest request) {
@@ -140,24 +156,38 @@ public class EvaluateProcessor implements IEvaluateProcessor {
             var parametersConverter = Engines.getCqlFhirParametersConverter(repository.fhirContext());
             var cqlParameters = parametersConverter.toCqlParameters(request.getParameters());
 
-            // Determine initial membership
-            var subjects =
-                    getSubjects(request, context, libraryUrl, expression.getExpression(), cqlParameters, zonedDateTime);
+            var subjectResults = new LinkedHashSet<String>();
+            List<String> subjects;
+            var previousResult = request.getPreviousResult() instanceof Group group ? group : null;
+            var since = getGeneratedOn(previousResult);
+            if (request.getSubject() == null && since != null) {
+                // Only evaluate the subjects whose data changed since the previous result, keep the others
+                subjects = getChangedSubjects(
+                        request, context, libraryUrl, expression.getExpression(), cqlParameters, zonedDateTime, since);
+                var changed = new HashSet<>(subjects);
+                for (var member : previousResult.getMember()) {
+                    var reference = member.getEntity().getReference();
+                    if (reference != null && !changed.contains(reference)) {
+                        subjectResults.add(reference);
+                    }
+                }
+                log.info(
+                        "Re-evaluating {} changed subjects, retaining {} members of the previous result",
+                        subjects.size(),
+                        subjectResults.size());
+            } else {
+                // Determine initial membership
+                subjects = getSubjects(
+                        request, context, libraryUrl, expression.getExpression(), cqlParameters, zonedDateTime);
+            }
 
             var expressions = Set.of(expression.getExpression());
 
             // Evaluate membership criteria for each subject, and add them to the resulting group
-            var subjectResults = new HashSet<String>();
-            for (var subject : subjects) {
-                var results = (Parameters) request.getLibraryEngine()
-                        .evaluate(
-                                libraryUrl,
-                                subject,
-                                request.getParameters(),
-                                null,
-                                request.getData(),
-                                zonedDateTime,
-                                expressions);
+            var evaluations = evaluateSubjects(request, libraryUrl, subjects, zonedDateTime, expressions);
+            for (int i = 0; i < subjects.size(); i++) {
+                var subject = subjects.get(i);
+                var results = evaluations.get(i).get();
 
                 var resultParameter = results.getParameter(expression.getExpression());
                 if (resultParameter.hasValue()) {
@@ -193,19 +223,138 @@ public class EvaluateProcessor implements IEvaluateProcessor {
         return groupResult;
     }
 
-    private String getPatientReference(Resource resource, EvaluateRequest request) {
-        var adapter = request.getAdapterFactory().createResource(resource);
-        if (resource != null && "Patient".equals(adapter.get().fhirType())) {
-            var reference =
-                    adapter.resolvePath(request.getModelResolver().getContextPath("Patient", resource.fhirType()));
-            if (reference instanceof Reference) {
-                return ((Reference) reference).getReference();
-            }
+    /*
+    Evaluates the membership criteria for each subject. With an executor every subject is evaluated
+    concurrently, each on its own engine, and whichever subject fails first cancels the subjects not yet
+    evaluated; otherwise subjects are evaluated lazily, in order, on this thread. The results are returned
+    in the order of the subjects.
+     */
+    private List<Supplier<Parameters>> evaluateSubjects(
+            EvaluateRequest request,
+            String libraryUrl,
+            List<String> subjects,
+            ZonedDateTime zonedDateTime,
+            Set<String> expressions) {
+        Function<String, Parameters> evaluateSubject = subject -> (Parameters) request.getLibraryEngine()
+                .evaluate(
+                        libraryUrl,
+                        subject,
+                        request.getParameters(),
+                        null,
+                        request.getData(),
+                        zonedDateTime,
+                        expressions);
+        if (executor == null || subjects.size() < 2) {
+            return subjects.stream()
+                    .<Supplier<Parameters>>map(subject -> () -> evaluateSubject.apply(subject))
+                    .toList();
         }
+        return ParallelTasks.map(subjects, evaluateSubject, executor).stream()
+                .<Supplier<Parameters>>map(result -> () -> result)
+                .toList();
+    }
 
+    private Date getGeneratedOn(Group previousResult) {
+        if (previousResult == null) {
+            return null;
+        }
+        var generatedOn =
+                previousResult.getExtensionByUrl("http://hl7.org/fhir/StructureDefinition/workflow-generatedOn");
+        if (generatedOn != null && generatedOn.getValue() instanceof DateTimeType dateTime) {
+            return dateTime.getValue();
+        }
         return null;
     }
 
+    /*
+    Returns the path of the element of the given resource type that references the Patient, or null if
+    the resource type is not related to Patient.
+     */
+    private String getContextPath(EvaluateRequest request, String resourceType) {
+        if (request.getModelResolver().getContextPath("Patient", resourceType) instanceof String path) {
+            return path;
+        }
+        return null;
+    }
+
+    private String getPatientReference(Resource resource, String contextPath, EvaluateRequest request) {
+        if (resource == null) {
+            return null;
+        }
+        if (resource instanceof Patient) {
+            return resource.getIdElement().toUnqualifiedVersionless().getValue();
+        }
+        if (contextPath != null
+                && request.getModelResolver().resolvePath(resource, contextPath) instanceof Reference reference
+                && "Patient".equals(reference.getReferenceElement().getResourceType())) {
+            return reference.getReferenceElement().toUnqualifiedVersionless().getValue();
+        }
+
+        return null;
+    }
+
+    /*
+    Searches for resources of the given type, asking only for the element that references the Patient,
+    and returns the distinct Patient references of the matches.
+     */
+    private Set<String> getSubjectReferences(
+            EvaluateRequest request, String resourceType, Multimap<String, List<IQueryParameterType>> searchParams) {
+        var subjects = new LinkedHashSet<String>();
+        var contextPath = "Patient".equals(resourceType) ? null : getContextPath(request, resourceType);
+        if (contextPath == null && !"Patient".equals(resourceType)) {
+            return subjects;
+        }
+
+        var resourceClass =
+                repository.fhirContext().getResourceDefinition(resourceType).getImplementingClass();
+        var elements = contextPath == null ? Set.of("id") : Set.of(contextPath.split("\\.")[0]);
+        Bundle results =
+                IProjectingRepository.searchElements(repository, Bundle.class, resourceClass, searchParams, elements);
+        for (var entry : new BundleIterable<>(repository, results)) {
+            var reference = getPatientReference((Resource) entry.getResource(), contextPath, request);
+            if (reference != null) {
+                subjects.add(reference);
+            }
+        }
+        return subjects;
+    }
+
+    /*
+    Returns the Patients whose data was created or updated since the given time: updated Patients, and
+    the Patients referenced by updated resources of the types the expression depends on.
+     */
+    private List<String> getChangedSubjects(
+            EvaluateRequest request,
+            CqlEngine context,
+            String libraryUrl,
+            String expression,
+            Map<String, Value> parameters,
+            ZonedDateTime zonedDateTime,
+            Date since) {
+        var effectiveDataRequirements = getEffectiveDataRequirements(
+                Objects.requireNonNull(context.getEnvironment().getLibraryManager()),
+                VersionedIdentifiers.forUrl(libraryUrl),
+                expression,
+                parameters,
+                zonedDateTime);
+        var resourceTypes = new LinkedHashSet<String>();
+        resourceTypes.add("Patient");
+        for (var dr : effectiveDataRequirements.getDataRequirement()) {
+            if (isPatientSelectiveType(dr.getType())) {
+                resourceTypes.add(dr.getType());
+            }
+        }
+
+        var subjects = new LinkedHashSet<String>();
+        for (var resourceType : resourceTypes) {
+            Multimap<String, List<IQueryParameterType>> searchParams = HashMultimap.create();
+            searchParams.put(
+                    "_lastUpdated", List.of(new DateParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, since)));
+            subjects.addAll(getSubjectReferences(request, resourceType, searchParams));
+        }
+        return new ArrayList<>(subjects);
+    }
+
     private List<String> getSubjects(
             EvaluateRequest request,
             CqlEngine context,
@@ -304,47 +453,12 @@ public class EvaluateProcessor implements IEvaluateProcessor {
             }
 
             if (!searchParams.isEmpty()) {
-                var resourceClass = repository
-                        .fhirContext()
-                        .getResourceDefinition(dr.getType())
-                        .getImplementingClass();
-                Bundle results = repository.search(Bundle.class, resourceClass, searchParams);
-
-                var subjects = new HashSet<String>();
-
-                // TODO: Refactor to use BundleIterator
-                while (results != null) {
-
-                    for (var entry : results.getEntry()) {
-                        var reference = getPatientReference(entry.getResource(), request);
-                        if (reference != null) {
-                            subjects.add(reference);
-                        }
-                    }
-
-                    var nextLink = results.getLink("next");
-                    if (nextLink != null && nextLink.hasUrl()) {
-                        results = repository.link(Bundle.class, nextLink.getUrl());
-                    } else {
-                        results = null; // No next link, drop out
-                    }
-                }
-
-                return subjects.stream().toList();
+                return new ArrayList<>(getSubjectReferences(request, dr.getType(), searchParams));
             }
         }
 
         log.info("Could not determine initial membership via data requirements inference, defaulting to all subjects");
-        var bundle = repository.search(Bundle.class, Patient.class, Searches.ALL);
-        return new BundleMappingIterable<>(
-                        repository,
-                        bundle,
-                        x -> x.getResource()
-                                .getIdElement()
-                                .toUnqualifiedVersionless()
-                                .getValue())
-                .toStream()
-                .toList();
+        return new ArrayList<>(getSubjectReferences(request, "Patient", HashMultimap.create()));
     }
 
     private Library getEffectiveDataRequirements(
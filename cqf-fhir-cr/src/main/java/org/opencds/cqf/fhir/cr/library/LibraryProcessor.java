@@ -241,11 +241,67 @@ public class LibraryProcessor {
             IBaseBundle data,
             List<? extends IBaseBackboneElement> prefetchData,
             LibraryEngine libraryEngine) {
-        var processor = evaluateProcessor != null
+        return getEvaluateProcessor()
+                .evaluate(buildEvaluateRequest(
+                        library, subject, expression, parameters, data, prefetchData, libraryEngine));
+    }
+
+    /**
+     * Evaluates the library for each of the subjects, which may include Groups, returning one part per
+     * subject with its results. Data, content and terminology are resolved as in {@link #evaluate}.
+     */
+    public <C extends IPrimitiveType<String>, R extends IBaseResource> IBaseParameters evaluateSubjects(
+            Either3<C, IIdType, R> library,
+            List<String> subjects,
+            List<String> expression,
+            IBaseParameters parameters,
+            boolean useServerData,
+            IBaseBundle data,
+            List<? extends IBaseBackboneElement> prefetchData,
+            IBaseResource dataEndpoint,
+            IBaseResource contentEndpoint,
+            IBaseResource terminologyEndpoint) {
+        repository = proxy(
+                repository,
+                useServerData,
+                createRestRepository(repository.fhirContext(), dataEndpoint),
+                createRestRepository(repository.fhirContext(), contentEndpoint),
+                createRestRepository(repository.fhirContext(), terminologyEndpoint));
+        return evaluateSubjects(
+                library,
+                subjects,
+                expression,
+                parameters,
+                data,
+                prefetchData,
+                new LibraryEngine(repository, crSettings.getEvaluationSettings()));
+    }
+
+    /**
+     * Evaluates the library for each of the subjects, which may include Groups, returning one part per
+     * subject with its results.
+     */
+    public <C extends IPrimitiveType<String>, R extends IBaseResource> IBaseParameters evaluateSubjects(
+            Either3<C, IIdType, R> library,
+            List<String> subjects,
+            List<String> expression,
+            IBaseParameters parameters,
+            IBaseBundle data,
+            List<? extends IBaseBackboneElement> prefetchData,
+            LibraryEngine libraryEngine) {
+        var request = buildEvaluateRequest(library, null, expression, parameters, data, prefetchData, libraryEngine);
+        request.setSubjectIds(subjects.stream()
+                .filter(StringUtils::isNotBlank)
+                .map(subject -> Ids.newId(fhirVersion, subject))
+                .toList());
+        return getEvaluateProcessor().evaluate(request);
+    }
+
+    protected IEvaluateProcessor getEvaluateProcessor() {
+        return evaluateProcessor != null
                 ? evaluateProcessor
-                : new EvaluateProcessor(repository, crSettings.getEvaluationSettings());
-        return processor.evaluate(
-                buildEvaluateRequest(library, subject, expression, parameters, data, prefetchData, libraryEngine));
+                : new EvaluateProcessor(
+                        repository, crSettings.getEvaluationSettings(), crSettings.getEvaluationExecutor());
     }
 
     public <C extends IPrimitiveType<String>, R extends IBaseResource> IBaseBundle deleteLibrary(
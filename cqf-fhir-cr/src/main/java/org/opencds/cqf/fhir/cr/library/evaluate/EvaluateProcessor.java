@@ -1,23 +1,55 @@
 package org.opencds.cqf.fhir.cr.library.evaluate;
 
+import static org.opencds.cqf.fhir.utility.OperationOutcomes.addExceptionToOperationOutcome;
+import static org.opencds.cqf.fhir.utility.OperationOutcomes.newOperationOutcome;
 import static org.opencds.cqf.fhir.utility.Parameters.newParameters;
 import static org.opencds.cqf.fhir.utility.Parameters.newPart;
 
 import ca.uhn.fhir.repository.IRepository;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+import org.hl7.elm.r1.VersionedIdentifier;
+import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
+import org.hl7.fhir.instance.model.api.IBaseReference;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.opencds.cqf.cql.engine.execution.CqlEngine;
+import org.opencds.cqf.fhir.cql.Engines;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cql.VersionedIdentifiers;
+import org.opencds.cqf.fhir.cql.engine.parameters.CqlFhirParametersConverter;
 
 @SuppressWarnings("UnstableApiUsage")
 public class EvaluateProcessor implements IEvaluateProcessor {
     protected IRepository repository;
     protected EvaluationSettings evaluationSettings;
+    protected Executor executor;
 
     public EvaluateProcessor(IRepository repository, EvaluationSettings evaluationSettings) {
+        this(repository, evaluationSettings, null);
+    }
+
+    /**
+     * @param executor the executor to run the worker engines of a multi-subject evaluation on, or null to
+     *                 evaluate the subjects sequentially on the calling thread
+     */
+    public EvaluateProcessor(IRepository repository, EvaluationSettings evaluationSettings, Executor executor) {
         this.repository = repository;
         this.evaluationSettings = evaluationSettings;
+        this.executor = executor;
     }
 
     public IBaseParameters evaluate(EvaluateRequest request) {
+        var subjectIds = request.getSubjectIds();
+        if (subjectIds.size() > 1 || subjectIds.stream().anyMatch(EvaluateProcessor::isGroup)) {
+            return evaluateSubjects(request, subjectIds);
+        }
         try {
             return request.getLibraryEngine()
                     .evaluate(
@@ -35,4 +67,134 @@ public class EvaluateProcessor implements IEvaluateProcessor {
                     newPart(repository.fhirContext(), "evaluation error", request.getOperationOutcome()));
         }
     }
+
+    /**
+     * Evaluates the library for each subject, expanding Groups to their members. Returns one part per
+     * subject, named for the subject, holding either the Parameters of its results or an OperationOutcome
+     * if its evaluation failed. The library is compiled once. The subjects are split between worker
+     * engines, which run concurrently on the executor if there is one.
+     */
+    protected IBaseParameters evaluateSubjects(EvaluateRequest request, List<IIdType> subjectIds) {
+        var fhirContext = repository.fhirContext();
+        try {
+            var subjects = resolveSubjects(request, subjectIds);
+            var libraryId = VersionedIdentifiers.forUrl(request.getLibraryAdapter().getCanonical());
+            // The worker engines share the compiled library through the library cache
+            var engine = newEngine(request);
+            Objects.requireNonNull(engine.getEnvironment().getLibraryManager()).resolveLibrary(libraryId);
+
+            var results = runWorkers(request, libraryId, subjects, engine);
+            var parts = IntStream.range(0, subjects.size())
+                    .mapToObj(i -> newPart(fhirContext, subjects.get(i), results[i]))
+                    .toArray(IBase[]::new);
+            return newParameters(fhirContext, parts);
+        } catch (Exception e) {
+            request.logException(e.getMessage());
+            return newParameters(
+                    fhirContext, newPart(fhirContext, "evaluation error", request.getOperationOutcome()));
+        }
+    }
+
+    private IBaseResource[] runWorkers(
+            EvaluateRequest request, VersionedIdentifier libraryId, List<String> subjects, CqlEngine engine) {
+        var results = new IBaseResource[subjects.size()];
+        // With an executor there are at least two workers, as evaluation also waits on the repository
+        var workers = executor == null
+                ? 1
+                : Math.min(subjects.size(), Math.max(2, Runtime.getRuntime().availableProcessors()));
+        if (workers <= 1) {
+            evaluateSlice(request, libraryId, subjects, engine, 0, 1, results);
+            return results;
+        }
+
+        // Each worker evaluates every n-th subject on its own engine
+        var futures = IntStream.range(0, workers)
+                .mapToObj(worker -> CompletableFuture.runAsync(
+                        () -> evaluateSlice(
+                                request,
+                                libraryId,
+                                subjects,
+                                worker == 0 ? engine : newEngine(request),
+                                worker,
+                                workers,
+                                results),
+                        executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        return results;
+    }
+
+    private void evaluateSlice(
+            EvaluateRequest request,
+            VersionedIdentifier libraryId,
+            List<String> subjects,
+            CqlEngine engine,
+            int first,
+            int step,
+            IBaseResource[] results) {
+        var converter = Engines.getCqlFhirParametersConverter(repository.fhirContext());
+        for (int i = first; i < subjects.size(); i += step) {
+            results[i] = evaluateSubject(request, libraryId, subjects.get(i), engine, converter);
+        }
+    }
+
+    private IBaseResource evaluateSubject(
+            EvaluateRequest request,
+            VersionedIdentifier libraryId,
+            String subject,
+            CqlEngine engine,
+            CqlFhirParametersConverter converter) {
+        try {
+            var result = request.getLibraryEngine()
+                    .getEvaluationResult(
+                            libraryId,
+                            subject,
+                            request.getParameters(),
+                            request.getRawParameters(),
+                            request.getData(),
+                            request.getExpression(),
+                            converter,
+                            null,
+                            engine);
+            return converter.toFhirParameters(result);
+        } catch (Exception e) {
+            var outcome = newOperationOutcome(request.getFhirVersion());
+            addExceptionToOperationOutcome(outcome, Objects.toString(e.getMessage(), e.getClass().getName()));
+            return outcome;
+        }
+    }
+
+    private CqlEngine newEngine(EvaluateRequest request) {
+        var libraryEngine = request.getLibraryEngine();
+        return Engines.forRepository(libraryEngine.getRepository(), libraryEngine.getSettings(), request.getData());
+    }
+
+    /*
+    Returns the distinct subjects to evaluate, in order, with each Group replaced by its members.
+     */
+    private List<String> resolveSubjects(EvaluateRequest request, List<IIdType> subjectIds) {
+        var subjects = new LinkedHashSet<String>();
+        for (var subjectId : subjectIds) {
+            if (!isGroup(subjectId)) {
+                subjects.add(subjectId.toUnqualifiedVersionless().getValue());
+                continue;
+            }
+            var subjectRepository = request.getRepository();
+            var groupClass =
+                    subjectRepository.fhirContext().getResourceDefinition("Group").getImplementingClass();
+            var group = request.getAdapterFactory().createResource(subjectRepository.read(groupClass, subjectId));
+            for (var member : group.resolvePathList("member")) {
+                if (group.resolvePath(member, "entity") instanceof IBaseReference entity
+                        && entity.getReferenceElement().hasIdPart()) {
+                    subjects.add(
+                            entity.getReferenceElement().toUnqualifiedVersionless().getValue());
+                }
+            }
+        }
+        return new ArrayList<>(subjects);
+    }
+
+    private static boolean isGroup(IIdType subjectId) {
+        return subjectId != null && "Group".equals(subjectId.getResourceType());
+    }
 }
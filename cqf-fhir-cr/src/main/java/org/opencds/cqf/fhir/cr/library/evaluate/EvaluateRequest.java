@@ -28,6 +28,7 @@ public class EvaluateRequest implements ICqlOperationRequest {
     private final LibraryEngine libraryEngine;
     private final FhirVersionEnum fhirVersion;
     private IBaseOperationOutcome operationOutcome;
+    private List<IIdType> subjectIds;
 
     public EvaluateRequest(
             IBaseResource library,
@@ -86,6 +87,22 @@ public class EvaluateRequest implements ICqlOperationRequest {
         return subjectId == null ? null : subjectId.getValueAsString();
     }
 
+    /**
+     * @return the subjects to evaluate the library for, which may include Groups: the subjects set through
+     * {@link #setSubjectIds(List)}, or else the subject of the request
+     */
+    public List<IIdType> getSubjectIds() {
+        if (subjectIds != null) {
+            return subjectIds;
+        }
+        return subjectId == null ? List.of() : List.of(subjectId);
+    }
+
+    public EvaluateRequest setSubjectIds(List<IIdType> subjectIds) {
+        this.subjectIds = subjectIds;
+        return this;
+    }
+
     @Override
     public IBaseBundle getData() {
         return data;
@@ -1,7 +1,9 @@
 package org.opencds.cqf.fhir.cr.measure;
 
+import jakarta.annotation.Nullable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
 import org.opencds.cqf.fhir.utility.ValidationProfile;
 
@@ -18,6 +20,9 @@ public class MeasureEvaluationOptions {
     private SubjectProviderOptions subjectProviderOptions;
 
     private boolean ensureSearchParameters = true;
+    private boolean subjectCountOnlySummary = false;
+    private boolean retainEvaluatedResourcesForAllReportTypes = false;
+    private Executor reportConstructionExecutor = null;
     private EvaluationSettings evaluationSettings = null;
 
     public boolean isValidationEnabled() {
@@ -71,4 +76,63 @@ public class MeasureEvaluationOptions {
         this.ensureSearchParameters = ensureSearchParameters;
         return this;
     }
+
+    public boolean isSubjectCountOnlySummary() {
+        return this.subjectCountOnlySummary;
+    }
+
+    /**
+     * Evaluate population (summary) reports in subject-count-only mode: no evaluated resources are
+     * retained for populations, stratifiers or supplemental data, and the populations of boolean
+     * basis groups without measure observations or criteria stratifiers keep only a membership
+     * bitmap over the subject ordinals of the measure, with no per-subject entries. Stratifiers
+     * still keep the stratum value of every subject, since strata are formed from them. Counts,
+     * scores and strata are unchanged, but the summary MeasureReport carries no evaluatedResource
+     * references.
+     *
+     * @param subjectCountOnlySummary true to enable subject-count-only summary evaluation
+     * @return this options instance
+     */
+    public MeasureEvaluationOptions setSubjectCountOnlySummary(boolean subjectCountOnlySummary) {
+        this.subjectCountOnlySummary = subjectCountOnlySummary;
+        return this;
+    }
+
+    public boolean isRetainEvaluatedResourcesForAllReportTypes() {
+        return this.retainEvaluatedResourcesForAllReportTypes;
+    }
+
+    /**
+     * By default the resources touched by population criteria and supplemental data are only
+     * retained for individual reports, the only report type that emits them. Other report types
+     * retain only the resource ids. Set this to retain the resources for every report type, e.g.
+     * for callers that inspect the evaluated MeasureDef directly.
+     *
+     * @param retainEvaluatedResourcesForAllReportTypes true to retain evaluated resources for every report type
+     * @return this options instance
+     */
+    public MeasureEvaluationOptions setRetainEvaluatedResourcesForAllReportTypes(
+            boolean retainEvaluatedResourcesForAllReportTypes) {
+        this.retainEvaluatedResourcesForAllReportTypes = retainEvaluatedResourcesForAllReportTypes;
+        return this;
+    }
+
+    @Nullable
+    public Executor getReportConstructionExecutor() {
+        return this.reportConstructionExecutor;
+    }
+
+    /**
+     * Executor used to build the MeasureReports of a multi-measure evaluation concurrently, one
+     * task per measure and subject group, once CQL evaluation has completed. Each task builds its
+     * report from its own copy of the Measure. Reports are returned in the same order as sequential
+     * construction. When null (the default), reports are built sequentially on the calling thread.
+     *
+     * @param reportConstructionExecutor the executor to build reports on, or null to build them sequentially
+     * @return this options instance
+     */
+    public MeasureEvaluationOptions setReportConstructionExecutor(@Nullable Executor reportConstructionExecutor) {
+        this.reportConstructionExecutor = reportConstructionExecutor;
+        return this;
+    }
 }
@@ -0,0 +1,84 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import static org.opencds.cqf.fhir.cql.ClassInstanceHelper.getId;
+
+import jakarta.annotation.Nullable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.opencds.cqf.cql.engine.runtime.ClassInstance;
+import org.opencds.cqf.cql.engine.runtime.Value;
+
+/**
+ * How much of the resources touched while evaluating a population or supplemental data element
+ * is kept on the Def.
+ * <p/>
+ * MeasureReport builders only emit evaluatedResource for individual reports. Other report types
+ * only need the resource ids (supplemental data references an evaluated resource rather than
+ * containing it), so retaining the resource object graphs for every subject of a population or
+ * subject-list run only costs heap.
+ */
+public enum EvaluatedResourceCapture {
+    /**
+     * Retain the evaluated resources themselves.
+     */
+    RESOURCES,
+    /**
+     * Retain only the ids of the evaluated resources, e.g. Encounter/123.
+     */
+    IDS,
+    /**
+     * Don't retain evaluated resources at all.
+     */
+    NONE;
+
+    /**
+     * Capture evaluated resources according to this mode.
+     *
+     * @param evaluatedResources the resources touched by an expression
+     * @param resources          where resources are retained in {@link #RESOURCES} mode
+     * @param ids                where resource ids are retained in {@link #IDS} mode
+     */
+    void capture(@Nullable Collection<Value> evaluatedResources, Set<Value> resources, Set<String> ids) {
+        if (evaluatedResources == null || evaluatedResources.isEmpty()) {
+            return;
+        }
+
+        switch (this) {
+            case RESOURCES -> resources.addAll(evaluatedResources);
+            case IDS -> {
+                for (Value value : evaluatedResources) {
+                    var id = idOf(value);
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                }
+            }
+            case NONE -> {
+                // nothing retained
+            }
+        }
+    }
+
+    /**
+     * @param resources retained evaluated resources
+     * @param ids       retained evaluated resource ids
+     * @return the ids of both, in retention order
+     */
+    static Set<String> allIds(Set<Value> resources, Set<String> ids) {
+        var allIds = new LinkedHashSet<String>();
+        for (Value value : resources) {
+            var id = idOf(value);
+            if (id != null) {
+                allIds.add(id);
+            }
+        }
+        allIds.addAll(ids);
+        return allIds;
+    }
+
+    @Nullable
+    private static String idOf(Value value) {
+        return value instanceof ClassInstance classInstance ? getId(classInstance) : null;
+    }
+}
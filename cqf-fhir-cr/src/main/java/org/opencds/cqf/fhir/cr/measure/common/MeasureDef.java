@@ -31,6 +31,12 @@ public class MeasureDef {
         this.sdes = sdes;
 
         this.errors = new ArrayList<>();
+
+        // All populations number their subjects alike, so their membership bitmaps can be combined
+        var subjectOrdinals = new SubjectOrdinals();
+        for (GroupDef groupDef : groups) {
+            groupDef.populations().forEach(populationDef -> populationDef.useSubjectOrdinals(subjectOrdinals));
+        }
     }
 
     // This is the raw unqualified ID (ex: for "Measure/measure123", we return "measure123"
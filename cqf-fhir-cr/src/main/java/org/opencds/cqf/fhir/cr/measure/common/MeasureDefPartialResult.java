@@ -0,0 +1,720 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import static org.opencds.cqf.fhir.cql.ClassInstanceHelper.getId;
+import static org.opencds.cqf.fhir.cql.ClassInstanceHelper.isFhirResource;
+
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseCoding;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.opencds.cqf.cql.engine.runtime.ClassInstance;
+import org.opencds.cqf.cql.engine.runtime.Code;
+import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
+import org.opencds.cqf.fhir.utility.adapter.ICodingAdapter;
+
+/**
+ * Serializable, mergeable snapshot of a {@link MeasureDef} taken after per-subject evaluation and
+ * stratification ({@link MeasureMultiSubjectEvaluator#postEvaluationMultiSubject}), but before
+ * scoring.
+ * <p/>
+ * This is the unit of exchange for scatter/gather measure evaluation: each worker evaluates its own
+ * slice of subjects into its own {@link MeasureDef}, captures it with
+ * {@link #capture(MeasureDef, FhirVersionEnum)}, and hands the result to a
+ * {@link MeasureDefPartialResultCoordinator}, which merges all of them and scores the merged result
+ * once.
+ * <p/>
+ * Groups, populations, stratifiers and stratifier components are addressed by position, since every
+ * worker builds its {@link MeasureDef} from the same Measure. Population results are reduced to
+ * normalized keys (versionless resource ids, or the string form of the value), stratifier and
+ * supplemental data values keep their type (see {@link TypedValuePartialResult}), and measure
+ * observations keep every individual value, so all
+ * {@link ContinuousVariableObservationAggregateMethod}s, including MEDIAN, are exact on the merged
+ * result.
+ * <p/>
+ * {@link #merge(MeasureDefPartialResult)} is associative and commutative. Subject and key sets are
+ * unioned, while stratum resource-id lists and supplemental data counts are added together, which
+ * assumes that the workers evaluated disjoint sets of subjects.
+ * <p/>
+ * Evaluated resources are not carried over, so a merged result is meant for population and
+ * subject-list reports, not individual reports.
+ */
+public final class MeasureDefPartialResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Nullable
+    private final String measureUrl;
+
+    @Nullable
+    private final String measureVersion;
+
+    private final List<GroupPartialResult> groups;
+    private final List<SdePartialResult> sdes;
+    private final List<String> errors;
+
+    public MeasureDefPartialResult(
+            @Nullable String measureUrl,
+            @Nullable String measureVersion,
+            List<GroupPartialResult> groups,
+            List<SdePartialResult> sdes,
+            List<String> errors) {
+        this.measureUrl = measureUrl;
+        this.measureVersion = measureVersion;
+        this.groups = List.copyOf(groups);
+        this.sdes = List.copyOf(sdes);
+        this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * Capture the evaluated, stratified and not yet scored state of a {@link MeasureDef}.
+     *
+     * @param measureDef  a MeasureDef that has been through per-subject evaluation and
+     *                    {@link MeasureMultiSubjectEvaluator#postEvaluationMultiSubject}
+     * @param fhirVersion the FHIR version of the Measure, used to recognize CQL resource values
+     * @return the partial result for the subjects evaluated into the MeasureDef
+     */
+    public static MeasureDefPartialResult capture(MeasureDef measureDef, FhirVersionEnum fhirVersion) {
+        return new MeasureDefPartialResult(
+                measureDef.url(),
+                measureDef.version(),
+                measureDef.groups().stream()
+                        .map(groupDef -> GroupPartialResult.capture(groupDef, fhirVersion))
+                        .toList(),
+                measureDef.sdes().stream().map(SdePartialResult::capture).toList(),
+                measureDef.errors());
+    }
+
+    /**
+     * Merge any number of partial results for the same Measure.
+     *
+     * @param partialResults the partial results to merge, at least one
+     * @return the merged partial result
+     */
+    public static MeasureDefPartialResult mergeAll(Collection<MeasureDefPartialResult> partialResults) {
+        return partialResults.stream()
+                .reduce(MeasureDefPartialResult::merge)
+                .orElseThrow(() -> new InvalidRequestException("At least one partial measure result is required"));
+    }
+
+    /**
+     * Merge this partial result with another one for the same Measure.
+     *
+     * @param other the partial result to merge with
+     * @return a new partial result holding the results of both
+     */
+    public MeasureDefPartialResult merge(MeasureDefPartialResult other) {
+        if (!Objects.equals(measureUrl, other.measureUrl) || !Objects.equals(measureVersion, other.measureVersion)) {
+            throw new InvalidRequestException("Cannot merge partial results for Measure %s|%s with Measure %s|%s"
+                    .formatted(measureUrl, measureVersion, other.measureUrl, other.measureVersion));
+        }
+
+        var mergedErrors = new ArrayList<>(errors);
+        mergedErrors.addAll(other.errors);
+
+        return new MeasureDefPartialResult(
+                measureUrl,
+                measureVersion,
+                zip(groups, other.groups, GroupPartialResult::merge, "groups"),
+                zip(sdes, other.sdes, SdePartialResult::merge, "supplemental data elements"),
+                mergedErrors);
+    }
+
+    /**
+     * Populate a freshly built, unevaluated {@link MeasureDef} with this partial result, including
+     * its strata, so it can be scored and turned into a MeasureReport without re-running CQL
+     * evaluation or stratification.
+     *
+     * @param measureDef an unevaluated MeasureDef built from the same Measure as the partial result
+     */
+    public void applyTo(MeasureDef measureDef) {
+        checkSize(groups.size(), measureDef.groups().size(), "groups");
+        checkSize(sdes.size(), measureDef.sdes().size(), "supplemental data elements");
+
+        for (int i = 0; i < groups.size(); i++) {
+            groups.get(i).applyTo(measureDef.groups().get(i));
+        }
+        for (int i = 0; i < sdes.size(); i++) {
+            sdes.get(i).applyTo(measureDef.sdes().get(i));
+        }
+        errors.forEach(measureDef::addError);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        var objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeObject(this);
+        objectOutputStream.flush();
+    }
+
+    public static MeasureDefPartialResult readFrom(InputStream inputStream) throws IOException {
+        try {
+            var object = new ObjectInputStream(inputStream).readObject();
+            if (object instanceof MeasureDefPartialResult partialResult) {
+                return partialResult;
+            }
+            throw new IOException("Expected a MeasureDefPartialResult but found: %s"
+                    .formatted(object == null ? null : object.getClass().getName()));
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read partial measure result", e);
+        }
+    }
+
+    @Nullable
+    public String measureUrl() {
+        return measureUrl;
+    }
+
+    @Nullable
+    public String measureVersion() {
+        return measureVersion;
+    }
+
+    public List<GroupPartialResult> groups() {
+        return groups;
+    }
+
+    public List<SdePartialResult> sdes() {
+        return sdes;
+    }
+
+    public List<String> errors() {
+        return errors;
+    }
+
+    private static <T> List<T> zip(List<T> left, List<T> right, BinaryOperator<T> merger, String description) {
+        checkSize(left.size(), right.size(), description);
+        var merged = new ArrayList<T>(left.size());
+        for (int i = 0; i < left.size(); i++) {
+            merged.add(merger.apply(left.get(i), right.get(i)));
+        }
+        return merged;
+    }
+
+    private static void checkSize(int expected, int actual, String description) {
+        if (expected != actual) {
+            throw new InvalidRequestException(
+                    "Partial measure result has %s %s but the Measure has %s".formatted(expected, description, actual));
+        }
+    }
+
+    private static <V> TreeMap<String, V> mergeMaps(
+            Map<String, V> left, Map<String, V> right, BinaryOperator<V> merger) {
+        var merged = new TreeMap<>(left);
+        right.forEach((key, value) -> merged.merge(key, value, merger));
+        return merged;
+    }
+
+    private static TreeSet<String> union(Set<String> left, Set<String> right) {
+        var merged = new TreeSet<>(left);
+        merged.addAll(right);
+        return merged;
+    }
+
+    /**
+     * Normalize a population, stratifier or observation input value into a stable key, using the
+     * same rules as the stratification intersection (versionless id for resources).
+     */
+    @Nullable
+    static String keyOf(@Nullable Object value) {
+        return MeasureMultiSubjectEvaluator.normalizePopulationKey(value);
+    }
+
+    @Nullable
+    private static String resourceIdOrNull(@Nullable Object value, FhirVersionEnum fhirVersion) {
+        if (value instanceof IBaseResource resource) {
+            return resource.getIdElement().toVersionless().getValue();
+        }
+        if (value instanceof ClassInstance classInstance && isFhirResource(fhirVersion, classInstance)) {
+            return getId(classInstance);
+        }
+        return null;
+    }
+
+    /**
+     * Stand-in for an observation input once it has been through a partial result. Resource inputs
+     * keep their versionless id so that stratum filtering by resource id in
+     * {@link MeasureReportDefScorer} still applies to them.
+     */
+    public record ObservationInputKey(String key, boolean resource) implements Serializable {
+
+        static ObservationInputKey of(@Nullable Object input, FhirVersionEnum fhirVersion) {
+            if (input instanceof ObservationInputKey inputKey) {
+                return inputKey;
+            }
+            var resourceId = resourceIdOrNull(input, fhirVersion);
+            if (resourceId != null) {
+                return new ObservationInputKey(resourceId, true);
+            }
+            return new ObservationInputKey(String.valueOf(keyOf(input)), false);
+        }
+    }
+
+    public record ObservationPartialResult(ObservationInputKey input, @Nullable Double value)
+            implements Serializable {
+
+        static ObservationPartialResult capture(ObservationEntry entry, FhirVersionEnum fhirVersion) {
+            return new ObservationPartialResult(
+                    ObservationInputKey.of(entry.inputResource(), fhirVersion),
+                    entry.observation() == null ? null : entry.observation().value());
+        }
+
+        ObservationEntry toEntry() {
+            return new ObservationEntry(input, new QuantityDef(value));
+        }
+    }
+
+    /**
+     * Per-subject results of one {@link PopulationDef}: the normalized keys of the population
+     * results, and the individual observations for MEASUREOBSERVATION populations.
+     */
+    public record PopulationPartialResult(
+            TreeMap<String, TreeSet<String>> subjectResourceKeys,
+            TreeMap<String, List<ObservationPartialResult>> subjectObservations)
+            implements Serializable {
+
+        static PopulationPartialResult capture(PopulationDef populationDef, FhirVersionEnum fhirVersion) {
+            var resourceKeys = new TreeMap<String, TreeSet<String>>();
+            var observations = new TreeMap<String, List<ObservationPartialResult>>();
+
+            for (var entry : populationDef.getSubjectResources().entrySet()) {
+                var keys = new TreeSet<String>();
+                var subjectObservations = new ArrayList<ObservationPartialResult>();
+                for (CqlExpressionValue value : entry.getValue()) {
+                    if (value == null) {
+                        continue;
+                    }
+                    var accumulator = value.asObservationAccumulator();
+                    if (accumulator.isPresent()) {
+                        accumulator.get().entries().stream()
+                                .map(observation -> ObservationPartialResult.capture(observation, fhirVersion))
+                                .forEach(subjectObservations::add);
+                    } else {
+                        var key = keyOf(value);
+                        if (key != null) {
+                            keys.add(key);
+                        }
+                    }
+                }
+                resourceKeys.put(entry.getKey(), keys);
+                if (!subjectObservations.isEmpty()) {
+                    observations.put(entry.getKey(), subjectObservations);
+                }
+            }
+
+            return new PopulationPartialResult(resourceKeys, observations);
+        }
+
+        PopulationPartialResult merge(PopulationPartialResult other) {
+            return new PopulationPartialResult(
+                    mergeMaps(subjectResourceKeys, other.subjectResourceKeys, MeasureDefPartialResult::union),
+                    mergeMaps(
+                            subjectObservations,
+                            other.subjectObservations,
+                            PopulationPartialResult::mergeObservations));
+        }
+
+        private static List<ObservationPartialResult> mergeObservations(
+                List<ObservationPartialResult> left, List<ObservationPartialResult> right) {
+            var byInput = new LinkedHashMap<ObservationInputKey, ObservationPartialResult>();
+            left.forEach(observation -> byInput.put(observation.input(), observation));
+            right.forEach(observation -> byInput.putIfAbsent(observation.input(), observation));
+            return byInput.values().stream()
+                    .sorted(Comparator.comparing(observation -> observation.input().key()))
+                    .toList();
+        }
+
+        void applyTo(PopulationDef populationDef) {
+            var subjectResources = populationDef.getSubjectResources();
+
+            subjectResourceKeys.forEach((subject, keys) -> {
+                var values = subjectResources.computeIfAbsent(subject, k -> new HashSetForCqlExpressionValues());
+                keys.forEach(key -> values.add(CqlExpressionValue.ofRaw(populationDef.expression(), key, null)));
+            });
+
+            subjectObservations.forEach((subject, observations) -> {
+                var accumulator = new ObservationAccumulator(observations.stream()
+                        .map(ObservationPartialResult::toEntry)
+                        .toList());
+                subjectResources
+                        .computeIfAbsent(subject, k -> new HashSetForCqlExpressionValues())
+                        .add(CqlExpressionValue.ofRaw(populationDef.expression(), accumulator, null));
+            });
+        }
+    }
+
+    public record GroupPartialResult(
+            List<PopulationPartialResult> populations, List<StratifierPartialResult> stratifiers)
+            implements Serializable {
+
+        public GroupPartialResult {
+            populations = List.copyOf(populations);
+            stratifiers = List.copyOf(stratifiers);
+        }
+
+        static GroupPartialResult capture(GroupDef groupDef, FhirVersionEnum fhirVersion) {
+            return new GroupPartialResult(
+                    groupDef.populations().stream()
+                            .map(populationDef -> PopulationPartialResult.capture(populationDef, fhirVersion))
+                            .toList(),
+                    groupDef.stratifiers().stream()
+                            .map(StratifierPartialResult::capture)
+                            .toList());
+        }
+
+        GroupPartialResult merge(GroupPartialResult other) {
+            return new GroupPartialResult(
+                    zip(populations, other.populations, PopulationPartialResult::merge, "populations"),
+                    zip(stratifiers, other.stratifiers, StratifierPartialResult::merge, "stratifiers"));
+        }
+
+        void applyTo(GroupDef groupDef) {
+            checkSize(populations.size(), groupDef.populations().size(), "populations");
+            checkSize(stratifiers.size(), groupDef.stratifiers().size(), "stratifiers");
+
+            for (int i = 0; i < populations.size(); i++) {
+                populations.get(i).applyTo(groupDef.populations().get(i));
+            }
+            for (int i = 0; i < stratifiers.size(); i++) {
+                stratifiers.get(i).applyTo(groupDef, groupDef.stratifiers().get(i));
+            }
+        }
+    }
+
+    /**
+     * The strata of one {@link StratifierDef}, keyed by the combination of their component values.
+     */
+    public record StratifierPartialResult(TreeMap<String, StratumPartialResult> strata) implements Serializable {
+
+        static StratifierPartialResult capture(StratifierDef stratifierDef) {
+            var strata = new TreeMap<String, StratumPartialResult>();
+            for (StratumDef stratumDef : stratifierDef.getStratum()) {
+                var stratum = StratumPartialResult.capture(stratifierDef, stratumDef);
+                strata.merge(stratum.key(), stratum, StratumPartialResult::merge);
+            }
+            return new StratifierPartialResult(strata);
+        }
+
+        StratifierPartialResult merge(StratifierPartialResult other) {
+            return new StratifierPartialResult(mergeMaps(strata, other.strata, StratumPartialResult::merge));
+        }
+
+        void applyTo(GroupDef groupDef, StratifierDef stratifierDef) {
+            stratifierDef.addAllStratum(strata.values().stream()
+                    .map(stratum -> stratum.toStratumDef(groupDef, stratifierDef))
+                    .toList());
+        }
+    }
+
+    /**
+     * One stratifier component value.
+     *
+     * @param componentIndex index into {@link StratifierDef#components()}, or -1 if the value has no
+     *                       component
+     * @param key            the {@link StratumValueWrapper#getKey()} used to match strata across
+     *                       workers
+     * @param value          the value itself
+     */
+    public record StratumValuePartialResult(int componentIndex, String key, TypedValuePartialResult value)
+            implements Serializable {
+
+        static StratumValuePartialResult capture(StratifierDef stratifierDef, StratumValueDef valueDef) {
+            return new StratumValuePartialResult(
+                    stratifierDef.components().indexOf(valueDef.def()),
+                    valueDef.value().getKey(),
+                    TypedValuePartialResult.capture(valueDef.value()));
+        }
+
+        String sortKey() {
+            return componentIndex + ":" + key;
+        }
+
+        StratumValueDef toStratumValueDef(StratifierDef stratifierDef) {
+            var componentDef =
+                    componentIndex < 0 ? null : stratifierDef.components().get(componentIndex);
+            return new StratumValueDef(new StratumValueWrapper(value.toValue()), componentDef);
+        }
+    }
+
+    public record StratumPartialResult(
+            List<StratumValuePartialResult> values,
+            TreeSet<String> subjectIds,
+            List<StratumPopulationPartialResult> populations)
+            implements Serializable {
+
+        public StratumPartialResult {
+            values = List.copyOf(values);
+            populations = List.copyOf(populations);
+        }
+
+        static StratumPartialResult capture(StratifierDef stratifierDef, StratumDef stratumDef) {
+            return new StratumPartialResult(
+                    stratumDef.valueDefs().stream()
+                            .map(valueDef -> StratumValuePartialResult.capture(stratifierDef, valueDef))
+                            .sorted(Comparator.comparing(StratumValuePartialResult::sortKey))
+                            .toList(),
+                    new TreeSet<>(stratumDef.subjectIds()),
+                    stratumDef.stratumPopulations().stream()
+                            .map(StratumPopulationPartialResult::capture)
+                            .toList());
+        }
+
+        String key() {
+            return values.stream().map(StratumValuePartialResult::sortKey).collect(Collectors.joining("|"));
+        }
+
+        StratumPartialResult merge(StratumPartialResult other) {
+            return new StratumPartialResult(
+                    values,
+                    union(subjectIds, other.subjectIds),
+                    zip(populations, other.populations, StratumPopulationPartialResult::merge, "stratum populations"));
+        }
+
+        StratumDef toStratumDef(GroupDef groupDef, StratifierDef stratifierDef) {
+            checkSize(populations.size(), groupDef.populations().size(), "stratum populations");
+
+            var stratumPopulations = new ArrayList<StratumPopulationDef>(populations.size());
+            for (int i = 0; i < populations.size(); i++) {
+                stratumPopulations.add(populations
+                        .get(i)
+                        .toStratumPopulationDef(groupDef.populations().get(i), groupDef, stratifierDef));
+            }
+
+            var valueDefs = values.stream()
+                    .map(value -> value.toStratumValueDef(stratifierDef))
+                    .collect(Collectors.toSet());
+
+            return new StratumDef(
+                    stratumPopulations,
+                    valueDefs,
+                    List.copyOf(subjectIds),
+                    MeasureMultiSubjectEvaluator.buildMeasureObservationCacheIfApplicable(
+                            groupDef, stratumPopulations));
+        }
+    }
+
+    /**
+     * The membership of one population within one stratum.
+     *
+     * @param subjectIds       the (possibly qualified) subjects in both the population and the stratum
+     * @param intersectionKeys the keys of the criteria stratifier intersection
+     * @param resourceIds      the resource ids for resource-basis value stratifiers, duplicates included
+     */
+    public record StratumPopulationPartialResult(
+            TreeSet<String> subjectIds, TreeSet<String> intersectionKeys, List<String> resourceIds)
+            implements Serializable {
+
+        public StratumPopulationPartialResult {
+            resourceIds = List.copyOf(resourceIds);
+        }
+
+        static StratumPopulationPartialResult capture(StratumPopulationDef stratumPopulationDef) {
+            var intersectionKeys = new TreeSet<String>();
+            for (Object value : stratumPopulationDef.populationDefEvaluationResultIntersection()) {
+                var key = keyOf(value);
+                if (key != null) {
+                    intersectionKeys.add(key);
+                }
+            }
+            return new StratumPopulationPartialResult(
+                    new TreeSet<>(stratumPopulationDef.subjectsQualifiedOrUnqualified()),
+                    intersectionKeys,
+                    stratumPopulationDef.resourceIdsForSubjectList().stream()
+                            .filter(Objects::nonNull)
+                            .sorted()
+                            .toList());
+        }
+
+        StratumPopulationPartialResult merge(StratumPopulationPartialResult other) {
+            var mergedResourceIds = new ArrayList<>(resourceIds);
+            mergedResourceIds.addAll(other.resourceIds);
+            mergedResourceIds.sort(Comparator.naturalOrder());
+            return new StratumPopulationPartialResult(
+                    union(subjectIds, other.subjectIds),
+                    union(intersectionKeys, other.intersectionKeys),
+                    mergedResourceIds);
+        }
+
+        StratumPopulationDef toStratumPopulationDef(
+                PopulationDef populationDef, GroupDef groupDef, StratifierDef stratifierDef) {
+            return new StratumPopulationDef(
+                    populationDef,
+                    Set.copyOf(subjectIds),
+                    Set.<Object>copyOf(intersectionKeys),
+                    resourceIds,
+                    stratifierDef.getStratifierType(),
+                    groupDef.getPopulationBasis());
+        }
+    }
+
+    /**
+     * The accumulated value counts of one {@link SdeDef}, keyed by {@link StratumValueWrapper#getKey()}.
+     */
+    public record SdePartialResult(TreeMap<String, SdeValuePartialResult> values) implements Serializable {
+
+        static SdePartialResult capture(SdeDef sdeDef) {
+            var values = new TreeMap<String, SdeValuePartialResult>();
+            sdeDef.getAccumulatedValues()
+                    .forEach((wrapper, count) -> values.merge(
+                            wrapper.getKey(),
+                            new SdeValuePartialResult(TypedValuePartialResult.capture(wrapper), count),
+                            SdeValuePartialResult::merge));
+            return new SdePartialResult(values);
+        }
+
+        SdePartialResult merge(SdePartialResult other) {
+            return new SdePartialResult(mergeMaps(values, other.values, SdeValuePartialResult::merge));
+        }
+
+        void applyTo(SdeDef sdeDef) {
+            values.values()
+                    .forEach(value -> sdeDef.getAccumulatedValues()
+                            .merge(new StratumValueWrapper(value.value().toValue()), value.count(), Long::sum));
+        }
+    }
+
+    public record SdeValuePartialResult(TypedValuePartialResult value, long count) implements Serializable {
+
+        SdeValuePartialResult merge(SdeValuePartialResult other) {
+            return new SdeValuePartialResult(value, count + other.count);
+        }
+    }
+
+    /**
+     * A stratifier or supplemental data value in a form that can be turned back into a value of the
+     * same type. Codings, CodeableConcepts and CQL Codes keep the system, code and display of their
+     * (first) coding, and resources are kept as FHIR JSON, so that the report builders see the same
+     * values after a merge as after a single evaluation. Any other value is kept as its text.
+     *
+     * @param type        the type of the value
+     * @param fhirVersion the FHIR version of Coding, CodeableConcept and resource values
+     * @param system      the coding system of coded values
+     * @param code        the code of coded values
+     * @param display     the display of coded values
+     * @param text        the encoded resource for resource values, or the
+     *                    {@link StratumValueWrapper#getValueAsString()} of the value
+     */
+    public record TypedValuePartialResult(
+            ValueType type,
+            @Nullable FhirVersionEnum fhirVersion,
+            @Nullable String system,
+            @Nullable String code,
+            @Nullable String display,
+            String text)
+            implements Serializable {
+
+        public enum ValueType {
+            TEXT,
+            CODE,
+            CODING,
+            CODEABLE_CONCEPT,
+            RESOURCE
+        }
+
+        static TypedValuePartialResult capture(StratumValueWrapper wrapper) {
+            var value = wrapper.getValue();
+            if (value instanceof Code cqlCode) {
+                return new TypedValuePartialResult(
+                        ValueType.CODE,
+                        null,
+                        cqlCode.getSystem(),
+                        cqlCode.getCode(),
+                        cqlCode.getDisplay(),
+                        wrapper.getValueAsString());
+            }
+            if (value instanceof IBaseResource resource) {
+                var fhirVersion = resource.getStructureFhirVersionEnum();
+                return new TypedValuePartialResult(
+                        ValueType.RESOURCE,
+                        fhirVersion,
+                        null,
+                        null,
+                        null,
+                        FhirContext.forCached(fhirVersion).newJsonParser().encodeResourceToString(resource));
+            }
+            if (value instanceof IBaseCoding || isCodeableConcept(value)) {
+                var base = (IBase) value;
+                var fhirVersion = StratumValueWrapper.fhirVersionOf(base);
+                var adapterFactory = IAdapterFactory.forFhirVersion(fhirVersion);
+                var type = value instanceof IBaseCoding ? ValueType.CODING : ValueType.CODEABLE_CONCEPT;
+                var coding = type == ValueType.CODING
+                        ? adapterFactory.createCoding(base)
+                        : adapterFactory.createCodeableConcept(base).getCodingFirstRep();
+                return new TypedValuePartialResult(
+                        type,
+                        fhirVersion,
+                        coding == null ? null : coding.getSystem(),
+                        coding == null ? null : coding.getCode(),
+                        coding == null ? null : coding.getDisplay(),
+                        wrapper.getValueAsString());
+            }
+            return new TypedValuePartialResult(ValueType.TEXT, null, null, null, null, wrapper.getValueAsString());
+        }
+
+        Object toValue() {
+            return switch (type) {
+                case TEXT -> text;
+                case CODE -> new Code().withSystem(system).withCode(code).withDisplay(display);
+                case CODING -> {
+                    var coding = FhirContext.forCached(fhirVersion)
+                            .getElementDefinition("Coding")
+                            .newInstance();
+                    setCoding(IAdapterFactory.forFhirVersion(fhirVersion).createCoding(coding));
+                    yield coding;
+                }
+                case CODEABLE_CONCEPT -> {
+                    var fhirContext = FhirContext.forCached(fhirVersion);
+                    var definition = (BaseRuntimeElementCompositeDefinition<?>)
+                            fhirContext.getElementDefinition("CodeableConcept");
+                    var codeableConcept = definition.newInstance();
+                    var coding = fhirContext.getElementDefinition("Coding").newInstance();
+                    setCoding(IAdapterFactory.forFhirVersion(fhirVersion).createCoding(coding));
+                    definition.getChildByName("coding").getMutator().addValue(codeableConcept, coding);
+                    yield codeableConcept;
+                }
+                case RESOURCE -> FhirContext.forCached(fhirVersion).newJsonParser().parseResource(text);
+            };
+        }
+
+        private void setCoding(ICodingAdapter coding) {
+            coding.setSystem(system).setCode(code).setDisplay(display);
+        }
+
+        private static boolean isCodeableConcept(Object value) {
+            return value instanceof IBase base && "CodeableConcept".equals(base.fhirType());
+        }
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "MeasureDefPartialResult{"
+                + "measureUrl='" + measureUrl + '\''
+                + ", measureVersion='" + measureVersion + '\''
+                + ", groups=" + groups.size()
+                + ", sdes=" + sdes.size()
+                + ", errors=" + errors.size()
+                + '}';
+    }
+}
@@ -0,0 +1,136 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gather side of scatter/gather measure evaluation.
+ * <p/>
+ * Workers, either threads in this JVM or separate processes exchanging files, each evaluate a slice
+ * of the subjects and produce a {@link MeasureDefPartialResult} (see
+ * {@link MeasureEvaluationResultHandler#processPartialResults}). The coordinator merges the partial
+ * results into a freshly built {@link MeasureDef} and runs {@link MeasureReportDefScorer} once on
+ * the merged result, after which the MeasureDef can be handed to a FHIR-version specific
+ * MeasureReport builder as usual.
+ */
+public class MeasureDefPartialResultCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeasureDefPartialResultCoordinator.class);
+
+    private final MeasureReportDefScorer measureReportDefScorer = new MeasureReportDefScorer();
+
+    /**
+     * Merge partial results into an unevaluated MeasureDef and score it.
+     *
+     * @param measureDef     an unevaluated MeasureDef built from the Measure the workers evaluated
+     * @param partialResults the partial results from all workers
+     * @return the populated and scored MeasureDef
+     */
+    public MeasureDef gather(MeasureDef measureDef, Collection<MeasureDefPartialResult> partialResults) {
+        var merged = MeasureDefPartialResult.mergeAll(partialResults);
+
+        logger.debug(
+                "Merged {} partial results for measure: {}, scoring merged result", partialResults.size(), merged);
+
+        merged.applyTo(measureDef);
+        measureReportDefScorer.score(measureDef.url(), measureDef);
+
+        return measureDef;
+    }
+
+    /**
+     * Split subjects into partitions, evaluate each partition on the given executor, then gather
+     * and score the results.
+     *
+     * @param measureDef an unevaluated MeasureDef to gather the results into
+     * @param subjectIds all subjects to evaluate
+     * @param partitions the number of partitions to split the subjects into
+     * @param executor   the executor that runs the workers
+     * @param worker     evaluates one partition of subjects into a partial result. Each invocation
+     *                   must use its own MeasureDef, since MeasureDefs are mutated during evaluation.
+     * @return the populated and scored MeasureDef
+     */
+    public MeasureDef scatterGather(
+            MeasureDef measureDef,
+            List<String> subjectIds,
+            int partitions,
+            Executor executor,
+            Function<List<String>, MeasureDefPartialResult> worker) {
+
+        var futures = partition(subjectIds, partitions).stream()
+                .map(slice -> CompletableFuture.supplyAsync(() -> worker.apply(slice), executor))
+                .toList();
+
+        try {
+            var partialResults =
+                    futures.stream().map(CompletableFuture::join).toList();
+            return gather(measureDef, partialResults);
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InternalErrorException("Partial measure evaluation failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the partial results written by workers in other JVMs and gather them.
+     *
+     * @param measureDef an unevaluated MeasureDef to gather the results into
+     * @param files      the files written with {@link #write(MeasureDefPartialResult, Path)}
+     * @return the populated and scored MeasureDef
+     */
+    public MeasureDef gatherFiles(MeasureDef measureDef, Collection<Path> files) {
+        return gather(measureDef, files.stream().map(MeasureDefPartialResultCoordinator::read).toList());
+    }
+
+    public static void write(MeasureDefPartialResult partialResult, Path file) {
+        try (var outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            partialResult.writeTo(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write partial measure result to: " + file, e);
+        }
+    }
+
+    public static MeasureDefPartialResult read(Path file) {
+        try (var inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            return MeasureDefPartialResult.readFrom(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read partial measure result from: " + file, e);
+        }
+    }
+
+    static List<List<String>> partition(List<String> subjectIds, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be at least 1, but was: " + partitions);
+        }
+
+        int count = Math.max(1, Math.min(partitions, subjectIds.size()));
+        int size = subjectIds.size() / count;
+        int remainder = subjectIds.size() % count;
+
+        var result = new ArrayList<List<String>>(count);
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = start + size + (i < remainder ? 1 : 0);
+            result.add(List.copyOf(subjectIds.subList(start, end)));
+            start = end;
+        }
+        return result;
+    }
+}
@@ -12,6 +12,8 @@ import org.hl7.elm.r1.VersionedIdentifier;
 import org.opencds.cqf.cql.engine.execution.CqlEngine;
 import org.opencds.cqf.cql.engine.execution.EvaluationResults;
 import org.opencds.cqf.fhir.cr.measure.MeasureEvaluationOptions;
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation;
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.spi.LoggingEventBuilder;
@@ -35,7 +37,7 @@ public class MeasureEvaluationResultHandler {
     public MeasureEvaluationResultHandler(
             MeasureEvaluationOptions measureEvaluationOptions, PopulationBasisValidator populationBasisValidator) {
         this.measureEvaluationOptions = measureEvaluationOptions;
-        this.measureEvaluator = new MeasureEvaluator(populationBasisValidator);
+        this.measureEvaluator = new MeasureEvaluator(populationBasisValidator, measureEvaluationOptions);
     }
 
     /**
@@ -53,6 +55,45 @@ public class MeasureEvaluationResultHandler {
             MeasureDef measureDef,
             @Nonnull MeasureEvalType measureEvalType) {
 
+        populateResults(fhirContext, evalResultsPerSubject, measureDef, measureEvalType);
+
+        // Score all groups and stratifiers using version-agnostic scorer
+        // Populates scores in MeasureDef before builders run
+        // Note: Scoring is always performed, independent of applyScoring flag
+        // (applyScoring controls set membership filtering, not numeric scoring)
+        logger.debug("Scoring MeasureDef using MeasureReportDefScorer for measure: {}", measureDef.url());
+        measureReportDefScorer.score(measureDef.url(), measureDef);
+    }
+
+    /**
+     * Worker side of scatter/gather evaluation: consumes the CQL results for a slice of the
+     * subjects like {@link #processResults}, but stops short of scoring and returns a mergeable
+     * partial result instead. Scoring happens once, on the merged result, in
+     * {@link MeasureDefPartialResultCoordinator}.
+     *
+     * @param fhirContext           FHIR context for FHIR version
+     * @param evalResultsPerSubject criteria expression results for this worker's subjects
+     * @param measureDef            Measure defined objects, freshly built for this worker
+     * @param measureEvalType       the type of evaluation algorithm to apply to Criteria results
+     * @return the partial result for this worker's subjects
+     */
+    public MeasureDefPartialResult processPartialResults(
+            FhirContext fhirContext,
+            Map<String, CqlEvaluationResult> evalResultsPerSubject,
+            MeasureDef measureDef,
+            @Nonnull MeasureEvalType measureEvalType) {
+
+        populateResults(fhirContext, evalResultsPerSubject, measureDef, measureEvalType);
+
+        return MeasureDefPartialResult.capture(measureDef, fhirContext.getVersion().getVersion());
+    }
+
+    private void populateResults(
+            FhirContext fhirContext,
+            Map<String, CqlEvaluationResult> evalResultsPerSubject,
+            MeasureDef measureDef,
+            MeasureEvalType measureEvalType) {
+
         // Populate MeasureDef using MeasureEvaluator
         for (var entry : evalResultsPerSubject.entrySet()) {
             // subject
@@ -81,13 +122,6 @@ public class MeasureEvaluationResultHandler {
         }
 
         MeasureMultiSubjectEvaluator.postEvaluationMultiSubject(fhirContext, measureDef);
-
-        // Score all groups and stratifiers using version-agnostic scorer
-        // Populates scores in MeasureDef before builders run
-        // Note: Scoring is always performed, independent of applyScoring flag
-        // (applyScoring controls set membership filtering, not numeric scoring)
-        logger.debug("Scoring MeasureDef using MeasureReportDefScorer for measure: {}", measureDef.url());
-        measureReportDefScorer.score(measureDef.url(), measureDef);
     }
 
     /**
@@ -105,6 +139,32 @@ public class MeasureEvaluationResultHandler {
             CqlEngine context,
             MultiLibraryIdMeasureEngineDetails multiLibraryIdMeasureEngineDetails,
             Map<String, Object> parametersMap) {
+        return getEvaluationResults(
+                subjectIds,
+                zonedMeasurementPeriod,
+                context,
+                multiLibraryIdMeasureEngineDetails,
+                parametersMap,
+                Instrumentation.noop());
+    }
+
+    /**
+     * method used to execute generate CQL results via Library $evaluate, $evaluate-measure, etc
+     *
+     * @param subjectIds subjects to generate results for
+     * @param zonedMeasurementPeriod offset defined measurement period for evaluation
+     * @param context cql engine context
+     * @param multiLibraryIdMeasureEngineDetails container for engine, library and measure IDs
+     * @param instrumentation records the time spent evaluating all subjects and each subject
+     * @return CQL results for Library defined in the Measure resource
+     */
+    public static CompositeEvaluationResultsPerMeasure getEvaluationResults(
+            List<String> subjectIds,
+            ZonedDateTime zonedMeasurementPeriod,
+            CqlEngine context,
+            MultiLibraryIdMeasureEngineDetails multiLibraryIdMeasureEngineDetails,
+            Map<String, Object> parametersMap,
+            Instrumentation instrumentation) {
 
         // measure -> subject -> results
         var resultsBuilder = CompositeEvaluationResultsPerMeasure.builder();
@@ -144,6 +204,47 @@ public class MeasureEvaluationResultHandler {
                 .log();
 
         final long startAllLibrariesAllSubjects = System.currentTimeMillis();
+        try (var span = instrumentation.startSpan(InstrumentationNames.MEASURE_EVALUATION)) {
+            if (instrumentation.isEnabled()) {
+                span.setAttribute(InstrumentationNames.SUBJECT_COUNT, String.valueOf(subjectIds.size()));
+            }
+            evaluateSubjects(
+                    subjectIds,
+                    zonedMeasurementPeriod,
+                    context,
+                    multiLibraryIdMeasureEngineDetails,
+                    parametersMap,
+                    instrumentation,
+                    activeLibraryIdentifiers,
+                    libraryIdentIds,
+                    resultsBuilder);
+        }
+
+        logger.atDebug()
+                .setMessage(
+                        "END: Evaluate measure for library idents: [[elapsed: {}ms, avgMs: {}]]: (count:{}): [{}], and subjects (count={}): [{}]")
+                .addArgument(() -> System.currentTimeMillis() - startAllLibrariesAllSubjects)
+                .addArgument(() -> subjectIds.isEmpty()
+                        ? 0
+                        : (System.currentTimeMillis() - startAllLibrariesAllSubjects) / subjectIds.size())
+                .addArgument(libraryIdentIds::size)
+                .addArgument(() -> showSubsetOfTotal(libraryIdentIds))
+                .addArgument(subjectIds::size)
+                .addArgument(() -> showSubsetOfTotal(subjectIds))
+                .log();
+        return resultsBuilder.build();
+    }
+
+    private static void evaluateSubjects(
+            List<String> subjectIds,
+            ZonedDateTime zonedMeasurementPeriod,
+            CqlEngine context,
+            MultiLibraryIdMeasureEngineDetails multiLibraryIdMeasureEngineDetails,
+            Map<String, Object> parametersMap,
+            Instrumentation instrumentation,
+            List<VersionedIdentifier> activeLibraryIdentifiers,
+            List<String> libraryIdentIds,
+            CompositeEvaluationResultsPerMeasure.Builder resultsBuilder) {
         final int lastIndex = subjectIds.size() - 1;
         for (int subjectIndex = 0; subjectIndex < subjectIds.size(); subjectIndex++) {
             String subjectId = subjectIds.get(subjectIndex);
@@ -163,6 +264,7 @@ public class MeasureEvaluationResultHandler {
             String subjectTypePart = subjectInfo.getLeft();
             String subjectIdPart = subjectInfo.getRight();
             context.getState().setContextValue(subjectTypePart, subjectIdPart);
+            final long startSubject = instrumentation.isEnabled() ? System.nanoTime() : 0;
             try {
 
                 final long startPerLibraryPerSubject = System.currentTimeMillis();
@@ -219,6 +321,7 @@ public class MeasureEvaluationResultHandler {
                         var error = EXCEPTION_FOR_SUBJECT_ID_MESSAGE_TEMPLATE.formatted(
                                 subjectId, libraryException.getMessage());
                         resultsBuilder.addErrors(measureDefs, error);
+                        instrumentation.increment(InstrumentationNames.MEASURE_SUBJECT_ERRORS);
                         logger.error(error, libraryException);
                     }
                 }
@@ -229,23 +332,13 @@ public class MeasureEvaluationResultHandler {
                 var measureDefs = multiLibraryIdMeasureEngineDetails.getAllMeasureDefs();
 
                 resultsBuilder.addErrors(measureDefs, error);
+                instrumentation.increment(InstrumentationNames.MEASURE_SUBJECT_ERRORS);
                 logger.error(error, e);
             }
+            if (instrumentation.isEnabled()) {
+                instrumentation.recordTime(InstrumentationNames.MEASURE_SUBJECT, System.nanoTime() - startSubject);
+            }
         }
-
-        logger.atDebug()
-                .setMessage(
-                        "END: Evaluate measure for library idents: [[elapsed: {}ms, avgMs: {}]]: (count:{}): [{}], and subjects (count={}): [{}]")
-                .addArgument(() -> System.currentTimeMillis() - startAllLibrariesAllSubjects)
-                .addArgument(() -> subjectIds.isEmpty()
-                        ? 0
-                        : (System.currentTimeMillis() - startAllLibrariesAllSubjects) / subjectIds.size())
-                .addArgument(libraryIdentIds::size)
-                .addArgument(() -> showSubsetOfTotal(libraryIdentIds))
-                .addArgument(subjectIds::size)
-                .addArgument(() -> showSubsetOfTotal(subjectIds))
-                .log();
-        return resultsBuilder.build();
     }
 
     private static LoggingEventBuilder throttledDebug(boolean shouldLog) {
@@ -22,6 +22,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import org.opencds.cqf.cql.engine.runtime.Value;
+import org.opencds.cqf.fhir.cr.measure.MeasureEvaluationOptions;
 import org.opencds.cqf.fhir.cr.measure.r4.R4MeasureScoringTypePopulations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,9 +50,24 @@ public class MeasureEvaluator {
     private static final Logger logger = LoggerFactory.getLogger(MeasureEvaluator.class);
 
     private final PopulationBasisValidator populationBasisValidator;
+    private final boolean subjectCountOnlySummary;
+    private final boolean retainEvaluatedResourcesForAllReportTypes;
 
     public MeasureEvaluator(PopulationBasisValidator populationBasisValidator) {
+        this(populationBasisValidator, new MeasureEvaluationOptions());
+    }
+
+    /**
+     * @param populationBasisValidator validates population and stratifier result types
+     * @param measureEvaluationOptions controls subject-count-only summary evaluation and which
+     *                                 report types retain evaluated resources
+     */
+    public MeasureEvaluator(
+            PopulationBasisValidator populationBasisValidator, MeasureEvaluationOptions measureEvaluationOptions) {
         this.populationBasisValidator = populationBasisValidator;
+        this.subjectCountOnlySummary = measureEvaluationOptions.isSubjectCountOnlySummary();
+        this.retainEvaluatedResourcesForAllReportTypes =
+                measureEvaluationOptions.isRetainEvaluatedResourcesForAllReportTypes();
     }
 
     public MeasureDef evaluate(
@@ -103,21 +119,66 @@ public class MeasureEvaluator {
             MeasureReportType reportType,
             CqlEvaluationResult evaluationResult,
             boolean applyScoring) {
-        evaluateSdes(subjectId, measureDef.sdes(), evaluationResult);
+        var capture = evaluatedResourceCapture(reportType);
+        evaluateSdes(subjectId, measureDef.sdes(), evaluationResult, capture);
         for (GroupDef groupDef : measureDef.groups()) {
+            for (PopulationDef populationDef : groupDef.populations()) {
+                populationDef.setEvaluatedResourceCapture(capture);
+            }
+            if (isSubjectCountOnly(reportType)) {
+                useSubjectCountOnlyStorage(groupDef);
+            }
             evaluateGroup(measureDef, groupDef, subjectType, subjectId, reportType, evaluationResult, applyScoring);
         }
         return measureDef;
     }
 
+    protected boolean isSubjectCountOnly(MeasureReportType reportType) {
+        return subjectCountOnlySummary && reportType == MeasureReportType.SUMMARY;
+    }
+
+    /**
+     * Only individual reports emit evaluated resources. Other report types keep just the resource
+     * ids, which supplemental data uses to reference rather than contain a resource, unless
+     * configured to retain the resources for all report types. Subject-count-only summaries keep
+     * nothing.
+     */
+    protected EvaluatedResourceCapture evaluatedResourceCapture(MeasureReportType reportType) {
+        if (isSubjectCountOnly(reportType)) {
+            return EvaluatedResourceCapture.NONE;
+        }
+        if (reportType == MeasureReportType.INDIVIDUAL || retainEvaluatedResourcesForAllReportTypes) {
+            return EvaluatedResourceCapture.RESOURCES;
+        }
+        return EvaluatedResourceCapture.IDS;
+    }
+
+    /**
+     * Summary reports only need counts and scores, so evaluated resources are never retained
+     * (see {@link #evaluatedResourceCapture}).
+     * Boolean basis groups without measure observations or criteria stratifiers never look past
+     * the subject keys of their populations, so those keep only their membership bitmaps.
+     */
+    private static void useSubjectCountOnlyStorage(GroupDef groupDef) {
+        boolean subjectsOnly = groupDef.isBooleanBasis()
+                && !groupDef.hasPopulationType(MEASUREOBSERVATION)
+                && groupDef.stratifiers().stream().noneMatch(StratifierDef::isCriteriaStratifier);
+
+        for (PopulationDef populationDef : groupDef.populations()) {
+            populationDef.setSubjectsOnly(subjectsOnly);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected Iterable<Object> evaluatePopulationCriteria(
             String subjectType,
             CqlExpressionValue expressionResult,
             CqlEvaluationResult evaluationResult,
-            Set<Value> outEvaluatedResources) {
+            @Nullable Set<Value> outEvaluatedResources) {
 
-        if (expressionResult != null && !expressionResult.evaluatedResources().isEmpty()) {
+        if (outEvaluatedResources != null
+                && expressionResult != null
+                && !expressionResult.evaluatedResources().isEmpty()) {
             outEvaluatedResources.addAll(expressionResult.evaluatedResources());
         }
 
@@ -187,8 +248,10 @@ public class MeasureEvaluator {
         }
 
         // Add Resources from SubjectId
-        for (var resource : evaluatePopulationCriteria(
-                subjectType, matchingResult, evaluationResult, inclusionDef.getEvaluatedResources())) {
+        if (matchingResult != null) {
+            inclusionDef.captureEvaluatedResources(matchingResult.evaluatedResources());
+        }
+        for (var resource : evaluatePopulationCriteria(subjectType, matchingResult, evaluationResult, null)) {
             // hashmap instead of set
             inclusionDef.addResource(subjectId, matchingResult.expressionName(), resource);
         }
@@ -628,6 +691,9 @@ public class MeasureEvaluator {
         populationBasisValidator.validateStratifiers(measureDef, groupDef, evaluationResult);
 
         evaluateStratifiers(subjectId, groupDef.stratifiers(), evaluationResult, groupDef);
+        if (evaluatedResourceCapture(reportType) != EvaluatedResourceCapture.RESOURCES) {
+            dropStratifierEvaluatedResources(subjectId, groupDef.stratifiers());
+        }
 
         var scoring = groupDef.measureScoring();
         switch (scoring) {
@@ -649,6 +715,14 @@ public class MeasureEvaluator {
     }
 
     protected void evaluateSdes(String subjectId, List<SdeDef> sdes, CqlEvaluationResult evaluationResult) {
+        evaluateSdes(subjectId, sdes, evaluationResult, EvaluatedResourceCapture.RESOURCES);
+    }
+
+    protected void evaluateSdes(
+            String subjectId,
+            List<SdeDef> sdes,
+            CqlEvaluationResult evaluationResult,
+            EvaluatedResourceCapture evaluatedResourceCapture) {
         for (SdeDef sde : sdes) {
             var expressionResult = evaluationResult.get(sde.expression());
             if (expressionResult == null) {
@@ -660,10 +734,34 @@ public class MeasureEvaluator {
                 result = null;
             }
 
-            sde.putResult(subjectId, sde.expression(), result, expressionResult.evaluatedResources());
+            sde.putResult(
+                    subjectId,
+                    sde.expression(),
+                    result,
+                    expressionResult.evaluatedResources(),
+                    evaluatedResourceCapture);
         }
     }
 
+    /**
+     * Stratifier results only contribute their values to non-individual reports, so the evaluated
+     * resources captured with this subject's results are released right away.
+     */
+    private static void dropStratifierEvaluatedResources(String subjectId, List<StratifierDef> stratifierDefs) {
+        for (StratifierDef stratifierDef : stratifierDefs) {
+            withoutEvaluatedResources(stratifierDef.getResults(), subjectId);
+            for (StratifierComponentDef component : stratifierDef.components()) {
+                withoutEvaluatedResources(component.getResults(), subjectId);
+            }
+        }
+    }
+
+    private static void withoutEvaluatedResources(Map<String, CqlExpressionValue> results, String subjectId) {
+        results.computeIfPresent(subjectId, (subject, result) -> result.evaluatedResources().isEmpty()
+                ? result
+                : CqlExpressionValue.ofRaw(result.expressionName(), result.raw(), null));
+    }
+
     protected void evaluateStratifiers(
             String subjectId,
             List<StratifierDef> stratifierDefs,
@@ -5,6 +5,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -105,13 +106,15 @@ public class MeasureMultiSubjectEvaluator {
     public static void postEvaluationMultiSubject(FhirContext fhirContext, MeasureDef measureDef) {
 
         for (GroupDef groupDef : measureDef.groups()) {
+            // Population membership is computed once per group and shared by every stratum
+            final PopulationBitmapIndex index = new PopulationBitmapIndex();
             for (StratifierDef stratifierDef : groupDef.stratifiers()) {
                 final List<StratumDef> stratumDefs;
 
                 if (stratifierDef.isCriteriaStratifier()) {
-                    stratumDefs = buildCriteriaStrata(fhirContext, stratifierDef, groupDef);
+                    stratumDefs = buildCriteriaStrata(fhirContext, stratifierDef, groupDef, index);
                 } else {
-                    stratumDefs = buildValueOrNonSubjectValueStrata(fhirContext, stratifierDef, groupDef);
+                    stratumDefs = buildValueOrNonSubjectValueStrata(fhirContext, stratifierDef, groupDef, index);
                 }
 
                 stratifierDef.addAllStratum(stratumDefs);
@@ -125,7 +128,7 @@ public class MeasureMultiSubjectEvaluator {
     }
 
     private static List<StratumDef> buildCriteriaStrata(
-            FhirContext fhirContext, StratifierDef stratifierDef, GroupDef groupDef) {
+            FhirContext fhirContext, StratifierDef stratifierDef, GroupDef groupDef, PopulationBitmapIndex index) {
 
         return List.of(buildStratumDef(
                 fhirContext,
@@ -136,7 +139,8 @@ public class MeasureMultiSubjectEvaluator {
                 List.of(),
                 // Row keys same as patients for non-component criteria stratifiers
                 List.of(),
-                groupDef));
+                groupDef,
+                index));
     }
 
     /**
@@ -223,6 +227,7 @@ public class MeasureMultiSubjectEvaluator {
      * @param subjectIds     the distinct subjects included in this stratum
      * @param rowKeys        the row-level keys defining atomic stratum membership
      * @param groupDef       the group definition containing population basis and settings
+     * @param index          population membership bitmaps for the group
      *
      * @return a fully constructed {@link StratumDef} with population results and metadata
      */
@@ -232,12 +237,15 @@ public class MeasureMultiSubjectEvaluator {
             Set<StratumValueDef> values,
             List<String> subjectIds,
             List<StratifierRowKey> rowKeys,
-            GroupDef groupDef) {
+            GroupDef groupDef,
+            PopulationBitmapIndex index) {
+
+        final BitSet stratumSubjects = index.subjects(subjectIds);
 
         // Build all stratum populations
         List<StratumPopulationDef> stratumPopulations = groupDef.populations().stream()
-                .map(popDef ->
-                        buildStratumPopulationDef(fhirContext, stratifierDef, popDef, subjectIds, rowKeys, groupDef))
+                .map(popDef -> buildStratumPopulationDef(
+                        fhirContext, stratifierDef, popDef, stratumSubjects, rowKeys, groupDef, index))
                 .toList();
 
         // Pre-compute measure observation cache if applicable
@@ -252,15 +260,12 @@ public class MeasureMultiSubjectEvaluator {
             FhirContext fhirContext,
             StratifierDef stratifierDef,
             PopulationDef populationDef,
-            List<String> subjectIds,
+            BitSet stratumSubjects,
             List<StratifierRowKey> rowKeys,
-            GroupDef groupDef) {
-        // population subjectIds
-        var popSubjectIds = populationDef.getSubjects().stream()
-                .map(FhirResourceUtils::addPatientQualifier)
-                .collect(Collectors.toUnmodifiableSet());
+            GroupDef groupDef,
+            PopulationBitmapIndex index) {
         // intersect stratum subjectIds and population subjectIds
-        var qualifiedSubjectIdsCommonToPopulation = Sets.intersection(new HashSet<>(subjectIds), popSubjectIds);
+        var qualifiedSubjectIdsCommonToPopulation = index.intersectSubjects(stratumSubjects, populationDef);
 
         // Calculate intersection and resource IDs based on stratifier type and basis
         Set<Object> populationDefEvaluationResultIntersection;
@@ -280,7 +285,7 @@ public class MeasureMultiSubjectEvaluator {
         } else {
             // For resource basis stratifiers, calculate resource IDs based on stratifier type
             resourceIdsForSubjectList =
-                    getResourceIdsForValueStratifier(fhirContext, stratifierDef, rowKeys, groupDef, populationDef);
+                    getResourceIdsForValueStratifier(fhirContext, stratifierDef, rowKeys, groupDef, populationDef, index);
         }
 
         return new StratumPopulationDef(
@@ -303,7 +308,7 @@ public class MeasureMultiSubjectEvaluator {
      * @param stratumPopulations the list of stratum populations for this stratum
      * @return the cache or null if not applicable
      */
-    private static MeasureObservationStratumCache buildMeasureObservationCacheIfApplicable(
+    static MeasureObservationStratumCache buildMeasureObservationCacheIfApplicable(
             GroupDef groupDef, List<StratumPopulationDef> stratumPopulations) {
 
         // Only applicable for measures with observations
@@ -349,7 +354,7 @@ public class MeasureMultiSubjectEvaluator {
     }
 
     private static List<StratumDef> buildValueOrNonSubjectValueStrata(
-            FhirContext fhirContext, StratifierDef stratifierDef, GroupDef groupDef) {
+            FhirContext fhirContext, StratifierDef stratifierDef, GroupDef groupDef, PopulationBitmapIndex index) {
 
         final Table<StratifierRowKey, StratumTableColumnKey, StratifierComponentDef> subjectResultTable =
                 buildSubjectResultsTable(stratifierDef.components());
@@ -387,7 +392,8 @@ public class MeasureMultiSubjectEvaluator {
                     .distinct()
                     .toList();
 
-            stratumDefs.add(buildStratumDef(fhirContext, stratifierDef, valueSet, subjects, rowKeys, groupDef));
+            stratumDefs.add(
+                    buildStratumDef(fhirContext, stratifierDef, valueSet, subjects, rowKeys, groupDef, index));
         });
 
         return stratumDefs;
@@ -788,6 +794,11 @@ public class MeasureMultiSubjectEvaluator {
 
         // For each subject, we intersect between the population and stratifier results
         for (var stratifierEntryBySubject : stratifierResultsBySubject.entrySet()) {
+            // Subjects outside the population can't contribute to the intersection
+            if (!populationDef.getSubjectResources().containsKey(stratifierEntryBySubject.getKey())) {
+                continue;
+            }
+
             final Set<Object> stratifierResultsPerSubject =
                     criteriaResultAsIntersectionSet(stratifierEntryBySubject.getValue());
 
@@ -846,7 +857,8 @@ public class MeasureMultiSubjectEvaluator {
             StratifierDef stratifierDef,
             List<StratifierRowKey> rowKeys,
             GroupDef groupDef,
-            PopulationDef populationDef) {
+            PopulationDef populationDef,
+            PopulationBitmapIndex index) {
         // Check if we have composite row keys for NON_SUBJECT_VALUE stratifiers
         if (stratifierDef.getStratifierType() == MeasureStratifierType.NON_SUBJECT_VALUE) {
             final String resourceType = FhirResourceUtils.determineFhirResourceTypeOrNull(fhirContext, groupDef);
@@ -867,14 +879,14 @@ public class MeasureMultiSubjectEvaluator {
                     .toList();
 
             if (!stratumResourceKeys.isEmpty()) {
-                // Get all population resource keys using the same SubjectResourceKey type
-                Set<SubjectResourceKey> populationResourceKeys =
-                        getPopulationResourceKeySet(fhirContext, groupDef, populationDef);
-
-                // Intersect stratum resource keys with population resource keys
-                // The record's natural equality handles the comparison correctly
+                // Intersect stratum resource keys with population resource keys. The population's
+                // keys are computed once per group by the index, using the same SubjectResourceKey
+                // type, so the record's natural equality handles the comparison correctly
                 return stratumResourceKeys.stream()
-                        .filter(populationResourceKeys::contains)
+                        .filter(key -> index.containsResourceKey(
+                                populationDef,
+                                def -> getPopulationResourceKeySet(fhirContext, groupDef, def),
+                                key))
                         .map(SubjectResourceKey::resourceValue)
                         .toList();
             }
@@ -1012,7 +1024,7 @@ public class MeasureMultiSubjectEvaluator {
      * For resources, we use the versionless reference (e.g., "Encounter/123").
      * For non-resource FHIR types and primitives, we fall back to {@code String.valueOf(obj)}.
      */
-    private static String normalizePopulationKey(Object objOrWrapper) {
+    static String normalizePopulationKey(Object objOrWrapper) {
         // PopulationDef.subjectResources stores CqlExpressionValue wrappers; unwrap to the raw
         // FHIR/CQL value so callers can pass either a wrapper or an already-raw value (e.g. a
         // resource extracted from an observation accumulator).
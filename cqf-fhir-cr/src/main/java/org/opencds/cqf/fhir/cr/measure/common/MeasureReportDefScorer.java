@@ -584,6 +584,10 @@ public class MeasureReportDefScorer {
             var id = getId(classInstance);
             return stratumResourceIds.contains(id);
         }
+        // Observations merged from partial results carry the resource id in place of the resource
+        if (inputResource instanceof MeasureDefPartialResult.ObservationInputKey inputKey) {
+            return inputKey.resource() && stratumResourceIds.contains(inputKey.key());
+        }
         return inputResource instanceof IBaseResource baseResource
                 && stratumResourceIds.contains(
                         baseResource.getIdElement().toVersionless().getValue());
@@ -0,0 +1,106 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Dense integer ordinals for the subjects and population result keys of one group, with the
+ * membership of each population held as a {@link BitSet} over those ordinals.
+ * <p/>
+ * Stratification intersects every stratum with every population. Without an index each of those
+ * intersections rebuilt the population's qualified subject ids (and, for non-boolean basis, its
+ * {@link SubjectResourceKey}s), making stratification O(strata &times; population size) in both
+ * time and garbage. The index computes each population's membership once, so intersecting a
+ * stratum with a population is a word-level {@code BitSet.and} plus materializing the (usually
+ * much smaller) result.
+ * <p/>
+ * An index is built for one group in
+ * {@link MeasureMultiSubjectEvaluator#postEvaluationMultiSubject} and is only valid while the
+ * group's populations aren't modified. It is not thread safe.
+ */
+final class PopulationBitmapIndex {
+
+    private final Map<String, Integer> subjectOrdinals = new HashMap<>();
+    private final List<String> subjects = new ArrayList<>();
+    private final Map<PopulationDef, BitSet> populationSubjects = new IdentityHashMap<>();
+
+    private final Map<SubjectResourceKey, Integer> resourceKeyOrdinals = new HashMap<>();
+    private final Map<PopulationDef, BitSet> populationResourceKeys = new IdentityHashMap<>();
+
+    /**
+     * @param qualifiedSubjects subject ids qualified with their resource type, e.g. Patient/123
+     * @return the ordinals of the given subjects
+     */
+    BitSet subjects(Collection<String> qualifiedSubjects) {
+        var bits = new BitSet();
+        for (String subject : qualifiedSubjects) {
+            bits.set(subjectOrdinal(subject));
+        }
+        return bits;
+    }
+
+    /**
+     * @param stratumSubjects the ordinals of a stratum's subjects, see {@link #subjects(Collection)}
+     * @param populationDef   the population to intersect with
+     * @return the qualified ids of the stratum subjects that are members of the population
+     */
+    Set<String> intersectSubjects(BitSet stratumSubjects, PopulationDef populationDef) {
+        var intersection = (BitSet) populationSubjects(populationDef).clone();
+        intersection.and(stratumSubjects);
+
+        var result = new HashSet<String>(Math.max(16, (int) (intersection.cardinality() / .75f) + 1));
+        for (int ordinal = intersection.nextSetBit(0); ordinal >= 0; ordinal = intersection.nextSetBit(ordinal + 1)) {
+            result.add(subjects.get(ordinal));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @param populationDef the population whose result keys are checked
+     * @param keyExtractor  computes the population's result keys; called once per population
+     * @param key           the key to look up
+     * @return whether the key is one of the population's result keys
+     */
+    boolean containsResourceKey(
+            PopulationDef populationDef,
+            Function<PopulationDef, Set<SubjectResourceKey>> keyExtractor,
+            SubjectResourceKey key) {
+        var bits = populationResourceKeys.computeIfAbsent(populationDef, def -> {
+            var keyBits = new BitSet();
+            for (SubjectResourceKey populationKey : keyExtractor.apply(def)) {
+                keyBits.set(resourceKeyOrdinals.computeIfAbsent(populationKey, k -> resourceKeyOrdinals.size()));
+            }
+            return keyBits;
+        });
+
+        // Keys that no population produced never get an ordinal
+        Integer ordinal = resourceKeyOrdinals.get(key);
+        return ordinal != null && bits.get(ordinal);
+    }
+
+    private BitSet populationSubjects(PopulationDef populationDef) {
+        return populationSubjects.computeIfAbsent(populationDef, def -> {
+            var bits = new BitSet();
+            for (String subject : def.getSubjects()) {
+                bits.set(subjectOrdinal(FhirResourceUtils.addPatientQualifier(subject)));
+            }
+            return bits;
+        });
+    }
+
+    private int subjectOrdinal(String qualifiedSubject) {
+        return subjectOrdinals.computeIfAbsent(qualifiedSubject, subject -> {
+            subjects.add(subject);
+            return subjects.size() - 1;
+        });
+    }
+}
@@ -1,11 +1,18 @@
 package org.opencds.cqf.fhir.cr.measure.common;
 
 import jakarta.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -37,8 +44,24 @@ public class PopulationDef {
      * population types each wrapper holds a FHIR resource or CQL value; for
      * {@link MeasurePopulationType#MEASUREOBSERVATION} populations each wrapper holds a
      * {@code Map<inputResource, outputValue>} accumulator.
+     * <p/>
+     * The map is a view: membership is held in {@link #members}, a bitmap over the subject ordinals
+     * shared by the populations of the measure, and the results of each member in
+     * {@link #resultsByOrdinal}.
+     */
+    protected final Map<String, Set<CqlExpressionValue>> subjectResources = new SubjectResources();
+
+    private SubjectOrdinals subjectOrdinals = new SubjectOrdinals();
+    private final BitSet members = new BitSet();
+    private final Map<Integer, Set<CqlExpressionValue>> resultsByOrdinal = new HashMap<>();
+
+    /**
+     * Summary-only storage, see {@link #setSubjectsOnly(boolean)}.
      */
-    protected Map<String, Set<CqlExpressionValue>> subjectResources = new HashMap<>();
+    private boolean subjectsOnly;
+
+    private EvaluatedResourceCapture evaluatedResourceCapture = EvaluatedResourceCapture.RESOURCES;
+    private final Set<String> evaluatedResourceIds = new LinkedHashSet<>();
 
     public PopulationDef(
             String id,
@@ -113,6 +136,77 @@ public class PopulationDef {
         return this.evaluatedResources;
     }
 
+    public EvaluatedResourceCapture getEvaluatedResourceCapture() {
+        return this.evaluatedResourceCapture;
+    }
+
+    /**
+     * How much of the resources touched by this population's criteria is retained, see
+     * {@link EvaluatedResourceCapture}. Defaults to retaining the resources themselves.
+     */
+    public void setEvaluatedResourceCapture(EvaluatedResourceCapture evaluatedResourceCapture) {
+        this.evaluatedResourceCapture = Objects.requireNonNull(evaluatedResourceCapture);
+    }
+
+    /**
+     * Capture the resources touched by this population's criteria for one subject, according to
+     * {@link #getEvaluatedResourceCapture()}.
+     */
+    public void captureEvaluatedResources(@Nullable Collection<Value> resources) {
+        evaluatedResourceCapture.capture(resources, getEvaluatedResources(), evaluatedResourceIds);
+    }
+
+    /**
+     * @return the ids of the evaluated resources, whether the resources themselves were retained
+     * or only their ids
+     */
+    public Set<String> getEvaluatedResourceIds() {
+        return EvaluatedResourceCapture.allIds(getEvaluatedResources(), evaluatedResourceIds);
+    }
+
+    public boolean isSubjectsOnly() {
+        return this.subjectsOnly;
+    }
+
+    /**
+     * Store subject membership only, without the per-subject criteria results.
+     * <p/>
+     * Only valid for boolean basis populations whose results are never intersected at the
+     * resource level, i.e. groups without measure observations or criteria stratifiers: the count
+     * of such a population is the number of subjects and the retain/remove set algebra between
+     * populations reduces to the subject bitmaps. Such a population keeps only its membership
+     * bitmap, and its members all map to one immutable empty set.
+     *
+     * @param subjectsOnly true to store subject ids only
+     */
+    public void setSubjectsOnly(boolean subjectsOnly) {
+        this.subjectsOnly = subjectsOnly;
+    }
+
+    /**
+     * Shares the subject ordinals of the other populations of the measure, so the subject algebra
+     * between them works on bitmaps. Existing members are renumbered.
+     */
+    void useSubjectOrdinals(SubjectOrdinals subjectOrdinals) {
+        if (subjectOrdinals == this.subjectOrdinals) {
+            return;
+        }
+        var renumbered = new BitSet();
+        var renumberedResults = new HashMap<Integer, Set<CqlExpressionValue>>();
+        for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+            int newOrdinal = subjectOrdinals.ordinalOf(this.subjectOrdinals.subject(ordinal));
+            renumbered.set(newOrdinal);
+            if (resultsByOrdinal.containsKey(ordinal)) {
+                renumberedResults.put(newOrdinal, resultsByOrdinal.get(ordinal));
+            }
+        }
+        members.clear();
+        members.or(renumbered);
+        resultsByOrdinal.clear();
+        resultsByOrdinal.putAll(renumberedResults);
+        this.subjectOrdinals = subjectOrdinals;
+    }
+
     public Set<String> getSubjects() {
         return this.getSubjectResources().keySet();
     }
@@ -173,20 +267,59 @@ public class PopulationDef {
         }
     }
 
+    /**
+     * Keeps only the results of the subject that are also results of the other population. This
+     * only touches the results of one subject, so it stays on their sets.
+     */
     public void retainAllResources(String subjectId, PopulationDef otherPopulationDef) {
-        getResourcesForSubject(subjectId).retainAll(otherPopulationDef.getResourcesForSubject(subjectId));
+        var resources = subjectResources.get(subjectId);
+        if (resources != null && !resources.isEmpty()) {
+            resources.retainAll(otherPopulationDef.getResourcesForSubject(subjectId));
+        }
     }
 
+    /**
+     * Keeps only the subjects that are also members of the other population, as a bitmap
+     * intersection when both populations share their subject ordinals.
+     */
     public void retainAllSubjects(PopulationDef otherPopulationDef) {
-        this.getSubjects().retainAll(otherPopulationDef.getSubjects());
+        if (otherPopulationDef.subjectOrdinals != subjectOrdinals) {
+            this.getSubjects().retainAll(otherPopulationDef.getSubjects());
+            return;
+        }
+        var removed = (BitSet) members.clone();
+        removed.andNot(otherPopulationDef.members);
+        removeMembers(removed);
     }
 
     public void removeAllResources(String subjectId, PopulationDef otherPopulationDef) {
-        getResourcesForSubject(subjectId).removeAll(otherPopulationDef.getResourcesForSubject(subjectId));
+        var resources = subjectResources.get(subjectId);
+        if (resources != null && !resources.isEmpty()) {
+            resources.removeAll(otherPopulationDef.getResourcesForSubject(subjectId));
+        }
     }
 
+    /**
+     * Removes the subjects that are members of the other population, as a bitmap difference when
+     * both populations share their subject ordinals.
+     */
     public void removeAllSubjects(PopulationDef otherPopulationDef) {
-        this.getSubjects().removeAll(otherPopulationDef.getSubjects());
+        if (otherPopulationDef.subjectOrdinals != subjectOrdinals) {
+            this.getSubjects().removeAll(otherPopulationDef.getSubjects());
+            return;
+        }
+        var removed = (BitSet) members.clone();
+        removed.and(otherPopulationDef.members);
+        removeMembers(removed);
+    }
+
+    private void removeMembers(BitSet removed) {
+        members.andNot(removed);
+        if (!resultsByOrdinal.isEmpty()) {
+            for (int ordinal = removed.nextSetBit(0); ordinal >= 0; ordinal = removed.nextSetBit(ordinal + 1)) {
+                resultsByOrdinal.remove(ordinal);
+            }
+        }
     }
 
     /**
@@ -248,11 +381,20 @@ public class PopulationDef {
      * can dedupe by FHIR-resource / CQL-type identity rather than Java object identity.
      */
     public void addResource(String key, String expression, Object value) {
-        subjectResources
-                .computeIfAbsent(key, k -> new HashSetForCqlExpressionValues())
+        int ordinal = subjectOrdinals.ordinalOf(key);
+        members.set(ordinal);
+        if (subjectsOnly) {
+            return;
+        }
+        resultsByOrdinal
+                .computeIfAbsent(ordinal, o -> new HashSetForCqlExpressionValues())
                 .add(CqlExpressionValue.ofRaw(expression, value, null));
     }
 
+    private Set<CqlExpressionValue> resultsOf(int ordinal) {
+        return subjectsOnly ? Collections.emptySet() : resultsByOrdinal.get(ordinal);
+    }
+
     @Nullable
     public ContinuousVariableObservationAggregateMethod getAggregateMethod() {
         return this.aggregateMethod;
@@ -314,4 +456,106 @@ public class PopulationDef {
     public List<SupportingEvidenceDef> getSupportingEvidenceDefs() {
         return supportingEvidenceDefs == null ? null : new ArrayList<>(supportingEvidenceDefs);
     }
+
+    /**
+     * {@link #subjectResources} as a map from subject id to results, in the order the subjects were
+     * first evaluated. Writes go through to the membership bitmap; values put for a subjects-only
+     * population are dropped. Entries can't be changed with {@code setValue}, use {@code put}.
+     */
+    private final class SubjectResources extends AbstractMap<String, Set<CqlExpressionValue>> {
+
+        @Override
+        public int size() {
+            return members.cardinality();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int ordinal = subjectOrdinals.find(key);
+            return ordinal >= 0 && members.get(ordinal);
+        }
+
+        @Override
+        public Set<CqlExpressionValue> get(Object key) {
+            int ordinal = subjectOrdinals.find(key);
+            return ordinal >= 0 && members.get(ordinal) ? resultsOf(ordinal) : null;
+        }
+
+        @Override
+        public Set<CqlExpressionValue> put(String key, Set<CqlExpressionValue> value) {
+            var previous = get(key);
+            int ordinal = subjectOrdinals.ordinalOf(key);
+            members.set(ordinal);
+            if (!subjectsOnly) {
+                resultsByOrdinal.put(ordinal, value);
+            }
+            return previous;
+        }
+
+        @Override
+        public Set<CqlExpressionValue> remove(Object key) {
+            int ordinal = subjectOrdinals.find(key);
+            if (ordinal < 0 || !members.get(ordinal)) {
+                return null;
+            }
+            var previous = resultsOf(ordinal);
+            removeOrdinal(ordinal);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            members.clear();
+            resultsByOrdinal.clear();
+        }
+
+        @Override
+        public Set<Entry<String, Set<CqlExpressionValue>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return members.cardinality();
+                }
+
+                @Override
+                public Iterator<Entry<String, Set<CqlExpressionValue>>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+
+        private void removeOrdinal(int ordinal) {
+            members.clear(ordinal);
+            resultsByOrdinal.remove(ordinal);
+        }
+
+        private final class EntryIterator implements Iterator<Entry<String, Set<CqlExpressionValue>>> {
+            private int next = members.nextSetBit(0);
+            private int current = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Entry<String, Set<CqlExpressionValue>> next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = members.nextSetBit(current + 1);
+                return new SimpleImmutableEntry<>(subjectOrdinals.subject(current), resultsOf(current));
+            }
+
+            @Override
+            public void remove() {
+                if (current < 0) {
+                    throw new IllegalStateException();
+                }
+                removeOrdinal(current);
+                current = -1;
+            }
+        }
+    }
 }
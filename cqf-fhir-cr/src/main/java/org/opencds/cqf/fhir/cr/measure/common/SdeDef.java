@@ -2,6 +2,7 @@ package org.opencds.cqf.fhir.cr.measure.common;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -19,6 +20,7 @@ public class SdeDef {
     // Pre-accumulated state (populated by MeasureMultiSubjectEvaluator)
     private final Map<StratumValueWrapper, Long> accumulatedValues = new HashMap<>();
     private final Set<Value> allEvaluatedResources = new HashSet<>();
+    private final Set<String> evaluatedResourceIds = new LinkedHashSet<>();
 
     public SdeDef(String id, ConceptDef code, String expression) {
         this(id, code, expression, null);
@@ -51,6 +53,26 @@ public class SdeDef {
         this.results.put(subject, CqlExpressionValue.ofRaw(expression, value, evaluatedResources));
     }
 
+    /**
+     * Store a subject's result, retaining its evaluated resources according to the given mode.
+     * Resources are kept with the result (and merged by {@link #accumulate()}) only in
+     * {@link EvaluatedResourceCapture#RESOURCES} mode.
+     */
+    public void putResult(
+            String subject,
+            String expression,
+            Object value,
+            Set<Value> evaluatedResources,
+            EvaluatedResourceCapture evaluatedResourceCapture) {
+        if (evaluatedResourceCapture == EvaluatedResourceCapture.RESOURCES) {
+            putResult(subject, expression, value, evaluatedResources);
+            return;
+        }
+
+        evaluatedResourceCapture.capture(evaluatedResources, allEvaluatedResources, evaluatedResourceIds);
+        putResult(subject, expression, value, null);
+    }
+
     public Map<StratumValueWrapper, Long> getAccumulatedValues() {
         return this.accumulatedValues;
     }
@@ -59,6 +81,14 @@ public class SdeDef {
         return this.allEvaluatedResources;
     }
 
+    /**
+     * @return the ids of the evaluated resources across all subjects, whether the resources
+     * themselves were retained or only their ids
+     */
+    public Set<String> getAllEvaluatedResourceIds() {
+        return EvaluatedResourceCapture.allIds(allEvaluatedResources, evaluatedResourceIds);
+    }
+
     /**
      * Aggregates per-subject SDE results into value counts and a merged set of evaluated resources.
      * Called by {@link MeasureMultiSubjectEvaluator#postEvaluationMultiSubject} for population reports.
@@ -263,18 +263,22 @@ public class StratumValueWrapper {
     }
 
     private static IAdapterFactory adapterFactoryFor(IBase base) {
+        return IAdapterFactory.forFhirVersion(fhirVersionOf(base));
+    }
+
+    static FhirVersionEnum fhirVersionOf(IBase base) {
         if (base instanceof IBaseResource resource) {
-            return IAdapterFactory.forFhirVersion(resource.getStructureFhirVersionEnum());
+            return resource.getStructureFhirVersionEnum();
         }
         String pkg = base.getClass().getPackageName();
         if (pkg.contains(".dstu3.")) {
-            return IAdapterFactory.forFhirVersion(FhirVersionEnum.DSTU3);
+            return FhirVersionEnum.DSTU3;
         }
         if (pkg.contains(".r4.")) {
-            return IAdapterFactory.forFhirVersion(FhirVersionEnum.R4);
+            return FhirVersionEnum.R4;
         }
         if (pkg.contains(".r5.")) {
-            return IAdapterFactory.forFhirVersion(FhirVersionEnum.R5);
+            return FhirVersionEnum.R5;
         }
         throw new IllegalArgumentException("Cannot determine FHIR version from: " + base.getClass());
     }
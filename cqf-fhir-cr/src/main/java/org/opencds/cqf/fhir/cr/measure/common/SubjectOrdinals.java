@@ -0,0 +1,42 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense integer ordinals for the subjects of one evaluation. The populations of a {@link MeasureDef}
+ * share one instance, so their membership can be held as bitmaps over the same ordinals and
+ * intersected word by word (see {@link PopulationDef#retainAllSubjects(PopulationDef)}).
+ * <p/>
+ * A subject gets its ordinal when it first enters a population. It is not thread safe, like the
+ * populations themselves.
+ */
+final class SubjectOrdinals {
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> subjects = new ArrayList<>();
+
+    /**
+     * @return the ordinal of the subject, assigning the next one if it has none yet
+     */
+    int ordinalOf(String subject) {
+        return ordinals.computeIfAbsent(subject, s -> {
+            subjects.add(s);
+            return subjects.size() - 1;
+        });
+    }
+
+    /**
+     * @return the ordinal of the subject, or -1 if it never entered a population
+     */
+    int find(Object subject) {
+        Integer ordinal = ordinals.get(subject);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    String subject(int ordinal) {
+        return subjects.get(ordinal);
+    }
+}
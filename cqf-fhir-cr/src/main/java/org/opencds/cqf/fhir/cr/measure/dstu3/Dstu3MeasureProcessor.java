@@ -189,7 +189,12 @@ public class Dstu3MeasureProcessor {
         // populate results from Library $evaluate
         if (!subjects.isEmpty()) {
             var results = MeasureEvaluationResultHandler.getEvaluationResults(
-                    subjectIds, zonedMeasurementPeriod, context, measureLibraryIdEngineDetails, parametersMap);
+                    subjectIds,
+                    zonedMeasurementPeriod,
+                    context,
+                    measureLibraryIdEngineDetails,
+                    parametersMap,
+                    this.measureEvaluationOptions.getEvaluationSettings().getInstrumentation());
 
             // Process Criteria Expression Results
             measureEvaluationResultHandler.processResults(
@@ -1,7 +1,5 @@
 package org.opencds.cqf.fhir.cr.measure.dstu3;
 
-import static org.opencds.cqf.fhir.cql.ClassInstanceHelper.getId;
-
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,11 +31,9 @@ import org.hl7.fhir.dstu3.model.Quantity;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.StringType;
 import org.hl7.fhir.instance.model.api.IBaseResource;
-import org.opencds.cqf.cql.engine.runtime.ClassInstance;
 import org.opencds.cqf.cql.engine.runtime.Date;
 import org.opencds.cqf.cql.engine.runtime.DateTime;
 import org.opencds.cqf.cql.engine.runtime.Interval;
-import org.opencds.cqf.cql.engine.runtime.Value;
 import org.opencds.cqf.fhir.cr.measure.common.CqlExpressionValue;
 import org.opencds.cqf.fhir.cr.measure.common.GroupDef;
 import org.opencds.cqf.fhir.cr.measure.common.MeasureDef;
@@ -297,7 +293,7 @@ public class Dstu3MeasureReportBuilder implements MeasureReportBuilder<Measure,
                     this.createStringExtension(EXT_POPULATION_DESCRIPTION_URL, measurePopulation.getDescription()));
         }
 
-        addResourceReferences(populationDef.type(), populationDef.getEvaluatedResources());
+        addResourceReferences(populationDef.type(), populationDef.getEvaluatedResourceIds());
 
         // This is a temporary list carried forward to stratifiers
         Set<String> populationSet = populationDef.getSubjects();
@@ -359,11 +355,10 @@ public class Dstu3MeasureReportBuilder implements MeasureReportBuilder<Measure,
         return referenceList;
     }
 
-    private void addResourceReferences(MeasurePopulationType measurePopulationType, Set<Value> evaluatedResources) {
-        if (!evaluatedResources.isEmpty()) {
-            for (var object : evaluatedResources) {
-                var resource = (ClassInstance) object;
-                var resourceId = getId(resource);
+    private void addResourceReferences(
+            MeasurePopulationType measurePopulationType, Collection<String> evaluatedResourceIds) {
+        if (!evaluatedResourceIds.isEmpty()) {
+            for (var resourceId : evaluatedResourceIds) {
                 var reference = this.getEvaluatedResourceReference(resourceId);
                 var ext = createStringExtension(
                         MeasureConstants.EXT_DAVINCI_POPULATION_REFERENCE, measurePopulationType.toCode());
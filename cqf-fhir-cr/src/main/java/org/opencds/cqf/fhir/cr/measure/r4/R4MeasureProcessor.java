@@ -41,6 +41,7 @@ import org.opencds.cqf.fhir.cr.measure.common.MeasureReportType;
 import org.opencds.cqf.fhir.cr.measure.common.MultiLibraryIdMeasureEngineDetails;
 import org.opencds.cqf.fhir.cr.measure.r4.utils.R4DateHelper;
 import org.opencds.cqf.fhir.cr.measure.r4.utils.R4MeasureServiceUtils;
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation;
 import org.opencds.cqf.fhir.utility.search.Searches;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -184,7 +185,7 @@ public class R4MeasureProcessor {
         measureEvaluationResultHandler.processResults(fhirContext, results, measureDef, evaluationType);
 
         // Build Measure Report with Results
-        MeasureReport measureReport = new R4MeasureReportBuilder()
+        MeasureReport measureReport = new R4MeasureReportBuilder(instrumentation())
                 .build(
                         measure,
                         measureDef,
@@ -238,7 +239,7 @@ public class R4MeasureProcessor {
         var measurementPeriod = MeasureProcessorTimeUtils.getMeasurementPeriod(periodStart, periodEnd, context);
 
         // Build Measure Report with Results
-        MeasureReport measureReport = new R4MeasureReportBuilder()
+        MeasureReport measureReport = new R4MeasureReportBuilder(instrumentation())
                 .build(
                         measure,
                         measureDef,
@@ -303,6 +304,10 @@ public class R4MeasureProcessor {
                 subjects, List.of(resolveMeasure(measureRef)), periodStart, periodEnd, parameters, context);
     }
 
+    private Instrumentation instrumentation() {
+        return this.measureEvaluationOptions.getEvaluationSettings().getInstrumentation();
+    }
+
     private Measure resolveMeasure(MeasureReference ref) {
         var utils = new R4MeasureServiceUtils(this.repository);
         if (ref instanceof MeasureReference.ById byId) {
@@ -471,7 +476,8 @@ public class R4MeasureProcessor {
                 preparedContext.zonedMeasurementPeriod,
                 context,
                 preparedContext.multiLibraryIdMeasureEngineDetails,
-                preparedContext.parametersMap);
+                preparedContext.parametersMap,
+                instrumentation());
     }
 
     private MultiLibraryIdMeasureEngineDetails getMultiLibraryIdMeasureEngineDetails(List<Measure> measures) {
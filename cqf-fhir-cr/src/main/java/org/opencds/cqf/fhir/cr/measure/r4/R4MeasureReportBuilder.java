@@ -44,7 +44,6 @@ import org.hl7.fhir.r4.model.ResourceType;
 import org.hl7.fhir.r4.model.StringType;
 import org.opencds.cqf.cql.engine.runtime.ClassInstance;
 import org.opencds.cqf.cql.engine.runtime.Interval;
-import org.opencds.cqf.cql.engine.runtime.Value;
 import org.opencds.cqf.fhir.cr.measure.common.CodeDef;
 import org.opencds.cqf.fhir.cr.measure.common.ConceptDef;
 import org.opencds.cqf.fhir.cr.measure.common.CqlExpressionValue;
@@ -65,6 +64,8 @@ import org.opencds.cqf.fhir.cr.measure.common.StratumValueWrapper;
 import org.opencds.cqf.fhir.cr.measure.constant.MeasureConstants;
 import org.opencds.cqf.fhir.cr.measure.r4.utils.R4DateHelper;
 import org.opencds.cqf.fhir.cr.measure.r4.utils.R4MeasureReportUtils;
+import org.opencds.cqf.fhir.utility.monitoring.Instrumentation;
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,6 +74,19 @@ public class R4MeasureReportBuilder implements MeasureReportBuilder<Measure, Mea
     private static final Logger logger = LoggerFactory.getLogger(R4MeasureReportBuilder.class);
     protected static final String POPULATION_SUBJECT_SET = "POPULATION_SUBJECT_SET";
 
+    private final Instrumentation instrumentation;
+
+    public R4MeasureReportBuilder() {
+        this(Instrumentation.noop());
+    }
+
+    /**
+     * @param instrumentation records the time spent building each report
+     */
+    public R4MeasureReportBuilder(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
     @Override
     public MeasureReport build(
             Measure measure,
@@ -80,6 +94,22 @@ public class R4MeasureReportBuilder implements MeasureReportBuilder<Measure, Mea
             MeasureReportType measureReportType,
             Interval measurementPeriod,
             List<String> subjectIds) {
+        try (var span = instrumentation.startSpan(InstrumentationNames.MEASURE_REPORT_BUILD)) {
+            try {
+                return buildReport(measure, measureDef, measureReportType, measurementPeriod, subjectIds);
+            } catch (RuntimeException e) {
+                span.setError(e);
+                throw e;
+            }
+        }
+    }
+
+    private MeasureReport buildReport(
+            Measure measure,
+            MeasureDef measureDef,
+            MeasureReportType measureReportType,
+            Interval measurementPeriod,
+            List<String> subjectIds) {
 
         var report = this.createMeasureReport(measure, measureDef, measureReportType, subjectIds, measurementPeriod);
 
@@ -275,7 +305,7 @@ public class R4MeasureReportBuilder implements MeasureReportBuilder<Measure, Mea
                     new StringType(measurePopulation.getDescription()));
         }
 
-        addEvaluatedResourceReferences(bc, populationDef.id(), populationDef.getEvaluatedResources());
+        addEvaluatedResourceReferences(bc, populationDef.id(), populationDef.getEvaluatedResourceIds());
 
         // This is a temporary list carried forward to stratifiers
         // subjectResult set defined by basis of Measure
@@ -323,15 +353,9 @@ public class R4MeasureReportBuilder implements MeasureReportBuilder<Measure, Mea
     }
 
     private void addEvaluatedResourceReferences(
-            R4MeasureReportBuilderContext bc, String criteriaId, Set<Value> evaluatedResources) {
-        if (evaluatedResources == null || evaluatedResources.isEmpty()) {
-            return;
-        }
-
-        for (var resource : evaluatedResources) {
-            if (resource instanceof ClassInstance classInstance) {
-                bc.addCriteriaExtensionToEvaluatedResource(getId(classInstance), criteriaId);
-            }
+            R4MeasureReportBuilderContext bc, String criteriaId, Collection<String> evaluatedResourceIds) {
+        for (String evaluatedResourceId : evaluatedResourceIds) {
+            bc.addCriteriaExtensionToEvaluatedResource(evaluatedResourceId, criteriaId);
         }
     }
 
@@ -356,7 +380,7 @@ public class R4MeasureReportBuilder implements MeasureReportBuilder<Measure, Mea
         var report = bc.report();
 
         // Add evaluated resources (pre-aggregated by MeasureMultiSubjectEvaluator)
-        addEvaluatedResourceReferences(bc, sde.id(), sde.getAllEvaluatedResources());
+        addEvaluatedResourceReferences(bc, sde.id(), sde.getAllEvaluatedResourceIds());
 
         CodeableConcept concept = conceptDefToConcept(sde.code());
 
@@ -11,10 +11,15 @@ import jakarta.annotation.Nullable;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.Bundle;
@@ -386,8 +391,46 @@ public class R4MultiMeasureService implements R4MeasureEvaluatorSingle, R4Measur
 
         // create individual reports for each subject, and each measure
         // ONE bundle PER SUBJECT containing all their measure reports
-        var totalReports = subjectGroups.size() * measures.size();
-        var totalMeasures = measures.size();
+        var totalReports = new AtomicInteger(subjectGroups.size() * measures.size());
+
+        // One unit of report construction per measure and subject group, in result order. Units
+        // only read the shared CQL results and engine context. HAPI getters lazily initialize
+        // missing elements, so even reading a Measure may write to it: when the units run
+        // concurrently, each one gets its own copy of its Measure, taken before any unit starts.
+        final boolean concurrent = measureEvaluationOptions.getReportConstructionExecutor() != null
+                && measures.size() * subjectGroups.size() > 1;
+        final List<Supplier<MeasureDefAndR4MeasureReport>> units = new ArrayList<>();
+        for (Measure sharedMeasure : measures) {
+            for (List<String> subjectGroup : subjectGroups) {
+                final Measure measure = concurrent ? sharedMeasure.copy() : sharedMeasure;
+                units.add(() -> {
+                    final MeasureDefAndR4MeasureReport measureDefAndR4MeasureReport = evaluateMeasureCaptureDef(
+                            r4Processor,
+                            r4MeasureServiceUtils,
+                            compositeEvaluationResultsPerMeasure,
+                            context,
+                            measure,
+                            periodStart,
+                            periodEnd,
+                            reportType,
+                            evalType,
+                            subjectGroup,
+                            reporter);
+
+                    measureReportMutator.accept(measureDefAndR4MeasureReport.measureReport());
+
+                    // progress feedback
+                    var measureUrl = measure.getUrl();
+                    if (StringUtils.isNotBlank(measureUrl)) {
+                        log.debug("MeasureReports remaining to evaluate {}", totalReports.getAndDecrement());
+                    }
+
+                    return measureDefAndR4MeasureReport;
+                });
+            }
+        }
+
+        final Iterator<MeasureDefAndR4MeasureReport> reports = constructReports(units).iterator();
 
         final List<List<MeasureDefAndR4MeasureReport>> results = new ArrayList<>();
 
@@ -398,6 +441,7 @@ public class R4MultiMeasureService implements R4MeasureEvaluatorSingle, R4Measur
             results.add(result);
         }
 
+        var totalMeasures = measures.size();
         for (Measure measure : measures) {
 
             if (subjectGroups.size() > 1) {
@@ -405,32 +449,8 @@ public class R4MultiMeasureService implements R4MeasureEvaluatorSingle, R4Measur
                 results.add(result);
             }
 
-            for (List<String> subjectGroup : subjectGroups) {
-
-                final MeasureDefAndR4MeasureReport measureDefAndR4MeasureReport = evaluateMeasureCaptureDef(
-                        r4Processor,
-                        r4MeasureServiceUtils,
-                        compositeEvaluationResultsPerMeasure,
-                        context,
-                        measure,
-                        periodStart,
-                        periodEnd,
-                        reportType,
-                        evalType,
-                        subjectGroup,
-                        reporter);
-
-                measureReportMutator.accept(measureDefAndR4MeasureReport.measureReport());
-
-                if (result != null) {
-                    result.add(measureDefAndR4MeasureReport);
-                }
-
-                // progress feedback
-                var measureUrl = measure.getUrl();
-                if (StringUtils.isNotBlank(measureUrl)) {
-                    log.debug("MeasureReports remaining to evaluate {}", totalReports--);
-                }
+            for (int i = 0; i < subjectGroups.size(); i++) {
+                result.add(reports.next());
             }
 
             if (measure.hasUrl()) {
@@ -444,6 +464,35 @@ public class R4MultiMeasureService implements R4MeasureEvaluatorSingle, R4Measur
         return results;
     }
 
+    /**
+     * Run the report construction units on the configured
+     * {@link MeasureEvaluationOptions#getReportConstructionExecutor() executor}, or sequentially
+     * on this thread if there isn't one.
+     *
+     * @return the constructed reports, in the order of the units
+     */
+    private List<MeasureDefAndR4MeasureReport> constructReports(
+            List<Supplier<MeasureDefAndR4MeasureReport>> units) {
+        var executor = measureEvaluationOptions.getReportConstructionExecutor();
+        if (executor == null || units.size() < 2) {
+            return units.stream().map(Supplier::get).toList();
+        }
+
+        final List<CompletableFuture<MeasureDefAndR4MeasureReport>> futures = units.stream()
+                .map(unit -> CompletableFuture.supplyAsync(unit, executor))
+                .toList();
+
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InternalErrorException("MeasureReport construction failed: " + e.getMessage(), e);
+        }
+    }
+
     private MeasureDefAndR4MeasureReport evaluateMeasureCaptureDef(
             R4MeasureProcessor r4Processor,
             R4MeasureServiceUtils r4MeasureServiceUtils,
@@ -36,6 +36,7 @@ public class QuestionnaireResponseProcessor {
     protected IRepository repository;
     protected CrSettings crSettings;
     protected IExtractProcessor extractProcessor;
+    protected String partitionId;
 
     public QuestionnaireResponseProcessor(IRepository repository) {
         this(repository, CrSettings.getDefault());
@@ -62,6 +63,16 @@ public class QuestionnaireResponseProcessor {
         }
     }
 
+    /**
+     * The partition (e.g. the tenant) the repository belongs to. Extraction plans are shared between the
+     * processors of a partition through {@link CrSettings#getExtractionPlanCache()}, so repositories that
+     * may hold different profiles under the same canonical should be given different partitions.
+     */
+    public QuestionnaireResponseProcessor withPartitionId(String partitionId) {
+        this.partitionId = partitionId;
+        return this;
+    }
+
     public FhirContext fhirContext() {
         return repository.fhirContext();
     }
@@ -128,13 +139,14 @@ public class QuestionnaireResponseProcessor {
         var questionnaire = resolveQuestionnaire(questionnaireResponse, questionnaireId);
         // var subject = (IBaseReference) modelResolver.resolvePath(questionnaireResponse, "subject");
         var request = new ExtractRequest(
-                questionnaireResponse,
-                questionnaire,
-                // subject == null ? null : subject.getReferenceElement(),
-                parameters,
-                data,
-                libraryEngine,
-                null);
+                        questionnaireResponse,
+                        questionnaire,
+                        // subject == null ? null : subject.getReferenceElement(),
+                        parameters,
+                        data,
+                        libraryEngine,
+                        null)
+                .withExtractionPlanCache(crSettings.getExtractionPlanCache(), partitionId);
         var processor = extractProcessor != null ? extractProcessor : new ExtractProcessor();
         return processor.extract(request);
     }
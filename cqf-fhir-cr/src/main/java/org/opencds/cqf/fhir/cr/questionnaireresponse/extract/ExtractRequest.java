@@ -35,6 +35,9 @@ public class ExtractRequest implements IQuestionnaireRequest {
     private final Map<String, String> referencedLibraries;
     private final IInputParameterResolver inputParameterResolver;
     private IBaseOperationOutcome operationOutcome;
+    private ExtractionPlanCache extractionPlanCache;
+    private String partitionId;
+    private ExtractionPlan extractionPlan;
 
     public ExtractRequest(
             IBaseResource questionnaireResponse,
@@ -80,6 +83,27 @@ public class ExtractRequest implements IQuestionnaireRequest {
         return questionnaireAdapter;
     }
 
+    /**
+     * Shares the extraction plan of this request's Questionnaire with the other requests of the partition
+     * through the given cache. Without a cache the plan only lives as long as the request.
+     */
+    public ExtractRequest withExtractionPlanCache(ExtractionPlanCache extractionPlanCache, String partitionId) {
+        this.extractionPlanCache = extractionPlanCache;
+        this.partitionId = partitionId;
+        return this;
+    }
+
+    public String getPartitionId() {
+        return partitionId;
+    }
+
+    public ExtractionPlan getExtractionPlan() {
+        if (extractionPlan == null) {
+            extractionPlan = extractionPlanCache == null ? new ExtractionPlan() : extractionPlanCache.forRequest(this);
+        }
+        return extractionPlan;
+    }
+
     public IItemComponentAdapter getQuestionnaireItem(IItemComponentAdapter item) {
         return hasQuestionnaire()
                 ? getQuestionnaireItem(item, getQuestionnaireAdapter().getItem())
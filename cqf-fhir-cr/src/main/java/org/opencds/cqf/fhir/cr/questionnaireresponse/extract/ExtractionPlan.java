@@ -0,0 +1,110 @@
+package org.opencds.cqf.fhir.cr.questionnaireresponse.extract;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.fhirpath.IFhirPath;
+import ca.uhn.fhir.fhirpath.IFhirPath.IParsedExpression;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
+import org.opencds.cqf.fhir.utility.adapter.IStructureDefinitionAdapter;
+
+/**
+ * The parts of a definition-based extraction that depend only on the Questionnaire and the profiles it
+ * references: resolved profiles, element paths, property definitions, slice templates, default values and
+ * parsed FHIRPath expressions. Plans are shared between extractions through an {@link ExtractionPlanCache} so
+ * that each $extract only walks the answers and assigns values.
+ * <p/>
+ * Profiles that cannot be resolved are not remembered. Values taken from a profile are copied before they are
+ * handed out, so extracted resources never share elements with the plan.
+ */
+public class ExtractionPlan {
+    /**
+     * The fixed or pattern values of the child elements of a slice, keyed by path relative to the slice,
+     * and the url of the extension the slice is constrained to, if any.
+     */
+    record SliceTemplate(List<ImmutablePair<String, IBase>> fixedValues, IBase extensionUrl) {}
+
+    private final Map<String, IStructureDefinitionAdapter> profiles = new ConcurrentHashMap<>();
+    private final Map<String, String> paths = new ConcurrentHashMap<>();
+    private final Map<String, HashMap<String, BaseRuntimeChildDefinition>> propertyDefinitions =
+            new ConcurrentHashMap<>();
+    private final Map<String, Optional<String>> elementTypes = new ConcurrentHashMap<>();
+    private final Map<String, SliceTemplate> sliceTemplates = new ConcurrentHashMap<>();
+    private final Map<String, List<ImmutablePair<String, IBase>>> defaultValues = new ConcurrentHashMap<>();
+    private final Map<String, IParsedExpression> fhirPathExpressions = new ConcurrentHashMap<>();
+
+    ExtractionPlan() {}
+
+    Optional<IStructureDefinitionAdapter> getProfile(
+            String canonical, Function<String, Optional<IStructureDefinitionAdapter>> resolver) {
+        var cached = profiles.get(canonical);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        var resolved = resolver.apply(canonical);
+        resolved.ifPresent(profile -> profiles.putIfAbsent(canonical, profile));
+        return resolved;
+    }
+
+    String getPath(IStructureDefinitionAdapter profile, String id, Supplier<String> resolver) {
+        return paths.computeIfAbsent(key(profile, id), k -> resolver.get());
+    }
+
+    /**
+     * The returned map is shared by every extraction using this plan and must not be modified.
+     */
+    HashMap<String, BaseRuntimeChildDefinition> getPropertyDefinitions(
+            String resourceType,
+            IStructureDefinitionAdapter profile,
+            String[] identifiers,
+            Supplier<HashMap<String, BaseRuntimeChildDefinition>> resolver) {
+        return propertyDefinitions.computeIfAbsent(
+                key(profile, resourceType + "." + String.join(".", identifiers)), k -> resolver.get());
+    }
+
+    String getElementType(IStructureDefinitionAdapter profile, String path, Supplier<String> resolver) {
+        return elementTypes
+                .computeIfAbsent(key(profile, path), k -> Optional.ofNullable(resolver.get()))
+                .orElse(null);
+    }
+
+    SliceTemplate getSliceTemplate(
+            IStructureDefinitionAdapter profile, String sliceName, Supplier<SliceTemplate> resolver) {
+        return sliceTemplates.computeIfAbsent(key(profile, sliceName), k -> resolver.get());
+    }
+
+    List<ImmutablePair<String, IBase>> getDefaultValues(
+            IStructureDefinitionAdapter profile, Supplier<List<ImmutablePair<String, IBase>>> resolver) {
+        return defaultValues.computeIfAbsent(key(profile, ""), k -> resolver.get());
+    }
+
+    IParsedExpression getFhirPathExpression(IFhirPath fhirPath, String expression) {
+        return fhirPathExpressions.computeIfAbsent(expression, e -> {
+            try {
+                return fhirPath.parse(e);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalArgumentException("Unable to parse FHIRPath expression: %s".formatted(e), ex);
+            }
+        });
+    }
+
+    /**
+     * Copies a value taken from a profile so it can be set on an extracted resource.
+     */
+    static IBase copyOf(IAdapterFactory adapterFactory, IBase value) {
+        return value == null ? null : adapterFactory.createBase(value).copy();
+    }
+
+    private static String key(IStructureDefinitionAdapter profile, String part) {
+        return (profile == null ? "" : profile.getCanonical()) + "#" + part;
+    }
+}
@@ -0,0 +1,73 @@
+package org.opencds.cqf.fhir.cr.questionnaireresponse.extract;
+
+import ca.uhn.fhir.context.FhirVersionEnum;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+
+/**
+ * The {@link ExtractionPlan}s of definition-based extractions, cached per Questionnaire (url|version,
+ * including the resource's versionId and lastUpdated). The cache lives on {@link
+ * org.opencds.cqf.fhir.cr.CrSettings}, so it outlives the repositories and processors created for each
+ * request.
+ * <p/>
+ * Profiles are resolved from the repository of the request, so plans are kept apart per partition (e.g.
+ * a tenant): two partitions may hold different profiles under the same canonical. Requests without a
+ * partition share the default one, so callers serving several repositories with different profiles from
+ * the same settings should give each of them a partition.
+ * <p/>
+ * A plan is dropped when the Questionnaire changes, after {@link #PLAN_TTL} so that updated profiles are
+ * picked up, or explicitly through {@link #invalidate(String)} and {@link #invalidateAll()}.
+ */
+public class ExtractionPlanCache {
+    static final Duration PLAN_TTL = Duration.ofMinutes(10);
+    private static final String DEFAULT_PARTITION = "";
+
+    private final Cache<String, Cache<PlanKey, ExtractionPlan>> plans = CacheBuilder.newBuilder().build();
+
+    private record PlanKey(
+            FhirVersionEnum fhirVersion, String url, String version, String versionId, Long lastUpdated) {}
+
+    /**
+     * Returns the cached plan for the request's Questionnaire in the request's partition, or a plan scoped
+     * to the request if the Questionnaire has no url.
+     */
+    public ExtractionPlan forRequest(ExtractRequest request) {
+        var questionnaire = request.getQuestionnaireAdapter();
+        if (questionnaire == null || !questionnaire.hasUrl()) {
+            return new ExtractionPlan();
+        }
+        var meta = questionnaire.get().getMeta();
+        var key = new PlanKey(
+                request.getFhirVersion(),
+                questionnaire.getUrl(),
+                questionnaire.getVersion(),
+                meta.getVersionId(),
+                meta.getLastUpdated() == null ? null : meta.getLastUpdated().getTime());
+        var partition = request.getPartitionId() == null ? DEFAULT_PARTITION : request.getPartitionId();
+        return plans.asMap()
+                .computeIfAbsent(partition, p -> newPlanCache())
+                .asMap()
+                .computeIfAbsent(key, k -> new ExtractionPlan());
+    }
+
+    private static Cache<PlanKey, ExtractionPlan> newPlanCache() {
+        return CacheBuilder.newBuilder().maximumSize(500).expireAfterWrite(PLAN_TTL).build();
+    }
+
+    /**
+     * Drops the cached plans of every version of the Questionnaire with the given url, in every partition.
+     */
+    public void invalidate(String questionnaireUrl) {
+        plans.asMap()
+                .values()
+                .forEach(partition -> partition.asMap().keySet().removeIf(key -> key.url().equals(questionnaireUrl)));
+    }
+
+    /**
+     * Drops all cached plans, e.g. when the profiles referenced by Questionnaires have changed.
+     */
+    public void invalidateAll() {
+        plans.invalidateAll();
+    }
+}
@@ -216,23 +216,30 @@ public class ProcessDefinitionItem {
             ExtractRequest request, IResourceAdapter resource, Optional<IStructureDefinitionAdapter> profile) {
         // If we have the profile go through each differential element and add any default values
         if (profile.isPresent()) {
-            var defaultElements = profile.get().getDifferentialElements().stream()
-                    .filter(IElementDefinitionAdapter::hasDefaultOrFixedOrPattern)
-                    .toList();
-            defaultElements.forEach(e -> {
-                var value = e.getDefaultOrFixedOrPattern();
-                if (value != null) {
-                    var path = getPath(e);
-                    var idSplit = e.getId().split(":");
-                    // Ignore child slices, they are handled while processing the parent item
-                    if (!(idSplit.length > 1 && idSplit[1].contains("."))) {
-                        resource.setValue(path, value);
-                    }
-                }
-            });
+            request.getExtractionPlan()
+                    .getDefaultValues(profile.get(), () -> getDefaultValues(profile.get()))
+                    .forEach(pathValue -> resource.setValue(
+                            pathValue.left, ExtractionPlan.copyOf(request.getAdapterFactory(), pathValue.right)));
         }
     }
 
+    protected List<ImmutablePair<String, IBase>> getDefaultValues(IStructureDefinitionAdapter profile) {
+        var defaultValues = new ArrayList<ImmutablePair<String, IBase>>();
+        profile.getDifferentialElements().stream()
+                .filter(IElementDefinitionAdapter::hasDefaultOrFixedOrPattern)
+                .forEach(e -> {
+                    var value = e.getDefaultOrFixedOrPattern();
+                    if (value != null) {
+                        var idSplit = e.getId().split(":");
+                        // Ignore child slices, they are handled while processing the parent item
+                        if (!(idSplit.length > 1 && idSplit[1].contains("."))) {
+                            defaultValues.add(new ImmutablePair<>(getPath(e), value));
+                        }
+                    }
+                });
+        return defaultValues;
+    }
+
     @SuppressWarnings("unchecked")
     protected void processValueExtension(
             ExtractRequest request,
@@ -261,7 +268,12 @@ public class ProcessDefinitionItem {
         if (expression.getLanguage().equals("text/fhirpath")) {
             var fhirPath =
                     FhirPathCache.cachedForContext(request.getRepository().fhirContext());
-            return fhirPath.evaluate(request.getContextVariable(), expression.getExpression(), IBase.class);
+            var parsed = request instanceof ExtractRequest extractRequest
+                    ? extractRequest.getExtractionPlan().getFhirPathExpression(fhirPath, expression.getExpression())
+                    : null;
+            return parsed == null
+                    ? fhirPath.evaluate(request.getContextVariable(), expression.getExpression(), IBase.class)
+                    : fhirPath.evaluate(request.getContextVariable(), parsed, IBase.class);
         } else {
             return expressionProcessor.getExpressionResult(request, expression);
         }
@@ -274,14 +286,21 @@ public class ProcessDefinitionItem {
         var id = split[1];
         // TODO: check if profile url matches canonical
         var adapter = profile.orElseGet(() -> getProfile(request, canonical).orElse(null));
-        var path = getPath(adapter, id);
+        var path = request.getExtractionPlan().getPath(adapter, id, () -> getPath(adapter, id));
         return new ImmutablePair<>(path, adapter);
     }
 
     protected Optional<IStructureDefinitionAdapter> getProfile(ExtractRequest request, String definition) {
         if (StringUtils.isNotBlank(definition)) {
-            var canonical =
-                    canonicalTypeForVersion(request.getFhirVersion(), definition.split("#")[0]);
+            return request.getExtractionPlan()
+                    .getProfile(definition.split("#")[0], canonical -> resolveProfile(request, canonical));
+        }
+        return Optional.empty();
+    }
+
+    protected Optional<IStructureDefinitionAdapter> resolveProfile(ExtractRequest request, String profileUrl) {
+        if (StringUtils.isNotBlank(profileUrl)) {
+            var canonical = canonicalTypeForVersion(request.getFhirVersion(), profileUrl);
             try {
                 return Optional.of((IStructureDefinitionAdapter)
                         request.getAdapterFactory().createKnowledgeArtifactAdapter((IDomainResource)
@@ -372,8 +391,7 @@ public class ProcessDefinitionItem {
                     element = newBase(
                             blockDef.getChildByName(blockDef.getElementName()).getImplementingClass());
                 } else if (adapter != null) {
-                    var elementDef = adapter.getElementByPath(path);
-                    element = newBaseForVersion(elementDef.getTypeCode(), request.getFhirVersion());
+                    element = newBaseForVersion(getElementType(request, adapter, path), request.getFhirVersion());
                 } else if (propertyDefs.get(prop) instanceof RuntimeChildChoiceDefinition choiceDef) {
                     element = newBase(getChoices(choiceDef).get(0));
                 } else {
@@ -503,33 +521,47 @@ public class ProcessDefinitionItem {
         var sliceClass = slicePropertyDef instanceof BaseRuntimeChildDatatypeDefinition def
                 ? def.getDatatype()
                 : getClassForTypeAndVersion("Extension", request.getFhirVersion());
-        var sliceElements = profile.getSliceElements(sliceName);
         var answerPath = getChildProperty(identifiers, sliceIndex + 1);
-        var extensionUrl = getExtensionUrl(profile, sliceName);
+        var sliceTemplate = request.getExtractionPlan()
+                .getSliceTemplate(profile, sliceName, () -> getSliceTemplate(profile, sliceName));
         answers.forEach(answer -> {
             var answerValue = answer.getValue();
             if (answerValue != null) {
                 var sliceValue = request.getAdapterFactory().createBase(newBase(sliceClass));
                 setAnswerValue(request, sliceValue, propertyDefs.get(answerPath), answerPath, answerValue, profile);
-                for (var slice : sliceElements) {
-                    var sliceElementPath = slice.getId().replace("%s.%s.".formatted(profile.getType(), sliceName), "");
-                    var sliceElementValue = slice.getDefaultOrFixedOrPattern();
+                for (var fixedValue : sliceTemplate.fixedValues()) {
+                    var sliceElementPath = fixedValue.left;
                     setAnswerValue(
                             request,
                             sliceValue,
                             propertyDefs.get(sliceElementPath),
                             sliceElementPath,
-                            sliceElementValue,
+                            ExtractionPlan.copyOf(request.getAdapterFactory(), fixedValue.right),
                             profile);
                 }
                 if (slicePath.equals("extension")) {
-                    setAnswerValue(request, sliceValue, propertyDefs.get("url"), "url", extensionUrl, profile);
+                    setAnswerValue(
+                            request,
+                            sliceValue,
+                            propertyDefs.get("url"),
+                            "url",
+                            ExtractionPlan.copyOf(request.getAdapterFactory(), sliceTemplate.extensionUrl()),
+                            profile);
                 }
                 setAnswerValue(request, parent, propertyDefs.get(sliceName), slicePath, sliceValue.get(), profile);
             }
         });
     }
 
+    protected ExtractionPlan.SliceTemplate getSliceTemplate(IStructureDefinitionAdapter profile, String sliceName) {
+        var prefix = "%s.%s.".formatted(profile.getType(), sliceName);
+        List<ImmutablePair<String, IBase>> fixedValues = profile.getSliceElements(sliceName).stream()
+                .map(slice -> new ImmutablePair<String, IBase>(
+                        slice.getId().replace(prefix, ""), slice.getDefaultOrFixedOrPattern()))
+                .toList();
+        return new ExtractionPlan.SliceTemplate(fixedValues, getExtensionUrl(profile, sliceName));
+    }
+
     protected IBase getExtensionUrl(IStructureDefinitionAdapter profile, String sliceName) {
         IBase retValue = null;
         var sliceElement = profile.getElement(profile.getType() + "." + sliceName);
@@ -576,6 +608,19 @@ public class ProcessDefinitionItem {
             BaseRuntimeElementDefinition<?> resourceDefinition,
             IStructureDefinitionAdapter adapter,
             String[] identifiers) {
+        return request.getExtractionPlan()
+                .getPropertyDefinitions(
+                        resourceDefinition.getName(),
+                        adapter,
+                        identifiers,
+                        () -> resolvePropertyDefinitions(request, resourceDefinition, adapter, identifiers));
+    }
+
+    protected HashMap<String, BaseRuntimeChildDefinition> resolvePropertyDefinitions(
+            ExtractRequest request,
+            BaseRuntimeElementDefinition<?> resourceDefinition,
+            IStructureDefinitionAdapter adapter,
+            String[] identifiers) {
         var props = new HashMap<String, BaseRuntimeChildDefinition>();
         var targetDef = resourceDefinition;
         for (int i = 0; i < identifiers.length; i++) {
@@ -617,9 +662,7 @@ public class ProcessDefinitionItem {
             IBase answerValue,
             String answerPath,
             IStructureDefinitionAdapter profile) {
-        var pathElement =
-                profile == null ? null : profile.getElementByPath(answerPath.split(":")[0]);
-        var answerType = pathElement == null ? null : pathElement.getTypeCode();
+        var answerType = profile == null ? null : getElementType(request, profile, answerPath.split(":")[0]);
         if (answerType != null && !answerValue.fhirType().equals(answerType)) {
             var newAnswerValue =
                     request.getAdapterFactory().createBase(newBaseForVersion(answerType, request.getFhirVersion()));
@@ -640,6 +683,13 @@ public class ProcessDefinitionItem {
                 : answerValue;
     }
 
+    protected String getElementType(ExtractRequest request, IStructureDefinitionAdapter profile, String path) {
+        return request.getExtractionPlan().getElementType(profile, path, () -> {
+            var element = profile.getElementByPath(path);
+            return element == null ? null : element.getTypeCode();
+        });
+    }
+
     protected String getDefinition(ItemPair itemPair) {
         return itemPair.getItem() != null && itemPair.getItem().hasDefinition()
                 ? itemPair.getItem().getDefinition()
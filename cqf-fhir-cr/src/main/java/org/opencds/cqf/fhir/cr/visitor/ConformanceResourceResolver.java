@@ -9,6 +9,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.utilities.npm.NpmPackage;
 import org.opencds.cqf.fhir.utility.SearchHelper;
@@ -39,6 +42,8 @@ public class ConformanceResourceResolver {
     private final DefaultProfileValidationSupport coreSupport;
     private Map<String, IBaseResource> packageCache; // lazy, built on first SD miss
     private Map<String, IBaseResource> resourceCache; // lazy, built on first VS/CS miss
+    private final Map<String, Optional<IBaseResource>> structureDefinitions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keyElementValueSets = new ConcurrentHashMap<>();
 
     public ConformanceResourceResolver(IRepository repository) {
         this(repository, Collections.emptyList(), Collections.emptyList());
@@ -78,7 +83,8 @@ public class ConformanceResourceResolver {
     }
 
     /**
-     * Resolve a StructureDefinition by canonical URL.
+     * Resolve a StructureDefinition by canonical URL. Each URL is resolved once for the lifetime of
+     * the resolver.
      * Resolution order: federated repository → NPM SD cache → core FHIR
      */
     public IBaseResource resolveStructureDefinition(String canonicalUrl) {
@@ -86,6 +92,23 @@ public class ConformanceResourceResolver {
             return null;
         }
 
+        return structureDefinitions
+                .computeIfAbsent(canonicalUrl, url -> Optional.ofNullable(resolveStructureDefinitionUncached(url)))
+                .orElse(null);
+    }
+
+    /**
+     * The ValueSets bound to the key elements of each profile analyzed with this resolver, by
+     * profile canonical and version. Base definitions are shared by many profiles, so their
+     * analysis is reused.
+     */
+    Map<String, Set<String>> getKeyElementValueSetCache() {
+        return keyElementValueSets;
+    }
+
+    // Synchronized so that profiles may be analyzed concurrently while the repository is used by
+    // one thread at a time
+    private synchronized IBaseResource resolveStructureDefinitionUncached(String canonicalUrl) {
         // Tier 1: Federated repository
         var result = resolveFromRepository(canonicalUrl);
         if (result != null) {
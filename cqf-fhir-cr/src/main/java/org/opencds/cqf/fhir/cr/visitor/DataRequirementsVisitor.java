@@ -7,6 +7,8 @@ import static org.opencds.cqf.fhir.utility.adapter.IAdapterFactory.createAdapter
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -18,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
@@ -25,7 +28,9 @@ import org.cqframework.cql.cql2elm.CqlTranslator;
 import org.cqframework.cql.cql2elm.LibraryManager;
 import org.cqframework.cql.cql2elm.LibrarySourceProvider;
 import org.cqframework.cql.cql2elm.ModelManager;
+import org.cqframework.cql.cql2elm.model.CompiledLibrary;
 import org.cqframework.cql.elm.requirements.fhir.DataRequirementsProcessor;
+import org.hl7.elm.r1.VersionedIdentifier;
 import org.hl7.fhir.convertors.advisors.impl.BaseAdvisor_30_50;
 import org.hl7.fhir.convertors.advisors.impl.BaseAdvisor_40_50;
 import org.hl7.fhir.convertors.conv30_50.VersionConvertor_30_50;
@@ -62,6 +67,10 @@ import org.slf4j.LoggerFactory;
 public class DataRequirementsVisitor extends BaseKnowledgeArtifactVisitor {
     private static final Logger logger = LoggerFactory.getLogger(DataRequirementsVisitor.class);
 
+    // Keyed by the identity of the compiled library, so entries go once the library cache lets go of it
+    private static final Cache<CompiledLibrary, Map<String, Library>> GATHERED_REQUIREMENTS =
+            CacheBuilder.newBuilder().weakKeys().maximumSize(1_000).build();
+
     protected DataRequirementsProcessor dataRequirementsProcessor;
     protected EvaluationSettings evaluationSettings;
     protected final ITerminologyProviderRouter terminologyProviderRouter;
@@ -96,31 +105,13 @@ public class DataRequirementsVisitor extends BaseKnowledgeArtifactVisitor {
         library.setType("module-definition");
         var referencedLibraries = adapter.retrieveReferencedLibraries(repository);
         if (!referencedLibraries.isEmpty()) {
-            var libraryManager = createLibraryManager();
-            referencedLibraries.forEach((k, v) -> {
-                var primaryLibrary =
-                        referencedLibraries.values().stream().toList().get(0);
-                var translator = translateLibrary(primaryLibrary.get(), libraryManager);
-                var cqlFhirParametersConverter = Engines.getCqlFhirParametersConverter(fhirContext());
-                var evaluationParameters = parameters
-                        .map(cqlFhirParametersConverter::toCqlParameters)
-                        .orElse(null);
-
-                var r5Library = dataRequirementsProcessor.gatherDataRequirements(
-                        libraryManager,
-                        translator.getTranslatedLibrary(),
-                        evaluationSettings.getCqlOptions().getCqlCompilerOptions(),
-                        null,
-                        evaluationParameters,
-                        true,
-                        true);
-                var convertedLibrary = convertAndCreateAdapter(r5Library);
-                convertedLibrary.getDataRequirement().stream()
-                        .map(IAdapter::get)
-                        .map(ICompositeType.class::cast)
-                        .forEach(library::addDataRequirement);
-                convertedLibrary.getRelatedArtifact().forEach(library::addRelatedArtifact);
-            });
+            var primaryLibrary = referencedLibraries.values().stream().toList().get(0);
+            var convertedLibrary = convertAndCreateAdapter(gatherDataRequirements(primaryLibrary, parameters));
+            convertedLibrary.getDataRequirement().stream()
+                    .map(IAdapter::get)
+                    .map(ICompositeType.class::cast)
+                    .forEach(library::addDataRequirement);
+            convertedLibrary.getRelatedArtifact().forEach(library::addRelatedArtifact);
         }
 
         var relatedArtifacts = stripInvalid(library);
@@ -538,6 +529,59 @@ public class DataRequirementsVisitor extends BaseKnowledgeArtifactVisitor {
         };
     }
 
+    /**
+     * Gathers the effective data requirements of a library and the libraries it includes. The
+     * library is compiled at most once, the ELM being reused from the library cache of the
+     * evaluation settings, and the requirements are remembered for as long as that compiled library
+     * is cached.
+     */
+    protected Library gatherDataRequirements(ILibraryAdapter library, Optional<IBaseParameters> parameters) {
+        var libraryManager = createLibraryManager();
+        var compiledLibrary = getCompiledLibrary(library, libraryManager);
+        var parametersKey = parameters
+                .map(p -> fhirContext().newJsonParser().encodeResourceToString(p))
+                .orElse("");
+        var gathered = GATHERED_REQUIREMENTS
+                .asMap()
+                .computeIfAbsent(compiledLibrary, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(parametersKey, k -> {
+                    var cqlFhirParametersConverter = Engines.getCqlFhirParametersConverter(fhirContext());
+                    var evaluationParameters = parameters
+                            .map(cqlFhirParametersConverter::toCqlParameters)
+                            .orElse(null);
+                    return dataRequirementsProcessor.gatherDataRequirements(
+                            libraryManager,
+                            compiledLibrary,
+                            evaluationSettings.getCqlOptions().getCqlCompilerOptions(),
+                            null,
+                            evaluationParameters,
+                            true,
+                            true);
+                });
+        // The remembered requirements are shared, callers get a copy they are free to modify
+        return gathered.copy();
+    }
+
+    private CompiledLibrary getCompiledLibrary(ILibraryAdapter library, LibraryManager libraryManager) {
+        var libraryCache = evaluationSettings.getLibraryCache();
+        if (library.getName() != null) {
+            var cached = libraryCache.get(
+                    new VersionedIdentifier().withId(library.getName()).withVersion(library.getVersion()));
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        var compiledLibrary = translateLibrary(library.get(), libraryManager).getTranslatedLibrary();
+        var identifier = compiledLibrary.getIdentifier();
+        if (identifier != null && identifier.getId() != null) {
+            libraryCache.putIfAbsent(
+                    new VersionedIdentifier().withId(identifier.getId()).withVersion(identifier.getVersion()),
+                    compiledLibrary);
+        }
+        return compiledLibrary;
+    }
+
     protected CqlTranslator getTranslator(InputStream cqlStream, LibraryManager libraryManager) {
         CqlTranslator translator;
         try {
@@ -586,10 +630,11 @@ public class DataRequirementsVisitor extends BaseKnowledgeArtifactVisitor {
         var allKeyValueSets = new HashSet<String>();
         var analyzer = new KeyElementAnalyzer(conformanceResolver, fhirVersion());
 
-        // Scan all dependencies to find StructureDefinitions and extract their key ValueSets
+        // Scan all dependencies to find StructureDefinitions
+        var profiles = new HashMap<String, IBaseResource>();
         for (var dependency : igAdapter.getDependencies(federatedRepo)) {
             var reference = dependency.getReference();
-            if (reference == null) {
+            if (reference == null || profiles.containsKey(reference)) {
                 continue;
             }
             var resourceType = conformanceResolver.getResourceType(Canonicals.getUrl(reference));
@@ -598,14 +643,23 @@ public class DataRequirementsVisitor extends BaseKnowledgeArtifactVisitor {
             }
             var sd = conformanceResolver.resolveStructureDefinition(Canonicals.getUrl(reference));
             if (sd != null) {
-                try {
-                    allKeyValueSets.addAll(analyzer.getKeyElementValueSets(sd));
-                } catch (Exception e) {
-                    logger.debug("Error analyzing key elements for {}: {}", reference, e.getMessage());
-                }
+                profiles.put(reference, sd);
             }
         }
 
+        // Extract their key ValueSets, the profiles are independent so they are analyzed in parallel
+        profiles.entrySet().parallelStream()
+                .map(profile -> {
+                    try {
+                        return analyzer.getKeyElementValueSets(profile.getValue());
+                    } catch (Exception e) {
+                        logger.debug("Error analyzing key elements for {}: {}", profile.getKey(), e.getMessage());
+                        return Set.<String>of();
+                    }
+                })
+                .toList()
+                .forEach(allKeyValueSets::addAll);
+
         if (allKeyValueSets.isEmpty()) {
             return Set.of();
         }
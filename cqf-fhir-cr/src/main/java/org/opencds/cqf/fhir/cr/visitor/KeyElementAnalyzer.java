@@ -1,11 +1,14 @@
 package org.opencds.cqf.fhir.cr.visitor;
 
 import ca.uhn.fhir.context.FhirVersionEnum;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
 import org.opencds.cqf.fhir.utility.adapter.IElementDefinitionAdapter;
@@ -52,6 +55,43 @@ public class KeyElementAnalyzer {
 
     private final ConformanceResourceResolver resolver;
     private final IAdapterFactory adapterFactory;
+    // Snapshot elements of the base type definitions by path, empty when the definition is not found
+    private final Map<String, Optional<Map<String, IElementDefinitionAdapter>>> baseElementsByPath =
+            new ConcurrentHashMap<>();
+
+    /**
+     * An index over the snapshot elements of a profile, built once per profile so that child and
+     * ancestor lookups do not scan every element.
+     */
+    private static class ElementIndex {
+        private final List<IElementDefinitionAdapter> elements;
+        private final Map<String, String> idToPath = new HashMap<>();
+        private final Map<String, String> pathToId = new HashMap<>();
+        private final Map<String, List<IElementDefinitionAdapter>> childrenByParentPath = new HashMap<>();
+
+        private ElementIndex(List<IElementDefinitionAdapter> elements) {
+            this.elements = elements;
+            for (var element : elements) {
+                String id = element.getId();
+                String path = element.getPath();
+                if (id != null && !idToPath.containsKey(id)) {
+                    idToPath.put(id, path);
+                }
+                if (path == null) {
+                    continue;
+                }
+                if (id != null) {
+                    pathToId.put(path, id);
+                }
+                int lastDot = path.lastIndexOf('.');
+                if (lastDot > 0) {
+                    childrenByParentPath
+                            .computeIfAbsent(path.substring(0, lastDot), p -> new ArrayList<>())
+                            .add(element);
+                }
+            }
+        }
+    }
 
     public KeyElementAnalyzer(ConformanceResourceResolver resolver, FhirVersionEnum fhirVersion) {
         this.resolver = resolver;
@@ -85,8 +125,8 @@ public class KeyElementAnalyzer {
                 break;
             }
 
-            // Steps A-C for current profile
-            valueSets.addAll(analyzeProfile(sd));
+            // Steps A-C for current profile, shared by the profiles derived from it
+            valueSets.addAll(analyzeProfileCached(sd));
 
             // Move to base definition
             currentProfile = resolveBaseDefinition(sd);
@@ -95,6 +135,15 @@ public class KeyElementAnalyzer {
         return valueSets;
     }
 
+    private Set<String> analyzeProfileCached(IStructureDefinitionAdapter sd) {
+        String url = sd.getUrl();
+        if (resolver == null || url == null) {
+            return analyzeProfile(sd);
+        }
+        var key = sd.getVersion() == null ? url : url + "|" + sd.getVersion();
+        return resolver.getKeyElementValueSetCache().computeIfAbsent(key, k -> Set.copyOf(analyzeProfile(sd)));
+    }
+
     /**
      * Analyzes a single profile level: key eligibility, mustSupport scan,
      * differential hash, scanForKeyElements, and binding extraction.
@@ -119,14 +168,16 @@ public class KeyElementAnalyzer {
                 }
             }
 
+            var index = new ElementIndex(snapshotElements);
+
             // Step 2: Build mustSupport map
-            Map<String, Boolean> mustSupportMap = buildMustSupportMap(snapshotElements);
+            Map<String, Boolean> mustSupportMap = buildMustSupportMap(index);
 
             // Step 3: Build differential hash
             Set<String> differentialIds = buildDifferentialHash(sd);
 
             // Step 4: scanForKeyElements
-            Set<String> keyElementIds = scanForKeyElements(snapshotElements, mustSupportMap, differentialIds, sd);
+            Set<String> keyElementIds = scanForKeyElements(index, mustSupportMap, differentialIds, sd);
 
             // Step 5: Extract bindings from key elements
             for (var element : snapshotElements) {
@@ -150,16 +201,16 @@ public class KeyElementAnalyzer {
      * When element has mustSupport == true, add it AND all ancestors to map.
      * (IG Publisher lines 644-658)
      */
-    private Map<String, Boolean> buildMustSupportMap(List<IElementDefinitionAdapter> elements) {
+    private Map<String, Boolean> buildMustSupportMap(ElementIndex index) {
         Map<String, Boolean> mustSupportMap = new HashMap<>();
 
-        for (var element : elements) {
+        for (var element : index.elements) {
             if (element.getMustSupport()) {
                 String id = element.getId();
                 if (id != null) {
                     mustSupportMap.put(id, true);
                     // Add all ancestors
-                    for (String ancestorId : getAncestorIds(id, elements)) {
+                    for (String ancestorId : getAncestorIds(id, index)) {
                         mustSupportMap.putIfAbsent(ancestorId, false);
                     }
                 }
@@ -192,26 +243,26 @@ public class KeyElementAnalyzer {
      * (IG Publisher lines 680-762)
      */
     private Set<String> scanForKeyElements(
-            List<IElementDefinitionAdapter> elements,
+            ElementIndex index,
             Map<String, Boolean> mustSupportMap,
             Set<String> differentialIds,
             IStructureDefinitionAdapter sd) {
 
         Set<String> keyElements = new HashSet<>();
 
-        if (elements.isEmpty()) {
+        if (index.elements.isEmpty()) {
             return keyElements;
         }
 
         // Always add root element
-        var rootElement = elements.get(0);
+        var rootElement = index.elements.get(0);
         String rootId = rootElement.getId();
         if (rootId != null) {
             keyElements.add(rootId);
         }
 
         // Scan direct children of root, then recurse
-        scanChildren(elements, rootElement, keyElements, mustSupportMap, differentialIds, sd);
+        scanChildren(index, rootElement, keyElements, mustSupportMap, differentialIds, sd);
 
         return keyElements;
     }
@@ -220,14 +271,14 @@ public class KeyElementAnalyzer {
      * Recursively scans children of a parent element for key criteria.
      */
     private void scanChildren(
-            List<IElementDefinitionAdapter> allElements,
+            ElementIndex index,
             IElementDefinitionAdapter parent,
             Set<String> keyElements,
             Map<String, Boolean> mustSupportMap,
             Set<String> differentialIds,
             IStructureDefinitionAdapter sd) {
 
-        List<IElementDefinitionAdapter> children = getDirectChildren(allElements, parent);
+        List<IElementDefinitionAdapter> children = getDirectChildren(index, parent);
 
         for (var child : children) {
             String childId = child.getId();
@@ -238,7 +289,7 @@ public class KeyElementAnalyzer {
             if (isKeyElement(child, mustSupportMap, differentialIds)) {
                 keyElements.add(childId);
                 // Recursively scan this child's children
-                scanChildren(allElements, child, keyElements, mustSupportMap, differentialIds, sd);
+                scanChildren(index, child, keyElements, mustSupportMap, differentialIds, sd);
             }
         }
     }
@@ -339,23 +390,14 @@ public class KeyElementAnalyzer {
         String baseTypeName = basePath.substring(0, basePath.indexOf("."));
         String baseCanonical = "http://hl7.org/fhir/StructureDefinition/" + baseTypeName;
 
-        IBaseResource baseSd = resolver != null ? resolver.resolveStructureDefinition(baseCanonical) : null;
-        if (baseSd == null) {
+        var baseElements = baseElementsByPath.computeIfAbsent(baseCanonical, this::indexBaseElements);
+        if (baseElements.isEmpty()) {
             // Conservative: if we can't resolve base, treat as changed
             return true;
         }
 
-        IStructureDefinitionAdapter baseSdAdapter = adapterFactory.createStructureDefinition(baseSd);
-        List<IElementDefinitionAdapter> baseElements = baseSdAdapter.getAllSnapshotElements();
-
         // Find matching element by path
-        IElementDefinitionAdapter baseElement = null;
-        for (var be : baseElements) {
-            if (basePath.equals(be.getPath())) {
-                baseElement = be;
-                break;
-            }
-        }
+        IElementDefinitionAdapter baseElement = baseElements.get().get(basePath);
 
         if (baseElement == null) {
             // Conservative: base element not found
@@ -375,6 +417,21 @@ public class KeyElementAnalyzer {
         return !safeEquals(childStrength, baseStrength) || !safeEquals(childValueSet, baseValueSet);
     }
 
+    private Optional<Map<String, IElementDefinitionAdapter>> indexBaseElements(String baseCanonical) {
+        IBaseResource baseSd = resolver != null ? resolver.resolveStructureDefinition(baseCanonical) : null;
+        if (baseSd == null) {
+            return Optional.empty();
+        }
+
+        Map<String, IElementDefinitionAdapter> byPath = new HashMap<>();
+        for (var be : adapterFactory.createStructureDefinition(baseSd).getAllSnapshotElements()) {
+            if (be.getPath() != null) {
+                byPath.putIfAbsent(be.getPath(), be);
+            }
+        }
+        return Optional.of(byPath);
+    }
+
     /**
      * Checks if the element has any significant extensions.
      */
@@ -394,67 +451,31 @@ public class KeyElementAnalyzer {
     }
 
     /**
-     * Gets direct children of a parent element from the element list.
+     * Gets direct children of a parent element, including slices (same path, different sliceName).
      * (IG Publisher lines 1772-1788)
      */
-    private List<IElementDefinitionAdapter> getDirectChildren(
-            List<IElementDefinitionAdapter> elements, IElementDefinitionAdapter parent) {
-
+    private List<IElementDefinitionAdapter> getDirectChildren(ElementIndex index, IElementDefinitionAdapter parent) {
         String parentPath = parent.getPath();
         if (parentPath == null) {
             return List.of();
         }
-
-        int parentDepth = parentPath.split("\\.").length;
-
-        return elements.stream()
-                .filter(e -> {
-                    String ePath = e.getPath();
-                    if (ePath == null || !ePath.startsWith(parentPath + ".")) {
-                        return false;
-                    }
-                    // Direct child = depth exactly one more than parent
-                    // But also include slices (same path, different sliceName)
-                    int eDepth = ePath.split("\\.").length;
-                    return eDepth == parentDepth + 1;
-                })
-                .toList();
+        return index.childrenByParentPath.getOrDefault(parentPath, List.of());
     }
 
     /**
-     * Gets ancestor IDs for a given element ID from the element list.
+     * Gets ancestor IDs for a given element ID from the element index.
      */
-    private Set<String> getAncestorIds(String elementId, List<IElementDefinitionAdapter> elements) {
+    private Set<String> getAncestorIds(String elementId, ElementIndex index) {
         if (elementId == null || !elementId.contains(".")) {
             return new HashSet<>();
         }
 
-        var elementPath = findPathById(elementId, elements);
+        var elementPath = index.idToPath.get(elementId);
         if (elementPath == null || !elementPath.contains(".")) {
             return new HashSet<>();
         }
 
-        var pathToId = buildPathToIdMap(elements);
-        return collectAncestorIds(elementPath, pathToId);
-    }
-
-    private String findPathById(String elementId, List<IElementDefinitionAdapter> elements) {
-        for (var e : elements) {
-            if (elementId.equals(e.getId())) {
-                return e.getPath();
-            }
-        }
-        return null;
-    }
-
-    private Map<String, String> buildPathToIdMap(List<IElementDefinitionAdapter> elements) {
-        Map<String, String> pathToId = new HashMap<>();
-        for (var e : elements) {
-            if (e.getPath() != null && e.getId() != null) {
-                pathToId.put(e.getPath(), e.getId());
-            }
-        }
-        return pathToId;
+        return collectAncestorIds(elementPath, index.pathToId);
     }
 
     private Set<String> collectAncestorIds(String elementPath, Map<String, String> pathToId) {
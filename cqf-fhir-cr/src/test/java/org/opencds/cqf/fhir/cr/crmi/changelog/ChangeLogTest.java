@@ -3,10 +3,17 @@ package org.opencds.cqf.fhir.cr.crmi.changelog;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Library;
+import org.hl7.fhir.r4.model.RelatedArtifact;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.junit.jupiter.api.Test;
 import org.opencds.cqf.fhir.cr.common.ArtifactDiffProcessor;
+import org.opencds.cqf.fhir.cr.crmi.TransformProperties;
 
 class ChangeLogTest {
 
@@ -71,4 +78,51 @@ class ChangeLogTest {
     void codeVersionIsNullWhenNeitherSideHasOne() {
         assertNull(getChangelogCode(leaf(null, null)).getVersion());
     }
+
+    /**
+     * Related artifacts on the manifest are matched to the grouper's leaf value sets by OID, and the same
+     * condition declared on several artifacts for one leaf is only listed once.
+     */
+    @Test
+    void relatedArtifactConditionsArePropagatedToLeafValueSetsOnce() {
+        var leafVersion = "20240619";
+        var leaf = leaf(null, "2.81");
+        var cache = new ArtifactDiffProcessor.DiffCache();
+        cache.addSource(LEAF_URL + "|" + leafVersion, leaf);
+
+        var grouper = new ValueSet();
+        grouper.setUrl("http://example.org/fhir/ValueSet/grouper");
+        grouper.setVersion("1.0.0");
+        grouper.getCompose().addInclude().addValueSet(LEAF_URL + "|" + leafVersion);
+
+        var condition = new CodeableConcept(new Coding("http://snomed.info/sct", "417093003", "West Nile fever"));
+        var manifest = new Library();
+        manifest.setUrl("http://example.org/fhir/Library/manifest");
+        manifest.setVersion("1.0.0");
+        for (var i = 0; i < 2; i++) {
+            manifest.addRelatedArtifact()
+                    .setType(RelatedArtifact.RelatedArtifactType.DEPENDSON)
+                    .setResource(LEAF_URL + "|" + leafVersion)
+                    .addExtension(TransformProperties.vsmCondition, condition.copy());
+        }
+
+        var changelog = new ChangeLog(manifest.getUrl());
+        var manifestPage = changelog.addPage(manifest, manifest.copy());
+        var grouperPage = changelog.addPage(grouper, grouper.copy(), cache);
+        // a second page for the same URL does not shadow the first
+        changelog.addPage(grouper, grouper.copy(), cache);
+        changelog.handleRelatedArtifacts();
+
+        assertSame(manifestPage, changelog.getPage(manifest.getUrl()).orElseThrow());
+        assertSame(grouperPage, changelog.getPage(grouper.getUrl()).orElseThrow());
+        assertTrue(changelog.getPage("http://example.org/fhir/ValueSet/missing").isEmpty());
+
+        var leafValueSets = grouperPage.getNewData().getLeafValueSets();
+        assertEquals(1, leafValueSets.size());
+        var conditions = leafValueSets.get(0).getConditions();
+        assertEquals(1, conditions.size());
+        assertEquals("417093003", conditions.get(0).getCodeValue());
+        assertEquals("routine", leafValueSets.get(0).getPriority().getValue());
+        assertEquals(1, grouperPage.getOldData().getLeafValueSets().get(0).getConditions().size());
+    }
 }
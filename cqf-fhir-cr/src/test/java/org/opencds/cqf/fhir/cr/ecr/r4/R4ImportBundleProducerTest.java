@@ -12,14 +12,22 @@ import static org.opencds.cqf.fhir.cr.ecr.r4.R4ImportBundleProducer.isRootSpecif
 import static org.opencds.cqf.fhir.cr.ecr.r4.R4ImportBundleProducer.transformImportBundle;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.google.common.collect.Multimap;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
@@ -509,6 +517,68 @@ class R4ImportBundleProducerTest {
                 .count());
     }
 
+    @Test
+    void testImportChecksExistingValueSetsInBatches() {
+        var searches = new AtomicInteger();
+        repository = new InMemoryFhirRepository(fhirContext) {
+            @Override
+            public <B extends IBaseBundle, T extends IBaseResource> B search(
+                    Class<B> bundleType,
+                    Class<T> resourceType,
+                    Multimap<String, List<IQueryParameterType>> searchParameters,
+                    Map<String, String> headers) {
+                searches.incrementAndGet();
+                return super.search(bundleType, resourceType, searchParameters, headers);
+            }
+        };
+        Bundle v2Bundle = (Bundle) jsonParser.parseResource(
+                R4ImportBundleProducerTest.class.getResourceAsStream("ersd-bundle-example.json"));
+        var valueSets = v2Bundle.getEntry().stream()
+                .map(BundleEntryComponent::getResource)
+                .filter(ValueSet.class::isInstance)
+                .map(ValueSet.class::cast)
+                .toList();
+        var loaded = valueSets.get(0);
+        repository.update(loaded.copy());
+        searches.set(0);
+
+        var updatedBundleEntries = transformImportBundle(v2Bundle.copy(), repository, "www.test.com");
+
+        // one search per batch of ValueSet URLs and one for the Libraries, instead of one per artifact
+        var valueSetUrls = valueSets.stream().map(ValueSet::getUrl).distinct().toList();
+        assertEquals(R4ImportBundleProducer.existenceCheckBatches(valueSetUrls).size() + 1, searches.get());
+        var importedValueSets = updatedBundleEntries.stream()
+                .map(BundleEntryComponent::getResource)
+                .filter(ValueSet.class::isInstance)
+                .map(ValueSet.class::cast)
+                .toList();
+        assertEquals(valueSets.size() - 1, importedValueSets.size());
+        assertTrue(importedValueSets.stream()
+                .noneMatch(vs -> vs.getUrl().equals(loaded.getUrl())
+                        && vs.getVersion().equals(loaded.getVersion())));
+    }
+
+    @Test
+    void testExistenceCheckBatchesAreBoundedByCountAndEncodedLength() {
+        var shortUrls = IntStream.range(0, 250).mapToObj(i -> "http://example.org/ValueSet/" + i).toList();
+        var longUrls = IntStream.range(0, 250)
+                .mapToObj(i -> "http://example.org/fhir/ValueSet/" + "x".repeat(200) + "|" + i)
+                .toList();
+
+        for (var urls : List.of(shortUrls, longUrls)) {
+            var batches = R4ImportBundleProducer.existenceCheckBatches(urls);
+            assertEquals(urls, batches.stream().flatMap(List::stream).toList());
+            for (var batch : batches) {
+                assertTrue(batch.size() <= R4ImportBundleProducer.EXISTENCE_CHECK_BATCH_SIZE);
+                var encoded = URLEncoder.encode(String.join(",", batch), StandardCharsets.UTF_8);
+                assertTrue(encoded.length() <= R4ImportBundleProducer.EXISTENCE_CHECK_MAX_QUERY_LENGTH);
+            }
+        }
+        // Short URLs are only limited by the count, long ones by their length
+        assertEquals(3, R4ImportBundleProducer.existenceCheckBatches(shortUrls).size());
+        assertTrue(R4ImportBundleProducer.existenceCheckBatches(longUrls).size() > 3);
+    }
+
     private Library extractRootLibrary(List<Bundle.BundleEntryComponent> bundleEntry) {
         Optional<IBaseResource> rootLibraryEntry = bundleEntry.stream()
                 .filter(entry -> entry.hasResource() && isRootSpecificationLibrary(entry.getResource()))
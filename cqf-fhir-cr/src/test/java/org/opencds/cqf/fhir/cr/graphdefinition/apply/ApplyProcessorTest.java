@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
@@ -22,6 +23,12 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
@@ -31,6 +38,7 @@ import org.hl7.fhir.r4.model.CanonicalType;
 import org.hl7.fhir.r4.model.Composition;
 import org.hl7.fhir.r4.model.Composition.SectionComponent;
 import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.GraphDefinition;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.Resource;
@@ -43,6 +51,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opencds.cqf.cql.engine.model.ModelResolver;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.cr.graphdefinition.apply.SectionSearchPlan.SectionSearch;
 import org.opencds.cqf.fhir.utility.repository.ig.IgRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -272,6 +281,166 @@ public class ApplyProcessorTest {
         assertEquals("value2", ((CanonicalType) ref2.getExtensionFirstRep().getValue()).getValue());
     }
 
+    @Test
+    void testSectionSearchPlan_deduplicatesTargetsAndIsCachedPerVersion() {
+        var hgb = "http://example.org/StructureDefinition/hgb";
+        var condition = "http://example.org/StructureDefinition/condition";
+        var graphDefinition = new GraphDefinition();
+        graphDefinition.setUrl("http://example.org/GraphDefinition/summary").setVersion("1.0.0");
+        graphDefinition
+                .addLink()
+                .addTarget(new GraphDefinitionLinkTargetComponent().setType("Observation").setProfile(hgb));
+        graphDefinition
+                .addLink()
+                .addTarget(new GraphDefinitionLinkTargetComponent().setType("Observation").setProfile(hgb))
+                .addTarget(new GraphDefinitionLinkTargetComponent().setType("Condition").setProfile(condition))
+                .addTarget(new GraphDefinitionLinkTargetComponent()
+                        .setType("GraphDefinition")
+                        .addExtension(new Extension(CPG_RELATED_SUMMARY_DEFINITION, new CanonicalType("value1"))));
+
+        var plan = SectionSearchPlan.forGraphDefinition(graphDefinition);
+        assertEquals(
+                List.of(new SectionSearch("Observation", hgb), new SectionSearch("Condition", condition)),
+                plan.getSearches());
+        assertSame(plan, SectionSearchPlan.forGraphDefinition(graphDefinition));
+
+        graphDefinition.setVersion("1.0.1");
+        assertNotSame(plan, SectionSearchPlan.forGraphDefinition(graphDefinition));
+    }
+
+    @Test
+    void testTransformBackBoneElementsToSections_sharesSearchesBetweenTargets() {
+        var searches = new AtomicInteger();
+        var processor = new ApplyProcessor(repository, modelResolver) {
+            @Override
+            protected List<IBaseResource> search(ApplyRequest request, SectionSearch search) {
+                searches.incrementAndGet();
+                return super.search(request, search);
+            }
+        };
+        var profile = "http://example.org/cdosdh/demo/StructureDefinition/cpg-casefeature-postop-hgb";
+        var first = new GraphDefinitionLinkComponent()
+                .setDescription("First")
+                .addTarget(new GraphDefinitionLinkTargetComponent().setType("Observation").setProfile(profile));
+        var second = new GraphDefinitionLinkComponent()
+                .setDescription("Second")
+                .addTarget(new GraphDefinitionLinkTargetComponent().setType("Observation").setProfile(profile));
+
+        ApplyRequestBuilder applyRequestBuilder = new ApplyRequestBuilder(repository, EvaluationSettings.getDefault());
+        applyRequestBuilder.withSubject("Patient/time-zero");
+        applyRequestBuilder.withPractitioner("Practitioner/ordering-md-1");
+        applyRequestBuilder.withGraphDefinitionId(new IdType("GraphDefinition", "eras-postop"));
+        ApplyRequest applyRequest = applyRequestBuilder.buildApplyRequest();
+
+        var sections = processor.transformBackBoneElementsToSections(applyRequest, List.of(first, second));
+
+        assertEquals(1, searches.get());
+        assertEquals(2, sections.size());
+        var firstEntries = sections.get(0).getSectionFirstRep().getEntry().size();
+        assertTrue(firstEntries > 0);
+        assertEquals(firstEntries, sections.get(1).getSectionFirstRep().getEntry().size());
+        assertEquals(firstEntries, applyRequest.getReferencedResources().size());
+    }
+
+    @Test
+    void testSearchSections_runsThePlannedSearchesOnTheExecutor() throws InterruptedException {
+        var pool = Executors.newFixedThreadPool(2);
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        var processor = new ApplyProcessor(repository, modelResolver, pool) {
+            @Override
+            protected List<IBaseResource> search(ApplyRequest request, SectionSearch search) {
+                threads.add(Thread.currentThread().getName());
+                return super.search(request, search);
+            }
+        };
+        var hgb = new SectionSearch(
+                "Observation", "http://example.org/cdosdh/demo/StructureDefinition/cpg-casefeature-postop-hgb");
+        var condition = new SectionSearch("Condition", "http://example.org/StructureDefinition/condition");
+        var graphDefinition = new GraphDefinition();
+        graphDefinition.setUrl("http://example.org/GraphDefinition/executor").setVersion("1.0.0");
+        graphDefinition
+                .addLink()
+                .addTarget(new GraphDefinitionLinkTargetComponent().setType(hgb.type()).setProfile(hgb.profile()))
+                .addTarget(new GraphDefinitionLinkTargetComponent()
+                        .setType(condition.type())
+                        .setProfile(condition.profile()));
+
+        ApplyRequestBuilder applyRequestBuilder = new ApplyRequestBuilder(repository, EvaluationSettings.getDefault());
+        applyRequestBuilder.withSubject("Patient/time-zero");
+        applyRequestBuilder.withPractitioner("Practitioner/ordering-md-1");
+        applyRequestBuilder.withGraphDefinitionId(new IdType("GraphDefinition", "eras-postop"));
+        ApplyRequest applyRequest = applyRequestBuilder.buildApplyRequest();
+
+        try {
+            processor.searchSections(applyRequest, SectionSearchPlan.forGraphDefinition(graphDefinition));
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(2, applyRequest.getSectionResources().size());
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+        assertEquals(1, applyRequest.getSectionResources().get(hgb).size());
+        assertTrue(applyRequest.getSectionResources().get(condition).isEmpty());
+        assertEquals(1, applyRequest.getReferencedResources().size());
+    }
+
+    @Test
+    void testSearchSections_stopsAtTheFirstFailedSearch() throws InterruptedException {
+        // The first search waits and the second fails, so the third is still queued when the failure is seen
+        var searches = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var firstFinished = new AtomicBoolean();
+        var pool = Executors.newFixedThreadPool(2);
+        var processor = new ApplyProcessor(repository, modelResolver, pool) {
+            @Override
+            protected List<IBaseResource> search(ApplyRequest request, SectionSearch search) {
+                switch (searches.incrementAndGet()) {
+                    case 1 -> {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        firstFinished.set(true);
+                    }
+                    case 2 -> throw new IllegalStateException("Search failed");
+                    default -> {
+                        // Should have been cancelled
+                    }
+                }
+                return List.of();
+            }
+        };
+        var graphDefinition = new GraphDefinition();
+        graphDefinition.setUrl("http://example.org/GraphDefinition/failure").setVersion("1.0.0");
+        var link = graphDefinition.addLink();
+        for (var type : List.of("Observation", "Condition", "Encounter")) {
+            link.addTarget(new GraphDefinitionLinkTargetComponent()
+                    .setType(type)
+                    .setProfile("http://example.org/StructureDefinition/" + type));
+        }
+
+        ApplyRequestBuilder applyRequestBuilder = new ApplyRequestBuilder(repository, EvaluationSettings.getDefault());
+        applyRequestBuilder.withSubject("Patient/time-zero");
+        applyRequestBuilder.withPractitioner("Practitioner/ordering-md-1");
+        applyRequestBuilder.withGraphDefinitionId(new IdType("GraphDefinition", "eras-postop"));
+        ApplyRequest applyRequest = applyRequestBuilder.buildApplyRequest();
+        var plan = SectionSearchPlan.forGraphDefinition(graphDefinition);
+
+        try {
+            assertThrows(IllegalStateException.class, () -> processor.searchSections(applyRequest, plan));
+            // The failure of the second search is reported without waiting for the first
+            assertFalse(firstFinished.get());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, searches.get());
+        assertTrue(applyRequest.getSectionResources().isEmpty());
+    }
+
     private FhirContext getFhirContext() {
         return fhirContextR4;
     }
@@ -1,17 +1,46 @@
 package org.opencds.cqf.fhir.cr.group;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 import static org.opencds.cqf.fhir.cr.group.TestGroup.CLASS_PATH;
 import static org.opencds.cqf.fhir.cr.group.TestGroup.given;
 import static org.opencds.cqf.fhir.test.Resources.getResourcePath;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.DateParam;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
 import java.nio.file.Path;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Expression;
 import org.hl7.fhir.r4.model.Group;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Reference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -28,9 +57,11 @@ import org.opencds.cqf.fhir.cr.common.RetireProcessor;
 import org.opencds.cqf.fhir.cr.common.ReviseProcessor;
 import org.opencds.cqf.fhir.cr.common.WithdrawProcessor;
 import org.opencds.cqf.fhir.cr.group.r4.EvaluateProcessor;
+import org.opencds.cqf.fhir.cr.helpers.MembershipFixture;
 import org.opencds.cqf.fhir.cr.helpers.RequestHelpers;
 import org.opencds.cqf.fhir.utility.Ids;
 import org.opencds.cqf.fhir.utility.monad.Eithers;
+import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
 import org.opencds.cqf.fhir.utility.repository.ig.IgRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -160,4 +191,154 @@ class GroupProcessorTests {
             .hasResults(49);
     }
     */
+
+    @Test
+    void evaluateR4OnExecutor() throws InterruptedException {
+        var repository = new InMemoryFhirRepository(fhirContextR4);
+        var group = membershipGroup(repository);
+        MembershipFixture.addPatients(repository);
+
+        var pool = Executors.newFixedThreadPool(2);
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        Executor executor = task -> pool.execute(() -> {
+            threads.add(Thread.currentThread().getName());
+            task.run();
+        });
+        try {
+            var processor = new GroupProcessor(repository, CrSettings.getDefault().withEvaluationExecutor(executor));
+            Group result = processor.evaluate(
+                    Eithers.<CanonicalType, IIdType, Group>forRight3(group),
+                    null,
+                    null,
+                    null,
+                    null,
+                    new LibraryEngine(repository, EvaluationSettings.getDefault()));
+
+            assertFalse(threads.isEmpty());
+            assertFalse(threads.contains(Thread.currentThread().getName()));
+            assertEquals(List.of("Patient/a", "Patient/c"), memberReferences(result));
+            assertEquals(2, result.getQuantity());
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void evaluateR4OnExecutorStopsAtTheFirstFailure() throws InterruptedException {
+        var repository = new InMemoryFhirRepository(fhirContextR4);
+        var group = membershipGroup(repository);
+        MembershipFixture.addPatients(repository);
+
+        // The first subject waits and the second fails, so the third is still queued when the failure is seen
+        var evaluations = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var firstFinished = new AtomicBoolean();
+        var libraryEngine = spy(new LibraryEngine(repository, EvaluationSettings.getDefault()));
+        doAnswer(invocation -> {
+                    switch (evaluations.incrementAndGet()) {
+                        case 1 -> {
+                            release.await(10, TimeUnit.SECONDS);
+                            firstFinished.set(true);
+                        }
+                        case 2 -> throw new IllegalStateException("Evaluation failed");
+                        default -> {
+                            // Should have been cancelled
+                        }
+                    }
+                    return invocation.callRealMethod();
+                })
+                .when(libraryEngine)
+                .evaluate(anyString(), any(), any(), any(), any(), any(), any());
+
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var processor = new GroupProcessor(repository, CrSettings.getDefault().withEvaluationExecutor(pool));
+            Group result = processor.evaluate(
+                    Eithers.<CanonicalType, IIdType, Group>forRight3(group), null, null, null, null, libraryEngine);
+
+            // The failure of the second subject is reported without waiting for the first
+            assertFalse(firstFinished.get());
+            assertTrue(result.getContained().stream().anyMatch(OperationOutcome.class::isInstance));
+            assertTrue(result.getMember().isEmpty());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, evaluations.get());
+    }
+
+    @Test
+    void evaluateR4Incrementally() {
+        var since = new Date(System.currentTimeMillis() - 60_000);
+        var before = new Date(since.getTime() - 60_000);
+        var after = new Date(since.getTime() + 30_000);
+        var repository = new InMemoryFhirRepository(fhirContextR4) {
+            // The in-memory repository does not index meta.lastUpdated
+            @Override
+            @SuppressWarnings("unchecked")
+            public <B extends IBaseBundle, T extends IBaseResource> B search(
+                    Class<B> bundleType,
+                    Class<T> resourceType,
+                    Multimap<String, List<IQueryParameterType>> searchParameters,
+                    Map<String, String> headers) {
+                if (searchParameters == null || !searchParameters.containsKey("_lastUpdated")) {
+                    return super.search(bundleType, resourceType, searchParameters, headers);
+                }
+                Multimap<String, List<IQueryParameterType>> params = HashMultimap.create(searchParameters);
+                var lastUpdated = (DateParam) params.removeAll("_lastUpdated")
+                        .iterator()
+                        .next()
+                        .get(0);
+                var bundle = (Bundle) super.search(Bundle.class, resourceType, params, headers);
+                bundle.getEntry()
+                        .removeIf(e -> e.getResource().getMeta().getLastUpdated().before(lastUpdated.getValue()));
+                return (B) bundle;
+            }
+        };
+        var group = membershipGroup(repository);
+        // Unchanged, so its previous membership is kept even though it no longer meets the criteria
+        MembershipFixture.addPatient(repository, "a", AdministrativeGender.MALE, before);
+        MembershipFixture.addPatient(repository, "b", AdministrativeGender.FEMALE, after);
+        MembershipFixture.addPatient(repository, "c", AdministrativeGender.MALE, after);
+
+        var previousResult = new Group();
+        previousResult.addExtension(
+                "http://hl7.org/fhir/StructureDefinition/workflow-generatedOn", new DateTimeType(since));
+        previousResult.addMember().setEntity(new Reference("Patient/a"));
+        previousResult.addMember().setEntity(new Reference("Patient/c"));
+
+        var processor = new GroupProcessor(repository);
+        Group result = processor.evaluate(
+                Eithers.<CanonicalType, IIdType, Group>forRight3(group),
+                null,
+                null,
+                null,
+                null,
+                new LibraryEngine(repository, EvaluationSettings.getDefault()),
+                previousResult);
+
+        assertEquals(List.of("Patient/a", "Patient/b"), memberReferences(result));
+    }
+
+    private static Group membershipGroup(InMemoryFhirRepository repository) {
+        MembershipFixture.addLibrary(repository);
+
+        var group = new Group();
+        group.setId("GroupMembership");
+        group.addExtension(
+                "http://hl7.org/fhir/StructureDefinition/cqf-library",
+                new CanonicalType(MembershipFixture.LIBRARY_URL));
+        group.addExtension(
+                "http://hl7.org/fhir/StructureDefinition/characteristicExpression",
+                new Expression().setLanguage("text/cql-identifier").setExpression(MembershipFixture.EXPRESSION));
+        return group;
+    }
+
+    private static List<String> memberReferences(Group group) {
+        return group.getMember().stream()
+                .map(member -> member.getEntity().getReference())
+                .toList();
+    }
 }
@@ -0,0 +1,55 @@
+package org.opencds.cqf.fhir.cr.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Enumerations.PublicationStatus;
+import org.hl7.fhir.r4.model.Library;
+import org.hl7.fhir.r4.model.Patient;
+import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
+
+/**
+ * An R4 Library defining "IsFemale" for the Patient context, and the Patients a (female), b (male) and
+ * c (female) it is evaluated for. Shared by the Group and Library $evaluate tests.
+ */
+public class MembershipFixture {
+    public static final String LIBRARY_URL = "http://example.org/Library/GroupMembership";
+    public static final String EXPRESSION = "IsFemale";
+
+    private static final String CQL = """
+            library GroupMembership version '1.0.0'
+            using FHIR version '4.0.1'
+            context Patient
+            define "IsFemale": Patient.gender.value = 'female'
+            """;
+
+    private MembershipFixture() {}
+
+    public static Library addLibrary(InMemoryFhirRepository repository) {
+        var library = new Library();
+        library.setId("GroupMembership");
+        library.setUrl(LIBRARY_URL);
+        library.setName("GroupMembership");
+        library.setVersion("1.0.0");
+        library.setStatus(PublicationStatus.ACTIVE);
+        library.addContent().setContentType("text/cql").setData(CQL.getBytes(StandardCharsets.UTF_8));
+        repository.update(library);
+        return library;
+    }
+
+    public static void addPatients(InMemoryFhirRepository repository) {
+        var now = new Date();
+        addPatient(repository, "a", AdministrativeGender.FEMALE, now);
+        addPatient(repository, "b", AdministrativeGender.MALE, now);
+        addPatient(repository, "c", AdministrativeGender.FEMALE, now);
+    }
+
+    public static void addPatient(
+            InMemoryFhirRepository repository, String id, AdministrativeGender gender, Date lastUpdated) {
+        var patient = new Patient();
+        patient.setId(id);
+        patient.setGender(gender);
+        patient.getMeta().setLastUpdated(lastUpdated);
+        repository.update(patient);
+    }
+}
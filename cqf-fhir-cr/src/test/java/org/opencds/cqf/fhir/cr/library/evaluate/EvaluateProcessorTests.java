@@ -1,6 +1,8 @@
 package org.opencds.cqf.fhir.cr.library.evaluate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -8,8 +10,24 @@ import static org.opencds.cqf.fhir.utility.Parameters.newParameters;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.repository.IRepository;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Group;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Library;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Parameters.ParametersParameterComponent;
+import org.hl7.fhir.r4.model.Reference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -17,6 +35,8 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opencds.cqf.fhir.cql.EvaluationSettings;
 import org.opencds.cqf.fhir.cql.LibraryEngine;
+import org.opencds.cqf.fhir.cr.helpers.MembershipFixture;
+import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
 
 @SuppressWarnings("UnstableApiUsage")
 @ExtendWith(MockitoExtension.class)
@@ -57,4 +77,74 @@ public class EvaluateProcessorTests {
         var actual = fixture.evaluate(request);
         assertEquals(expected, actual);
     }
+
+    @Test
+    void testEvaluatesEachSubjectAndGroupMember() throws InterruptedException {
+        var memoryRepository = new InMemoryFhirRepository(fhirContextR4);
+        var library = MembershipFixture.addLibrary(memoryRepository);
+        // Patients with an even number are female
+        var now = new Date();
+        for (int i = 0; i < 12; i++) {
+            var gender = i % 2 == 0 ? AdministrativeGender.FEMALE : AdministrativeGender.MALE;
+            MembershipFixture.addPatient(memoryRepository, "p" + i, gender, now);
+        }
+        var group = new Group();
+        group.setId("g");
+        group.addMember().setEntity(new Reference("Patient/p5"));
+        group.addMember().setEntity(new Reference("Patient/p2"));
+        memoryRepository.update(group);
+
+        // The members of the Group are expanded in place and repeated subjects are evaluated once
+        var subjectIds = new ArrayList<IIdType>(List.of(new IdType("Patient/p11"), new IdType("Group/g")));
+        IntStream.range(0, 11).forEach(i -> subjectIds.add(new IdType("Patient/p" + i)));
+        var expectedSubjects = new ArrayList<>(List.of("Patient/p11", "Patient/p5", "Patient/p2"));
+        IntStream.range(0, 11)
+                .filter(i -> i != 2 && i != 5)
+                .forEach(i -> expectedSubjects.add("Patient/p" + i));
+
+        var pool = Executors.newFixedThreadPool(4);
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        var workers = new AtomicInteger();
+        Executor executor = task -> pool.execute(() -> {
+            workers.incrementAndGet();
+            threads.add(Thread.currentThread().getName());
+            task.run();
+        });
+        Parameters result;
+        try {
+            var settings = EvaluationSettings.getDefault();
+            var processor = new EvaluateProcessor(memoryRepository, settings, executor);
+            var request = new EvaluateRequest(
+                    library,
+                    null,
+                    List.of(MembershipFixture.EXPRESSION),
+                    null,
+                    null,
+                    null,
+                    new LibraryEngine(memoryRepository, settings));
+            request.setSubjectIds(subjectIds);
+
+            result = (Parameters) processor.evaluate(request);
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        // The subjects were split between several workers, none of them on the calling thread
+        assertTrue(workers.get() > 1);
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+        assertEquals(
+                expectedSubjects,
+                result.getParameter().stream()
+                        .map(ParametersParameterComponent::getName)
+                        .toList());
+        for (var part : result.getParameter()) {
+            var number = Integer.parseInt(part.getName().substring("Patient/p".length()));
+            var isFemale = ((BooleanType) ((Parameters) part.getResource())
+                            .getParameter(MembershipFixture.EXPRESSION)
+                            .getValue())
+                    .booleanValue();
+            assertEquals(number % 2 == 0, isFemale, part.getName());
+        }
+    }
 }
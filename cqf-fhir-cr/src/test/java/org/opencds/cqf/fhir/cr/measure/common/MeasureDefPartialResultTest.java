@@ -0,0 +1,381 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import static ca.uhn.fhir.context.FhirVersionEnum.R4;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.ResourceType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencds.cqf.fhir.cr.measure.MeasureStratifierType;
+
+class MeasureDefPartialResultTest {
+
+    private static final FhirContext FHIR_CONTEXT = FhirContext.forR4Cached();
+    private static final String MEASURE_URL = "http://example.com/Measure/partial";
+    private static final String GENDER_SYSTEM = "http://hl7.org/fhir/administrative-gender";
+
+    private static final Map<String, String> GENDER = Map.of(
+            "p1", "male",
+            "p2", "female",
+            "p3", "male",
+            "p4", "female",
+            "p5", "male",
+            "p6", "female");
+
+    private static final List<String> DENOMINATOR = List.of("p1", "p2", "p3", "p4", "p5", "p6");
+    private static final List<String> NUMERATOR = List.of("p1", "p2", "p3");
+    private static final Map<String, Double> OBSERVATIONS = Map.of(
+            "p1", 10.0,
+            "p2", 20.0,
+            "p3", 30.0,
+            "p4", 40.0,
+            "p5", 50.0,
+            "p6", 70.0);
+
+    @Test
+    void mergedProportionScoreMatchesSingleEvaluation() {
+        var expected = proportionMeasureDef();
+        evaluate(expected, DENOMINATOR);
+
+        var left = proportionMeasureDef();
+        evaluate(left, List.of("p1", "p2", "p4"));
+        var right = proportionMeasureDef();
+        evaluate(right, List.of("p3", "p5", "p6"));
+
+        var merged = new MeasureDefPartialResultCoordinator()
+                .gather(
+                        proportionMeasureDef(),
+                        List.of(MeasureDefPartialResult.capture(left, R4), MeasureDefPartialResult.capture(right, R4)));
+
+        var mergedGroup = merged.groups().get(0);
+        var expectedGroup = expected.groups().get(0);
+        assertEquals(expectedGroup.getScore(), mergedGroup.getScore());
+        assertEquals(0.5, mergedGroup.getScore(), 0.0001);
+        assertEquals(6, mergedGroup.getPopulationCount(MeasurePopulationType.DENOMINATOR));
+        assertEquals(3, mergedGroup.getPopulationCount(MeasurePopulationType.NUMERATOR));
+
+        assertEquals(stratumScores(expectedGroup), stratumScores(mergedGroup));
+        assertEquals(Map.of("male", 2.0 / 3.0, "female", 1.0 / 3.0), stratumScores(mergedGroup));
+    }
+
+    @Test
+    void mergedValuesKeepTheirType() {
+        var left = codedMeasureDef();
+        evaluateCoded(left, List.of("p1", "p2"));
+        var right = codedMeasureDef();
+        evaluateCoded(right, List.of("p3", "p4"));
+
+        var merged = new MeasureDefPartialResultCoordinator()
+                .gather(
+                        codedMeasureDef(),
+                        List.of(MeasureDefPartialResult.capture(left, R4), MeasureDefPartialResult.capture(right, R4)));
+
+        var strata = merged.groups().get(0).stratifiers().get(0).getStratum().stream()
+                .flatMap(stratumDef -> stratumDef.valueDefs().stream())
+                .map(valueDef -> assertInstanceOf(CodeableConcept.class, valueDef.value().getValue()))
+                .map(CodeableConcept::getCodingFirstRep)
+                .collect(Collectors.toMap(Coding::getCode, Function.identity()));
+        assertEquals(Set.of("male", "female"), strata.keySet());
+        assertEquals(GENDER_SYSTEM, strata.get("male").getSystem());
+        assertEquals("Male", strata.get("male").getDisplay());
+
+        var sdeValues = merged.sdes().get(0).getAccumulatedValues();
+        assertEquals(
+                Set.of("Patient/p1", "Patient/p2", "Patient/p3", "Patient/p4"),
+                sdeValues.keySet().stream().map(StratumValueWrapper::getKey).collect(Collectors.toSet()));
+        sdeValues.forEach((value, count) -> {
+            var patient = assertInstanceOf(Patient.class, value.getValue());
+            assertEquals(GENDER.get(patient.getIdElement().getIdPart()), patient.getGender().toCode());
+            assertEquals(1L, count);
+        });
+    }
+
+    @Test
+    void mergeIsCommutativeAndAssociative() {
+        var a = captureProportion(List.of("p1", "p2"));
+        var b = captureProportion(List.of("p3", "p4"));
+        var c = captureProportion(List.of("p5", "p6"));
+
+        var leftFirst = a.merge(b).merge(c);
+        var rightFirst = c.merge(b.merge(a));
+
+        assertEquals(leftFirst.groups(), rightFirst.groups());
+        assertEquals(leftFirst.sdes(), rightFirst.sdes());
+    }
+
+    @Test
+    void mergedContinuousVariableSupportsEveryAggregateMethod() {
+        for (var method : ContinuousVariableObservationAggregateMethod.values()) {
+            if (method == ContinuousVariableObservationAggregateMethod.N_A) {
+                continue;
+            }
+
+            var expected = continuousVariableMeasureDef(method);
+            evaluateObservations(expected, DENOMINATOR);
+
+            var left = continuousVariableMeasureDef(method);
+            evaluateObservations(left, List.of("p1", "p4", "p6"));
+            var right = continuousVariableMeasureDef(method);
+            evaluateObservations(right, List.of("p2", "p3", "p5"));
+
+            var merged = new MeasureDefPartialResultCoordinator()
+                    .gather(
+                            continuousVariableMeasureDef(method),
+                            List.of(
+                                    MeasureDefPartialResult.capture(left, R4),
+                                    MeasureDefPartialResult.capture(right, R4)));
+
+            assertEquals(
+                    expected.groups().get(0).getScore(),
+                    merged.groups().get(0).getScore(),
+                    "aggregate method: " + method);
+            assertEquals(
+                    stratumScores(expected.groups().get(0)),
+                    stratumScores(merged.groups().get(0)),
+                    "aggregate method: " + method);
+        }
+    }
+
+    @Test
+    void scatterGatherOnLocalThreads() {
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+            var merged = new MeasureDefPartialResultCoordinator()
+                    .scatterGather(proportionMeasureDef(), DENOMINATOR, 3, executor, subjects -> {
+                        var measureDef = proportionMeasureDef();
+                        evaluate(measureDef, subjects);
+                        return MeasureDefPartialResult.capture(measureDef, R4);
+                    });
+
+            assertEquals(0.5, merged.groups().get(0).getScore(), 0.0001);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void partialResultsRoundTripThroughFiles(@TempDir Path tempDir) {
+        var left = tempDir.resolve("left.partial");
+        var right = tempDir.resolve("right.partial");
+        MeasureDefPartialResultCoordinator.write(captureProportion(List.of("p1", "p2", "p4")), left);
+        MeasureDefPartialResultCoordinator.write(captureProportion(List.of("p3", "p5", "p6")), right);
+
+        var merged = new MeasureDefPartialResultCoordinator().gatherFiles(proportionMeasureDef(), List.of(left, right));
+
+        assertEquals(0.5, merged.groups().get(0).getScore(), 0.0001);
+        assertEquals(Map.of("male", 2.0 / 3.0, "female", 1.0 / 3.0), stratumScores(merged.groups().get(0)));
+    }
+
+    @Test
+    void streamRoundTripPreservesContent() throws IOException {
+        var partialResult = captureProportion(DENOMINATOR);
+
+        var outputStream = new ByteArrayOutputStream();
+        partialResult.writeTo(outputStream);
+        var read = MeasureDefPartialResult.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        assertEquals(partialResult.groups(), read.groups());
+        assertEquals(partialResult.measureUrl(), read.measureUrl());
+    }
+
+    @Test
+    void mergeRejectsDifferentMeasures() {
+        var partialResult = captureProportion(List.of("p1"));
+        var other =
+                new MeasureDefPartialResult("http://example.com/Measure/other", null, List.of(), List.of(), List.of());
+
+        assertThrows(InvalidRequestException.class, () -> partialResult.merge(other));
+    }
+
+    @Test
+    void partitionSplitsEvenly() {
+        var partitions = MeasureDefPartialResultCoordinator.partition(DENOMINATOR, 4);
+
+        assertEquals(4, partitions.size());
+        assertEquals(List.of(2, 2, 1, 1), partitions.stream().map(List::size).toList());
+        assertEquals(
+                DENOMINATOR,
+                partitions.stream().flatMap(List::stream).toList());
+    }
+
+    private static MeasureDefPartialResult captureProportion(List<String> subjects) {
+        var measureDef = proportionMeasureDef();
+        evaluate(measureDef, subjects);
+        return MeasureDefPartialResult.capture(measureDef, R4);
+    }
+
+    private static void evaluate(MeasureDef measureDef, List<String> subjects) {
+        var groupDef = measureDef.groups().get(0);
+        for (String subject : subjects) {
+            groupDef.getSingle(MeasurePopulationType.DENOMINATOR).addResource(subject, "Denominator", true);
+            if (NUMERATOR.contains(subject)) {
+                groupDef.getSingle(MeasurePopulationType.NUMERATOR).addResource(subject, "Numerator", true);
+            }
+            groupDef.stratifiers()
+                    .get(0)
+                    .components()
+                    .get(0)
+                    .putResult("Patient/" + subject, "Gender", GENDER.get(subject), Set.of());
+        }
+        MeasureMultiSubjectEvaluator.postEvaluationMultiSubject(FHIR_CONTEXT, measureDef);
+    }
+
+    private static void evaluateCoded(MeasureDef measureDef, List<String> subjects) {
+        var groupDef = measureDef.groups().get(0);
+        for (String subject : subjects) {
+            var gender = GENDER.get(subject);
+            groupDef.getSingle(MeasurePopulationType.DENOMINATOR).addResource(subject, "Denominator", true);
+            groupDef.stratifiers()
+                    .get(0)
+                    .components()
+                    .get(0)
+                    .putResult(
+                            "Patient/" + subject,
+                            "Gender",
+                            new CodeableConcept(
+                                    new Coding(GENDER_SYSTEM, gender, gender.equals("male") ? "Male" : "Female")),
+                            Set.of());
+            var patient = new Patient().setGender(Enumerations.AdministrativeGender.fromCode(gender));
+            patient.setId(subject);
+            measureDef.sdes().get(0).putResult("Patient/" + subject, "SDE Patient", patient, Set.of());
+        }
+        MeasureMultiSubjectEvaluator.postEvaluationMultiSubject(FHIR_CONTEXT, measureDef);
+    }
+
+    private static void evaluateObservations(MeasureDef measureDef, List<String> subjects) {
+        var groupDef = measureDef.groups().get(0);
+        for (String subject : subjects) {
+            groupDef.getSingle(MeasurePopulationType.MEASUREPOPULATION)
+                    .addResource(subject, "Measure Population", true);
+            var accumulator = new ObservationAccumulator(
+                    List.of(new ObservationEntry(subject, new QuantityDef(OBSERVATIONS.get(subject)))));
+            groupDef.getSingle(MeasurePopulationType.MEASUREOBSERVATION)
+                    .addResource(subject, "Measure Observation", accumulator);
+            groupDef.stratifiers()
+                    .get(0)
+                    .components()
+                    .get(0)
+                    .putResult("Patient/" + subject, "Gender", GENDER.get(subject), Set.of());
+        }
+        MeasureMultiSubjectEvaluator.postEvaluationMultiSubject(FHIR_CONTEXT, measureDef);
+    }
+
+    private static Map<String, Double> stratumScores(GroupDef groupDef) {
+        return groupDef.stratifiers().get(0).getStratum().stream()
+                .collect(Collectors.toMap(
+                        stratumDef -> stratumDef.valueDefs().stream()
+                                .min(Comparator.comparing(valueDef -> valueDef.value().getKey()))
+                                .orElseThrow()
+                                .value()
+                                .getValueAsString(),
+                        StratumDef::getScore));
+    }
+
+    private static MeasureDef proportionMeasureDef() {
+        var basis = booleanBasis();
+        return measureDef(new GroupDef(
+                "group-1",
+                textConcept("group-1"),
+                List.of(genderStratifier()),
+                List.of(
+                        population("denominator", MeasurePopulationType.DENOMINATOR, basis, null),
+                        population("numerator", MeasurePopulationType.NUMERATOR, basis, null)),
+                MeasureScoring.PROPORTION,
+                false,
+                new CodeDef("http://terminology.hl7.org/CodeSystem/measure-improvement-notation", "increase"),
+                basis));
+    }
+
+    private static MeasureDef codedMeasureDef() {
+        var basis = booleanBasis();
+        return new MeasureDef(
+                new IdType(ResourceType.Measure.name(), "partial"),
+                MEASURE_URL,
+                "1.0.0",
+                List.of(new GroupDef(
+                        "group-1",
+                        textConcept("group-1"),
+                        List.of(genderStratifier()),
+                        List.of(population("denominator", MeasurePopulationType.DENOMINATOR, basis, null)),
+                        MeasureScoring.COHORT,
+                        false,
+                        null,
+                        basis)),
+                List.of(new SdeDef("sde-patient", textConcept("Patient"), "SDE Patient")));
+    }
+
+    private static MeasureDef continuousVariableMeasureDef(ContinuousVariableObservationAggregateMethod method) {
+        var basis = booleanBasis();
+        return measureDef(new GroupDef(
+                "group-1",
+                textConcept("group-1"),
+                List.of(genderStratifier()),
+                List.of(
+                        population("measure-population", MeasurePopulationType.MEASUREPOPULATION, basis, null),
+                        population("measure-observation", MeasurePopulationType.MEASUREOBSERVATION, basis, method)),
+                MeasureScoring.CONTINUOUSVARIABLE,
+                false,
+                new CodeDef("http://terminology.hl7.org/CodeSystem/measure-improvement-notation", "increase"),
+                basis));
+    }
+
+    private static MeasureDef measureDef(GroupDef groupDef) {
+        return new MeasureDef(
+                new IdType(ResourceType.Measure.name(), "partial"), MEASURE_URL, "1.0.0", List.of(groupDef), List.of());
+    }
+
+    private static StratifierDef genderStratifier() {
+        return new StratifierDef(
+                "gender",
+                textConcept("Gender"),
+                null,
+                MeasureStratifierType.VALUE,
+                List.of(new StratifierComponentDef("gender-component", textConcept("Gender"), "Gender")));
+    }
+
+    private static PopulationDef population(
+            String id,
+            MeasurePopulationType type,
+            CodeDef basis,
+            ContinuousVariableObservationAggregateMethod aggregateMethod) {
+        return new PopulationDef(
+                id,
+                new ConceptDef(
+                        List.of(new CodeDef("http://terminology.hl7.org/CodeSystem/measure-population", type.toCode())),
+                        type.toCode()),
+                type,
+                type.toCode(),
+                basis,
+                null,
+                aggregateMethod,
+                null);
+    }
+
+    private static CodeDef booleanBasis() {
+        return new CodeDef("http://hl7.org/fhir/fhir-types", "boolean");
+    }
+
+    private static ConceptDef textConcept(String text) {
+        return new ConceptDef(List.of(), text);
+    }
+}
@@ -0,0 +1,85 @@
+package org.opencds.cqf.fhir.cr.measure.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class PopulationBitmapIndexTest {
+
+    private static final CodeDef BOOLEAN_BASIS = new CodeDef("http://hl7.org/fhir/fhir-types", "boolean");
+
+    @Test
+    void intersectsStratumSubjectsWithPopulation() {
+        var denominator = population("denominator", "p1", "p2", "p3", "p4");
+        var numerator = population("numerator", "p1", "p3");
+        var index = new PopulationBitmapIndex();
+
+        var male = index.subjects(List.of("Patient/p1", "Patient/p2", "Patient/p5"));
+        var female = index.subjects(List.of("Patient/p3", "Patient/p4"));
+
+        assertEquals(Set.of("Patient/p1", "Patient/p2"), index.intersectSubjects(male, denominator));
+        assertEquals(Set.of("Patient/p1"), index.intersectSubjects(male, numerator));
+        assertEquals(Set.of("Patient/p3", "Patient/p4"), index.intersectSubjects(female, denominator));
+        assertEquals(Set.of("Patient/p3"), index.intersectSubjects(female, numerator));
+    }
+
+    @Test
+    void emptyStratumHasEmptyIntersection() {
+        var denominator = population("denominator", "p1");
+        var index = new PopulationBitmapIndex();
+
+        assertTrue(index.intersectSubjects(index.subjects(List.of()), denominator).isEmpty());
+    }
+
+    @Test
+    void resourceKeysAreComputedOncePerPopulation() {
+        var denominator = population("denominator", "p1");
+        var index = new PopulationBitmapIndex();
+        var calls = new AtomicInteger();
+        var keys =
+                Set.of(SubjectResourceKey.resourceOnly("Encounter/1"), SubjectResourceKey.resourceOnly("Encounter/2"));
+
+        assertTrue(index.containsResourceKey(
+                denominator,
+                def -> {
+                    calls.incrementAndGet();
+                    return keys;
+                },
+                SubjectResourceKey.resourceOnly("Encounter/1")));
+        assertFalse(index.containsResourceKey(
+                denominator,
+                def -> {
+                    calls.incrementAndGet();
+                    return keys;
+                },
+                SubjectResourceKey.resourceOnly("Encounter/3")));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void resourceKeysAreScopedToTheirPopulation() {
+        var denominator = population("denominator", "p1");
+        var numerator = population("numerator", "p1");
+        var index = new PopulationBitmapIndex();
+        var encounter1 = SubjectResourceKey.resourceOnly("Encounter/1");
+        var encounter2 = SubjectResourceKey.resourceOnly("Encounter/2");
+
+        assertTrue(index.containsResourceKey(denominator, def -> Set.of(encounter1, encounter2), encounter2));
+        assertFalse(index.containsResourceKey(numerator, def -> Set.of(encounter1), encounter2));
+        assertTrue(index.containsResourceKey(numerator, def -> Set.of(encounter1), encounter1));
+    }
+
+    private static PopulationDef population(String id, String... subjects) {
+        var populationDef = new PopulationDef(id, null, null, id, BOOLEAN_BASIS, null);
+        for (String subject : subjects) {
+            populationDef.addResource(subject, id, true);
+        }
+        return populationDef;
+    }
+}
@@ -2,17 +2,21 @@ package org.opencds.cqf.fhir.cr.measure.common;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.ResourceType;
 import org.junit.jupiter.api.Test;
+import org.opencds.cqf.cql.engine.fhir.model.R4FhirModelResolver;
 
 class PopulationDefTest {
 
@@ -712,4 +716,114 @@ class PopulationDefTest {
         assertEquals(3, popDef.countObservations(), "Should count all observation entries across all maps");
         assertEquals(3, popDef.getCount(), "getCount() should match countObservations() for MEASUREOBSERVATION");
     }
+
+    @Test
+    void populationsOfAMeasureCombineTheirSubjectBitmaps() {
+        CodeDef booleanBasis = new CodeDef("http://hl7.org/fhir/fhir-types", "boolean");
+        var initialPopulation =
+                new PopulationDef("ip", null, MeasurePopulationType.INITIALPOPULATION, "IP", booleanBasis, null);
+        var denominator = new PopulationDef("den", null, MeasurePopulationType.DENOMINATOR, "Den", booleanBasis, null);
+        var exclusion =
+                new PopulationDef("dx", null, MeasurePopulationType.DENOMINATOREXCLUSION, "DX", booleanBasis, null);
+
+        // Added before the measure is built, so renumbered into the ordinals shared by the measure
+        initialPopulation.addResource("1", "IP", true);
+        var groupDef = new GroupDef(
+                "group",
+                null,
+                List.of(),
+                List.of(initialPopulation, denominator, exclusion),
+                MeasureScoring.PROPORTION,
+                false,
+                null,
+                booleanBasis);
+        new MeasureDef(new IdType("Measure", "m"), null, null, List.of(groupDef), List.of());
+
+        initialPopulation.addResource("2", "IP", true);
+        initialPopulation.addResource("3", "IP", true);
+        for (String subject : List.of("4", "3", "2", "1")) {
+            denominator.addResource(subject, "Den", true);
+        }
+        exclusion.addResource("2", "DX", true);
+
+        denominator.retainAllSubjects(initialPopulation);
+        denominator.removeAllSubjects(exclusion);
+
+        assertEquals(Set.of("1", "3"), denominator.getSubjects());
+        assertEquals(2, denominator.getCount());
+        // Subjects keep the order they were first evaluated in
+        assertEquals(List.of("1", "3"), List.copyOf(denominator.getSubjectResources().keySet()));
+        assertTrue(denominator.getResourcesForSubject("4").isEmpty());
+        assertEquals(Set.of("1", "2", "3"), initialPopulation.getSubjects());
+
+        // The subject map is a view over the bitmap
+        denominator.getSubjects().remove("1");
+        assertEquals(Set.of("3"), denominator.getSubjects());
+        denominator.getSubjectResources().computeIfAbsent("5", k -> new HashSetForCqlExpressionValues());
+        assertEquals(Set.of("3", "5"), denominator.getSubjects());
+        initialPopulation.retainAllSubjects(denominator);
+        assertEquals(Set.of("3"), initialPopulation.getSubjects());
+        assertEquals(1, initialPopulation.getAllSubjectResources().size());
+    }
+
+    @Test
+    void subjectsOnlyKeepsMembershipWithoutResults() {
+        CodeDef booleanBasis = new CodeDef("http://hl7.org/fhir/fhir-types", "boolean");
+        PopulationDef denominator = new PopulationDef("den", null, null, null, booleanBasis, null);
+        PopulationDef numerator = new PopulationDef("num", null, null, null, booleanBasis, null);
+        denominator.setSubjectsOnly(true);
+        numerator.setSubjectsOnly(true);
+
+        var patient = new Patient().setId("Patient/1");
+        denominator.addResource("1", "Denominator", patient);
+        denominator.addResource("2", "Denominator", patient);
+        numerator.addResource("1", "Numerator", patient);
+        numerator.addResource("3", "Numerator", patient);
+
+        numerator.retainAllResources("3", denominator);
+        numerator.retainAllSubjects(denominator);
+
+        assertEquals(Set.of("1", "2"), denominator.getSubjects());
+        assertEquals(Set.of("1"), numerator.getSubjects());
+        assertEquals(2, denominator.getCount());
+        assertEquals(1, numerator.getCount());
+        assertTrue(denominator.getAllSubjectResources().isEmpty());
+        // Members share one empty set, even when results are put for them
+        denominator.getSubjectResources().put("4", Set.of(CqlExpressionValue.ofRaw("Denominator", patient, null)));
+        assertSame(Collections.emptySet(), denominator.getSubjectResources().get("1"));
+        assertSame(Collections.emptySet(), denominator.getSubjectResources().get("4"));
+        assertEquals(3, denominator.getCount());
+
+        denominator.removeAllResources("1", numerator);
+        denominator.removeAllSubjects(numerator);
+        assertEquals(2, denominator.getCount());
+    }
+
+    @Test
+    void idCaptureKeepsOnlyEvaluatedResourceIds() {
+        var modelResolver = new R4FhirModelResolver();
+        var encounter = modelResolver.toCqlValue(new Encounter().setId(new IdType("Encounter", "e1")), false);
+        var patient = modelResolver.toCqlValue(new Patient().setId(new IdType("Patient", "p1")), false);
+
+        PopulationDef ids = new PopulationDef("ids", null, null, null, null, null);
+        ids.setEvaluatedResourceCapture(EvaluatedResourceCapture.IDS);
+        ids.captureEvaluatedResources(List.of(encounter, patient));
+        ids.captureEvaluatedResources(List.of(encounter));
+
+        assertTrue(ids.getEvaluatedResources().isEmpty());
+        assertEquals(List.of("Encounter/e1", "Patient/p1"), List.copyOf(ids.getEvaluatedResourceIds()));
+
+        PopulationDef resources = new PopulationDef("resources", null, null, null, null, null);
+        resources.captureEvaluatedResources(List.of(encounter, patient));
+
+        assertEquals(2, resources.getEvaluatedResources().size());
+        assertEquals(Set.of("Encounter/e1", "Patient/p1"), resources.getEvaluatedResourceIds());
+
+        PopulationDef none = new PopulationDef("none", null, null, null, null, null);
+        none.setEvaluatedResourceCapture(EvaluatedResourceCapture.NONE);
+        none.captureEvaluatedResources(List.of(encounter, patient));
+
+        assertTrue(none.getEvaluatedResources().isEmpty());
+        assertTrue(none.getEvaluatedResourceIds().isEmpty());
+    }
 }
@@ -0,0 +1,72 @@
+package org.opencds.cqf.fhir.cr.measure.r4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.SEARCH_FILTER_MODE;
+import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.TERMINOLOGY_FILTER_MODE;
+import org.opencds.cqf.fhir.cql.engine.terminology.TerminologySettings.VALUESET_EXPANSION_MODE;
+import org.opencds.cqf.fhir.cr.measure.MeasureEvaluationOptions;
+import org.opencds.cqf.fhir.cr.measure.common.MeasurePopulationType;
+import org.opencds.cqf.fhir.utility.monitoring.InMemoryInstrumentation;
+import org.opencds.cqf.fhir.utility.monitoring.InstrumentationNames;
+
+class MeasureInstrumentationTest {
+
+    @Test
+    void evaluateRecordsRetrievesExpansionsSubjectsAndReport() {
+        var instrumentation = new InMemoryInstrumentation();
+        var options = MeasureEvaluationOptions.defaultOptions();
+        options.getEvaluationSettings()
+                .withInstrumentation(instrumentation)
+                .getRetrieveSettings()
+                .setSearchParameterMode(SEARCH_FILTER_MODE.FILTER_IN_MEMORY)
+                .setTerminologyParameterMode(TERMINOLOGY_FILTER_MODE.FILTER_IN_MEMORY);
+        options.getEvaluationSettings()
+                .getTerminologySettings()
+                .setValuesetExpansionMode(VALUESET_EXPANSION_MODE.PERFORM_NAIVE_EXPANSION);
+
+        Measure.given()
+                .repositoryFor("DiabetesHemoglobinA1cHbA1cPoorControl9FHIR")
+                .evaluationOptions(options)
+                .when()
+                .measureId("DiabetesHemoglobinA1cHbA1cPoorControl9FHIR")
+                .periodStart("2019-01-01")
+                .periodEnd("2020-01-01")
+                .reportType("population")
+                .evaluate()
+                .then()
+                .firstGroup()
+                .population(MeasurePopulationType.DENOMINATOR)
+                .hasCount(2);
+
+        var evaluations = instrumentation.getSpans(InstrumentationNames.MEASURE_EVALUATION);
+        assertEquals(1, evaluations.size());
+        var subjectCount = Long.parseLong(evaluations.get(0).attributes().get(InstrumentationNames.SUBJECT_COUNT));
+        assertTrue(subjectCount > 1);
+        assertEquals(
+                subjectCount,
+                instrumentation.getTimer(InstrumentationNames.MEASURE_SUBJECT).count());
+
+        // Retrieves run inside the evaluation of the subjects
+        var retrieves = instrumentation.getSpans(InstrumentationNames.RETRIEVE);
+        assertFalse(retrieves.isEmpty());
+        assertTrue(retrieves.stream()
+                .anyMatch(span -> InstrumentationNames.MEASURE_EVALUATION.equals(span.parentName())));
+
+        // Each ValueSet is expanded once and then found in the cache
+        assertTrue(instrumentation.getCount(InstrumentationNames.VALUE_SET_CACHE_MISS) > 0);
+        assertTrue(instrumentation.getCount(InstrumentationNames.VALUE_SET_CACHE_HIT) > 0);
+        assertFalse(instrumentation
+                .getSpans(InstrumentationNames.VALUE_SET_EXPANSION)
+                .isEmpty());
+
+        assertEquals(
+                1,
+                instrumentation
+                        .getSpans(InstrumentationNames.MEASURE_REPORT_BUILD)
+                        .size());
+    }
+}
@@ -9,8 +9,18 @@ import java.time.LocalDate;
 import java.time.Month;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.MeasureReport;
 import org.hl7.fhir.r4.model.MeasureReport.MeasureReportStatus;
 import org.junit.jupiter.api.Test;
+import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.SEARCH_FILTER_MODE;
+import org.opencds.cqf.fhir.cql.engine.retrieve.RetrieveSettings.TERMINOLOGY_FILTER_MODE;
+import org.opencds.cqf.fhir.cql.engine.terminology.TerminologySettings.VALUESET_EXPANSION_MODE;
+import org.opencds.cqf.fhir.cr.measure.MeasureEvaluationOptions;
 import org.opencds.cqf.fhir.cr.measure.common.MeasurePopulationType;
 import org.opencds.cqf.fhir.cr.measure.r4.MultiMeasure.Given;
 
@@ -1138,4 +1148,63 @@ class MultiMeasureServiceTest {
         assertTrue(e.getMessage().contains("Duplicate population ID"));
         assertTrue(e.getMessage().contains("initial-population"));
     }
+
+    @Test
+    void MultiMeasure_SubjectEvalType_ParallelReportConstructionKeepsOrder() {
+        var sequential = evaluateSubjectReports(null);
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var parallel = evaluateSubjectReports(executor);
+
+            assertEquals(70, parallel.size());
+            assertEquals(sequential, parallel);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> evaluateSubjectReports(Executor reportConstructionExecutor) {
+        var evaluationOptions = MeasureEvaluationOptions.defaultOptions()
+                .setReportConstructionExecutor(reportConstructionExecutor);
+        evaluationOptions
+                .getEvaluationSettings()
+                .getRetrieveSettings()
+                .setSearchParameterMode(SEARCH_FILTER_MODE.FILTER_IN_MEMORY)
+                .setTerminologyParameterMode(TERMINOLOGY_FILTER_MODE.FILTER_IN_MEMORY);
+        evaluationOptions
+                .getEvaluationSettings()
+                .getTerminologySettings()
+                .setValuesetExpansionMode(VALUESET_EXPANSION_MODE.PERFORM_NAIVE_EXPANSION);
+
+        var parameters = MultiMeasure.given()
+                .repositoryFor("MinimalMeasureEvaluation")
+                .evaluationOptions(evaluationOptions)
+                .when()
+                .measureId("MinimalProportionNoBasisSingleGroup")
+                .measureId("MinimalProportionBooleanBasisSingleGroup")
+                .measureId("MinimalRatioBooleanBasisSingleGroup")
+                .measureId("MinimalRatioResourceBasisSingleGroup")
+                .measureId("MinimalCohortResourceBasisSingleGroup")
+                .measureId("MinimalCohortBooleanBasisSingleGroup")
+                .measureId("MinimalContinuousVariableResourceBasisSingleGroup")
+                .periodStart("2024-01-01")
+                .periodEnd("2024-12-31")
+                .reportType("subject")
+                .evaluate()
+                .then()
+                .reportBundles()
+                .reportBundles();
+
+        // measure, subject and population counts of every report, in bundle order
+        return parameters.getParameter().stream()
+                .map(parameter -> (Bundle) parameter.getResource())
+                .flatMap(bundle -> bundle.getEntry().stream())
+                .map(entry -> (MeasureReport) entry.getResource())
+                .map(report -> report.getMeasure() + "|" + report.getSubject().getReference() + "|"
+                        + report.getGroupFirstRep().getPopulation().stream()
+                                .map(population -> String.valueOf(population.getCount()))
+                                .collect(Collectors.joining(",")))
+                .toList();
+    }
 }
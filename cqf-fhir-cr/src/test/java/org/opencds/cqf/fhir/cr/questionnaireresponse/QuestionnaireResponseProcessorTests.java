@@ -2,19 +2,35 @@ package org.opencds.cqf.fhir.cr.questionnaireresponse;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.opencds.cqf.fhir.cr.questionnaireresponse.TestQuestionnaireResponse.given;
 
 import ca.uhn.fhir.context.FhirContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Organization;
 import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Questionnaire;
+import org.hl7.fhir.r4.model.QuestionnaireResponse;
 import org.junit.jupiter.api.Test;
+import org.opencds.cqf.fhir.cr.CrSettings;
 import org.opencds.cqf.fhir.cr.questionnaireresponse.extract.ExtractProcessor;
+import org.opencds.cqf.fhir.cr.questionnaireresponse.extract.ExtractRequest;
+import org.opencds.cqf.fhir.cr.questionnaireresponse.extract.ExtractionPlan;
 import org.opencds.cqf.fhir.utility.BundleHelper;
 import org.opencds.cqf.fhir.utility.Ids;
+import org.opencds.cqf.fhir.utility.monad.Either;
+import org.opencds.cqf.fhir.utility.monad.Eithers;
+import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
 
 @SuppressWarnings("squid:S2699")
 class QuestionnaireResponseProcessorTests {
@@ -171,4 +187,38 @@ class QuestionnaireResponseProcessorTests {
                                 .getValue())
                         .getText());
     }
+
+    @Test
+    void extractionPlansAreSharedByTheRepositoriesOfATenant() {
+        var crSettings = CrSettings.getDefault();
+        var plans = new ArrayList<ExtractionPlan>();
+        var extractProcessor = new ExtractProcessor() {
+            @Override
+            public IBaseBundle extract(ExtractRequest request) {
+                plans.add(request.getExtractionPlan());
+                return new Bundle();
+            }
+        };
+        var questionnaire =
+                new Questionnaire().setUrl("http://example.org/Questionnaire/shared").setVersion("1.0.0");
+        var response = new QuestionnaireResponse().setQuestionnaire(questionnaire.getUrl());
+        Either<IIdType, IBaseResource> responseId = Eithers.forRight(response);
+        Either<IIdType, IBaseResource> questionnaireId = Eithers.forRight(questionnaire);
+        var operationProcessors = List.of(extractProcessor);
+
+        // The server creates a repository, and a processor, for every request
+        new QuestionnaireResponseProcessor(new InMemoryFhirRepository(fhirContextR4), crSettings, operationProcessors)
+                .withPartitionId("tenant-a")
+                .extract(responseId, questionnaireId, null, null, true);
+        new QuestionnaireResponseProcessor(new InMemoryFhirRepository(fhirContextR4), crSettings, operationProcessors)
+                .withPartitionId("tenant-a")
+                .extract(responseId, questionnaireId, null, null, false);
+        new QuestionnaireResponseProcessor(new InMemoryFhirRepository(fhirContextR4), crSettings, operationProcessors)
+                .withPartitionId("tenant-b")
+                .extract(responseId, questionnaireId, null, null, true);
+
+        assertEquals(3, plans.size());
+        assertSame(plans.get(0), plans.get(1));
+        assertNotSame(plans.get(0), plans.get(2));
+    }
 }
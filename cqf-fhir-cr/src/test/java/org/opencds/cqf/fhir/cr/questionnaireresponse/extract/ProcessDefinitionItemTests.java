@@ -3,8 +3,12 @@ package org.opencds.cqf.fhir.cr.questionnaireresponse.extract;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.opencds.cqf.fhir.cr.helpers.RequestHelpers.newExtractRequestForVersion;
 import static org.opencds.cqf.fhir.cr.questionnaireresponse.TestQuestionnaireResponse.open;
 
@@ -12,6 +16,9 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.repository.IRepository;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.hl7.fhir.r4.model.CanonicalType;
 import org.hl7.fhir.r4.model.CodeType;
 import org.hl7.fhir.r4.model.Condition;
@@ -24,6 +31,7 @@ import org.hl7.fhir.r4.model.QuestionnaireResponse;
 import org.hl7.fhir.r4.model.QuestionnaireResponse.QuestionnaireResponseItemAnswerComponent;
 import org.hl7.fhir.r4.model.QuestionnaireResponse.QuestionnaireResponseItemComponent;
 import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.StructureDefinition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,6 +40,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.opencds.cqf.fhir.cql.LibraryEngine;
 import org.opencds.cqf.fhir.cr.common.ExpressionProcessor;
 import org.opencds.cqf.fhir.utility.Constants;
+import org.opencds.cqf.fhir.utility.adapter.IStructureDefinitionAdapter;
 
 @SuppressWarnings("UnstableApiUsage")
 @ExtendWith(MockitoExtension.class)
@@ -178,4 +187,88 @@ class ProcessDefinitionItemTests {
         assertEquals("test1", names.get(0).getText());
         assertEquals("test2", names.get(1).getText());
     }
+
+    @Test
+    void testExtractionPlanIsSharedPerQuestionnaireVersion() {
+        var fhirVersion = FhirVersionEnum.R4;
+        var plans = new ExtractionPlanCache();
+        var questionnaire =
+                new Questionnaire().setUrl("http://example.org/Questionnaire/plan").setVersion("1.0.0");
+        var response = new QuestionnaireResponse();
+        var first = newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire)
+                .withExtractionPlanCache(plans, null);
+        var second = newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire.copy())
+                .withExtractionPlanCache(plans, null);
+        assertSame(first.getExtractionPlan(), second.getExtractionPlan());
+
+        var profileUrl = "http://example.org/StructureDefinition/plan-patient";
+        var profile = (IStructureDefinitionAdapter) first.getAdapterFactory()
+                .createKnowledgeArtifactAdapter(new StructureDefinition().setUrl(profileUrl).setType("Patient"));
+        var resolutions = new AtomicInteger();
+        Function<String, Optional<IStructureDefinitionAdapter>> resolver = canonical -> {
+            resolutions.incrementAndGet();
+            return Optional.of(profile);
+        };
+        assertSame(profile, first.getExtractionPlan().getProfile(profileUrl, resolver).orElseThrow());
+        assertSame(profile, second.getExtractionPlan().getProfile(profileUrl, resolver).orElseThrow());
+        assertEquals(1, resolutions.get());
+
+        var updated = questionnaire.copy().setVersion("1.0.1");
+        var third = newExtractRequestForVersion(fhirVersion, libraryEngine, response, updated)
+                .withExtractionPlanCache(plans, null);
+        assertNotSame(first.getExtractionPlan(), third.getExtractionPlan());
+
+        plans.invalidate(questionnaire.getUrl());
+        var fourth = newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire)
+                .withExtractionPlanCache(plans, null);
+        assertNotSame(first.getExtractionPlan(), fourth.getExtractionPlan());
+
+        // Without a url, or without a cache, the plan only lives as long as the request
+        var unnamed = new Questionnaire();
+        var fifth = newExtractRequestForVersion(fhirVersion, libraryEngine, response, unnamed)
+                .withExtractionPlanCache(plans, null);
+        var sixth = newExtractRequestForVersion(fhirVersion, libraryEngine, response, unnamed)
+                .withExtractionPlanCache(plans, null);
+        assertNotSame(fifth.getExtractionPlan(), sixth.getExtractionPlan());
+        assertNotSame(
+                newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire).getExtractionPlan(),
+                newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire).getExtractionPlan());
+    }
+
+    @Test
+    void testExtractionPlanIsSharedPerPartition() {
+        var fhirVersion = FhirVersionEnum.R4;
+        var plans = new ExtractionPlanCache();
+        var questionnaire =
+                new Questionnaire().setUrl("http://example.org/Questionnaire/tenant").setVersion("1.0.0");
+        var response = new QuestionnaireResponse();
+        var otherRepository = mock(IRepository.class);
+        doReturn(fhirContextR4).when(otherRepository).fhirContext();
+        var otherLibraryEngine = mock(LibraryEngine.class);
+        doReturn(otherRepository).when(otherLibraryEngine).getRepository();
+
+        // A repository is created for every request, so plans are shared by partition rather than repository
+        var first = newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire)
+                .withExtractionPlanCache(plans, "tenant-a");
+        var second = newExtractRequestForVersion(fhirVersion, otherLibraryEngine, response, questionnaire)
+                .withExtractionPlanCache(plans, "tenant-a");
+        assertSame(first.getExtractionPlan(), second.getExtractionPlan());
+
+        var otherTenant = newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire)
+                .withExtractionPlanCache(plans, "tenant-b");
+        assertNotSame(first.getExtractionPlan(), otherTenant.getExtractionPlan());
+        var defaultPartition = newExtractRequestForVersion(fhirVersion, libraryEngine, response, questionnaire)
+                .withExtractionPlanCache(plans, null);
+        assertNotSame(first.getExtractionPlan(), defaultPartition.getExtractionPlan());
+    }
+
+    @Test
+    void testValuesFromThePlanAreCopied() {
+        var request = newExtractRequestForVersion(
+                FhirVersionEnum.R4, libraryEngine, new QuestionnaireResponse(), new Questionnaire());
+        var value = new CodeType("fixed");
+        var copy = ExtractionPlan.copyOf(request.getAdapterFactory(), value);
+        assertNotSame(value, copy);
+        assertTrue(value.equalsDeep((CodeType) copy));
+    }
 }
@@ -0,0 +1,79 @@
+package org.opencds.cqf.fhir.cr.visitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.opencds.cqf.fhir.utility.Parameters.newParameters;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.repository.IRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.cqframework.cql.cql2elm.CqlTranslator;
+import org.cqframework.cql.cql2elm.LibraryManager;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Library;
+import org.junit.jupiter.api.Test;
+import org.opencds.cqf.fhir.cql.EvaluationSettings;
+import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
+import org.opencds.cqf.fhir.utility.repository.InMemoryFhirRepository;
+
+class DataRequirementsVisitorTest {
+
+    private static final String CQL = """
+            library DataRequirementsVisitorTest version '1.0.0'
+            using FHIR version '4.0.1'
+            context Patient
+            define "Observations": [Observation]
+            define "Conditions": [Condition]
+            """;
+
+    private final FhirContext fhirContext = FhirContext.forR4Cached();
+    private final IAdapterFactory adapterFactory = IAdapterFactory.forFhirContext(fhirContext);
+
+    private static class CountingDataRequirementsVisitor extends DataRequirementsVisitor {
+        private final AtomicInteger translations = new AtomicInteger();
+
+        CountingDataRequirementsVisitor(IRepository repository, EvaluationSettings evaluationSettings) {
+            super(repository, evaluationSettings);
+        }
+
+        @Override
+        protected CqlTranslator translateLibrary(IBaseResource library, LibraryManager libraryManager) {
+            translations.incrementAndGet();
+            return super.translateLibrary(library, libraryManager);
+        }
+    }
+
+    @Test
+    void visit_translatesLibraryOnceAndReusesRequirements() {
+        var repository = new InMemoryFhirRepository(fhirContext);
+        var library = new Library();
+        library.setId("Library/DataRequirementsVisitorTest");
+        library.setUrl("http://example.org/Library/DataRequirementsVisitorTest");
+        library.setName("DataRequirementsVisitorTest");
+        library.setVersion("1.0.0");
+        library.setStatus(Enumerations.PublicationStatus.ACTIVE);
+        library.addContent().setContentType("text/cql").setData(CQL.getBytes(StandardCharsets.UTF_8));
+        repository.update(library);
+
+        var evaluationSettings = EvaluationSettings.getDefault();
+        var visitor = new CountingDataRequirementsVisitor(repository, evaluationSettings);
+        var adapter = adapterFactory.createKnowledgeArtifactAdapter(library);
+
+        var first = (Library) visitor.visit(adapter, newParameters(fhirContext));
+        var second = (Library) visitor.visit(adapter, newParameters(fhirContext));
+
+        assertEquals(1, visitor.translations.get());
+        assertFalse(evaluationSettings.getLibraryCache().isEmpty());
+        assertFalse(first.getDataRequirement().isEmpty());
+        assertEquals(first.getDataRequirement().size(), second.getDataRequirement().size());
+        assertNotSame(first.getDataRequirementFirstRep(), second.getDataRequirementFirstRep());
+
+        // A new visitor sharing the library cache does not compile the library again
+        var other = new CountingDataRequirementsVisitor(repository, evaluationSettings);
+        other.visit(adapter, newParameters(fhirContext));
+        assertEquals(0, other.translations.get());
+    }
+}
@@ -592,6 +592,63 @@ class KeyElementAnalyzerTest {
         assertTrue(result.isEmpty(), "Profile with no snapshot should return empty ValueSets");
     }
 
+    @Test
+    void testGetKeyElementValueSets_MustSupportDescendantMakesAncestorsKey() {
+        var analyzer = createAnalyzer();
+        var profile =
+                createConstraintProfileWithSnapshot("Patient", "http://example.org/StructureDefinition/TestPatient");
+
+        var contact = profile.getSnapshot().addElement();
+        contact.setId("Patient.contact");
+        contact.setPath("Patient.contact");
+
+        var relationship = profile.getSnapshot().addElement();
+        relationship.setId("Patient.contact.relationship");
+        relationship.setPath("Patient.contact.relationship");
+        relationship.setMustSupport(true);
+        relationship
+                .getBinding()
+                .setStrength(BindingStrength.EXTENSIBLE)
+                .setValueSet("http://hl7.org/fhir/ValueSet/patient-contactrelationship");
+
+        var result = analyzer.getKeyElementValueSets(profile);
+
+        assertTrue(
+                result.contains("http://hl7.org/fhir/ValueSet/patient-contactrelationship"),
+                "Children of the ancestors of mustSupport elements should be scanned");
+    }
+
+    @Test
+    void testGetKeyElementValueSets_ReusesAnalysisForSameCanonicalAndVersion() {
+        var repository = mock(IRepository.class);
+        when(repository.fhirContext()).thenReturn(FhirContext.forR4Cached());
+        var resolver = new ConformanceResourceResolver(repository);
+        var profile =
+                createConstraintProfileWithSnapshot("Patient", "http://example.org/StructureDefinition/TestPatient");
+        profile.setVersion("1.0.0");
+
+        var element = profile.getSnapshot().addElement();
+        element.setId("Patient.maritalStatus");
+        element.setPath("Patient.maritalStatus");
+        element.setMustSupport(true);
+        element.getBinding()
+                .setStrength(BindingStrength.REQUIRED)
+                .setValueSet("http://hl7.org/fhir/ValueSet/marital-status");
+
+        var first = new KeyElementAnalyzer(resolver, FhirVersionEnum.R4).getKeyElementValueSets(profile);
+
+        // The same canonical and version is not analyzed again
+        element.getBinding().setValueSet("http://example.org/ValueSet/other");
+        var second = new KeyElementAnalyzer(resolver, FhirVersionEnum.R4).getKeyElementValueSets(profile);
+        assertEquals(first, second);
+
+        // A new version is
+        profile.setVersion("2.0.0");
+        var third = new KeyElementAnalyzer(resolver, FhirVersionEnum.R4).getKeyElementValueSets(profile);
+        assertTrue(third.contains("http://example.org/ValueSet/other"));
+        assertFalse(third.contains("http://hl7.org/fhir/ValueSet/marital-status"));
+    }
+
     /**
      * Helper method to create a StructureDefinition with CONSTRAINT derivation and snapshot root element.
      */
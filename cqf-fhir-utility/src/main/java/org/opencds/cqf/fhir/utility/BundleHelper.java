@@ -488,6 +488,32 @@ public class BundleHelper {
         };
     }
 
+    /**
+     * Adds a link with the given relation to the Bundle and returns the Bundle
+     * @param bundle IBaseBundle
+     * @param relation the link relation, e.g. next
+     * @param url the link url
+     * @return IBaseBundle
+     */
+    public static IBaseBundle addLink(IBaseBundle bundle, String relation, String url) {
+        var fhirVersion = bundle.getStructureFhirVersionEnum();
+        switch (fhirVersion) {
+            case DSTU3 -> ((Bundle) bundle).addLink().setRelation(relation).setUrl(url);
+            case R4 -> ((org.hl7.fhir.r4.model.Bundle) bundle)
+                    .addLink()
+                    .setRelation(relation)
+                    .setUrl(url);
+            case R5 -> ((org.hl7.fhir.r5.model.Bundle) bundle)
+                    .addLink()
+                    .setRelation(org.hl7.fhir.r5.model.Bundle.LinkRelationTypes.fromCode(relation))
+                    .setUrl(url);
+            default ->
+                throw new IllegalArgumentException(
+                        UNSUPPORTED_VERSION_OF_FHIR.formatted(fhirVersion.getFhirVersionString()));
+        }
+        return bundle;
+    }
+
     /**
      * Returns a new entry element
      * @param fhirVersion FhirVersionEnum
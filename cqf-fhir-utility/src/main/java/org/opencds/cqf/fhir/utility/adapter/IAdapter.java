@@ -37,6 +37,20 @@ public interface IAdapter<T extends IBase> {
 
     FhirContext fhirContext();
 
+    /**
+     * @return a deep copy of the underlying HL7 Structure, made by the model's own copy()
+     */
+    @SuppressWarnings("unchecked")
+    default T copy() {
+        var value = get();
+        return switch (fhirVersion()) {
+            case DSTU3 -> (T) ((org.hl7.fhir.dstu3.model.Base) value).copy();
+            case R4 -> (T) ((org.hl7.fhir.r4.model.Base) value).copy();
+            case R5 -> (T) ((org.hl7.fhir.r5.model.Base) value).copy();
+            default -> throw new UnprocessableEntityException(UNSUPPORTED_VERSION.formatted(fhirVersion()));
+        };
+    }
+
     default FhirVersionEnum fhirVersion() {
         return fhirContext().getVersion().getVersion();
     }
@@ -77,7 +77,7 @@ public class ExpandRunner implements Runnable {
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
             }
-            throw new TerminologyServerExpansionException(e.getMessage());
+            throw new TerminologyServerExpansionException(e.getMessage(), e);
         }
     }
 
@@ -278,5 +278,9 @@ public class ExpandRunner implements Runnable {
         public TerminologyServerExpansionException(String message) {
             super(STATUS_CODE, message);
         }
+
+        public TerminologyServerExpansionException(String message, Throwable cause) {
+            super(STATUS_CODE, message, cause);
+        }
     }
 }
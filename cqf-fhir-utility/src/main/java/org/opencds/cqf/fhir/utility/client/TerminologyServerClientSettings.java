@@ -2,6 +2,18 @@ package org.opencds.cqf.fhir.utility.client;
 
 public class TerminologyServerClientSettings {
 
+    /**
+     * How a lookup is spread over the endpoints that may be able to answer it.
+     */
+    public enum EndpointResolution {
+        /** Try each endpoint in priority order, starting the next when the previous has no answer */
+        SEQUENTIAL,
+        /** Also start the next endpoint when the previous has not answered within the hedge delay */
+        HEDGED,
+        /** Start all endpoints at once */
+        PARALLEL
+    }
+
     private int maxRetryCount = 3;
     private long retryIntervalMillis = 1000;
     private int timeoutSeconds = 30;
@@ -9,6 +21,11 @@ public class TerminologyServerClientSettings {
     private String crmiVersion = "1.0.0";
     private int expansionsPerPage = 1000;
     private int maxExpansionPages = 1000;
+    private EndpointResolution endpointResolution = EndpointResolution.SEQUENTIAL;
+    private long hedgeDelayMillis = 500;
+    private int circuitBreakerFailureThreshold = 0;
+    private long circuitBreakerOpenMillis = 60_000;
+    private long negativeCacheMillis = 0;
 
     public static TerminologyServerClientSettings getDefault() {
         return new TerminologyServerClientSettings();
@@ -30,6 +47,11 @@ public class TerminologyServerClientSettings {
         this.crmiVersion = terminologyServerClientSettings.crmiVersion;
         this.expansionsPerPage = terminologyServerClientSettings.expansionsPerPage;
         this.maxExpansionPages = terminologyServerClientSettings.maxExpansionPages;
+        this.endpointResolution = terminologyServerClientSettings.endpointResolution;
+        this.hedgeDelayMillis = terminologyServerClientSettings.hedgeDelayMillis;
+        this.circuitBreakerFailureThreshold = terminologyServerClientSettings.circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenMillis = terminologyServerClientSettings.circuitBreakerOpenMillis;
+        this.negativeCacheMillis = terminologyServerClientSettings.negativeCacheMillis;
     }
 
     public int getMaxRetryCount() {
@@ -94,4 +116,67 @@ public class TerminologyServerClientSettings {
         this.maxExpansionPages = maxExpansionPages;
         return this;
     }
+
+    public EndpointResolution getEndpointResolution() {
+        return endpointResolution;
+    }
+
+    public TerminologyServerClientSettings setEndpointResolution(EndpointResolution endpointResolution) {
+        this.endpointResolution = endpointResolution;
+        return this;
+    }
+
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    /**
+     * @param hedgeDelayMillis how long a HEDGED lookup waits on an endpoint before also starting the next
+     * @return this
+     */
+    public TerminologyServerClientSettings setHedgeDelayMillis(long hedgeDelayMillis) {
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        return this;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * @param circuitBreakerFailureThreshold consecutive failures after which an endpoint is skipped, 0 (the
+     *                                       default) to never skip
+     * @return this
+     */
+    public TerminologyServerClientSettings setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        return this;
+    }
+
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * @param circuitBreakerOpenMillis how long a failing endpoint is skipped before it is tried again
+     * @return this
+     */
+    public TerminologyServerClientSettings setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+        return this;
+    }
+
+    public long getNegativeCacheMillis() {
+        return negativeCacheMillis;
+    }
+
+    /**
+     * @param negativeCacheMillis how long a url no endpoint knows is remembered as unknown, 0 (the default) to
+     *                            not remember
+     * @return this
+     */
+    public TerminologyServerClientSettings setNegativeCacheMillis(long negativeCacheMillis) {
+        this.negativeCacheMillis = negativeCacheMillis;
+        return this;
+    }
 }
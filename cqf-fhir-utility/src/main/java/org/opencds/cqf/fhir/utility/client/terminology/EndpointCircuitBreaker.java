@@ -0,0 +1,74 @@
+package org.opencds.cqf.fhir.utility.client.terminology;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks consecutive failures per endpoint address. Once an endpoint has failed the threshold
+ * number of times in a row it is skipped until the open period has passed, after which it is tried
+ * again. A single success closes it.
+ * <p/>
+ * An instance may be shared between routers so that the state outlives any one of them.
+ */
+public class EndpointCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    private static class State {
+        private int consecutiveFailures;
+        private long openUntil;
+    }
+
+    /**
+     * @param failureThreshold consecutive failures after which an endpoint is skipped, 0 or less to never skip
+     * @param openMillis       how long a failing endpoint is skipped
+     */
+    public EndpointCircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    EndpointCircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @param address the endpoint address
+     * @return false while the endpoint is being skipped
+     */
+    public boolean allowRequest(String address) {
+        var state = states.get(key(address));
+        if (state == null) {
+            return true;
+        }
+        synchronized (state) {
+            return state.openUntil <= clock.getAsLong();
+        }
+    }
+
+    public void recordSuccess(String address) {
+        states.remove(key(address));
+    }
+
+    public void recordFailure(String address) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        var state = states.computeIfAbsent(key(address), k -> new State());
+        synchronized (state) {
+            state.consecutiveFailures++;
+            if (state.consecutiveFailures >= failureThreshold) {
+                state.openUntil = clock.getAsLong() + openMillis;
+            }
+        }
+    }
+
+    private static String key(String address) {
+        return address == null ? "" : address;
+    }
+}
@@ -0,0 +1,228 @@
+package org.opencds.cqf.fhir.utility.client.terminology;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.rest.client.exceptions.FhirClientConnectionException;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.opencds.cqf.fhir.utility.adapter.IEndpointAdapter;
+import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings;
+import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings.EndpointResolution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a lookup against a prioritized list of endpoints and returns the first answer found, using
+ * the {@link EndpointResolution} of the settings. Endpoints whose circuit is open are skipped. Only
+ * failures of the endpoint itself (connection failures, timeouts and 5xx responses) are recorded
+ * as failures with the circuit breaker, not errors about what was looked up, such as an unknown
+ * ValueSet. Lookups that every endpoint answered without finding anything may be remembered, so
+ * that they are not repeated.
+ */
+class EndpointResolver {
+    private static final Logger logger = LoggerFactory.getLogger(EndpointResolver.class);
+
+    private final TerminologyServerClientSettings settings;
+    private final EndpointCircuitBreaker circuitBreaker;
+    private final Executor executor;
+    private final Cache<String, Boolean> notFound;
+
+    EndpointResolver(
+            TerminologyServerClientSettings settings, EndpointCircuitBreaker circuitBreaker, Executor executor) {
+        this.settings = requireNonNull(settings);
+        this.circuitBreaker = requireNonNull(circuitBreaker);
+        this.executor = requireNonNull(executor);
+        this.notFound = settings.getNegativeCacheMillis() > 0
+                ? CacheBuilder.newBuilder()
+                        .expireAfterWrite(settings.getNegativeCacheMillis(), TimeUnit.MILLISECONDS)
+                        .maximumSize(10_000)
+                        .build()
+                : null;
+    }
+
+    private record Attempt<T>(T value, RuntimeException failure) {}
+
+    /**
+     * @param endpoints         the endpoints, in priority order
+     * @param lookup            the lookup to run against an endpoint
+     * @param found             whether the result of a lookup is an answer
+     * @param notFoundKey       identifies the lookup for remembering that it found nothing, or null
+     *                          to not remember
+     * @param propagateFailures if no endpoint found an answer and any failed, rethrow the first
+     *                          failure rather than returning empty
+     * @return the first answer found
+     * @throws InternalErrorException if the circuit of every endpoint is open
+     */
+    <T> Optional<T> resolve(
+            List<IEndpointAdapter> endpoints,
+            Function<IEndpointAdapter, T> lookup,
+            Predicate<T> found,
+            String notFoundKey,
+            boolean propagateFailures) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var cacheKey = notFound == null || notFoundKey == null ? null : notFoundKey + "|" + addresses(endpoints);
+        if (cacheKey != null && notFound.getIfPresent(cacheKey) != null) {
+            return Optional.empty();
+        }
+
+        var available = endpoints.stream()
+                .filter(endpoint -> {
+                    var allowed = circuitBreaker.allowRequest(endpoint.getAddress());
+                    if (!allowed) {
+                        logger.debug("Skipping endpoint {} while its circuit is open", endpoint.getAddress());
+                    }
+                    return allowed;
+                })
+                .toList();
+        if (available.isEmpty()) {
+            throw new InternalErrorException(
+                    "No terminology endpoint is available, the circuit of every endpoint is open: "
+                            + addresses(endpoints));
+        }
+
+        var attempts = new ArrayList<Attempt<T>>();
+        var answer = settings.getEndpointResolution() == EndpointResolution.SEQUENTIAL || available.size() < 2
+                ? resolveSequentially(available, lookup, found, attempts)
+                : resolveConcurrently(available, lookup, found, attempts);
+        if (answer.isPresent()) {
+            return answer;
+        }
+
+        var firstFailure = attempts.stream()
+                .map(Attempt::failure)
+                .filter(Objects::nonNull)
+                .findFirst();
+        if (firstFailure.isPresent()) {
+            if (propagateFailures) {
+                throw firstFailure.get();
+            }
+        } else if (cacheKey != null && available.size() == endpoints.size()) {
+            // Every endpoint answered and none knew it
+            notFound.put(cacheKey, Boolean.TRUE);
+        }
+
+        return Optional.empty();
+    }
+
+    private <T> Optional<T> resolveSequentially(
+            List<IEndpointAdapter> endpoints,
+            Function<IEndpointAdapter, T> lookup,
+            Predicate<T> found,
+            List<Attempt<T>> attempts) {
+        for (var endpoint : endpoints) {
+            var attempt = attempt(endpoint, lookup);
+            attempts.add(attempt);
+            if (attempt.failure() == null && found.test(attempt.value())) {
+                return Optional.of(attempt.value());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private <T> Optional<T> resolveConcurrently(
+            List<IEndpointAdapter> endpoints,
+            Function<IEndpointAdapter, T> lookup,
+            Predicate<T> found,
+            List<Attempt<T>> attempts) {
+        var parallel = settings.getEndpointResolution() == EndpointResolution.PARALLEL;
+        var completionService = new ExecutorCompletionService<Attempt<T>>(executor);
+        var started = new ArrayList<Future<Attempt<T>>>();
+        int pending = 0;
+
+        try {
+            while (started.size() < endpoints.size() || pending > 0) {
+                var allStarted = started.size() == endpoints.size();
+                if (!allStarted && (parallel || pending == 0)) {
+                    var endpoint = endpoints.get(started.size());
+                    started.add(completionService.submit(() -> attempt(endpoint, lookup)));
+                    pending++;
+                    continue;
+                }
+
+                var completed = allStarted
+                        ? completionService.take()
+                        : completionService.poll(settings.getHedgeDelayMillis(), TimeUnit.MILLISECONDS);
+                if (completed == null) {
+                    // The endpoints in flight are slow, hedge with the next one
+                    var endpoint = endpoints.get(started.size());
+                    started.add(completionService.submit(() -> attempt(endpoint, lookup)));
+                    pending++;
+                    continue;
+                }
+
+                pending--;
+                var attempt = completed.get();
+                attempts.add(attempt);
+                if (attempt.failure() == null && found.test(attempt.value())) {
+                    return Optional.of(attempt.value());
+                }
+            }
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalErrorException("Interrupted while resolving endpoints", e);
+        } catch (ExecutionException e) {
+            // attempt() does not throw, so this is unexpected
+            throw new InternalErrorException(e.getCause());
+        } finally {
+            // Lookups already running are left to finish so that their outcome is recorded with
+            // the circuit breaker, rather than interrupted and counted as failures
+            started.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private <T> Attempt<T> attempt(IEndpointAdapter endpoint, Function<IEndpointAdapter, T> lookup) {
+        try {
+            var value = lookup.apply(endpoint);
+            circuitBreaker.recordSuccess(endpoint.getAddress());
+            return new Attempt<>(value, null);
+        } catch (RuntimeException e) {
+            logger.debug("Lookup failed on endpoint {}", endpoint.getAddress(), e);
+            if (isEndpointFailure(e)) {
+                circuitBreaker.recordFailure(endpoint.getAddress());
+            } else {
+                // The endpoint answered, if only to reject the lookup
+                circuitBreaker.recordSuccess(endpoint.getAddress());
+            }
+            return new Attempt<>(null, e);
+        }
+    }
+
+    /**
+     * @return true if the failure says the endpoint is unreachable or failing, rather than
+     * rejecting the lookup
+     */
+    static boolean isEndpointFailure(RuntimeException failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FhirClientConnectionException
+                    || cause instanceof IOException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return failure instanceof BaseServerResponseException response && response.getStatusCode() >= 500;
+    }
+
+    private static String addresses(List<IEndpointAdapter> endpoints) {
+        return String.join(
+                ",", endpoints.stream().map(IEndpointAdapter::getAddress).toList());
+    }
+}
@@ -3,30 +3,53 @@ package org.opencds.cqf.fhir.utility.client.terminology;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import jakarta.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IDomainResource;
+import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
 import org.opencds.cqf.fhir.utility.adapter.IEndpointAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IKnowledgeArtifactAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IParametersAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IValueSetAdapter;
 import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings;
+import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings.EndpointResolution;
 import org.opencds.cqf.fhir.utility.search.Searches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This class is a router that links ValueSets + Endpoints to actual Terminology Servers.
  * Routing rules are derived from the CRMI IG,
  * https://hl7.org/fhir/uv/crmi/StructureDefinition-crmi-artifact-endpoint-configurable-operation.html
+ * <p/>
+ * Lookups against a list of endpoints are spread over them according to the
+ * {@link EndpointResolution} of the settings. Endpoints that keep failing are skipped for a
+ * cool-down period, and resource lookups that no endpoint could answer are remembered for the
+ * negative cache period of the settings.
  */
 public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider implements ITerminologyProviderRouter {
 
+    private static final Logger logger = LoggerFactory.getLogger(FederatedTerminologyProviderRouter.class);
+
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "terminology-endpoint-resolution");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final List<ITerminologyServerClient> clients;
     private final ITerminologyServerClient defaultClient;
+    private final TerminologyServerClientSettings resolutionSettings;
+    private final EndpointResolver endpointResolver;
 
     public FederatedTerminologyProviderRouter(FhirContext fhirContext) {
         this(fhirContext, null);
@@ -34,12 +57,40 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
 
     public FederatedTerminologyProviderRouter(
             FhirContext fhirContext, TerminologyServerClientSettings terminologyServerClientSettings) {
+        this(fhirContext, terminologyServerClientSettings, null, null);
+    }
+
+    /**
+     * @param fhirContext                     the FhirContext
+     * @param terminologyServerClientSettings the client and endpoint resolution settings, defaults if null
+     * @param circuitBreaker                  the circuit breaker for the endpoints, e.g. one shared between
+     *                                        routers, or null for one of this router's own built from the settings
+     * @param executor                        the executor HEDGED and PARALLEL lookups run on, or null for a
+     *                                        shared pool of daemon threads
+     */
+    public FederatedTerminologyProviderRouter(
+            FhirContext fhirContext,
+            TerminologyServerClientSettings terminologyServerClientSettings,
+            @Nullable EndpointCircuitBreaker circuitBreaker,
+            @Nullable Executor executor) {
         super(fhirContext);
 
         defaultClient = new GenericTerminologyServerClient(fhirContext, terminologyServerClientSettings);
         clients = new ArrayList<>();
         clients.add(defaultClient);
         clients.add(new VsacTerminologyServerClient(fhirContext, terminologyServerClientSettings));
+
+        resolutionSettings = terminologyServerClientSettings != null
+                ? terminologyServerClientSettings
+                : TerminologyServerClientSettings.getDefault();
+        endpointResolver = new EndpointResolver(
+                resolutionSettings,
+                circuitBreaker != null
+                        ? circuitBreaker
+                        : new EndpointCircuitBreaker(
+                                resolutionSettings.getCircuitBreakerFailureThreshold(),
+                                resolutionSettings.getCircuitBreakerOpenMillis()),
+                executor != null ? executor : DEFAULT_EXECUTOR);
     }
 
     private ITerminologyServerClient getClient(String address) {
@@ -99,20 +150,26 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
     @Override
     public IBaseResource expand(
             IValueSetAdapter valueSet, List<IEndpointAdapter> endpoints, IParametersAdapter parameters) {
-        return prioritizeEndpoints(endpoints, valueSet.getUrl()).stream()
-                .map(endpoint -> expand(valueSet, endpoint, parameters))
-                .filter(Objects::nonNull)
-                .findFirst()
+        return endpointResolver
+                .resolve(
+                        prioritizeEndpoints(endpoints, valueSet.getUrl()),
+                        endpoint -> expand(valueSet, endpoint, parametersForAttempt(parameters)),
+                        Objects::nonNull,
+                        null,
+                        true)
                 .orElse(null);
     }
 
     @Override
     public IBaseResource expand(
             List<IEndpointAdapter> endpoints, IParametersAdapter parameters, FhirVersionEnum fhirVersion) {
-        return endpoints.stream()
-                .map(endpoint -> expand(endpoint, parameters, fhirVersion))
-                .filter(Objects::nonNull)
-                .findFirst()
+        return endpointResolver
+                .resolve(
+                        endpoints,
+                        endpoint -> expand(endpoint, parametersForAttempt(parameters), fhirVersion),
+                        Objects::nonNull,
+                        null,
+                        true)
                 .orElse(null);
     }
 
@@ -123,10 +180,14 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
             String url,
             String valueSetVersion,
             FhirVersionEnum fhirVersion) {
-        return prioritizeEndpoints(endpoints, url).stream()
-                .map(endpoint -> expand(endpoint, parameters, url, valueSetVersion, fhirVersion))
-                .filter(Objects::nonNull)
-                .findFirst()
+        return endpointResolver
+                .resolve(
+                        prioritizeEndpoints(endpoints, url),
+                        endpoint ->
+                                expand(endpoint, parametersForAttempt(parameters), url, valueSetVersion, fhirVersion),
+                        Objects::nonNull,
+                        null,
+                        true)
                 .orElse(null);
     }
 
@@ -142,10 +203,14 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
 
     @Override
     public Optional<IDomainResource> getCodeSystemResource(List<IEndpointAdapter> endpoints, String url) {
-        return prioritizeEndpoints(endpoints, url).stream()
-                .map(endpoint -> getCodeSystemResource(endpoint, url))
-                .flatMap(Optional::stream)
-                .findFirst();
+        return endpointResolver
+                .resolve(
+                        prioritizeEndpoints(endpoints, url),
+                        endpoint -> getCodeSystemResource(endpoint, url),
+                        Optional::isPresent,
+                        "CodeSystem|" + url,
+                        true)
+                .flatMap(Function.identity());
     }
 
     @Override
@@ -160,10 +225,14 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
 
     @Override
     public Optional<IDomainResource> getLatestValueSetResource(List<IEndpointAdapter> endpoints, String url) {
-        return prioritizeEndpoints(endpoints, url).stream()
-                .map(endpoint -> getLatestValueSetResource(endpoint, url))
-                .flatMap(Optional::stream)
-                .findFirst();
+        return endpointResolver
+                .resolve(
+                        prioritizeEndpoints(endpoints, url),
+                        endpoint -> getLatestValueSetResource(endpoint, url),
+                        Optional::isPresent,
+                        "LatestValueSet|" + url,
+                        true)
+                .flatMap(Function.identity());
     }
 
     public org.hl7.fhir.r4.model.TerminologyCapabilities getR4TerminologyCapabilities(IEndpointAdapter endpoint) {
@@ -187,10 +256,14 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
 
     @Override
     public Optional<IDomainResource> getValueSetResource(List<IEndpointAdapter> endpoints, String url) {
-        return prioritizeEndpoints(endpoints, url).stream()
-                .map(endpoint -> getValueSetResource(endpoint, url))
-                .flatMap(Optional::stream)
-                .findFirst();
+        return endpointResolver
+                .resolve(
+                        prioritizeEndpoints(endpoints, url),
+                        endpoint -> getValueSetResource(endpoint, url),
+                        Optional::isPresent,
+                        "ValueSet|" + url,
+                        true)
+                .flatMap(Function.identity());
     }
 
     // CRMI ArtifactEndpointConfiguration-based routing methods
@@ -242,23 +315,14 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
         }
 
         String valueSetUrl = valueSet.getUrl();
-        var prioritized = prioritizeConfigurations(configurations, valueSetUrl);
-
-        for (var config : prioritized) {
-            try {
-                IEndpointAdapter endpoint = config.getEffectiveEndpoint(fhirContext);
-                if (endpoint != null) {
-                    var result = expand(valueSet, endpoint, parameters);
-                    if (result != null) {
-                        return result;
-                    }
-                }
-            } catch (Exception e) {
-                // Log and try next configuration
-                // Swallow exception to try next endpoint in priority order
-            }
-        }
-        return null;
+        return endpointResolver
+                .resolve(
+                        getEffectiveEndpoints(prioritizeConfigurations(configurations, valueSetUrl)),
+                        endpoint -> expand(valueSet, endpoint, parametersForAttempt(parameters)),
+                        Objects::nonNull,
+                        null,
+                        false)
+                .orElse(null);
     }
 
     @Override
@@ -268,22 +332,14 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
             return Optional.empty();
         }
 
-        var prioritized = prioritizeConfigurations(configurations, url);
-
-        for (var config : prioritized) {
-            try {
-                IEndpointAdapter endpoint = config.getEffectiveEndpoint(fhirContext);
-                if (endpoint != null) {
-                    var result = getValueSetResource(endpoint, url);
-                    if (result.isPresent()) {
-                        return result;
-                    }
-                }
-            } catch (Exception e) {
-                // Try next configuration
-            }
-        }
-        return Optional.empty();
+        return endpointResolver
+                .resolve(
+                        getEffectiveEndpoints(prioritizeConfigurations(configurations, url)),
+                        endpoint -> getValueSetResource(endpoint, url),
+                        Optional::isPresent,
+                        "ValueSet|" + url,
+                        false)
+                .flatMap(Function.identity());
     }
 
     @Override
@@ -293,21 +349,40 @@ public class FederatedTerminologyProviderRouter extends BaseTerminologyProvider
             return Optional.empty();
         }
 
-        var prioritized = prioritizeConfigurations(configurations, url);
+        return endpointResolver
+                .resolve(
+                        getEffectiveEndpoints(prioritizeConfigurations(configurations, url)),
+                        endpoint -> getCodeSystemResource(endpoint, url),
+                        Optional::isPresent,
+                        "CodeSystem|" + url,
+                        false)
+                .flatMap(Function.identity());
+    }
 
-        for (var config : prioritized) {
+    private List<IEndpointAdapter> getEffectiveEndpoints(List<ArtifactEndpointConfiguration> configurations) {
+        var endpoints = new ArrayList<IEndpointAdapter>();
+        for (var config : configurations) {
             try {
-                IEndpointAdapter endpoint = config.getEffectiveEndpoint(fhirContext);
+                var endpoint = config.getEffectiveEndpoint(fhirContext);
                 if (endpoint != null) {
-                    var result = getCodeSystemResource(endpoint, url);
-                    if (result.isPresent()) {
-                        return result;
-                    }
+                    endpoints.add(endpoint);
                 }
             } catch (Exception e) {
-                // Try next configuration
+                // Skip the configuration and try the next in priority order
+                logger.debug("Unable to resolve the endpoint of an artifact endpoint configuration", e);
             }
         }
-        return Optional.empty();
+        return endpoints;
+    }
+
+    /**
+     * Expansion adds the url and version to the parameters it is given, so lookups that may run
+     * concurrently each get a copy.
+     */
+    private IParametersAdapter parametersForAttempt(IParametersAdapter parameters) {
+        if (resolutionSettings.getEndpointResolution() == EndpointResolution.SEQUENTIAL) {
+            return parameters;
+        }
+        return IAdapterFactory.forFhirContext(fhirContext).createParameters((IBaseParameters) parameters.copy());
     }
 }
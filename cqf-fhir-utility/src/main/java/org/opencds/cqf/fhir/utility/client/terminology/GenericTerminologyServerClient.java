@@ -6,6 +6,7 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import java.util.List;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IDomainResource;
@@ -17,10 +18,12 @@ import org.opencds.cqf.fhir.utility.adapter.IValueSetAdapter;
 import org.opencds.cqf.fhir.utility.client.Clients;
 import org.opencds.cqf.fhir.utility.client.ExpandRunner;
 import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings;
+import org.opencds.cqf.fhir.utility.client.terminology.TerminologyServerClientRegistry.ClientKey;
 import org.opencds.cqf.fhir.utility.search.Searches;
 
 public class GenericTerminologyServerClient extends BaseTerminologyProvider implements ITerminologyServerClient {
     protected final TerminologyServerClientSettings terminologyServerClientSettings;
+    protected final TerminologyServerClientRegistry clientRegistry;
 
     public GenericTerminologyServerClient(FhirContext fhirContext) {
         this(fhirContext, null);
@@ -28,10 +31,23 @@ public class GenericTerminologyServerClient extends BaseTerminologyProvider impl
 
     public GenericTerminologyServerClient(
             FhirContext fhirContext, TerminologyServerClientSettings terminologyServerClientSettings) {
+        this(fhirContext, terminologyServerClientSettings, null);
+    }
+
+    /**
+     * @param fhirContext                     the FhirContext of the clients
+     * @param terminologyServerClientSettings the settings of the clients, defaults if null
+     * @param clientRegistry                  the registry the clients are pooled in, the shared default if null
+     */
+    public GenericTerminologyServerClient(
+            FhirContext fhirContext,
+            TerminologyServerClientSettings terminologyServerClientSettings,
+            TerminologyServerClientRegistry clientRegistry) {
         super(fhirContext);
         this.terminologyServerClientSettings = terminologyServerClientSettings != null
                 ? terminologyServerClientSettings
                 : TerminologyServerClientSettings.getDefault();
+        this.clientRegistry = clientRegistry != null ? clientRegistry : TerminologyServerClientRegistry.getDefault();
     }
 
     @Override
@@ -88,10 +104,12 @@ public class GenericTerminologyServerClient extends BaseTerminologyProvider impl
     }
 
     public org.hl7.fhir.r4.model.TerminologyCapabilities getR4TerminologyCapabilities(IEndpointAdapter endpoint) {
-        var fhirClient = initializeClientWithAuth(endpoint);
-
-        return fhirClient.fetchResourceFromUrl(
-                org.hl7.fhir.r4.model.TerminologyCapabilities.class, "/metadata?mode=terminology");
+        return clientRegistry.getCapabilities(
+                getClientKey(endpoint),
+                fhirClient -> registerAuth(fhirClient, endpoint),
+                org.hl7.fhir.r4.model.TerminologyCapabilities.class,
+                fhirClient -> fhirClient.fetchResourceFromUrl(
+                        org.hl7.fhir.r4.model.TerminologyCapabilities.class, "/metadata?mode=terminology"));
     }
 
     @Override
@@ -101,18 +119,37 @@ public class GenericTerminologyServerClient extends BaseTerminologyProvider impl
 
     @Override
     public IGenericClient initializeClientWithAuth(IEndpointAdapter endpoint) {
-        var fhirClient = fhirContext.newRestfulGenericClient(getAddressBase(endpoint.getAddress()));
+        return clientRegistry.getClient(getClientKey(endpoint), fhirClient -> registerAuth(fhirClient, endpoint));
+    }
 
+    protected ClientKey getClientKey(IEndpointAdapter endpoint) {
+        return new ClientKey(
+                fhirContext,
+                getAddressBase(endpoint.getAddress()),
+                endpoint.getHeaders(),
+                getCredentials(endpoint),
+                terminologyServerClientSettings.getSocketTimeout());
+    }
+
+    /**
+     * @param endpoint the endpoint
+     * @return the credentials {@link #registerAuth} registers beyond the endpoint headers, so that
+     *         endpoints with different credentials get different clients
+     */
+    protected List<String> getCredentials(IEndpointAdapter endpoint) {
+        return List.of();
+    }
+
+    /**
+     * Registers the authentication of the endpoint on a newly created client.
+     *
+     * @param fhirClient the client
+     * @param endpoint   the endpoint the client was created for
+     */
+    protected void registerAuth(IGenericClient fhirClient, IEndpointAdapter endpoint) {
         if (endpoint.hasHeaders()) {
             Clients.registerHeaders(fhirClient, endpoint.getHeaders());
         }
-
-        fhirClient
-                .getFhirContext()
-                .getRestfulClientFactory()
-                .setSocketTimeout(terminologyServerClientSettings.getSocketTimeout() * 1000);
-
-        return fhirClient;
     }
 
     @Override
@@ -0,0 +1,238 @@
+package org.opencds.cqf.fhir.utility.client.terminology;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.client.apache.ApacheHttpRequest;
+import ca.uhn.fhir.rest.client.apache.ApacheRestfulClientFactory;
+import ca.uhn.fhir.rest.client.api.IClientInterceptor;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
+import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * Keeps one FHIR client per terminology server endpoint, so that repeated lookups against the same
+ * server reuse its pooled HTTP connections instead of building a new client for every call.
+ * <p/>
+ * Clients are keyed by the endpoint address, headers, credentials and socket timeout. Every client
+ * is created by the restful client factory of its {@link FhirContext}, so it uses that factory's
+ * HTTP client, connection pool, proxy and timeouts. The socket timeout of the key is applied to each
+ * request of the client rather than set on the shared factory, so it does not change any other
+ * client. Authentication is registered once, when the client is created. The capabilities of each
+ * endpoint are cached alongside its client, and fetched again once they are older than the
+ * capabilities time to live.
+ */
+public class TerminologyServerClientRegistry {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 100;
+    private static final Duration DEFAULT_CAPABILITIES_TTL = Duration.ofHours(1);
+    private static final TerminologyServerClientRegistry DEFAULT =
+            new TerminologyServerClientRegistry(DEFAULT_MAXIMUM_SIZE);
+
+    private final Cache<ClientKey, PooledClient> clients;
+    private final Duration capabilitiesTtl;
+    private final LongAdder clientsCreated = new LongAdder();
+    private final LongAdder clientsReused = new LongAdder();
+    private final LongAdder capabilitiesFetched = new LongAdder();
+    private final LongAdder capabilitiesReused = new LongAdder();
+
+    /**
+     * @return the registry shared by terminology server clients that are not given one
+     */
+    public static TerminologyServerClientRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public TerminologyServerClientRegistry() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize the number of endpoint clients to keep, least recently used first out
+     */
+    public TerminologyServerClientRegistry(int maximumSize) {
+        this(maximumSize, DEFAULT_CAPABILITIES_TTL);
+    }
+
+    /**
+     * @param maximumSize     the number of endpoint clients to keep, least recently used first out
+     * @param capabilitiesTtl how long the capabilities of an endpoint are reused before they are
+     *                        fetched again
+     */
+    public TerminologyServerClientRegistry(int maximumSize, Duration capabilitiesTtl) {
+        this.clients = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.capabilitiesTtl = requireNonNull(capabilitiesTtl, "capabilitiesTtl can not be null");
+    }
+
+    /**
+     * Identifies a client. Endpoints that differ in any of these share no client.
+     *
+     * @param fhirContext          the FhirContext the client is created with
+     * @param address              the base address of the server
+     * @param headers              the headers sent with every request
+     * @param credentials          any credentials registered on the client other than headers
+     * @param socketTimeoutSeconds the socket timeout of the client
+     */
+    public record ClientKey(
+            FhirContext fhirContext,
+            String address,
+            List<String> headers,
+            List<String> credentials,
+            int socketTimeoutSeconds) {
+        public ClientKey {
+            requireNonNull(fhirContext, "fhirContext can not be null");
+            requireNonNull(address, "address can not be null");
+            headers = headers == null ? List.of() : List.copyOf(headers);
+            credentials = credentials == null ? List.of() : List.copyOf(credentials);
+        }
+
+        /**
+         * Prints only the header names and the number of credentials, as the header values and the
+         * credentials may hold secrets such as an Authorization token.
+         */
+        @Override
+        public String toString() {
+            var headerNames = headers.stream()
+                    .map(header -> header.contains(":") ? header.substring(0, header.indexOf(':')) : "***")
+                    .toList();
+            return "ClientKey[address=%s, headers=%s, credentials=%d, socketTimeoutSeconds=%d]"
+                    .formatted(address, headerNames, credentials.size(), socketTimeoutSeconds);
+        }
+    }
+
+    /**
+     * @param key         the client to get
+     * @param initializer registers authentication on the client when it is first created
+     * @return the client for the key, created if there was none
+     */
+    public IGenericClient getClient(ClientKey key, Consumer<IGenericClient> initializer) {
+        return pooledClient(key, initializer).client;
+    }
+
+    /**
+     * @param key         the client the capabilities belong to
+     * @param initializer registers authentication on the client when it is first created
+     * @param type        the type of capabilities resource
+     * @param fetch       fetches the capabilities with the client, called at most once per client
+     *                    and capabilities time to live
+     * @return the capabilities of the endpoint
+     */
+    public <T extends IBaseResource> T getCapabilities(
+            ClientKey key, Consumer<IGenericClient> initializer, Class<T> type, Function<IGenericClient, T> fetch) {
+        var pooledClient = pooledClient(key, initializer);
+        var fetched = new AtomicBoolean();
+        var capabilities = pooledClient.capabilities.asMap().computeIfAbsent(type, t -> {
+            fetched.set(true);
+            return fetch.apply(pooledClient.client);
+        });
+        (fetched.get() ? capabilitiesFetched : capabilitiesReused).increment();
+        return type.cast(capabilities);
+    }
+
+    public long getClientsCreated() {
+        return clientsCreated.sum();
+    }
+
+    public long getClientsReused() {
+        return clientsReused.sum();
+    }
+
+    public long getCapabilitiesFetched() {
+        return capabilitiesFetched.sum();
+    }
+
+    public long getCapabilitiesReused() {
+        return capabilitiesReused.sum();
+    }
+
+    /**
+     * Discards all clients and their cached capabilities.
+     */
+    public void clear() {
+        clients.invalidateAll();
+    }
+
+    private PooledClient pooledClient(ClientKey key, Consumer<IGenericClient> initializer) {
+        requireNonNull(key, "key can not be null");
+        requireNonNull(initializer, "initializer can not be null");
+
+        var created = new AtomicBoolean();
+        var pooledClient = clients.asMap().computeIfAbsent(key, k -> {
+            created.set(true);
+            return new PooledClient(newClient(k, initializer), capabilitiesTtl);
+        });
+        (created.get() ? clientsCreated : clientsReused).increment();
+        return pooledClient;
+    }
+
+    private static IGenericClient newClient(ClientKey key, Consumer<IGenericClient> initializer) {
+        var clientFactory = key.fhirContext().getRestfulClientFactory();
+        var client = clientFactory.newGenericClient(key.address());
+
+        var socketTimeout = key.socketTimeoutSeconds() * 1000;
+        if (socketTimeout != clientFactory.getSocketTimeout()) {
+            client.registerInterceptor(new SocketTimeoutInterceptor(clientFactory, socketTimeout));
+        }
+
+        initializer.accept(client);
+        return client;
+    }
+
+    /**
+     * Sets the socket timeout of a client on each of its requests. The rest of the request
+     * configuration, including the proxy, is copied from the default configuration of the shared
+     * Apache HTTP client, so that only the socket timeout differs.
+     */
+    private static class SocketTimeoutInterceptor implements IClientInterceptor {
+        private final IRestfulClientFactory clientFactory;
+        private final int socketTimeout;
+
+        private SocketTimeoutInterceptor(IRestfulClientFactory clientFactory, int socketTimeout) {
+            this.clientFactory = clientFactory;
+            this.socketTimeout = socketTimeout;
+        }
+
+        @Override
+        public void interceptRequest(IHttpRequest request) {
+            // The shared HTTP client is rebuilt whenever the factory is reconfigured, so read its
+            // configuration on every request
+            if (request instanceof ApacheHttpRequest apacheRequest
+                    && clientFactory instanceof ApacheRestfulClientFactory apacheClientFactory
+                    && apacheClientFactory.getNativeHttpClient() instanceof Configurable httpClient
+                    && httpClient.getConfig() != null) {
+                apacheRequest
+                        .getApacheRequest()
+                        .setConfig(RequestConfig.copy(httpClient.getConfig())
+                                .setSocketTimeout(socketTimeout)
+                                .build());
+            }
+        }
+
+        @Override
+        public void interceptResponse(IHttpResponse response) {
+            // nothing
+        }
+    }
+
+    private static class PooledClient {
+        private final IGenericClient client;
+        private final Cache<Class<?>, IBaseResource> capabilities;
+
+        private PooledClient(IGenericClient client, Duration capabilitiesTtl) {
+            this.client = client;
+            this.capabilities = CacheBuilder.newBuilder().expireAfterWrite(capabilitiesTtl).build();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.opencds.cqf.fhir.utility.client.terminology;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import java.util.List;
 import org.opencds.cqf.fhir.utility.Constants;
 import org.opencds.cqf.fhir.utility.adapter.IEndpointAdapter;
 import org.opencds.cqf.fhir.utility.client.Clients;
@@ -19,27 +20,46 @@ public class VsacTerminologyServerClient extends GenericTerminologyServerClient
         super(fhirContext, terminologyServerClientSettings);
     }
 
+    public VsacTerminologyServerClient(
+            FhirContext fhirContext,
+            TerminologyServerClientSettings terminologyServerClientSettings,
+            TerminologyServerClientRegistry clientRegistry) {
+        super(fhirContext, terminologyServerClientSettings, clientRegistry);
+    }
+
+    @Override
+    protected List<String> getCredentials(IEndpointAdapter endpoint) {
+        if (!hasVsacCredentials(endpoint)) {
+            return List.of();
+        }
+        return List.of(
+                getExtensionValue(endpoint, Constants.VSAC_USERNAME), getExtensionValue(endpoint, Constants.APIKEY));
+    }
+
     @Override
-    public IGenericClient initializeClientWithAuth(IEndpointAdapter endpoint) {
-        var fhirClient = super.initializeClientWithAuth(endpoint);
+    protected void registerAuth(IGenericClient fhirClient, IEndpointAdapter endpoint) {
+        super.registerAuth(fhirClient, endpoint);
 
         // This smacks of reinventing the wheel... Should be passed in with the Endpoint resource (Endpoint.header
         // element)... e.g. Basic {username:password (base64 encoded)}
-        if (endpoint.hasExtension(Constants.VSAC_USERNAME) && endpoint.hasExtension(Constants.APIKEY)) {
-            var username = endpoint.getExtensionsByUrl(Constants.VSAC_USERNAME).stream()
-                    .findFirst()
-                    .map(ext -> ext.getValue().toString())
-                    .orElseThrow(() -> new UnprocessableEntityException(
-                            String.format("Found a %s extension with no value", Constants.VSAC_USERNAME)));
-            var apiKey = endpoint.getExtensionsByUrl(Constants.APIKEY).stream()
-                    .findFirst()
-                    .map(ext -> ext.getValue().toString())
-                    .orElseThrow(() -> new UnprocessableEntityException(
-                            String.format("Found a %s extension with no value", Constants.APIKEY)));
-            Clients.registerAdditionalRequestHeadersAuth(fhirClient, username, apiKey);
+        if (hasVsacCredentials(endpoint)) {
+            Clients.registerAdditionalRequestHeadersAuth(
+                    fhirClient,
+                    getExtensionValue(endpoint, Constants.VSAC_USERNAME),
+                    getExtensionValue(endpoint, Constants.APIKEY));
         }
+    }
+
+    private static boolean hasVsacCredentials(IEndpointAdapter endpoint) {
+        return endpoint.hasExtension(Constants.VSAC_USERNAME) && endpoint.hasExtension(Constants.APIKEY);
+    }
 
-        return fhirClient;
+    private static String getExtensionValue(IEndpointAdapter endpoint, String url) {
+        return endpoint.getExtensionsByUrl(url).stream()
+                .findFirst()
+                .map(ext -> ext.getValue().toString())
+                .orElseThrow(() ->
+                        new UnprocessableEntityException(String.format("Found a %s extension with no value", url)));
     }
 
     @Override
@@ -3,12 +3,28 @@ package org.opencds.cqf.fhir.utility.iterable;
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.util.BundleUtil;
 import ca.uhn.fhir.util.bundle.BundleEntryParts;
+import jakarta.annotation.Nullable;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 
+/**
+ * Iterates the entries of a Bundle, following its next links through the Repository.
+ * <p/>
+ * By default the next page is fetched when the current page is exhausted. With a read-ahead depth
+ * greater than zero, up to that many following pages are fetched in the background on the given
+ * executor while the current page is consumed, so the page boundaries of a multi-page search don't
+ * each cost a blocking round trip. Fetching ahead starts with the first call to {@link #hasNext()} or
+ * {@link #next()}. Pages are still returned in order. Pages fetched ahead of an
+ * iteration that is abandoned are discarded.
+ */
 public class BundleIterator<B extends IBaseBundle> implements Iterator<BundleEntryParts> {
 
     protected final IRepository repository;
@@ -16,14 +32,42 @@ public class BundleIterator<B extends IBaseBundle> implements Iterator<BundleEnt
     protected int index = 0;
     protected List<BundleEntryParts> parts;
 
+    private final int readAheadDepth;
+    private final Executor readAheadExecutor;
+    private final Deque<CompletableFuture<B>> readAhead = new ArrayDeque<>();
+    private CompletableFuture<B> lastRequested;
+
     public BundleIterator(IRepository repository, B bundle) {
+        this(repository, bundle, 0, null);
+    }
+
+    /**
+     * @param repository        the repository to follow next links on
+     * @param bundle            the first page
+     * @param readAheadDepth    the number of pages to fetch ahead of the page being consumed, 0 to
+     *                          fetch each page when it is needed
+     * @param readAheadExecutor the executor pages are fetched ahead on, required if readAheadDepth
+     *                          is greater than 0
+     */
+    public BundleIterator(
+            IRepository repository, B bundle, int readAheadDepth, @Nullable Executor readAheadExecutor) {
+        if (readAheadDepth < 0) {
+            throw new IllegalArgumentException("readAheadDepth can not be negative, but was: " + readAheadDepth);
+        }
+        if (readAheadDepth > 0 && readAheadExecutor == null) {
+            throw new IllegalArgumentException("readAheadExecutor is required when readAheadDepth is greater than 0");
+        }
+
         this.repository = repository;
         this.bundle = bundle;
+        this.readAheadDepth = readAheadDepth;
+        this.readAheadExecutor = readAheadExecutor;
         this.parts = BundleUtil.toListOfEntries(repository.fhirContext(), bundle);
     }
 
     @Override
     public boolean hasNext() {
+        startReadAhead();
         return parts.size() > index;
     }
 
@@ -47,30 +91,73 @@ public class BundleIterator<B extends IBaseBundle> implements Iterator<BundleEnt
         // Reset internal counter
         index = 0;
 
-        var nextLink = BundleUtil.getLinkUrlOfType(this.repository.fhirContext(), bundle, IBaseBundle.LINK_NEXT);
+        // Skip over any run of empty pages
+        while (true) {
+            var nextBundle = readAheadDepth > 0 ? takeRequestedPage() : fetchNextPage(bundle);
+
+            // No next Bundle, no parts.
+            if (nextBundle == null) {
+                this.parts = Collections.emptyList();
+                return;
+            }
+
+            this.bundle = nextBundle;
+            this.parts = BundleUtil.toListOfEntries(repository.fhirContext(), bundle);
 
-        // No next Bundle, no parts.
+            if (!this.parts.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param page a page of results
+     * @return the page its next link points to, or null if there is none
+     */
+    @Nullable
+    protected B fetchNextPage(@Nullable B page) {
+        if (page == null) {
+            return null;
+        }
+
+        var nextLink = BundleUtil.getLinkUrlOfType(this.repository.fhirContext(), page, IBaseBundle.LINK_NEXT);
         if (nextLink == null) {
-            this.parts = Collections.emptyList();
-            return;
+            return null;
         }
 
         @SuppressWarnings("unchecked")
-        var clazz = (Class<B>) bundle.getClass();
+        var clazz = (Class<B>) page.getClass();
 
-        this.bundle = this.repository.link(clazz, nextLink);
+        return this.repository.link(clazz, nextLink);
+    }
 
-        // No Bundle returned, no parts
-        if (bundle == null) {
-            this.parts = Collections.emptyList();
-            return;
+    // Read-ahead starts with the iteration rather than in the constructor, so that fetchNextPage is
+    // never called before a subclass has been constructed
+    private void startReadAhead() {
+        if (readAheadDepth > 0 && lastRequested == null) {
+            lastRequested = CompletableFuture.completedFuture(bundle);
+            requestPages();
         }
+    }
 
-        this.parts = BundleUtil.toListOfEntries(repository.fhirContext(), bundle);
+    private void requestPages() {
+        while (readAhead.size() < readAheadDepth) {
+            lastRequested = lastRequested.thenApplyAsync(this::fetchNextPage, readAheadExecutor);
+            readAhead.add(lastRequested);
+        }
+    }
 
-        // Bundle returned an empty set, try the next one.
-        if (this.parts.isEmpty()) {
-            getNextBundle();
+    @Nullable
+    private B takeRequestedPage() {
+        var page = readAhead.poll();
+        requestPages();
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
         }
     }
 }
@@ -2,9 +2,11 @@ package org.opencds.cqf.fhir.utility.iterable;
 
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.util.bundle.BundleEntryParts;
+import jakarta.annotation.Nullable;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -20,17 +22,33 @@ public class BundleMappingIterable<B extends IBaseBundle, T> implements Iterable
 
     private final IRepository repository;
     private final B bundle;
+    private final int readAheadDepth;
+    private final Executor readAheadExecutor;
     private final Function<BundleEntryParts, T> mapper;
 
     public BundleMappingIterable(IRepository repository, B bundle, Function<BundleEntryParts, T> mapper) {
+        this(repository, bundle, 0, null, mapper);
+    }
+
+    /**
+     * @see BundleIterator#BundleIterator(IRepository, IBaseBundle, int, Executor)
+     */
+    public BundleMappingIterable(
+            IRepository repository,
+            B bundle,
+            int readAheadDepth,
+            @Nullable Executor readAheadExecutor,
+            Function<BundleEntryParts, T> mapper) {
         this.repository = repository;
         this.bundle = bundle;
+        this.readAheadDepth = readAheadDepth;
+        this.readAheadExecutor = readAheadExecutor;
         this.mapper = mapper;
     }
 
     @Override
     public Iterator<T> iterator() {
-        return new BundleMappingIterator<>(repository, bundle, mapper);
+        return new BundleMappingIterator<>(repository, bundle, readAheadDepth, readAheadExecutor, mapper);
     }
 
     public Stream<T> toStream() {
@@ -2,8 +2,10 @@ package org.opencds.cqf.fhir.utility.iterable;
 
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.util.bundle.BundleEntryParts;
+import jakarta.annotation.Nullable;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 
@@ -13,7 +15,19 @@ public class BundleMappingIterator<B extends IBaseBundle, T> implements Iterator
     private final BundleIterator<B> inner;
 
     public BundleMappingIterator(IRepository repository, B bundle, Function<BundleEntryParts, T> mapper) {
-        this.inner = new BundleIterator<>(repository, bundle);
+        this(repository, bundle, 0, null, mapper);
+    }
+
+    /**
+     * @see BundleIterator#BundleIterator(IRepository, IBaseBundle, int, Executor)
+     */
+    public BundleMappingIterator(
+            IRepository repository,
+            B bundle,
+            int readAheadDepth,
+            @Nullable Executor readAheadExecutor,
+            Function<BundleEntryParts, T> mapper) {
+        this.inner = new BundleIterator<>(repository, bundle, readAheadDepth, readAheadExecutor);
         this.mapper = mapper;
     }
 
@@ -83,6 +83,30 @@ public interface ResourceMatcher {
     default boolean matches(String name, List<IQueryParameterType> params, IBaseResource resource) {
         boolean match = true;
 
+        var pathResult = getPathResults(name, resource);
+        if (pathResult == null || pathResult.isEmpty()) {
+            return false;
+        }
+
+        for (IQueryParameterType param : params) {
+            for (var r : pathResult) {
+                match = isParamMatchAtPath(param, r);
+
+                if (match) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param name     the name of the SearchParameter
+     * @param resource the resource to evaluate the SearchParameter's path on
+     * @return the elements of the resource that the SearchParameter matches against
+     */
+    default List<IBase> getPathResults(String name, IBaseResource resource) {
         var context = getContext();
         var s = context.getResourceDefinition(resource).getSearchParam(name);
         if (s == null) {
@@ -100,7 +124,6 @@ public interface ResourceMatcher {
             path = name.substring(1);
         }
 
-        List<IBase> pathResult = null;
         try {
             var parsed = getPathCache().computeIfAbsent(new SPPathKey(resource.fhirType(), path), p -> {
                 try {
@@ -112,29 +135,13 @@ public interface ResourceMatcher {
                             e);
                 }
             });
-            pathResult = getEngine().evaluate(resource, parsed, IBase.class);
+            return getEngine().evaluate(resource, parsed, IBase.class);
         } catch (Exception e) {
             throw new RuntimeException(
                     "Evaluating SearchParameter %s for Resource %s resulted in an error."
                             .formatted(name, resource.fhirType()),
                     e);
         }
-
-        if (pathResult == null || pathResult.isEmpty()) {
-            return false;
-        }
-
-        for (IQueryParameterType param : params) {
-            for (var r : pathResult) {
-                match = isParamMatchAtPath(param, r);
-
-                if (match) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
     }
 
     private boolean isParamMatchAtPath(IQueryParameterType param, IBase r) {
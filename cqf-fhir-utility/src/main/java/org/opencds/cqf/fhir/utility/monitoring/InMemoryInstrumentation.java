@@ -0,0 +1,183 @@
+package org.opencds.cqf.fhir.utility.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps what is recorded in memory, for tests and benchmarks to assert against or report. Counters
+ * and timers are kept for every name, spans only for the most recent ones.
+ */
+public class InMemoryInstrumentation implements Instrumentation {
+    private static final int DEFAULT_MAXIMUM_SPANS = 10_000;
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Deque<SpanData> spans = new ArrayDeque<>();
+    private final int maximumSpans;
+    private final ThreadLocal<InMemorySpan> currentSpan = new ThreadLocal<>();
+
+    /**
+     * @param count      the number of durations recorded
+     * @param totalNanos the sum of the durations
+     * @param maxNanos   the longest duration
+     */
+    public record TimerSnapshot(long count, long totalNanos, long maxNanos) {}
+
+    /**
+     * @param name          the name of the span
+     * @param parentName    the name of the span it was started in, or null
+     * @param attributes    the attributes set on the span
+     * @param error         the failure set on the span, or null
+     * @param durationNanos the time between starting and closing the span
+     */
+    public record SpanData(
+            String name, String parentName, Map<String, String> attributes, Throwable error, long durationNanos) {}
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long durationNanos) {
+            count.increment();
+            totalNanos.add(durationNanos);
+            maxNanos.accumulate(durationNanos);
+        }
+    }
+
+    private class InMemorySpan implements Span {
+        private final String name;
+        private final InMemorySpan parent;
+        private final long start = System.nanoTime();
+        private final Map<String, String> attributes = new HashMap<>();
+        private Throwable error;
+        private boolean closed;
+
+        private InMemorySpan(String name, InMemorySpan parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Override
+        public Span setAttribute(String key, String value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Span setError(Throwable error) {
+            this.error = error;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            var duration = System.nanoTime() - start;
+            if (currentSpan.get() == this) {
+                currentSpan.set(parent);
+            }
+            recordTime(name, duration);
+            addSpan(new SpanData(name, parent == null ? null : parent.name, Map.copyOf(attributes), error, duration));
+        }
+    }
+
+    public InMemoryInstrumentation() {
+        this(DEFAULT_MAXIMUM_SPANS);
+    }
+
+    /**
+     * @param maximumSpans the number of the most recent spans kept
+     */
+    public InMemoryInstrumentation(int maximumSpans) {
+        this.maximumSpans = maximumSpans;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public Span startSpan(String name) {
+        var span = new InMemorySpan(name, currentSpan.get());
+        currentSpan.set(span);
+        return span;
+    }
+
+    @Override
+    public void recordTime(String name, long durationNanos) {
+        timers.computeIfAbsent(name, n -> new Timer()).record(durationNanos);
+    }
+
+    @Override
+    public void increment(String name, long amount) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(amount);
+    }
+
+    private void addSpan(SpanData span) {
+        synchronized (spans) {
+            if (spans.size() == maximumSpans) {
+                spans.removeFirst();
+            }
+            spans.addLast(span);
+        }
+    }
+
+    /**
+     * @param name the name of the counter
+     * @return the sum of the amounts added, 0 if none were
+     */
+    public long getCount(String name) {
+        var counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @param name the name of the timer, or of the spans
+     * @return the durations recorded, all 0 if none were
+     */
+    public TimerSnapshot getTimer(String name) {
+        var timer = timers.get(name);
+        return timer == null
+                ? new TimerSnapshot(0, 0, 0)
+                : new TimerSnapshot(timer.count.sum(), timer.totalNanos.sum(), timer.maxNanos.get());
+    }
+
+    /**
+     * @return the most recent spans closed, in the order they were closed
+     */
+    public List<SpanData> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    /**
+     * @param name the name of the spans
+     * @return the most recent spans closed with the name, in the order they were closed
+     */
+    public List<SpanData> getSpans(String name) {
+        return getSpans().stream().filter(s -> s.name().equals(name)).toList();
+    }
+
+    public void reset() {
+        counters.clear();
+        timers.clear();
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.opencds.cqf.fhir.utility.monitoring;
+
+/**
+ * Records where time goes while evaluating, without tying the evaluation to a metrics or tracing
+ * library. An implementation adapts these calls to the library the host application uses, e.g.
+ * Micrometer or OpenTelemetry. The names recorded by this project are listed in
+ * {@link InstrumentationNames}.
+ * <p/>
+ * The default, {@link #noop()}, records nothing. Instrumented code calls it unconditionally, and
+ * checks {@link #isEnabled()} only before doing work to describe what it records, such as reading
+ * the clock or building attribute values.
+ */
+public interface Instrumentation {
+
+    /**
+     * @return an Instrumentation that records nothing
+     */
+    static Instrumentation noop() {
+        return NoopInstrumentation.INSTANCE;
+    }
+
+    /**
+     * @return false if nothing is recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts timing a unit of work. A span started while another is open on the same thread is its
+     * child. The span's duration is also recorded as a timer of the same name.
+     *
+     * @param name the name of the work
+     * @return the span, to be closed when the work is done
+     */
+    Span startSpan(String name);
+
+    /**
+     * @param name          the name of the timer
+     * @param durationNanos the duration to record
+     */
+    void recordTime(String name, long durationNanos);
+
+    /**
+     * @param name   the name of the counter
+     * @param amount the amount to add
+     */
+    void increment(String name, long amount);
+
+    default void increment(String name) {
+        increment(name, 1);
+    }
+}
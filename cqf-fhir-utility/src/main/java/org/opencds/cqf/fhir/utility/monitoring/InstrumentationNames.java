@@ -0,0 +1,72 @@
+package org.opencds.cqf.fhir.utility.monitoring;
+
+/**
+ * The names of the spans, timers and counters recorded through {@link Instrumentation}.
+ */
+public class InstrumentationNames {
+    private InstrumentationNames() {}
+
+    /**
+     * Span of a CQL retrieve, with the data type as the {@link #DATA_TYPE} attribute.
+     */
+    public static final String RETRIEVE = "cql.retrieve";
+
+    /**
+     * Counter of the resources returned by CQL retrieves.
+     */
+    public static final String RETRIEVE_RESOURCES = "cql.retrieve.resources";
+
+    /**
+     * Span of the expansion of a ValueSet, with its canonical as the {@link #VALUE_SET} attribute.
+     */
+    public static final String VALUE_SET_EXPANSION = "cql.terminology.expansion";
+
+    /**
+     * Counter of ValueSet expansions found in the ValueSet cache of the EvaluationSettings.
+     */
+    public static final String VALUE_SET_CACHE_HIT = "cql.terminology.cache.hit";
+
+    /**
+     * Counter of ValueSet expansions not found in the ValueSet cache of the EvaluationSettings.
+     */
+    public static final String VALUE_SET_CACHE_MISS = "cql.terminology.cache.miss";
+
+    /**
+     * Span of the lookup of a CQL library's content, with the library as the {@link #LIBRARY}
+     * attribute. Libraries found in the library cache of the EvaluationSettings are not looked up.
+     */
+    public static final String LIBRARY_RESOLUTION = "cql.library.resolution";
+
+    /**
+     * Span of the evaluation of the CQL of one or more Measures for all their subjects, with the
+     * number of subjects as the {@link #SUBJECT_COUNT} attribute.
+     */
+    public static final String MEASURE_EVALUATION = "measure.evaluation";
+
+    /**
+     * Timer of the evaluation of the CQL of one or more Measures for a single subject.
+     */
+    public static final String MEASURE_SUBJECT = "measure.subject";
+
+    /**
+     * Counter of failed evaluations of a subject, one per library that failed.
+     */
+    public static final String MEASURE_SUBJECT_ERRORS = "measure.subject.errors";
+
+    /**
+     * Span of building a MeasureReport from evaluated results.
+     */
+    public static final String MEASURE_REPORT_BUILD = "measure.report.build";
+
+    /**
+     * Span of a FHIR operation served by a clinical reasoning operation provider, with the
+     * operation as the {@link #OPERATION} attribute.
+     */
+    public static final String OPERATION_REQUEST = "cr.operation";
+
+    public static final String DATA_TYPE = "dataType";
+    public static final String VALUE_SET = "valueSet";
+    public static final String LIBRARY = "library";
+    public static final String SUBJECT_COUNT = "subjectCount";
+    public static final String OPERATION = "operation";
+}
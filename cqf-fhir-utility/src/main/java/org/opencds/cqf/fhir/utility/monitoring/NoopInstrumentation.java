@@ -0,0 +1,44 @@
+package org.opencds.cqf.fhir.utility.monitoring;
+
+/**
+ * Records nothing. Every call returns without allocating, so instrumented code costs little more
+ * than the calls themselves when instrumentation is not configured.
+ */
+enum NoopInstrumentation implements Instrumentation, Span {
+    INSTANCE;
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public Span startSpan(String name) {
+        return this;
+    }
+
+    @Override
+    public void recordTime(String name, long durationNanos) {
+        // Nothing is recorded
+    }
+
+    @Override
+    public void increment(String name, long amount) {
+        // Nothing is recorded
+    }
+
+    @Override
+    public Span setAttribute(String key, String value) {
+        return this;
+    }
+
+    @Override
+    public Span setError(Throwable error) {
+        return this;
+    }
+
+    @Override
+    public void close() {
+        // Nothing is recorded
+    }
+}
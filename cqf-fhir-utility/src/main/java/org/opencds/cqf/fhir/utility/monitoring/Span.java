@@ -0,0 +1,28 @@
+package org.opencds.cqf.fhir.utility.monitoring;
+
+/**
+ * A unit of work being timed, started by {@link Instrumentation#startSpan(String)}.
+ */
+public interface Span extends AutoCloseable {
+
+    /**
+     * @param key   the attribute name
+     * @param value the attribute value
+     * @return this span
+     */
+    Span setAttribute(String key, String value);
+
+    /**
+     * Marks the work as failed.
+     *
+     * @param error the failure
+     * @return this span
+     */
+    Span setError(Throwable error);
+
+    /**
+     * Ends the span and records its duration.
+     */
+    @Override
+    void close();
+}
@@ -4,38 +4,141 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.repository.IRepository;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.util.BundleBuilder;
+import ca.uhn.fhir.util.BundleUtil;
 import com.google.common.collect.Multimap;
 import jakarta.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseConformance;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
-import org.opencds.cqf.fhir.utility.iterable.BundleIterator;
+import org.opencds.cqf.fhir.utility.BundleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-// wip
+/**
+ * Read-only view over a local repository and any number of member repositories.
+ * <p/>
+ * Searches run against all repositories concurrently on a dedicated executor, with a bound on the
+ * number of member requests in flight and a timeout per member (see {@link Options}). The first
+ * page of a federated search combines the first page of every repository, in repository order.
+ * If any repository has more pages, the federated page carries a {@code next} link whose url is a
+ * federated paging token recording the next-page url of each of those repositories. Following
+ * that link with {@link #link} fetches one more page from each of them, so results the caller
+ * never reads are never fetched.
+ */
 @SuppressWarnings("UnstableApiUsage")
 public class FederatedRepository implements IRepository {
     public static final Logger logger = LoggerFactory.getLogger(FederatedRepository.class);
 
+    /**
+     * Scheme of the federated paging token used as the url of a federated search's next link
+     */
+    public static final String PAGING_TOKEN_PREFIX = "federated-page:";
+
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "federated-repository");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Execution settings for federated searches.
+     */
+    public static class Options {
+        private Executor executor = DEFAULT_EXECUTOR;
+        private Duration memberTimeout = Duration.ofMinutes(5);
+        private int maxConcurrentRequests = 8;
+
+        public Executor getExecutor() {
+            return executor;
+        }
+
+        /**
+         * @param executor the executor member searches run on. Defaults to a shared pool of daemon
+         *                 threads dedicated to federated searches.
+         * @return this options instance
+         */
+        public Options setExecutor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor can not be null");
+            return this;
+        }
+
+        public Duration getMemberTimeout() {
+            return memberTimeout;
+        }
+
+        /**
+         * @param memberTimeout how long a single repository may take to return a page before the
+         *                      federated search fails
+         * @return this options instance
+         */
+        public Options setMemberTimeout(Duration memberTimeout) {
+            this.memberTimeout = Objects.requireNonNull(memberTimeout, "memberTimeout can not be null");
+            return this;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        /**
+         * @param maxConcurrentRequests the maximum number of repository requests this federated
+         *                              repository has in flight at once, across all callers. A request
+         *                              stops counting once its caller has given up on it, e.g. after
+         *                              the member timeout, even if the repository has not returned.
+         * @return this options instance
+         */
+        public Options setMaxConcurrentRequests(int maxConcurrentRequests) {
+            if (maxConcurrentRequests < 1) {
+                throw new IllegalArgumentException(
+                        "maxConcurrentRequests must be at least 1, but was: " + maxConcurrentRequests);
+            }
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+    }
+
     private final IRepository local;
     private final List<IRepository> repositoryList;
+    private final Options options;
+    private final Semaphore requestPermits;
 
     public FederatedRepository(IRepository local, IRepository... repositories) {
+        this(new Options(), local, repositories);
+    }
+
+    public FederatedRepository(Options options, IRepository local, IRepository... repositories) {
         this.local = local;
-        repositoryList = Arrays.asList(repositories);
+        this.repositoryList = Arrays.asList(repositories);
+        this.options = Objects.requireNonNull(options, "options can not be null");
+        this.requestPermits = new Semaphore(options.getMaxConcurrentRequests());
     }
 
     @Override
@@ -93,46 +196,42 @@ public class FederatedRepository implements IRepository {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
-    private <B extends IBaseBundle, T extends IBaseResource> List<T> conductSearch(
-            IRepository repository,
-            Class<B> bundleType,
-            Class<T> resourceType,
-            Multimap<String, List<IQueryParameterType>> searchParameters,
-            Map<String, String> headers) {
-        List<T> results = new ArrayList<>();
-        var bundle = repository.search(bundleType, resourceType, searchParameters, headers);
-        var iterator = new BundleIterator<>(repository, bundle);
-        iterator.forEachRemaining(b -> results.add((T) b.getResource()));
-        return results;
-    }
-
     @Override
     public <B extends IBaseBundle, T extends IBaseResource> B search(
             Class<B> bundleType,
             Class<T> resourceType,
             Multimap<String, List<IQueryParameterType>> searchParameters,
             Map<String, String> headers) {
-        // Search all repositories and return combined results.
-        var builder = new BundleBuilder(fhirContext());
-
-        List<CompletableFuture<List<T>>> futureList = new ArrayList<>();
-        futureList.add(CompletableFuture.supplyAsync(
-                () -> conductSearch(local, bundleType, resourceType, searchParameters, headers)));
-        this.repositoryList.forEach(r -> futureList.add(CompletableFuture.supplyAsync(
-                () -> conductSearch(r, bundleType, resourceType, searchParameters, headers))));
-
-        futureList.stream()
-                .map(CompletableFuture::join)
-                .flatMap(Collection::stream)
-                .forEach(builder::addCollectionEntry);
-        builder.setType("searchset");
+        // Search all repositories and combine their first pages
+        var members = members();
+        List<Supplier<B>> requests = new ArrayList<>(members.size());
+        for (var member : members) {
+            requests.add(() -> member.search(bundleType, resourceType, searchParameters, headers));
+        }
 
-        return builder.getBundleTyped();
+        var indexes = IntStream.range(0, members.size()).boxed().toList();
+        return federatedPage(indexes, fetchPages(indexes, requests));
     }
 
     @Override
     public <B extends IBaseBundle> B link(Class<B> bundleType, String url, Map<String, String> headers) {
+        if (url != null && url.startsWith(PAGING_TOKEN_PREFIX)) {
+            // Fetch the next page of every repository that has one
+            var nextPages = decodePagingToken(url);
+            var members = members();
+            var indexes = new ArrayList<>(nextPages.keySet());
+            List<Supplier<B>> requests = new ArrayList<>(indexes.size());
+            for (var index : indexes) {
+                if (index < 0 || index >= members.size()) {
+                    throw new InvalidRequestException("Invalid federated paging token: " + url);
+                }
+                var member = members.get(index);
+                var nextPage = nextPages.get(index);
+                requests.add(() -> member.link(bundleType, nextPage, headers));
+            }
+            return federatedPage(indexes, fetchPages(indexes, requests));
+        }
+
         return Stream.concat(Stream.of(local), repositoryList.stream())
                 .map(repo -> tryLink(repo, bundleType, url, headers))
                 .flatMap(Optional::stream)
@@ -141,6 +240,170 @@ public class FederatedRepository implements IRepository {
                 .orElse(null);
     }
 
+    private List<IRepository> members() {
+        var members = new ArrayList<IRepository>(repositoryList.size() + 1);
+        members.add(local);
+        members.addAll(repositoryList);
+        return members;
+    }
+
+    /**
+     * Run one page request per repository, at most {@link Options#getMaxConcurrentRequests()} at a
+     * time across this repository, and wait for all of them.
+     *
+     * @param indexes  the index of the repository each request goes to, 0 being the local repository
+     * @param requests the page requests
+     * @return the page returned by each request, in request order
+     */
+    private <B extends IBaseBundle> List<B> fetchPages(List<Integer> indexes, List<Supplier<B>> requests) {
+        var timeout = options.getMemberTimeout();
+        List<CompletableFuture<B>> futures = new ArrayList<>(requests.size());
+        List<Long> deadlines = new ArrayList<>(requests.size());
+        List<Runnable> permits = new ArrayList<>(requests.size());
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                // The member's deadline includes waiting for a permit
+                var deadline = System.nanoTime() + timeout.toNanos();
+                var permit = acquirePermit(indexes.get(i), deadline);
+                permits.add(permit);
+                deadlines.add(deadline);
+                futures.add(submit(requests.get(i), permit));
+            }
+
+            List<B> pages = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                pages.add(await(indexes.get(i), futures.get(i), deadlines.get(i)));
+            }
+            return pages;
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        } finally {
+            // Requests still running past their deadline no longer hold a permit
+            permits.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Wait until the deadline for a permit to send a request to the repository.
+     *
+     * @return releases the permit, the first time it is run
+     */
+    private Runnable acquirePermit(int index, long deadline) {
+        try {
+            if (!requestPermits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw timedOut(index);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalErrorException("Interrupted while waiting to search a federated repository", e);
+        }
+
+        var released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                requestPermits.release();
+            }
+        };
+    }
+
+    private <B> CompletableFuture<B> submit(Supplier<B> request, Runnable permit) {
+        try {
+            return CompletableFuture.supplyAsync(request, options.getExecutor())
+                    .whenComplete((result, error) -> permit.run());
+        } catch (RuntimeException e) {
+            permit.run();
+            throw e;
+        }
+    }
+
+    private <B> B await(int index, CompletableFuture<B> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw timedOut(index);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InternalErrorException(
+                    "Error searching repository %s: %s".formatted(describe(index), e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalErrorException("Interrupted while searching repository " + describe(index), e);
+        }
+    }
+
+    private InternalErrorException timedOut(int index) {
+        return new InternalErrorException("Repository %s did not return a page within %s"
+                .formatted(describe(index), options.getMemberTimeout()));
+    }
+
+    private String describe(int index) {
+        var member = index == 0 ? local : repositoryList.get(index - 1);
+        return "%d (%s)".formatted(index, member.getClass().getSimpleName());
+    }
+
+    /**
+     * Combine one page per repository into a searchset, linking to the next federated page if any
+     * repository has more results.
+     */
+    @SuppressWarnings("unchecked")
+    private <B extends IBaseBundle> B federatedPage(List<Integer> indexes, List<B> pages) {
+        var fhirContext = fhirContext();
+        var builder = new BundleBuilder(fhirContext);
+        var nextPages = new TreeMap<Integer, String>();
+        for (int i = 0; i < pages.size(); i++) {
+            var page = pages.get(i);
+            if (page == null) {
+                continue;
+            }
+            BundleUtil.toListOfResources(fhirContext, page).forEach(builder::addCollectionEntry);
+            var nextPage = BundleUtil.getLinkUrlOfType(fhirContext, page, IBaseBundle.LINK_NEXT);
+            if (nextPage != null) {
+                nextPages.put(indexes.get(i), nextPage);
+            }
+        }
+        builder.setType("searchset");
+
+        var bundle = (B) builder.getBundle();
+        if (!nextPages.isEmpty()) {
+            BundleHelper.addLink(bundle, IBaseBundle.LINK_NEXT, encodePagingToken(nextPages));
+        }
+        return bundle;
+    }
+
+    /**
+     * The paging token carries the next-page url of each repository, so paging needs no state on
+     * this repository.
+     */
+    static String encodePagingToken(SortedMap<Integer, String> nextPages) {
+        var token = new StringBuilder();
+        nextPages.forEach((index, url) -> token.append(index).append('\t').append(url).append('\n'));
+        var encoded = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+        return PAGING_TOKEN_PREFIX + encoded;
+    }
+
+    static SortedMap<Integer, String> decodePagingToken(String url) {
+        var nextPages = new TreeMap<Integer, String>();
+        try {
+            var encoded = url.substring(PAGING_TOKEN_PREFIX.length());
+            var token = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            for (var line : token.split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                var separator = line.indexOf('\t');
+                nextPages.put(Integer.parseInt(line.substring(0, separator)), line.substring(separator + 1));
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidRequestException("Invalid federated paging token: " + url, e);
+        }
+        return nextPages;
+    }
+
     private <B extends IBaseBundle> Optional<B> tryLink(
             IRepository repo, Class<B> type, String url, Map<String, String> headers) {
         try {
@@ -0,0 +1,49 @@
+package org.opencds.cqf.fhir.utility.repository;
+
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.repository.IRepository;
+import com.google.common.collect.Multimap;
+import java.util.List;
+import java.util.Set;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * A repository that can return only some of the elements of the resources matching a search, e.g. through the
+ * _elements parameter of a FHIR server. Callers that need a single element of every match, such as the subject
+ * reference, use this to avoid transferring and parsing whole resources. The resources returned are incomplete
+ * and must not be written back.
+ */
+public interface IProjectingRepository {
+
+    /**
+     * Searches for resources, returning only the given elements (and the mandatory elements) of each match.
+     *
+     * @param bundleType the class of the Bundle type to return
+     * @param resourceType the class of the resource type to search for
+     * @param searchParameters the search parameters
+     * @param elements the top-level element names to return, e.g. "subject"
+     * @return a Bundle of the matching resources, reduced to the given elements
+     */
+    <B extends IBaseBundle, T extends IBaseResource> B searchElements(
+            Class<B> bundleType,
+            Class<T> resourceType,
+            Multimap<String, List<IQueryParameterType>> searchParameters,
+            Set<String> elements);
+
+    /**
+     * Searches the repository, asking for only the given elements if it is an {@link IProjectingRepository}, and
+     * for the complete resources otherwise.
+     */
+    static <B extends IBaseBundle, T extends IBaseResource> B searchElements(
+            IRepository repository,
+            Class<B> bundleType,
+            Class<T> resourceType,
+            Multimap<String, List<IQueryParameterType>> searchParameters,
+            Set<String> elements) {
+        if (repository instanceof IProjectingRepository projectingRepository) {
+            return projectingRepository.searchElements(bundleType, resourceType, searchParameters, elements);
+        }
+        return repository.search(bundleType, resourceType, searchParameters);
+    }
+}
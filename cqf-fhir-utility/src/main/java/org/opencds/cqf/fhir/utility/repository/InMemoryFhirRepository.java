@@ -43,12 +43,14 @@ public class InMemoryFhirRepository implements IRepository {
     private final FhirContext context;
     private final OperationRegistry operationRegistry;
     private final ResourceMatcher resourceMatcher;
+    private final InMemorySearchIndex searchIndex;
 
     public InMemoryFhirRepository(FhirContext context) {
         this.context = context;
         this.resourceMap = new HashMap<>();
         this.operationRegistry = new OperationRegistry();
         this.resourceMatcher = Repositories.getResourceMatcher(this.context);
+        this.searchIndex = new InMemorySearchIndex(this.resourceMatcher);
     }
 
     public InMemoryFhirRepository(FhirContext context, IBaseBundle bundle) {
@@ -60,6 +62,7 @@ public class InMemoryFhirRepository implements IRepository {
                         Collectors.toMap(r -> r.getIdElement().getIdPart(), Function.identity())));
         this.operationRegistry = new OperationRegistry();
         this.resourceMatcher = Repositories.getResourceMatcher(this.context);
+        this.searchIndex = new InMemorySearchIndex(this.resourceMatcher);
     }
 
     @Override
@@ -87,6 +90,7 @@ public class InMemoryFhirRepository implements IRepository {
         resource.setId(theId);
         var outcome = new MethodOutcome(theId, true);
         resources.put(theId.getIdPart(), resource);
+        searchIndex.invalidate(resource.fhirType());
         return outcome;
     }
 
@@ -109,6 +113,7 @@ public class InMemoryFhirRepository implements IRepository {
             this.resourceMatcher.addCustomParameter(BundleHelper.resourceToRuntimeSearchParam(resource));
         }
         resources.put(idPart, resource);
+        searchIndex.invalidate(resource.fhirType());
 
         return outcome;
     }
@@ -122,6 +127,7 @@ public class InMemoryFhirRepository implements IRepository {
         if (resources.containsKey(keyId)) {
             outcome.setResource(resources.get(keyId));
             resources.remove(keyId);
+            searchIndex.invalidate(id.getResourceType());
         } else {
             throw new ResourceNotFoundException("Resource not found with id " + id);
         }
@@ -166,7 +172,8 @@ public class InMemoryFhirRepository implements IRepository {
             candidates = idResources;
             searchParameters.removeAll("_id");
         } else {
-            candidates = resourceIdMap.values();
+            // Narrow the candidates down by reference and token parameters, e.g. subject and code
+            candidates = searchIndex.candidates(resourceType.getSimpleName(), resourceIdMap.values(), searchParameters);
         }
 
         // Apply the rest of the filters
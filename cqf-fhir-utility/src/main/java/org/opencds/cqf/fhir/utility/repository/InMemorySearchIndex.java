@@ -0,0 +1,185 @@
+package org.opencds.cqf.fhir.utility.repository;
+
+import static java.util.Objects.requireNonNull;
+
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseReference;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.opencds.cqf.fhir.utility.matcher.ResourceMatcher;
+
+/**
+ * Indexes the resources of an {@link InMemoryFhirRepository} by the values of their reference and
+ * token search parameters, so that a search by subject or by code looks up its candidates instead
+ * of matching every resource of the type. The index of a search parameter is built the first time
+ * a search uses it, and the indexes of a resource type are dropped when a resource of that type
+ * changes.
+ * <p/>
+ * Candidates are still matched against every search parameter, so an index may return more
+ * resources than match but never fewer. A search parameter whose values can not be indexed that
+ * way, e.g. an Identifier, is not indexed. Resources changed in place, rather than updated through
+ * the repository, are not re-indexed.
+ */
+class InMemorySearchIndex {
+
+    // Marks a search parameter that is not indexed
+    private static final Map<String, List<IBaseResource>> NOT_INDEXED = Map.of();
+
+    private final ResourceMatcher resourceMatcher;
+    private final Map<String, Map<String, Map<String, List<IBaseResource>>>> indexes = new ConcurrentHashMap<>();
+
+    InMemorySearchIndex(ResourceMatcher resourceMatcher) {
+        this.resourceMatcher = requireNonNull(resourceMatcher);
+    }
+
+    /**
+     * @param resourceType     the type searched
+     * @param resources        every resource of the type
+     * @param searchParameters the search parameters, which are not modified
+     * @return the resources that may match the search parameters
+     */
+    Collection<IBaseResource> candidates(
+            String resourceType,
+            Collection<IBaseResource> resources,
+            Multimap<String, List<IQueryParameterType>> searchParameters) {
+        Set<IBaseResource> candidates = null;
+        for (var entry : searchParameters.entries()) {
+            var ors = entry.getValue();
+            if (!isIndexable(ors)) {
+                continue;
+            }
+            var index = index(resourceType, entry.getKey(), resources);
+            if (index == NOT_INDEXED) {
+                continue;
+            }
+
+            // The values of a list are OR'd, the lists are AND'd
+            var matches = new LinkedHashSet<IBaseResource>();
+            for (var param : ors) {
+                matches.addAll(index.getOrDefault(value(param), List.of()));
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates == null ? resources : candidates;
+    }
+
+    void invalidate(String resourceType) {
+        indexes.remove(resourceType);
+    }
+
+    private static boolean isIndexable(List<IQueryParameterType> ors) {
+        if (ors == null || ors.isEmpty()) {
+            return false;
+        }
+        for (var param : ors) {
+            if (param instanceof ReferenceParam reference) {
+                if (reference.getChain() != null || StringUtils.isBlank(reference.getValue())) {
+                    return false;
+                }
+            } else if (param instanceof TokenParam token) {
+                if (token.getModifier() != null || token.getValue() == null) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String value(IQueryParameterType param) {
+        return param instanceof ReferenceParam reference ? reference.getValue() : ((TokenParam) param).getValue();
+    }
+
+    private Map<String, List<IBaseResource>> index(
+            String resourceType, String name, Collection<IBaseResource> resources) {
+        return indexes.computeIfAbsent(resourceType, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, n -> build(n, resources));
+    }
+
+    private Map<String, List<IBaseResource>> build(String name, Collection<IBaseResource> resources) {
+        var index = new HashMap<String, List<IBaseResource>>();
+        for (var resource : resources) {
+            List<IBase> pathResults;
+            try {
+                pathResults = resourceMatcher.getPathResults(name, resource);
+            } catch (RuntimeException e) {
+                // Left to the matcher to report
+                return NOT_INDEXED;
+            }
+            if (pathResults == null) {
+                continue;
+            }
+            for (var pathResult : pathResults) {
+                var values = values(pathResult);
+                if (values == null) {
+                    return NOT_INDEXED;
+                }
+                for (var value : values) {
+                    var indexed = index.computeIfAbsent(value, v -> new ArrayList<>());
+                    if (indexed.isEmpty() || indexed.get(indexed.size() - 1) != resource) {
+                        indexed.add(resource);
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the values a reference or token search parameter matches the element by, or null if
+     * the element is not matched by value
+     */
+    private List<String> values(IBase element) {
+        if (element instanceof IBaseReference reference) {
+            if (reference.getReferenceElement() != null
+                    && StringUtils.isNotEmpty(reference.getReferenceElement().getValue())) {
+                return List.of(reference.getReferenceElement().getValue());
+            }
+            if (reference.getResource() != null) {
+                return List.of(reference.getResource().getIdElement().getValue());
+            }
+            return null;
+        }
+        if (element instanceof IIdType id) {
+            // Tokens match the id part, references the whole value
+            return Stream.of(id.getIdPart(), id.getValue())
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+        }
+        if (element instanceof IPrimitiveType<?> primitive) {
+            return primitive.getValueAsString() == null ? List.of() : List.of(primitive.getValueAsString());
+        }
+        if ("Coding".equals(element.fhirType()) || "CodeableConcept".equals(element.fhirType())) {
+            return resourceMatcher.getCodes(element).stream()
+                    .map(TokenParam::getValue)
+                    .filter(StringUtils::isNotEmpty)
+                    .toList();
+        }
+        return null;
+    }
+}
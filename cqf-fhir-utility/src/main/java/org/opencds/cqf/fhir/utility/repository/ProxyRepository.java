@@ -24,7 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @SuppressWarnings("UnstableApiUsage")
-public class ProxyRepository implements IRepository {
+public class ProxyRepository implements IRepository, IProjectingRepository {
     public static final Logger logger = LoggerFactory.getLogger(ProxyRepository.class);
 
     // One data server, one terminology server (content defaults to data)
@@ -114,6 +114,23 @@ public class ProxyRepository implements IRepository {
         }
     }
 
+    @Override
+    public <B extends IBaseBundle, T extends IBaseResource> B searchElements(
+            Class<B> bundleType,
+            Class<T> resourceType,
+            Multimap<String, List<IQueryParameterType>> searchParameters,
+            Set<String> elements) {
+        IRepository target;
+        if (isTerminologyResource(resourceType.getSimpleName())) {
+            target = terminology;
+        } else if (isContentResource(resourceType.getSimpleName())) {
+            target = content;
+        } else {
+            target = data;
+        }
+        return IProjectingRepository.searchElements(target, bundleType, resourceType, searchParameters, elements);
+    }
+
     @Override
     public <B extends IBaseBundle> B link(Class<B> bundleType, String url, Map<String, String> headers) {
         return Stream.of(this.data, this.content, this.terminology)
@@ -14,6 +14,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseConformance;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
@@ -21,7 +22,7 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
-public class RestRepository implements IRepository {
+public class RestRepository implements IRepository, IProjectingRepository {
 
     public RestRepository(IGenericClient client) {
         this.client = client;
@@ -72,6 +73,28 @@ public class RestRepository implements IRepository {
             Class<T> resourceType,
             Multimap<String, List<IQueryParameterType>> searchParameters,
             Map<String, String> headers) {
+        return search(bundleType, resourceType, toParameterMap(searchParameters), Collections.emptyMap());
+    }
+
+    @Override
+    public <B extends IBaseBundle, T extends IBaseResource> B searchElements(
+            Class<B> bundleType,
+            Class<T> resourceType,
+            Multimap<String, List<IQueryParameterType>> searchParameters,
+            Set<String> elements) {
+        var op = this.client
+                .search()
+                .forResource(resourceType)
+                .returnBundle(bundleType)
+                .where(toParameterMap(searchParameters));
+        if (elements != null && !elements.isEmpty()) {
+            op = op.elementsSubset(elements.toArray(String[]::new));
+        }
+        return op.execute();
+    }
+
+    private static Map<String, List<IQueryParameterType>> toParameterMap(
+            Multimap<String, List<IQueryParameterType>> searchParameters) {
         var params = new HashMap<String, List<IQueryParameterType>>();
         if (searchParameters != null) {
             for (var key : searchParameters.keySet()) {
@@ -82,7 +105,7 @@ public class RestRepository implements IRepository {
             }
             searchParameters.entries().forEach(p -> params.put(p.getKey(), p.getValue()));
         }
-        return search(bundleType, resourceType, params, Collections.emptyMap());
+        return params;
     }
 
     @Override
@@ -21,7 +21,12 @@ class GenericGenericTerminologyServerClientClientSettingsTest {
                 .setSocketTimeout(socketTimeout)
                 .setCrmiVersion("2.0.0")
                 .setExpansionsPerPage(expansionsPerPage)
-                .setMaxExpansionPages(maxExpansionPages);
+                .setMaxExpansionPages(maxExpansionPages)
+                .setEndpointResolution(TerminologyServerClientSettings.EndpointResolution.HEDGED)
+                .setHedgeDelayMillis(250)
+                .setCircuitBreakerFailureThreshold(5)
+                .setCircuitBreakerOpenMillis(30_000)
+                .setNegativeCacheMillis(0);
         assertEquals(retryCount, settings.getMaxRetryCount());
         assertEquals(interval, settings.getRetryIntervalMillis());
         assertEquals(timeout, settings.getTimeoutSeconds());
@@ -36,5 +41,10 @@ class GenericGenericTerminologyServerClientClientSettingsTest {
         assertEquals(settings.getCrmiVersion(), copy.getCrmiVersion());
         assertEquals(settings.getExpansionsPerPage(), copy.getExpansionsPerPage());
         assertEquals(settings.getMaxExpansionPages(), copy.getMaxExpansionPages());
+        assertEquals(settings.getEndpointResolution(), copy.getEndpointResolution());
+        assertEquals(settings.getHedgeDelayMillis(), copy.getHedgeDelayMillis());
+        assertEquals(settings.getCircuitBreakerFailureThreshold(), copy.getCircuitBreakerFailureThreshold());
+        assertEquals(settings.getCircuitBreakerOpenMillis(), copy.getCircuitBreakerOpenMillis());
+        assertEquals(settings.getNegativeCacheMillis(), copy.getNegativeCacheMillis());
     }
 }
@@ -0,0 +1,37 @@
+package org.opencds.cqf.fhir.utility.client.terminology;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class EndpointCircuitBreakerTest {
+
+    private static final String ADDRESS = "https://example.org/fhir";
+
+    @Test
+    void opensAfterThresholdAndRetriesAfterCoolDown() {
+        var now = new AtomicLong();
+        var circuitBreaker = new EndpointCircuitBreaker(2, 1_000, now::get);
+
+        circuitBreaker.recordFailure(ADDRESS);
+        assertTrue(circuitBreaker.allowRequest(ADDRESS));
+
+        circuitBreaker.recordFailure(ADDRESS);
+        assertFalse(circuitBreaker.allowRequest(ADDRESS));
+        assertTrue(circuitBreaker.allowRequest("https://other.org/fhir"));
+
+        now.set(1_000);
+        assertTrue(circuitBreaker.allowRequest(ADDRESS));
+
+        // A failed retry opens it again straight away
+        circuitBreaker.recordFailure(ADDRESS);
+        assertFalse(circuitBreaker.allowRequest(ADDRESS));
+
+        now.set(2_000);
+        circuitBreaker.recordSuccess(ADDRESS);
+        circuitBreaker.recordFailure(ADDRESS);
+        assertTrue(circuitBreaker.allowRequest(ADDRESS));
+    }
+}
@@ -3,18 +3,27 @@ package org.opencds.cqf.fhir.utility.client.terminology;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.rest.client.exceptions.FhirClientConnectionException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hl7.fhir.instance.model.api.IDomainResource;
 import org.hl7.fhir.r4.model.Endpoint;
 import org.hl7.fhir.r4.model.ValueSet;
@@ -24,6 +33,8 @@ import org.opencds.cqf.fhir.utility.adapter.IAdapterFactory;
 import org.opencds.cqf.fhir.utility.adapter.IEndpointAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IParametersAdapter;
 import org.opencds.cqf.fhir.utility.adapter.IValueSetAdapter;
+import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings;
+import org.opencds.cqf.fhir.utility.client.TerminologyServerClientSettings.EndpointResolution;
 
 class FederatedTerminologyProviderRouterTest {
 
@@ -445,8 +456,167 @@ class FederatedTerminologyProviderRouterTest {
         assertTrue(result.isPresent());
     }
 
+    // --- Endpoint resolution strategies ---
+
+    @Test
+    void getValueSetResource_hedged_takesAnswerOfFasterEndpoint() {
+        var settings = TerminologyServerClientSettings.getDefault()
+                .setEndpointResolution(EndpointResolution.HEDGED)
+                .setHedgeDelayMillis(50);
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext, settings));
+        var slow = new ValueSet().setUrl(EXAMPLE_VALUESET_URL).setVersion("slow");
+        var fast = new ValueSet().setUrl(EXAMPLE_VALUESET_URL).setVersion("fast");
+        stubValueSetLookups(
+                router,
+                Map.of("https://slow.server.com/fhir", 5_000L, "https://fast.server.com/fhir", 10L),
+                Map.of("https://slow.server.com/fhir", slow, "https://fast.server.com/fhir", fast));
+
+        var start = System.nanoTime();
+        var result = router.getValueSetResource(
+                List.of(
+                        createEndpointAdapter("https://slow.server.com/fhir"),
+                        createEndpointAdapter("https://fast.server.com/fhir")),
+                EXAMPLE_VALUESET_URL);
+
+        assertTrue(result.isPresent());
+        assertEquals("fast", ((ValueSet) result.get()).getVersion());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+    }
+
+    @Test
+    void getValueSetResource_parallel_skipsEndpointsWithoutAnswer() {
+        var settings = TerminologyServerClientSettings.getDefault().setEndpointResolution(EndpointResolution.PARALLEL);
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext, settings));
+        var known = new ValueSet().setUrl(EXAMPLE_VALUESET_URL);
+        stubValueSetLookups(
+                router,
+                Map.of("https://empty.server.com/fhir", 10L, "https://known.server.com/fhir", 100L),
+                Map.of("https://known.server.com/fhir", known));
+
+        var result = router.getValueSetResource(
+                List.of(
+                        createEndpointAdapter("https://empty.server.com/fhir"),
+                        createEndpointAdapter("https://known.server.com/fhir")),
+                EXAMPLE_VALUESET_URL);
+
+        assertTrue(result.isPresent());
+        assertSame(known, result.get());
+    }
+
+    @Test
+    void getValueSetResource_failingEndpointIsSkippedWhileCircuitIsOpen() {
+        var settings = TerminologyServerClientSettings.getDefault()
+                .setCircuitBreakerFailureThreshold(1)
+                .setCircuitBreakerOpenMillis(60_000)
+                .setNegativeCacheMillis(0);
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext, settings));
+        var failing = createEndpointAdapter("https://failing.server.com/fhir");
+        var healthy = createEndpointAdapter("https://healthy.server.com/fhir");
+        var failingCalls = new AtomicInteger();
+        doAnswer(invocation -> {
+                    IEndpointAdapter endpoint = invocation.getArgument(0);
+                    if (endpoint.getAddress().equals(failing.getAddress())) {
+                        failingCalls.incrementAndGet();
+                        throw new FhirClientConnectionException("Connection failed");
+                    }
+                    return Optional.of((IDomainResource) new ValueSet());
+                })
+                .when(router)
+                .getValueSetResource(any(IEndpointAdapter.class), anyString());
+
+        assertTrue(router.getValueSetResource(List.of(failing, healthy), EXAMPLE_VALUESET_URL)
+                .isPresent());
+        assertTrue(router.getValueSetResource(List.of(failing, healthy), EXAMPLE_VALUESET_URL)
+                .isPresent());
+        assertEquals(1, failingCalls.get());
+    }
+
+    @Test
+    void getValueSetResource_failureIsRethrownWhenNoEndpointAnswers() {
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext));
+        doThrow(new RuntimeException("Connection failed"))
+                .when(router)
+                .getValueSetResource(any(IEndpointAdapter.class), anyString());
+
+        var endpoints = List.of(createEndpointAdapter("https://server1.com/fhir"));
+        assertThrows(RuntimeException.class, () -> router.getValueSetResource(endpoints, EXAMPLE_VALUESET_URL));
+    }
+
+    @Test
+    void getValueSetResource_lookupErrorsDoNotOpenCircuit() {
+        var settings = TerminologyServerClientSettings.getDefault().setCircuitBreakerFailureThreshold(1);
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext, settings));
+        var lookups = new AtomicInteger();
+        doAnswer(invocation -> {
+                    lookups.incrementAndGet();
+                    throw new UnprocessableEntityException("Unknown ValueSet");
+                })
+                .when(router)
+                .getValueSetResource(any(IEndpointAdapter.class), anyString());
+
+        var endpoints = List.of(createEndpointAdapter("https://server1.com/fhir"));
+        for (int i = 0; i < 3; i++) {
+            assertThrows(
+                    UnprocessableEntityException.class,
+                    () -> router.getValueSetResource(endpoints, EXAMPLE_VALUESET_URL + "-unknown"));
+        }
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    void getValueSetResource_failsWhenEveryCircuitIsOpen() {
+        var settings = TerminologyServerClientSettings.getDefault()
+                .setCircuitBreakerFailureThreshold(1)
+                .setCircuitBreakerOpenMillis(60_000);
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext, settings));
+        doThrow(new FhirClientConnectionException("Connection failed"))
+                .when(router)
+                .getValueSetResource(any(IEndpointAdapter.class), anyString());
+
+        var endpoints = List.of(createEndpointAdapter("https://server1.com/fhir"));
+        assertThrows(
+                FhirClientConnectionException.class,
+                () -> router.getValueSetResource(endpoints, EXAMPLE_VALUESET_URL));
+        // The server being unavailable is not reported as the ValueSet not being found
+        assertThrows(
+                InternalErrorException.class, () -> router.getValueSetResource(endpoints, EXAMPLE_VALUESET_URL));
+    }
+
+    @Test
+    void getValueSetResource_unknownUrlIsRemembered() {
+        var settings = TerminologyServerClientSettings.getDefault().setNegativeCacheMillis(300_000);
+        var router = spy(new FederatedTerminologyProviderRouter(fhirContext, settings));
+        var lookups = new AtomicInteger();
+        doAnswer(invocation -> {
+                    lookups.incrementAndGet();
+                    return Optional.empty();
+                })
+                .when(router)
+                .getValueSetResource(any(IEndpointAdapter.class), anyString());
+
+        var endpoints = List.of(
+                createEndpointAdapter("https://server1.com/fhir"), createEndpointAdapter("https://server2.com/fhir"));
+        assertTrue(router.getValueSetResource(endpoints, EXAMPLE_VALUESET_URL).isEmpty());
+        assertTrue(router.getValueSetResource(endpoints, EXAMPLE_VALUESET_URL).isEmpty());
+        assertEquals(2, lookups.get());
+
+        assertTrue(router.getValueSetResource(endpoints, VSAC_VALUESET_URL).isEmpty());
+        assertEquals(4, lookups.get());
+    }
+
     // --- Helper methods ---
 
+    private static void stubValueSetLookups(
+            FederatedTerminologyProviderRouter router, Map<String, Long> latencies, Map<String, ValueSet> answers) {
+        doAnswer(invocation -> {
+                    IEndpointAdapter endpoint = invocation.getArgument(0);
+                    Thread.sleep(latencies.get(endpoint.getAddress()));
+                    return Optional.ofNullable((IDomainResource) answers.get(endpoint.getAddress()));
+                })
+                .when(router)
+                .getValueSetResource(any(IEndpointAdapter.class), anyString());
+    }
+
     private IEndpointAdapter createEndpointAdapter(String address) {
         var endpoint = new Endpoint();
         endpoint.setAddress(address);
@@ -0,0 +1,161 @@
+package org.opencds.cqf.fhir.utility.client.terminology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.TerminologyCapabilities;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencds.cqf.fhir.utility.client.terminology.TerminologyServerClientRegistry.ClientKey;
+
+class TerminologyServerClientRegistryTest {
+
+    private final FhirContext fhirContext = FhirContext.forR4();
+    private final AtomicInteger metadataRequests = new AtomicInteger();
+    private final AtomicInteger valueSetRequests = new AtomicInteger();
+    private HttpServer server;
+    private String address;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        fhirContext.getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fhir/metadata", exchange -> {
+            metadataRequests.incrementAndGet();
+            respond(exchange, new TerminologyCapabilities().setVersion("1.0"));
+        });
+        server.createContext("/fhir/ValueSet", exchange -> {
+            valueSetRequests.incrementAndGet();
+            var bundle = new Bundle().setType(Bundle.BundleType.SEARCHSET);
+            bundle.addEntry().setResource(new ValueSet().setUrl("http://example.org/ValueSet/vs"));
+            respond(exchange, bundle);
+        });
+        server.start();
+        address = "http://localhost:" + server.getAddress().getPort() + "/fhir";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void clientIsCreatedOncePerEndpoint() {
+        var registry = new TerminologyServerClientRegistry();
+        var initializations = new AtomicInteger();
+        var key = new ClientKey(fhirContext, address, List.of("Authorization: Bearer token"), List.of(), 60);
+
+        var client = registry.getClient(key, c -> initializations.incrementAndGet());
+        for (int i = 0; i < 3; i++) {
+            assertSame(client, registry.getClient(key, c -> initializations.incrementAndGet()));
+            client.search().forResource(ValueSet.class).returnBundle(Bundle.class).execute();
+        }
+
+        assertEquals(1, initializations.get());
+        assertEquals(1, registry.getClientsCreated());
+        assertEquals(3, registry.getClientsReused());
+        assertEquals(3, valueSetRequests.get());
+    }
+
+    @Test
+    void clientKeyDoesNotPrintSecrets() {
+        var key = new ClientKey(
+                fhirContext, address, List.of("Authorization: Bearer token"), List.of("user:password"), 60);
+
+        var printed = key.toString();
+
+        assertTrue(printed.contains(address), printed);
+        assertTrue(printed.contains("Authorization"), printed);
+        assertFalse(printed.contains("token"), printed);
+        assertFalse(printed.contains("password"), printed);
+    }
+
+    @Test
+    void endpointsDifferingInHeadersOrTimeoutGetTheirOwnClients() {
+        var registry = new TerminologyServerClientRegistry();
+        var sharedSocketTimeout = fhirContext.getRestfulClientFactory().getSocketTimeout();
+
+        var client = registry.getClient(new ClientKey(fhirContext, address, List.of(), List.of(), 60), c -> {});
+        var otherHeaders =
+                registry.getClient(new ClientKey(fhirContext, address, List.of("X-Test: 1"), List.of(), 60), c -> {});
+        var otherTimeout = registry.getClient(new ClientKey(fhirContext, address, List.of(), List.of(), 5), c -> {});
+
+        assertNotSame(client, otherHeaders);
+        assertNotSame(client, otherTimeout);
+        assertEquals(3, registry.getClientsCreated());
+        assertEquals(sharedSocketTimeout, fhirContext.getRestfulClientFactory().getSocketTimeout());
+    }
+
+    @Test
+    void capabilitiesAreFetchedOncePerEndpoint() {
+        var registry = new TerminologyServerClientRegistry();
+        var key = new ClientKey(fhirContext, address, List.of(), List.of(), 60);
+
+        TerminologyCapabilities capabilities = null;
+        for (int i = 0; i < 3; i++) {
+            capabilities = registry.getCapabilities(
+                    key,
+                    c -> {},
+                    TerminologyCapabilities.class,
+                    c -> c.fetchResourceFromUrl(TerminologyCapabilities.class, "/metadata?mode=terminology"));
+        }
+
+        assertEquals("1.0", capabilities.getVersion());
+        assertEquals(1, metadataRequests.get());
+        assertEquals(1, registry.getCapabilitiesFetched());
+        assertEquals(2, registry.getCapabilitiesReused());
+
+        registry.clear();
+        registry.getCapabilities(
+                key,
+                c -> {},
+                TerminologyCapabilities.class,
+                c -> c.fetchResourceFromUrl(TerminologyCapabilities.class, "/metadata?mode=terminology"));
+        assertEquals(2, metadataRequests.get());
+    }
+
+    @Test
+    void capabilitiesAreFetchedAgainOnceTheyExpire() {
+        var registry = new TerminologyServerClientRegistry(10, Duration.ZERO);
+        var key = new ClientKey(fhirContext, address, List.of(), List.of(), 60);
+
+        for (int i = 0; i < 2; i++) {
+            registry.getCapabilities(
+                    key,
+                    c -> {},
+                    TerminologyCapabilities.class,
+                    c -> c.fetchResourceFromUrl(TerminologyCapabilities.class, "/metadata?mode=terminology"));
+        }
+
+        assertEquals(2, metadataRequests.get());
+        assertEquals(2, registry.getCapabilitiesFetched());
+        assertEquals(1, registry.getClientsCreated());
+    }
+
+    private void respond(HttpExchange exchange, IBaseResource resource) throws IOException {
+        var body = fhirContext.newJsonParser().encodeResourceToString(resource).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/fhir+json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.opencds.cqf.fhir.utility.client.terminology;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -114,4 +116,28 @@ class VsacTerminologyServerClientTest {
         var client = new VsacTerminologyServerClient(fhirContextR4, settings);
         assertEquals(10, client.getTerminologyServerClientSettings().getTimeoutSeconds());
     }
+
+    @Test
+    void initializeClientWithAuth_differentCredentials_getDifferentClients() {
+        var registry = new TerminologyServerClientRegistry();
+        var client = new VsacTerminologyServerClient(fhirContextR4, null, registry);
+
+        var first = vsacEndpoint("testuser", "testapikey");
+        var sameCredentials = vsacEndpoint("testuser", "testapikey");
+        var otherCredentials = vsacEndpoint("otheruser", "otherapikey");
+
+        var fhirClient = client.initializeClientWithAuth(first);
+        assertSame(fhirClient, client.initializeClientWithAuth(sameCredentials));
+        assertNotSame(fhirClient, client.initializeClientWithAuth(otherCredentials));
+        assertEquals(2, registry.getClientsCreated());
+        assertEquals(1, registry.getClientsReused());
+    }
+
+    private static IEndpointAdapter vsacEndpoint(String username, String apiKey) {
+        var endpoint = new Endpoint();
+        endpoint.setAddress("https://cts.nlm.nih.gov/fhir");
+        endpoint.addExtension(new Extension(Constants.VSAC_USERNAME, new StringType(username)));
+        endpoint.addExtension(new Extension(Constants.APIKEY, new StringType(apiKey)));
+        return (IEndpointAdapter) IAdapterFactory.createAdapterForResource(endpoint);
+    }
 }
@@ -7,12 +7,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.repository.IRepository;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Patient;
@@ -135,4 +139,78 @@ class BundleIterableTest {
         iterable.iterator().forEachRemaining(results::add);
         assertEquals(3, results.size());
     }
+
+    @Test
+    void readAheadIteratorReturnsPagesInOrder() {
+        var repo = pagedRepo(List.of(List.of("p1", "p2"), List.of("p3"), List.of(), List.of("p4", "p5")));
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var iter = new BundleIterator<>(repo, firstPage(repo), 2, executor);
+            var results = new ArrayList<String>();
+            iter.forEachRemaining(entry -> results.add(entry.getResource().getIdElement().getIdPart()));
+            assertEquals(List.of("p1", "p2", "p3", "p4", "p5"), results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void readAheadStartsWithTheIteration() {
+        var repo = pagedRepo(List.of(List.of("p1"), List.of("p2")));
+        var iter = new BundleIterator<>(repo, firstPage(repo), 1, Runnable::run);
+
+        verify(repo, never()).link(Bundle.class, "page-1");
+
+        assertTrue(iter.hasNext());
+        verify(repo).link(Bundle.class, "page-1");
+    }
+
+    @Test
+    void longRunOfEmptyPagesIsSkipped() {
+        var pages = new ArrayList<List<String>>();
+        pages.add(List.of("p1"));
+        for (int i = 0; i < 20_000; i++) {
+            pages.add(List.of());
+        }
+        pages.add(List.of("p2"));
+        var repo = pagedRepo(pages);
+
+        var iterable = new BundleMappingIterable<>(
+                repo, firstPage(repo), e -> e.getResource().getIdElement().getIdPart());
+        assertEquals(List.of("p1", "p2"), iterable.toStream().toList());
+    }
+
+    @Test
+    void readAheadRequiresExecutor() {
+        var repo = mockRepo();
+        var bundle = new Bundle();
+        assertThrows(IllegalArgumentException.class, () -> new BundleIterator<>(repo, bundle, 1, null));
+    }
+
+    /**
+     * A repository whose pages are linked by the urls page-0, page-1, ...
+     */
+    private IRepository pagedRepo(List<List<String>> pages) {
+        var repo = mockRepo();
+        var bundles = new ArrayList<Bundle>();
+        for (int i = 0; i < pages.size(); i++) {
+            var bundle = new Bundle();
+            for (var id : pages.get(i)) {
+                bundle.addEntry().setResource(new Patient().setId(id));
+            }
+            if (i + 1 < pages.size()) {
+                bundle.addLink().setRelation("next").setUrl("page-" + (i + 1));
+            }
+            bundles.add(bundle);
+        }
+        when(repo.link(eq(Bundle.class), any(String.class))).thenAnswer(invocation -> {
+            String url = invocation.getArgument(1);
+            return bundles.get(Integer.parseInt(url.substring("page-".length())));
+        });
+        return repo;
+    }
+
+    private static Bundle firstPage(IRepository repo) {
+        return repo.link(Bundle.class, "page-0");
+    }
 }
@@ -0,0 +1,85 @@
+package org.opencds.cqf.fhir.utility.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class InMemoryInstrumentationTest {
+
+    @Test
+    void noopRecordsNothing() {
+        var instrumentation = Instrumentation.noop();
+        assertFalse(instrumentation.isEnabled());
+        try (var span = instrumentation.startSpan("outer")) {
+            assertSame(span, span.setAttribute("key", "value"));
+        }
+        instrumentation.increment("counter");
+        instrumentation.recordTime("timer", 10);
+    }
+
+    @Test
+    void countersAndTimers() {
+        var instrumentation = new InMemoryInstrumentation();
+        instrumentation.increment("counter");
+        instrumentation.increment("counter", 4);
+        instrumentation.recordTime("timer", 10);
+        instrumentation.recordTime("timer", 30);
+
+        assertEquals(5, instrumentation.getCount("counter"));
+        assertEquals(0, instrumentation.getCount("other"));
+        assertEquals(new InMemoryInstrumentation.TimerSnapshot(2, 40, 30), instrumentation.getTimer("timer"));
+        assertEquals(new InMemoryInstrumentation.TimerSnapshot(0, 0, 0), instrumentation.getTimer("other"));
+
+        instrumentation.reset();
+        assertEquals(0, instrumentation.getCount("counter"));
+        assertEquals(0, instrumentation.getTimer("timer").count());
+    }
+
+    @Test
+    void spansAreNestedAndTimed() {
+        var instrumentation = new InMemoryInstrumentation();
+        var failure = new IllegalStateException("failed");
+        try (var outer = instrumentation.startSpan("outer")) {
+            outer.setAttribute("key", "value").setAttribute("ignored", null);
+            try (var inner = instrumentation.startSpan("inner")) {
+                inner.setError(failure);
+            }
+        }
+        try (var next = instrumentation.startSpan("next")) {
+            next.setAttribute("key", "other");
+        }
+
+        var spans = instrumentation.getSpans();
+        assertEquals(3, spans.size());
+        assertEquals("inner", spans.get(0).name());
+        assertEquals("outer", spans.get(0).parentName());
+        assertSame(failure, spans.get(0).error());
+        assertEquals("outer", spans.get(1).name());
+        assertNull(spans.get(1).parentName());
+        assertEquals(Map.of("key", "value"), spans.get(1).attributes());
+        assertTrue(spans.get(1).durationNanos() >= spans.get(0).durationNanos());
+        assertNull(spans.get(2).parentName());
+
+        assertEquals(1, instrumentation.getSpans("inner").size());
+        assertEquals(1, instrumentation.getTimer("outer").count());
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentSpans() {
+        var instrumentation = new InMemoryInstrumentation(2);
+        for (var name : new String[] {"first", "second", "third"}) {
+            instrumentation.startSpan(name).close();
+        }
+
+        var spans = instrumentation.getSpans();
+        assertEquals(2, spans.size());
+        assertEquals("second", spans.get(0).name());
+        assertEquals("third", spans.get(1).name());
+        assertEquals(1, instrumentation.getTimer("first").count());
+    }
+}
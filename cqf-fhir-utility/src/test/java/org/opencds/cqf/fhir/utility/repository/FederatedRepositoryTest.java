@@ -2,16 +2,35 @@ package org.opencds.cqf.fhir.utility.repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.repository.IRepository;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.NotImplementedOperationException;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleType;
 import org.hl7.fhir.r4.model.Patient;
@@ -59,4 +78,126 @@ class FederatedRepositoryTest {
         verify(mockRestRepository, times(1)).link(any(), any(), any());
         assertSame(bundle, result);
     }
+
+    @Test
+    void searchReturnsFirstPagesAndPagesLazily() {
+        var local = mock(IRepository.class);
+        var member = mock(IRepository.class);
+        doReturn(FhirContext.forR4Cached()).when(local).fhirContext();
+        doReturn(page("local-2", "p1")).when(local).search(any(), any(), any(), any());
+        doReturn(page(null, "p2")).when(member).search(any(), any(), any(), any());
+        doReturn(page(null, "p3")).when(local).link(any(), eq("local-2"), any());
+
+        var federated = new FederatedRepository(local, member);
+        Bundle first = federated.search(Bundle.class, Patient.class, ArrayListMultimap.create(), Map.of());
+
+        assertEquals(List.of("p1", "p2"), ids(first));
+        assertEquals(BundleType.SEARCHSET, first.getType());
+        var next = first.getLink(Bundle.LINK_NEXT).getUrl();
+        assertTrue(next.startsWith(FederatedRepository.PAGING_TOKEN_PREFIX));
+        verify(local, never()).link(any(), any(), any());
+
+        Bundle second = federated.link(Bundle.class, next, Map.of());
+
+        assertEquals(List.of("p3"), ids(second));
+        assertNull(second.getLink(Bundle.LINK_NEXT));
+        verify(member, never()).link(any(), any(), any());
+    }
+
+    @Test
+    void searchFailsWhenMemberTimesOut() {
+        var local = mock(IRepository.class);
+        var member = mock(IRepository.class);
+        doReturn(FhirContext.forR4Cached()).when(local).fhirContext();
+        doReturn(page(null, "p1")).when(local).search(any(), any(), any(), any());
+        var hang = new CountDownLatch(1);
+        doAnswer(invocation -> {
+                    hang.await();
+                    return page(null, "p2");
+                })
+                .when(member)
+                .search(any(), any(), any(), any());
+
+        var federated = new FederatedRepository(
+                new FederatedRepository.Options().setMemberTimeout(Duration.ofMillis(100)), local, member);
+        Multimap<String, List<IQueryParameterType>> searchParameters = ArrayListMultimap.create();
+
+        try {
+            assertThrows(
+                    InternalErrorException.class,
+                    () -> federated.search(Bundle.class, Patient.class, searchParameters, Map.of()));
+        } finally {
+            hang.countDown();
+        }
+    }
+
+    @Test
+    void searchDoesNotWaitForHungMember() {
+        var local = mock(IRepository.class);
+        var member = mock(IRepository.class);
+        doReturn(FhirContext.forR4Cached()).when(local).fhirContext();
+        doReturn(page(null, "p1")).when(local).search(any(), any(), any(), any());
+        var hang = new CountDownLatch(1);
+        var calls = new AtomicInteger();
+        doAnswer(invocation -> {
+                    if (calls.getAndIncrement() == 0) {
+                        // Never returns on its own, like a request to an unresponsive server
+                        hang.await();
+                    }
+                    return page(null, "p2");
+                })
+                .when(member)
+                .search(any(), any(), any(), any());
+
+        var options = new FederatedRepository.Options()
+                .setMemberTimeout(Duration.ofMillis(100))
+                .setMaxConcurrentRequests(1);
+        var federated = new FederatedRepository(options, local, member);
+        Multimap<String, List<IQueryParameterType>> searchParameters = ArrayListMultimap.create();
+
+        try {
+            assertThrows(
+                    InternalErrorException.class,
+                    () -> federated.search(Bundle.class, Patient.class, searchParameters, Map.of()));
+
+            // The hung request gave up its permit when the first search failed
+            Bundle next = assertTimeoutPreemptively(
+                    Duration.ofSeconds(5),
+                    () -> federated.search(Bundle.class, Patient.class, searchParameters, Map.of()));
+            assertEquals(List.of("p1", "p2"), ids(next));
+        } finally {
+            hang.countDown();
+        }
+    }
+
+    @Test
+    void pagingTokenRoundTrips() {
+        var nextPages = new TreeMap<Integer, String>(
+                Map.of(0, "http://local/fhir?_getpages=abc&_offset=10", 2, "http://remote/fhir/Patient?page=2"));
+
+        var token = FederatedRepository.encodePagingToken(nextPages);
+
+        assertTrue(token.startsWith(FederatedRepository.PAGING_TOKEN_PREFIX));
+        assertEquals(nextPages, FederatedRepository.decodePagingToken(token));
+        assertThrows(
+                InvalidRequestException.class,
+                () -> FederatedRepository.decodePagingToken(FederatedRepository.PAGING_TOKEN_PREFIX + "%%%"));
+    }
+
+    private static Bundle page(String next, String... patientIds) {
+        var bundle = new Bundle().setType(BundleType.SEARCHSET);
+        for (var patientId : patientIds) {
+            bundle.addEntry().setResource(new Patient().setId(patientId));
+        }
+        if (next != null) {
+            bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl(next);
+        }
+        return bundle;
+    }
+
+    private static List<String> ids(Bundle bundle) {
+        return bundle.getEntry().stream()
+                .map(entry -> entry.getResource().getIdElement().getIdPart())
+                .toList();
+    }
 }
@@ -9,10 +9,14 @@ import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.CapabilityStatement;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Library;
+import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Reference;
 import org.junit.jupiter.api.Test;
 import org.opencds.cqf.fhir.utility.search.Searches;
 
@@ -75,6 +79,46 @@ public class InMemoryRepositoryTest {
         assertEquals(1, resources.getEntry().size());
     }
 
+    @Test
+    void searchBySubjectAndCode() {
+        for (int i = 0; i < 10; i++) {
+            repository.update(new Observation()
+                    .setSubject(new Reference("Patient/" + (i % 2)))
+                    .setCode(new CodeableConcept(new Coding("http://loinc.org", "code-" + (i % 5), null)))
+                    .setId("Observation/obs-" + i));
+        }
+
+        var search = Searches.builder()
+                .withReferenceParam("subject", "Patient/0")
+                .withTokenParam("code", "code-2", "http://loinc.org")
+                .build();
+        var resources = repository.search(Bundle.class, Observation.class, search);
+        assertEquals(1, resources.getEntry().size());
+        assertEquals("obs-2", resources.getEntry().get(0).getResource().getIdElement().getIdPart());
+
+        search = Searches.builder().withReferenceParam("subject", "Patient/1").build();
+        assertEquals(5, repository.search(Bundle.class, Observation.class, search).getEntry().size());
+
+        search = Searches.builder()
+                .withTokenParam("code", "code-2", "http://snomed.info/sct")
+                .build();
+        assertEquals(0, repository.search(Bundle.class, Observation.class, search).getEntry().size());
+
+        // Changes are seen by the next search
+        repository.update(new Observation()
+                .setSubject(new Reference("Patient/0"))
+                .setCode(new CodeableConcept(new Coding("http://loinc.org", "code-2", null)))
+                .setId("Observation/obs-4"));
+        search = Searches.builder()
+                .withReferenceParam("subject", "Patient/0")
+                .withTokenParam("code", "code-2")
+                .build();
+        assertEquals(2, repository.search(Bundle.class, Observation.class, search).getEntry().size());
+
+        repository.delete(Observation.class, new IdType("Observation/obs-2"));
+        assertEquals(1, repository.search(Bundle.class, Observation.class, search).getEntry().size());
+    }
+
     @Test
     void deleteWithId() {
         try {
@@ -0,0 +1,78 @@
+package org.opencds.cqf.fhir.utility.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.client.api.IClientInterceptor;
+import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.Test;
+
+class RestRepositoryTest {
+
+    @Test
+    void searchElementsRequestsOnlyTheGivenElements() {
+        var requests = new ArrayList<String>();
+        var repository = newRepository(requests);
+        Multimap<String, List<IQueryParameterType>> searchParameters = ArrayListMultimap.create();
+        searchParameters.put("subject", List.of(new ReferenceParam("Patient/a")));
+
+        assertThrows(
+                RuntimeException.class,
+                () -> repository.searchElements(Bundle.class, Observation.class, searchParameters, Set.of("subject")));
+
+        assertEquals(1, requests.size());
+        var url = requests.get(0);
+        assertTrue(url.startsWith("http://localhost/fhir/Observation?"), url);
+        assertTrue(url.contains("subject="), url);
+        assertTrue(url.contains("_elements=subject"), url);
+    }
+
+    @Test
+    void searchElementsWithoutElementsRequestsWholeResources() {
+        var requests = new ArrayList<String>();
+        var repository = newRepository(requests);
+
+        assertThrows(
+                RuntimeException.class,
+                () -> repository.searchElements(Bundle.class, Observation.class, null, Set.of()));
+
+        assertEquals(1, requests.size());
+        assertFalse(requests.get(0).contains("_elements"), requests.get(0));
+    }
+
+    // Records the url of each request and stops it before anything is sent
+    private static RestRepository newRepository(List<String> requests) {
+        var fhirContext = FhirContext.forR4();
+        fhirContext.getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+        var client = fhirContext.newRestfulGenericClient("http://localhost/fhir");
+        client.registerInterceptor(new IClientInterceptor() {
+            @Override
+            public void interceptRequest(IHttpRequest request) {
+                requests.add(request.getUri());
+                throw new RequestCaptured();
+            }
+
+            @Override
+            public void interceptResponse(IHttpResponse response) {
+                // Never reached
+            }
+        });
+        return new RestRepository(client);
+    }
+
+    private static class RequestCaptured extends RuntimeException {}
+}